@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2;
+
+import java.util.concurrent.Future;
+
+/**
+ * The asynchronous operations of a file, returned by {@link FileObject#async}.
+ * <p>
+ * Each operation returns at once, with a {@link Future} of its result. The operations
+ * run on the executor of the file system manager, unless the provider performs them with
+ * its own asynchronous I/O. The exception of a failed operation is thrown by
+ * {@link Future#get} wrapped in an {@link java.util.concurrent.ExecutionException}.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public interface AsyncFileObject
+{
+    /**
+     * @return The file the operations apply to.
+     */
+    FileObject getFile();
+
+    /**
+     * Determines if the file exists.
+     * @return The future of {@link FileObject#exists}.
+     */
+    Future<Boolean> exists();
+
+    /**
+     * Lists the children of the file.
+     * @return The future of {@link FileObject#getChildren}.
+     */
+    Future<FileObject[]> getChildren();
+
+    /**
+     * Reads the whole content of the file.
+     * @return The future of the content.
+     */
+    Future<byte[]> readAllBytes();
+
+    /**
+     * Copies the file, and the descendents selected, to another file.
+     * @param destFile The file to copy to.
+     * @param selector The selector of the files to copy.
+     * @return The future of the copy, which completes with the destination file.
+     * @see FileObject#copyFrom
+     */
+    Future<FileObject> copyTo(FileObject destFile, FileSelector selector);
+
+    /**
+     * Deletes the file, if it is a file or an empty folder.
+     * @return The future of {@link FileObject#delete()}.
+     */
+    Future<Boolean> delete();
+
+    /**
+     * Deletes the file and the descendents selected.
+     * @param selector The selector of the files to delete.
+     * @return The future of {@link FileObject#delete(FileSelector)}, the number of files deleted.
+     */
+    Future<Integer> delete(FileSelector selector);
+}
@@ -18,6 +18,8 @@ package org.apache.commons.vfs2;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.security.cert.Certificate;
 import java.util.Map;
 
@@ -211,6 +213,33 @@ public interface FileContent
      */
     OutputStream getOutputStream(boolean bAppend) throws FileSystemException;
 
+    /**
+     * Returns a channel for reading the file's content.
+     * <p/>
+     * The channel reads from the stream returned by {@link #getInputStream()},
+     * and closing the channel closes that stream.
+     *
+     * @return A channel to read the file's content from.
+     * @throws FileSystemException If the file does not exist, or is being read, or is being written,
+     *                             or on error opening the stream.
+     * @since 2.1
+     */
+    ReadableByteChannel getReadableChannel() throws FileSystemException;
+
+    /**
+     * Returns a channel for writing the file's content.
+     * <p/>
+     * The channel writes to the stream returned by {@link #getOutputStream(boolean)},
+     * and closing the channel closes that stream.
+     *
+     * @param bAppend true if you would like to append to the file
+     * @return A channel to write the file's content to.
+     * @throws FileSystemException If the file is read-only, or is being read, or is being written,
+     *                             or on error opening the stream.
+     * @since 2.1
+     */
+    WritableByteChannel getWritableChannel(boolean bAppend) throws FileSystemException;
+
     /**
      * Closes all resources used by the content, including any open stream.
      * Commits pending changes to the file.
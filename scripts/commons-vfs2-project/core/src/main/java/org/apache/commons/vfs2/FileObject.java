@@ -339,4 +339,13 @@ public interface FileObject
      * @throws FileSystemException if an error occurs.
      */
     FileOperations getFileOperations() throws FileSystemException;
+
+    /**
+     * Returns the asynchronous operations of this file, which return at once and
+     * complete on another thread.
+     * @return The asynchronous operations.
+     * @throws FileSystemException if an error occurs.
+     * @since 2.1
+     */
+    AsyncFileObject async() throws FileSystemException;
 }
@@ -20,6 +20,7 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Random Access Content.
@@ -85,4 +86,34 @@ public interface RandomAccessContent extends DataOutput, DataInput
      * @throws IOException if an I/O error occurs.
      */
     InputStream getInputStream() throws IOException;
+
+    /**
+     * Reads bytes at the file pointer into a buffer, up to the remaining bytes of
+     * the buffer, and moves the file pointer past them.
+     *
+     * @param buffer the buffer to read into.
+     * @return the number of bytes read, or -1 at the end of the file.
+     * @throws IOException if an I/O error occurs.
+     * @since 2.1
+     */
+    int read(ByteBuffer buffer) throws IOException;
+
+    /**
+     * Writes the remaining bytes of a buffer at the file pointer, and moves the
+     * file pointer past them.
+     *
+     * @param buffer the buffer to write.
+     * @throws IOException if an I/O error occurs.
+     * @since 2.1
+     */
+    void write(ByteBuffer buffer) throws IOException;
+
+    /**
+     * Makes sure the bytes written so far are stored on the device holding the
+     * file, when the file system supports it.
+     *
+     * @throws IOException if an I/O error occurs.
+     * @since 2.1
+     */
+    void force() throws IOException;
 }
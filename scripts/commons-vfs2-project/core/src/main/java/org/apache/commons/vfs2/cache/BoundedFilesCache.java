@@ -0,0 +1,720 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.VfsLog;
+import org.apache.commons.vfs2.util.Messages;
+
+/**
+ * A concurrent cache bounded by a number of files, or by the weight of the files,
+ * across all file systems.<br>
+ * Lookups do not lock: they read a concurrent map and record the access in a buffer,
+ * which is replayed into the eviction policy by the next write. The policy is
+ * W-TinyLFU: new files go through a small LRU window, and a file leaving the window
+ * only replaces the least recently used file of the main space if it has been used
+ * more often, as estimated by a count-min sketch. A burst of files used once can so
+ * not push out the files which are used all the time.<br>
+ * As with {@link LRUFilesCache}, attached files and files with open content are not
+ * evicted; the cache grows beyond its bound while only those are left. Eviction only
+ * looks at a few of the least recently used files of each queue, and moves those in
+ * use to the end of their queue, so that adding a file to a cache full of files in
+ * use does not walk them all.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public class BoundedFilesCache extends AbstractFilesCache
+{
+    /** The default number of files. */
+    private static final int DEFAULT_MAXIMUM_SIZE = 1000;
+
+    /** The number of recorded reads which triggers replaying them. */
+    private static final int READ_BUFFER_DRAIN_THRESHOLD = 64;
+
+    /** The number of recorded reads above which reads are not recorded. */
+    private static final int READ_BUFFER_MAXIMUM = 1024;
+
+    /** The number of files of a queue looked at for one which may be evicted. */
+    private static final int EVICTION_SCAN_LIMIT = 8;
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    /**
+     * The logger to use.
+     */
+    private final Log log = LogFactory.getLog(BoundedFilesCache.class);
+
+    /** The files, by file system and name. */
+    private final ConcurrentMap<FileSystem, ConcurrentMap<FileName, Node>> filesystemCache =
+        new ConcurrentHashMap<FileSystem, ConcurrentMap<FileName, Node>>(10);
+
+    private final Weigher weigher;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+
+    /** Guards the policy: the queues, their weights and the sketch. */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final Queue<Node> readBuffer = new ConcurrentLinkedQueue<Node>();
+    private final AtomicInteger readBufferSize = new AtomicInteger();
+
+    private final AccessQueue[] queues = {new AccessQueue(), new AccessQueue(), new AccessQueue()};
+    private final FrequencySketch sketch;
+    private long weight;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Computes the weight of a file for a cache bounded by weight.
+     */
+    public interface Weigher
+    {
+        /**
+         * Returns the weight of a file.
+         * @param file the file
+         * @return the weight, at least 1
+         */
+        int weigh(FileObject file);
+    }
+
+    /**
+     * Counts every file as 1.
+     */
+    private static final Weigher SINGLETON_WEIGHER = new Weigher()
+    {
+        public int weigh(final FileObject file)
+        {
+            return 1;
+        }
+    };
+
+    /**
+     * Default constructor. Holds up to 1000 files.
+     */
+    public BoundedFilesCache()
+    {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a cache bounded by the number of files.
+     *
+     * @param maximumSize the maximum number of files
+     */
+    public BoundedFilesCache(final int maximumSize)
+    {
+        this(maximumSize, SINGLETON_WEIGHER);
+    }
+
+    /**
+     * Creates a cache bounded by the total weight of the files.
+     *
+     * @param maximumWeight the maximum total weight
+     * @param weigher computes the weight of each file
+     */
+    public BoundedFilesCache(final long maximumWeight, final Weigher weigher)
+    {
+        this.maximumWeight = Math.max(1, maximumWeight);
+        this.weigher = weigher;
+        this.windowMaximum = Math.max(1, this.maximumWeight / 100);
+        this.protectedMaximum = (this.maximumWeight - this.windowMaximum) * 4 / 5;
+        this.sketch = new FrequencySketch((int) Math.min(this.maximumWeight, 1 << 20));
+    }
+
+    public void putFile(final FileObject file)
+    {
+        put(file, false);
+    }
+
+    public boolean putFileIfAbsent(final FileObject file)
+    {
+        return put(file, true);
+    }
+
+    private boolean put(final FileObject file, final boolean onlyIfAbsent)
+    {
+        final ConcurrentMap<FileName, Node> files = getOrCreateFilesystemCache(file.getFileSystem());
+        final Node node = new Node(file, Math.max(1, weigher.weigh(file)));
+        final Node previous;
+        evictionLock.lock();
+        try
+        {
+            drainReadBuffer();
+            previous = onlyIfAbsent
+                ? files.putIfAbsent(file.getName(), node)
+                : files.put(file.getName(), node);
+            if (previous != null)
+            {
+                if (onlyIfAbsent)
+                {
+                    return false;
+                }
+                unlink(previous);
+            }
+            sketch.increment(file.getName().hashCode());
+            link(WINDOW, node);
+            evict();
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+        return true;
+    }
+
+    public FileObject getFile(final FileSystem filesystem, final FileName name)
+    {
+        final ConcurrentMap<FileName, Node> files = filesystemCache.get(filesystem);
+        final Node node = files == null ? null : files.get(name);
+        if (node == null)
+        {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+        recordRead(node);
+        return node.file;
+    }
+
+    public void clear(final FileSystem filesystem)
+    {
+        final ConcurrentMap<FileName, Node> files = filesystemCache.remove(filesystem);
+        if (files == null)
+        {
+            return;
+        }
+        evictionLock.lock();
+        try
+        {
+            for (Node node : files.values())
+            {
+                unlink(node);
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        super.close();
+
+        evictionLock.lock();
+        try
+        {
+            filesystemCache.clear();
+            readBuffer.clear();
+            readBufferSize.set(0);
+            for (int i = 0; i < queues.length; i++)
+            {
+                queues[i].clear();
+            }
+            weight = 0;
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    public void removeFile(final FileSystem filesystem, final FileName name)
+    {
+        final ConcurrentMap<FileName, Node> files = filesystemCache.get(filesystem);
+        if (files == null)
+        {
+            return;
+        }
+        evictionLock.lock();
+        try
+        {
+            final Node node = files.remove(name);
+            if (node != null)
+            {
+                unlink(node);
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    public void touchFile(final FileObject file)
+    {
+        getFile(file.getFileSystem(), file.getName());
+    }
+
+    /**
+     * Returns the number of lookups which found a file.
+     * @return the hit count
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups which did not find a file.
+     * @return the miss count
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of files removed to stay within the bound.
+     * @return the eviction count
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount.get();
+    }
+
+    /**
+     * Returns the number of cached files.
+     * @return the number of files
+     */
+    public int getSize()
+    {
+        int size = 0;
+        for (ConcurrentMap<FileName, Node> files : filesystemCache.values())
+        {
+            size += files.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the total weight of the cached files.
+     * @return the weight
+     */
+    public long getWeight()
+    {
+        evictionLock.lock();
+        try
+        {
+            return weight;
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    private ConcurrentMap<FileName, Node> getOrCreateFilesystemCache(final FileSystem filesystem)
+    {
+        ConcurrentMap<FileName, Node> files = filesystemCache.get(filesystem);
+        if (files == null)
+        {
+            filesystemCache.putIfAbsent(filesystem, new ConcurrentHashMap<FileName, Node>());
+            files = filesystemCache.get(filesystem);
+        }
+        return files;
+    }
+
+    /**
+     * Records a read, and replays the recorded reads if there are enough of them and
+     * nobody else holds the policy.
+     */
+    private void recordRead(final Node node)
+    {
+        final int size = readBufferSize.incrementAndGet();
+        if (size > READ_BUFFER_MAXIMUM)
+        {
+            // drop it, the buffer is only a sample
+            readBufferSize.decrementAndGet();
+        }
+        else
+        {
+            readBuffer.add(node);
+        }
+
+        if (size >= READ_BUFFER_DRAIN_THRESHOLD && evictionLock.tryLock())
+        {
+            try
+            {
+                drainReadBuffer();
+            }
+            finally
+            {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Replays the recorded reads. Must hold the eviction lock.
+     */
+    private void drainReadBuffer()
+    {
+        Node node;
+        while ((node = readBuffer.poll()) != null)
+        {
+            readBufferSize.decrementAndGet();
+            if (node.queue < 0)
+            {
+                // removed meanwhile
+                continue;
+            }
+
+            sketch.increment(node.file.getName().hashCode());
+            if (node.queue == PROBATION)
+            {
+                // used again, promote it
+                unlink(node);
+                link(PROTECTED, node);
+                while (queues[PROTECTED].weight > protectedMaximum)
+                {
+                    final Node demoted = queues[PROTECTED].head;
+                    unlink(demoted);
+                    link(PROBATION, demoted);
+                }
+            }
+            else
+            {
+                queues[node.queue].moveToTail(node);
+            }
+        }
+    }
+
+    /**
+     * Moves the files leaving the window to the main space, and evicts files until
+     * the weight is within the bound. Must hold the eviction lock.
+     */
+    private void evict()
+    {
+        while (queues[WINDOW].weight > windowMaximum && queues[WINDOW].head != queues[WINDOW].tail)
+        {
+            final Node candidate = queues[WINDOW].head;
+            unlink(candidate);
+            link(PROBATION, candidate);
+        }
+
+        final List<Node> evicted = new ArrayList<Node>();
+        while (weight > maximumWeight)
+        {
+            // the file which last left the window competes with the least recently used file
+            Node candidate = queues[PROBATION].tail;
+            if (candidate != null && isPinned(candidate.file))
+            {
+                candidate = null;
+            }
+            Node victim = queues[PROBATION].firstEvictable(candidate);
+            if (victim == null)
+            {
+                victim = queues[PROTECTED].firstEvictable(null);
+            }
+            if (victim == null)
+            {
+                victim = queues[WINDOW].firstEvictable(null);
+            }
+
+            final Node evict;
+            if (victim == null)
+            {
+                evict = candidate;
+            }
+            else if (candidate != null
+                && sketch.frequency(candidate.file.getName().hashCode())
+                    <= sketch.frequency(victim.file.getName().hashCode()))
+            {
+                evict = candidate;
+            }
+            else
+            {
+                evict = victim;
+            }
+            if (evict == null)
+            {
+                // only files in use are left
+                break;
+            }
+
+            final ConcurrentMap<FileName, Node> files = filesystemCache.get(evict.file.getFileSystem());
+            if (files != null)
+            {
+                files.remove(evict.file.getName(), evict);
+            }
+            unlink(evict);
+            evicted.add(evict);
+        }
+
+        for (Node node : evicted)
+        {
+            evictionCount.incrementAndGet();
+            try
+            {
+                // force detach
+                node.file.close();
+            }
+            catch (final FileSystemException e)
+            {
+                VfsLog.warn(getLogger(), log, Messages.getString("vfs.impl/BoundedFilesCache-remove-ex.warn"), e);
+            }
+        }
+    }
+
+    private static boolean isPinned(final FileObject file)
+    {
+        return file.isAttached() || file.isContentOpen();
+    }
+
+    private void link(final int queue, final Node node)
+    {
+        node.queue = queue;
+        queues[queue].linkTail(node);
+        weight += node.weight;
+    }
+
+    private void unlink(final Node node)
+    {
+        if (node.queue < 0)
+        {
+            return;
+        }
+        queues[node.queue].unlinkNode(node);
+        node.queue = -1;
+        weight -= node.weight;
+    }
+
+    /**
+     * A cached file.
+     */
+    private static final class Node
+    {
+        private final FileObject file;
+        private final int weight;
+
+        /** The queue holding the node, -1 once removed. Guarded by the eviction lock. */
+        private int queue = -1;
+        private Node prev;
+        private Node next;
+
+        private Node(final FileObject file, final int weight)
+        {
+            this.file = file;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A doubly linked list of nodes, least recently used first.
+     */
+    private static final class AccessQueue
+    {
+        private Node head;
+        private Node tail;
+        private long weight;
+
+        private void linkTail(final Node node)
+        {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null)
+            {
+                head = node;
+            }
+            else
+            {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        private void unlinkNode(final Node node)
+        {
+            if (node.prev == null)
+            {
+                head = node.next;
+            }
+            else
+            {
+                node.prev.next = node.next;
+            }
+            if (node.next == null)
+            {
+                tail = node.prev;
+            }
+            else
+            {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            weight -= node.weight;
+        }
+
+        /**
+         * Returns the least recently used node which may be evicted, among the first
+         * few nodes. The pinned nodes looked at are moved to the tail, so that the next
+         * search looks at others.
+         */
+        private Node firstEvictable(final Node excluded)
+        {
+            Node node = head;
+            for (int i = 0; i < EVICTION_SCAN_LIMIT && node != null; i++)
+            {
+                final Node next = node.next;
+                if (node != excluded)
+                {
+                    if (!isPinned(node.file))
+                    {
+                        return node;
+                    }
+                    moveToTail(node);
+                }
+                node = next;
+            }
+            return null;
+        }
+
+        private void moveToTail(final Node node)
+        {
+            if (node != tail)
+            {
+                unlinkNode(node);
+                linkTail(node);
+            }
+        }
+
+        private void clear()
+        {
+            Node node = head;
+            while (node != null)
+            {
+                final Node next = node.next;
+                node.queue = -1;
+                node.prev = null;
+                node.next = null;
+                node = next;
+            }
+            head = null;
+            tail = null;
+            weight = 0;
+        }
+    }
+
+    /**
+     * A count-min sketch of the access frequencies with four bit counters, halved
+     * periodically so that old accesses fade out.
+     */
+    private static final class FrequencySketch
+    {
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(final int capacity)
+        {
+            int size = 16;
+            while (size < capacity)
+            {
+                size <<= 1;
+            }
+            table = new long[size];
+            mask = size - 1;
+            sampleSize = 10 * size;
+        }
+
+        private int frequency(final int hashCode)
+        {
+            final int hash = spread(hashCode);
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++)
+            {
+                final int h = rehash(hash, i);
+                frequency = Math.min(frequency, (int) ((table[h & mask] >>> shift(h)) & 0xfL));
+            }
+            return frequency;
+        }
+
+        private void increment(final int hashCode)
+        {
+            final int hash = spread(hashCode);
+            boolean added = false;
+            for (int i = 0; i < 4; i++)
+            {
+                final int h = rehash(hash, i);
+                final int index = h & mask;
+                final int shift = shift(h);
+                if (((table[index] >>> shift) & 0xfL) != 0xfL)
+                {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize)
+            {
+                for (int i = 0; i < table.length; i++)
+                {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        private static int shift(final int h)
+        {
+            // one of the sixteen counters of the long, chosen by the high bits
+            return (h >>> 28) << 2;
+        }
+
+        private static int rehash(final int hash, final int i)
+        {
+            int h = (hash + i) * 0x9e3779b9;
+            h ^= h >>> 16;
+            return h;
+        }
+
+        private static int spread(final int hashCode)
+        {
+            int h = hashCode * 0x85ebca6b;
+            h ^= h >>> 13;
+            return h * 0xc2b2ae35;
+        }
+    }
+}
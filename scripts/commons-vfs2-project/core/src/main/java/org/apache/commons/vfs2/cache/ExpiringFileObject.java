@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.cache;
+
+import java.util.List;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.impl.DecoratedFileObject;
+
+/**
+ * This decorator refreshes the fileObject data once it is older than a time to live.
+ * <p>
+ * A file which exists keeps its data for the time to live, a file which does not
+ * exist for the negative time to live, so that repeated lookups of missing files
+ * do not reach the file system either. Changes made through the file object
+ * itself are seen at once.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ * @see org.apache.commons.vfs2.impl.DefaultFileSystemConfigBuilder#setCacheTimeToLive
+ */
+public class ExpiringFileObject extends DecoratedFileObject
+{
+    private final long timeToLive;
+    private final long negativeTimeToLive;
+
+    /**
+     * The time the data expires, 0 if the data has not been loaded since the last
+     * refresh.
+     */
+    private volatile long expires;
+
+    /**
+     * Creates the decorator.
+     *
+     * @param fileObject the decorated file
+     * @param timeToLive how long the data of an existing file is kept, in milliseconds
+     * @param negativeTimeToLive how long the data of a missing file is kept, in milliseconds
+     */
+    public ExpiringFileObject(final FileObject fileObject, final long timeToLive, final long negativeTimeToLive)
+    {
+        super(fileObject);
+        this.timeToLive = timeToLive;
+        this.negativeTimeToLive = negativeTimeToLive;
+    }
+
+    /**
+     * Refreshes the data if it expired, and loads it if needed.
+     */
+    private void refreshIfExpired() throws FileSystemException
+    {
+        final long now = System.currentTimeMillis();
+        final long current = expires;
+        if (current != 0 && now < current)
+        {
+            return;
+        }
+        if (current != 0)
+        {
+            super.refresh();
+        }
+        final FileType type = super.getType();
+        expires = now + (type == FileType.IMAGINARY ? negativeTimeToLive : timeToLive);
+    }
+
+    /**
+     * Takes the new data after a change made through this file object.
+     */
+    private void changed()
+    {
+        expires = 0;
+    }
+
+    @Override
+    public void refresh() throws FileSystemException
+    {
+        super.refresh();
+        changed();
+    }
+
+    @Override
+    public void close() throws FileSystemException
+    {
+        super.close();
+        changed();
+    }
+
+    @Override
+    public void copyFrom(FileObject srcFile, FileSelector selector) throws FileSystemException
+    {
+        refreshIfExpired();
+        try
+        {
+            super.copyFrom(srcFile, selector);
+        }
+        finally
+        {
+            changed();
+        }
+    }
+
+    @Override
+    public void createFile() throws FileSystemException
+    {
+        refreshIfExpired();
+        try
+        {
+            super.createFile();
+        }
+        finally
+        {
+            changed();
+        }
+    }
+
+    @Override
+    public void createFolder() throws FileSystemException
+    {
+        refreshIfExpired();
+        try
+        {
+            super.createFolder();
+        }
+        finally
+        {
+            changed();
+        }
+    }
+
+    @Override
+    public boolean delete() throws FileSystemException
+    {
+        refreshIfExpired();
+        try
+        {
+            return super.delete();
+        }
+        finally
+        {
+            changed();
+        }
+    }
+
+    @Override
+    public int delete(FileSelector selector) throws FileSystemException
+    {
+        refreshIfExpired();
+        try
+        {
+            return super.delete(selector);
+        }
+        finally
+        {
+            changed();
+        }
+    }
+
+    @Override
+    public void moveTo(FileObject destFile) throws FileSystemException
+    {
+        refreshIfExpired();
+        try
+        {
+            super.moveTo(destFile);
+        }
+        finally
+        {
+            changed();
+        }
+    }
+
+    @Override
+    public boolean exists() throws FileSystemException
+    {
+        refreshIfExpired();
+        return super.exists();
+    }
+
+    @Override
+    public void findFiles(FileSelector selector, boolean depthwise, List<FileObject> selected)
+        throws FileSystemException
+    {
+        refreshIfExpired();
+        super.findFiles(selector, depthwise, selected);
+    }
+
+    @Override
+    public FileObject[] findFiles(FileSelector selector) throws FileSystemException
+    {
+        refreshIfExpired();
+        return super.findFiles(selector);
+    }
+
+    @Override
+    public FileObject getChild(String name) throws FileSystemException
+    {
+        refreshIfExpired();
+        return super.getChild(name);
+    }
+
+    @Override
+    public FileObject[] getChildren() throws FileSystemException
+    {
+        refreshIfExpired();
+        return super.getChildren();
+    }
+
+    @Override
+    public FileContent getContent() throws FileSystemException
+    {
+        refreshIfExpired();
+        return super.getContent();
+    }
+
+    @Override
+    public FileType getType() throws FileSystemException
+    {
+        refreshIfExpired();
+        return super.getType();
+    }
+
+    @Override
+    public boolean isHidden() throws FileSystemException
+    {
+        refreshIfExpired();
+        return super.isHidden();
+    }
+
+    @Override
+    public boolean isReadable() throws FileSystemException
+    {
+        refreshIfExpired();
+        return super.isReadable();
+    }
+
+    @Override
+    public boolean isWriteable() throws FileSystemException
+    {
+        refreshIfExpired();
+        return super.isWriteable();
+    }
+}
@@ -0,0 +1,469 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.provider.PinningFileReplicator;
+
+/**
+ * A file replicator which reuses the local copy of a file across calls.
+ * <p>
+ * A copy of a file is kept by the URI, size and last modified time of the file,
+ * so a file is copied again only once it changed, and the same file reached
+ * through different file systems shares one copy. The copies are kept within a
+ * disk budget, the least recently used copies are deleted first. Concurrent
+ * replication of the same file waits for a single copy.
+ * <p>
+ * Each copy handed out is kept until it is released with {@link #releaseFile}, file
+ * systems release the copy they read once they are closed. Only released copies are
+ * deleted, so the copies in use may exceed the budget.
+ * <p>
+ * Folders, and files whose size or last modified time is not known, are copied
+ * on each call as {@link DefaultFileReplicator} does.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public class CachingFileReplicator extends DefaultFileReplicator implements PinningFileReplicator
+{
+    /** The default disk budget, 100MB. */
+    private static final long DEFAULT_MAX_SIZE = 100L * 1024 * 1024;
+
+    private final long maxSize;
+
+    /** The copies, in least recently used order. */
+    private final Map<Key, Copy> cache = new LinkedHashMap<Key, Copy>(16, 0.75f, true);
+
+    /** The copies being made. */
+    private final ConcurrentMap<Key, FutureTask<File>> replicating = new ConcurrentHashMap<Key, FutureTask<File>>();
+
+    private long size;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Creates a replicator in the default temporary directory, with a budget of 100MB.
+     */
+    public CachingFileReplicator()
+    {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a replicator in the default temporary directory.
+     *
+     * @param maxSize The disk budget of the copies, in bytes.
+     */
+    public CachingFileReplicator(final long maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Creates a replicator.
+     *
+     * @param tempDir The temporary directory.
+     * @param maxSize The disk budget of the copies, in bytes.
+     */
+    public CachingFileReplicator(final File tempDir, final long maxSize)
+    {
+        super(tempDir);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the disk budget of the copies.
+     * @return The budget in bytes.
+     */
+    public long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Returns the size of the copies kept.
+     * @return The size in bytes.
+     */
+    public long getSize()
+    {
+        synchronized (cache)
+        {
+            return size;
+        }
+    }
+
+    /**
+     * Returns the number of replications which reused a copy.
+     * @return The number of hits.
+     */
+    public long getHitCount()
+    {
+        synchronized (cache)
+        {
+            return hitCount;
+        }
+    }
+
+    /**
+     * Returns the number of replications which made a copy.
+     * @return The number of misses.
+     */
+    public long getMissCount()
+    {
+        synchronized (cache)
+        {
+            return missCount;
+        }
+    }
+
+    /**
+     * Closes the replicator, deleting all temporary files.
+     */
+    @Override
+    public void close()
+    {
+        synchronized (cache)
+        {
+            cache.clear();
+            size = 0;
+        }
+        super.close();
+    }
+
+    /**
+     * Returns the local copy of the file, copying it if there is no copy of its
+     * current content.
+     * @param srcFile The file to copy.
+     * @param selector The FileSelector.
+     * @return the created File.
+     * @throws FileSystemException if an error occurs copying the file.
+     */
+    @Override
+    public File replicateFile(final FileObject srcFile,
+                              final FileSelector selector)
+        throws FileSystemException
+    {
+        final Key key = createKey(srcFile, selector);
+        if (key == null)
+        {
+            return super.replicateFile(srcFile, selector);
+        }
+
+        final File cached = getCopy(key);
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        final FutureTask<File> task = new FutureTask<File>(new Callable<File>()
+        {
+            public File call() throws Exception
+            {
+                return copy(srcFile, selector);
+            }
+        });
+        final FutureTask<File> running = replicating.putIfAbsent(key, task);
+        if (running != null)
+        {
+            // Another thread copies the file
+            final File file = getReplica(running);
+            if (pinCopy(key, file))
+            {
+                return file;
+            }
+            // the copy was released and deleted since
+            return replicateFile(srcFile, selector);
+        }
+
+        try
+        {
+            task.run();
+            final File file = getReplica(task);
+            addCopy(key, file);
+            return file;
+        }
+        finally
+        {
+            replicating.remove(key);
+        }
+    }
+
+    /**
+     * Makes a new copy of the file.
+     */
+    private File copy(final FileObject srcFile, final FileSelector selector) throws FileSystemException
+    {
+        return super.replicateFile(srcFile, selector);
+    }
+
+    /**
+     * Creates the key of the current content of a file, null if it cannot be known.
+     */
+    private Key createKey(final FileObject srcFile, final FileSelector selector) throws FileSystemException
+    {
+        if (srcFile.getType() != FileType.FILE)
+        {
+            return null;
+        }
+
+        final FileContent content = srcFile.getContent();
+        final long fileSize;
+        final long lastModified;
+        try
+        {
+            fileSize = content.getSize();
+            lastModified = content.getLastModifiedTime();
+        }
+        catch (final FileSystemException e)
+        {
+            // e.g. the last modified time is not supported
+            return null;
+        }
+        return new Key(srcFile.getName().getURI(), fileSize, lastModified, selector);
+    }
+
+    /**
+     * Returns the copy of a key, null if there is none.
+     */
+    private File getCopy(final Key key)
+    {
+        synchronized (cache)
+        {
+            final Copy copy = cache.get(key);
+            if (copy != null)
+            {
+                if (copy.file.exists())
+                {
+                    hitCount++;
+                    copy.pins++;
+                    return copy.file;
+                }
+
+                // deleted behind our back
+                cache.remove(key);
+                size -= copy.length;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Pins the copy made by another thread, returns false if it is not kept anymore.
+     */
+    private boolean pinCopy(final Key key, final File file)
+    {
+        synchronized (cache)
+        {
+            final Copy copy = cache.get(key);
+            if (copy != null && copy.file.equals(file))
+            {
+                copy.pins++;
+                return true;
+            }
+            // a copy too large to keep is never deleted before close
+            return file.length() > maxSize;
+        }
+    }
+
+    /**
+     * Keeps a new copy, and deletes the least recently used copies over the budget.
+     */
+    private void addCopy(final Key key, final File file)
+    {
+        final List<File> evicted;
+        synchronized (cache)
+        {
+            missCount++;
+            final long length = file.length();
+            if (length > maxSize)
+            {
+                // too large to keep, deleted on close
+                return;
+            }
+
+            final Copy copy = new Copy(file, length);
+            copy.pins++;
+            cache.put(key, copy);
+            size += length;
+            evicted = evict();
+        }
+        deleteFiles(evicted);
+    }
+
+    /**
+     * Releases a copy handed out, once the caller does not read it anymore. The copy
+     * is deleted when it is the least recently used one over the budget.
+     * @param file The local copy.
+     */
+    public void releaseFile(final File file)
+    {
+        final List<File> evicted;
+        synchronized (cache)
+        {
+            for (final Copy copy : cache.values())
+            {
+                if (copy.file.equals(file))
+                {
+                    if (copy.pins > 0)
+                    {
+                        copy.pins--;
+                    }
+                    break;
+                }
+            }
+            evicted = evict();
+        }
+        deleteFiles(evicted);
+    }
+
+    /**
+     * Removes the least recently used copies not in use, until the copies fit the budget.
+     * Must be called with the lock of the cache.
+     * @return The files to delete.
+     */
+    private List<File> evict()
+    {
+        final List<File> evicted = new ArrayList<File>();
+        final Iterator<Copy> iterator = cache.values().iterator();
+        while (size > maxSize && iterator.hasNext())
+        {
+            final Copy copy = iterator.next();
+            if (copy.pins > 0)
+            {
+                continue;
+            }
+            iterator.remove();
+            size -= copy.length;
+            evicted.add(copy.file);
+        }
+        return evicted;
+    }
+
+    private void deleteFiles(final List<File> files)
+    {
+        for (int i = 0; i < files.size(); i++)
+        {
+            final File file = files.get(i);
+            removeFile(file);
+            deleteFile(file);
+        }
+    }
+
+    /**
+     * Waits for a copy.
+     */
+    private File getReplica(final FutureTask<File> task) throws FileSystemException
+    {
+        try
+        {
+            return task.get();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new FileSystemException(e);
+        }
+        catch (final ExecutionException e)
+        {
+            if (e.getCause() instanceof FileSystemException)
+            {
+                throw (FileSystemException) e.getCause();
+            }
+            throw new FileSystemException(e.getCause());
+        }
+    }
+
+    /**
+     * The content of a file: its URI, size and last modified time, and the selector used.
+     */
+    private static final class Key
+    {
+        private final String uri;
+        private final long size;
+        private final long lastModified;
+        private final FileSelector selector;
+
+        private Key(final String uri, final long size, final long lastModified, final FileSelector selector)
+        {
+            this.uri = uri;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.selector = selector;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+            final Key that = (Key) o;
+            return size == that.size
+                && lastModified == that.lastModified
+                && uri.equals(that.uri)
+                && (selector == null ? that.selector == null : selector.equals(that.selector));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int hash = uri.hashCode();
+            hash = hash * 31 + (int) (size ^ (size >>> 32));
+            hash = hash * 31 + (int) (lastModified ^ (lastModified >>> 32));
+            return hash;
+        }
+    }
+
+    /**
+     * A local copy.
+     */
+    private static final class Copy
+    {
+        private final File file;
+        private final long length;
+
+        /** The number of times the copy was handed out and not released, guarded by the cache. */
+        private int pins;
+
+        private Copy(final File file, final long length)
+        {
+            this.file = file;
+            this.length = length;
+        }
+    }
+}
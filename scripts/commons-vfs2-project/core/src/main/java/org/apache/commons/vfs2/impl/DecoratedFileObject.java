@@ -19,6 +19,7 @@ package org.apache.commons.vfs2.impl;
 import java.net.URL;
 import java.util.List;
 
+import org.apache.commons.vfs2.AsyncFileObject;
 import org.apache.commons.vfs2.FileContent;
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
@@ -195,4 +196,9 @@ public class DecoratedFileObject implements FileObject
     {
         return decoratedFileObject.getFileOperations();
     }
+
+    public AsyncFileObject async() throws FileSystemException
+    {
+        return decoratedFileObject.async();
+    }
 }
@@ -16,9 +16,20 @@
  */
 package org.apache.commons.vfs2.impl;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -65,6 +76,15 @@ import org.apache.commons.vfs2.provider.AbstractFileSystem;
  * monitored
  * increases. The default is a delay of 1 second for every 1000 files processed.
  * </p>
+ * <p>
+ * The files of a monitored folder are checked from the listing of the folder,
+ * rather than one by one. With {@link #setThreads(int)} the monitored files are
+ * split into shards checked concurrently, which helps remote file systems where
+ * each check waits for the server. With {@link #setMaxDelay(long)} a file (or
+ * folder, with its files) which is found unchanged is checked less often: its
+ * delay doubles with each unchanged check up to the maximum, and falls back to
+ * the delay when it changes.
+ * </p>
  * <br /><b>Example usage:</b><br /><pre>
  * FileSystemManager fsManager = VFS.getManager();
  * FileObject listendir = fsManager.resolveFile("/home/username/monitored/");
@@ -97,15 +117,20 @@ public class DefaultFileMonitor implements Runnable, FileMonitor
      */
     private Thread monitorThread;
 
+    /**
+     * The threads checking the shards, null when checking on the monitor thread.
+     */
+    private ExecutorService executor;
+
     /**
      * File objects to be removed from the monitor map.
      */
-    private final Stack<FileObject> deleteStack = new Stack<FileObject>();
+    private final Queue<FileObject> deleteQueue = new ConcurrentLinkedQueue<FileObject>();
 
     /**
      * File objects to be added to the monitor map.
      */
-    private final Stack<FileObject> addStack = new Stack<FileObject>();
+    private final Queue<FileObject> addQueue = new ConcurrentLinkedQueue<FileObject>();
 
     /**
      * A flag used to determine if the monitor thread should be running.
@@ -127,6 +152,16 @@ public class DefaultFileMonitor implements Runnable, FileMonitor
      */
     private int checksPerRun = DEFAULT_MAX_FILES;
 
+    /**
+     * The longest delay between checks of an unchanged file, 0 to check all files each run.
+     */
+    private long maxDelay;
+
+    /**
+     * The number of threads checking files.
+     */
+    private int threads = 1;
+
     /**
      * A listener object that if set, is notified on file creation and deletion.
      */
@@ -273,7 +308,7 @@ public class DefaultFileMonitor implements Runnable, FileMonitor
      */
     protected void queueRemoveFile(final FileObject file)
     {
-        this.deleteStack.push(file);
+        this.deleteQueue.add(file);
     }
 
     /**
@@ -321,13 +356,57 @@ public class DefaultFileMonitor implements Runnable, FileMonitor
         this.checksPerRun = checksPerRun;
     }
 
+    /**
+     * Get the longest delay between two checks of an unchanged file.
+     * @return The maximum delay, 0 if all files are checked each run.
+     * @since 2.1
+     */
+    public long getMaxDelay()
+    {
+        return maxDelay;
+    }
+
+    /**
+     * Set the longest delay between two checks of an unchanged file. The delay of a
+     * file doubles each time it is found unchanged, up to this maximum.
+     *
+     * @param maxDelay the maximum delay, a value not above the delay checks all files each run
+     * @since 2.1
+     */
+    public void setMaxDelay(long maxDelay)
+    {
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * Get the number of threads checking files.
+     * @return The number of threads.
+     * @since 2.1
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Set the number of threads checking files. The monitored files are split into as
+     * many shards, which are checked concurrently. Has to be set before starting.
+     *
+     * @param threads the number of threads, 1 checks all files on the monitor thread
+     * @since 2.1
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+
     /**
      * Queues a file for addition to be monitored.
      * @param file The FileObject to add.
      */
     protected void queueAddFile(final FileObject file)
     {
-        this.addStack.push(file);
+        this.addQueue.add(file);
     }
 
     /**
@@ -341,6 +420,20 @@ public class DefaultFileMonitor implements Runnable, FileMonitor
             this.monitorThread.setDaemon(true);
             this.monitorThread.setPriority(Thread.MIN_PRIORITY);
         }
+        if (this.threads > 1 && this.executor == null)
+        {
+            final AtomicInteger count = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory()
+            {
+                public Thread newThread(final Runnable r)
+                {
+                    final Thread thread = new Thread(r, "DefaultFileMonitor-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
         this.monitorThread.start();
     }
 
@@ -360,55 +453,57 @@ public class DefaultFileMonitor implements Runnable, FileMonitor
         mainloop:
         while (!monitorThread.isInterrupted() && this.shouldRun)
         {
-            while (!this.deleteStack.empty())
+            FileObject removed;
+            while ((removed = this.deleteQueue.poll()) != null)
             {
-                this.removeFile(this.deleteStack.pop());
+                this.removeFile(removed);
             }
 
-            // For each entry in the map
-            Object[] fileNames;
-            synchronized (this.monitorMap)
-            {
-                fileNames = this.monitorMap.keySet().toArray();
-            }
-            for (int iterFileNames = 0; iterFileNames < fileNames.length;
-                 iterFileNames++)
+            final List<FileName> fileNames = getDueFileNames();
+            if (this.executor == null)
             {
-                FileName fileName = (FileName) fileNames[iterFileNames];
-                FileMonitorAgent agent;
-                synchronized (this.monitorMap)
+                for (int iterFileNames = 0; iterFileNames < fileNames.size();
+                     iterFileNames++)
                 {
-                    agent = this.monitorMap.get(fileName);
-                }
-                if (agent != null)
-                {
-                    agent.check();
-                }
+                    checkAgent(fileNames.get(iterFileNames));
 
-                if (getChecksPerRun() > 0)
-                {
-                    if ((iterFileNames % getChecksPerRun()) == 0)
+                    if (getChecksPerRun() > 0)
                     {
-                        try
+                        if ((iterFileNames % getChecksPerRun()) == 0)
                         {
-                            Thread.sleep(getDelay());
-                        }
-                        catch (InterruptedException e)
-                        {
-                            // Woke up.
+                            try
+                            {
+                                Thread.sleep(getDelay());
+                            }
+                            catch (InterruptedException e)
+                            {
+                                // Woke up.
+                            }
                         }
                     }
-                }
 
-                if (monitorThread.isInterrupted() || !this.shouldRun)
+                    if (monitorThread.isInterrupted() || !this.shouldRun)
+                    {
+                        continue mainloop;
+                    }
+                }
+            }
+            else
+            {
+                try
                 {
-                    continue mainloop;
+                    this.executor.invokeAll(createShards(fileNames));
+                }
+                catch (InterruptedException e)
+                {
+                    continue;
                 }
             }
 
-            while (!this.addStack.empty())
+            FileObject added;
+            while ((added = this.addQueue.poll()) != null)
             {
-                this.addFile(this.addStack.pop());
+                this.addFile(added);
             }
 
             try
@@ -421,9 +516,120 @@ public class DefaultFileMonitor implements Runnable, FileMonitor
             }
         }
 
+        if (this.executor != null)
+        {
+            this.executor.shutdown();
+            this.executor = null;
+        }
         this.shouldRun = true;
     }
 
+    /**
+     * Returns the files to check in this run: the files whose delay passed, except the
+     * files of monitored folders, which are checked from the listing of the folder.
+     */
+    private List<FileName> getDueFileNames()
+    {
+        final long now = System.currentTimeMillis();
+        final List<FileName> fileNames = new ArrayList<FileName>();
+        synchronized (this.monitorMap)
+        {
+            for (FileMonitorAgent agent : this.monitorMap.values())
+            {
+                if (agent.nextCheck <= now && !isCheckedByParent(agent))
+                {
+                    fileNames.add(agent.file.getName());
+                }
+            }
+        }
+        return fileNames;
+    }
+
+    /**
+     * Returns true if the agent is checked by the agent of its parent folder.
+     * Must be called holding the monitor map lock.
+     */
+    private boolean isCheckedByParent(final FileMonitorAgent agent)
+    {
+        if (agent.folder)
+        {
+            return false;
+        }
+        final FileName parentName = agent.file.getName().getParent();
+        if (parentName == null)
+        {
+            return false;
+        }
+        final FileMonitorAgent parent = this.monitorMap.get(parentName);
+        return parent != null && parent.folder;
+    }
+
+    /**
+     * Splits the files to check into one task per thread.
+     */
+    private List<Callable<Object>> createShards(final List<FileName> fileNames)
+    {
+        final List<List<FileName>> shards = new ArrayList<List<FileName>>(this.threads);
+        for (int i = 0; i < this.threads; i++)
+        {
+            shards.add(new ArrayList<FileName>());
+        }
+        for (FileName fileName : fileNames)
+        {
+            shards.get((fileName.hashCode() & Integer.MAX_VALUE) % this.threads).add(fileName);
+        }
+
+        final List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(this.threads);
+        for (final List<FileName> shard : shards)
+        {
+            if (shard.isEmpty())
+            {
+                continue;
+            }
+            tasks.add(new Callable<Object>()
+            {
+                public Object call()
+                {
+                    for (int i = 0; i < shard.size() && shouldRun; i++)
+                    {
+                        checkAgent(shard.get(i));
+
+                        if (getChecksPerRun() > 0 && ((i + 1) % getChecksPerRun()) == 0)
+                        {
+                            try
+                            {
+                                Thread.sleep(getDelay());
+                            }
+                            catch (InterruptedException e)
+                            {
+                                break;
+                            }
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+        return tasks;
+    }
+
+    private void checkAgent(final FileName fileName)
+    {
+        final FileMonitorAgent agent = getAgent(fileName);
+        if (agent != null)
+        {
+            agent.check();
+        }
+    }
+
+    private FileMonitorAgent getAgent(final FileName fileName)
+    {
+        synchronized (this.monitorMap)
+        {
+            return this.monitorMap.get(fileName);
+        }
+    }
+
     /**
      * File monitor agent.
      */
@@ -436,6 +642,13 @@ public class DefaultFileMonitor implements Runnable, FileMonitor
         private long timestamp;
         private Map<FileName, Object> children;
 
+        /** True if the file was a folder when last checked. */
+        private boolean folder;
+
+        /** The time of the next check, and the current delay between checks. */
+        private long nextCheck;
+        private long interval;
+
         private FileMonitorAgent(DefaultFileMonitor fm, FileObject file)
         {
             this.fm = fm;
@@ -459,12 +672,14 @@ public class DefaultFileMonitor implements Runnable, FileMonitor
                 try
                 {
                     this.timestamp = this.file.getContent().getLastModifiedTime();
+                    this.folder = this.file.getType().hasChildren();
                 }
                 catch (FileSystemException fse)
                 {
                     this.timestamp = -1;
                 }
             }
+            this.interval = fm.getDelay();
         }
 
         private void resetChildrenList()
@@ -555,94 +770,196 @@ public class DefaultFileMonitor implements Runnable, FileMonitor
         /**
          * Only checks for new children. If children are removed, they'll
          * eventually be checked.
+         * @return the children, or null if the file is not a folder.
+         * @throws FileSystemException if the folder could not be listed, the children
+         * are then kept as they were.
          */
-        private void checkForNewChildren()
+        private FileObject[] checkForNewChildren() throws FileSystemException
         {
-            try
+            if (this.file.getType().hasChildren())
             {
-                if (this.file.getType().hasChildren())
+                FileObject[] newChildren = this.file.getChildren();
+                if (this.children != null)
                 {
-                    FileObject[] newChildren = this.file.getChildren();
-                    if (this.children != null)
-                    {
-                        // See which new children are not listed in the current children map.
-                        Map<FileName, Object> newChildrenMap = new HashMap<FileName, Object>();
-                        Stack<FileObject> missingChildren = new Stack<FileObject>();
+                    // See which new children are not listed in the current children map.
+                    Map<FileName, Object> newChildrenMap = new HashMap<FileName, Object>();
+                    Stack<FileObject> missingChildren = new Stack<FileObject>();
 
-                        for (int i = 0; i < newChildren.length; i++)
+                    for (int i = 0; i < newChildren.length; i++)
+                    {
+                        newChildrenMap.put(newChildren[i].getName(), new
+                            Object()); // null ?
+                        // If the child's not there
+                        if
+                            (!this.children.containsKey(newChildren[i].getName()))
                         {
-                            newChildrenMap.put(newChildren[i].getName(), new
-                                Object()); // null ?
-                            // If the child's not there
-                            if
-                                (!this.children.containsKey(newChildren[i].getName()))
-                            {
-                                missingChildren.push(newChildren[i]);
-                            }
+                            missingChildren.push(newChildren[i]);
                         }
+                    }
 
-                        this.children = newChildrenMap;
+                    this.children = newChildrenMap;
 
-                        // If there were missing children
-                        if (!missingChildren.empty())
-                        {
+                    // If there were missing children
+                    if (!missingChildren.empty())
+                    {
 
-                            while (!missingChildren.empty())
-                            {
-                                FileObject child = missingChildren.pop();
-                                this.fireAllCreate(child);
-                            }
+                        while (!missingChildren.empty())
+                        {
+                            FileObject child = missingChildren.pop();
+                            this.fireAllCreate(child);
                         }
+                    }
 
+                }
+                else
+                {
+                    // First set of children - Break out the cigars
+                    if (newChildren.length > 0)
+                    {
+                        this.children = new HashMap<FileName, Object>();
                     }
-                    else
+                    for (int i = 0; i < newChildren.length; i++)
                     {
-                        // First set of children - Break out the cigars
-                        if (newChildren.length > 0)
-                        {
-                            this.children = new HashMap<FileName, Object>();
-                        }
-                        for (int i = 0; i < newChildren.length; i++)
-                        {
-                            this.children.put(newChildren[i].getName(), new
-                                Object()); // null?
-                            this.fireAllCreate(newChildren[i]);
-                        }
+                        this.children.put(newChildren[i].getName(), new
+                            Object()); // null?
+                        this.fireAllCreate(newChildren[i]);
                     }
                 }
+                return newChildren;
+            }
+            return null;
+        }
+
+        /**
+         * Checks the monitored files of this folder against its listing, without
+         * asking for each file on its own.
+         * @param previous the names of the children before the listing.
+         * @param listed the children, null if the file is not a folder anymore.
+         * @return true if a file changed.
+         */
+        private boolean checkListedChildren(final Map<FileName, Object> previous, final FileObject[] listed)
+        {
+            final Map<FileName, FileObject> listedMap = new HashMap<FileName, FileObject>();
+            if (listed != null)
+            {
+                for (int i = 0; i < listed.length; i++)
+                {
+                    listedMap.put(listed[i].getName(), listed[i]);
+                }
+            }
+            final Set<FileName> names = new HashSet<FileName>(listedMap.keySet());
+            if (previous != null)
+            {
+                names.addAll(previous.keySet());
+            }
+
+            boolean changed = false;
+            for (FileName name : names)
+            {
+                final FileMonitorAgent agent = this.fm.getAgent(name);
+                if (agent != null && !agent.folder)
+                {
+                    changed |= agent.checkListed(listedMap.get(name));
+                }
+            }
+            return changed;
+        }
+
+        /**
+         * Checks the file against the listing of its parent.
+         * @param listed the file from the listing, null if it is not listed.
+         * @return true if the file changed.
+         */
+        private boolean checkListed(final FileObject listed)
+        {
+            try
+            {
+                if (listed == null)
+                {
+                    if (this.exists)
+                    {
+                        fireDeleted();
+                        return true;
+                    }
+                }
+                else if (!this.exists)
+                {
+                    // the create event is fired by the parent, which found a new child
+                    this.exists = true;
+                    this.timestamp = listed.getContent().getLastModifiedTime();
+                    return true;
+                }
+                else if (this.timestamp != listed.getContent().getLastModifiedTime())
+                {
+                    this.timestamp = listed.getContent().getLastModifiedTime();
+                    ((AbstractFileSystem) this.file.getFileSystem()).fireFileChanged(this.file);
+                    return true;
+                }
             }
             catch (FileSystemException fse)
             {
                 LOG.error(fse.getLocalizedMessage(), fse);
             }
+            return false;
+        }
+
+        private void fireDeleted()
+        {
+            this.exists = false;
+            this.timestamp = -1;
+
+            // Fire delete event
+
+            ((AbstractFileSystem)
+                this.file.getFileSystem()).fireFileDeleted(this.file);
+
+            // Remove listener in case file is re-created. Don't want to fire twice.
+            if (this.fm.getFileListener() != null)
+            {
+                this.file.getFileSystem().removeListener(this.file,
+                    this.fm.getFileListener());
+            }
+
+            // Remove from map
+            this.fm.queueRemoveFile(this.file);
+        }
+
+        /**
+         * Sets the time of the next check: after the delay if the file changed, and after
+         * a doubled delay, up to the maximum delay, if it did not.
+         */
+        private void scheduleNextCheck(final boolean changed)
+        {
+            final long maxDelay = this.fm.getMaxDelay();
+            if (maxDelay <= this.fm.getDelay())
+            {
+                this.nextCheck = 0;
+                return;
+            }
+            if (changed)
+            {
+                this.interval = this.fm.getDelay();
+            }
+            else
+            {
+                this.interval = Math.min(this.interval * 2, maxDelay);
+            }
+            this.nextCheck = System.currentTimeMillis() + this.interval;
         }
 
         private void check()
         {
             this.refresh();
 
+            final Map<FileName, Object> previousChildren = this.children;
+            boolean changed = false;
             try
             {
                 // If the file existed and now doesn't
                 if (this.exists && !this.file.exists())
                 {
-                    this.exists = this.file.exists();
-                    this.timestamp = -1;
-
-                    // Fire delete event
-
-                    ((AbstractFileSystem)
-                        this.file.getFileSystem()).fireFileDeleted(this.file);
-
-                    // Remove listener in case file is re-created. Don't want to fire twice.
-                    if (this.fm.getFileListener() != null)
-                    {
-                        this.file.getFileSystem().removeListener(this.file,
-                            this.fm.getFileListener());
-                    }
-
-                    // Remove from map
-                    this.fm.queueRemoveFile(this.file);
+                    fireDeleted();
+                    changed = true;
                 }
                 else if (this.exists && this.file.exists())
                 {
@@ -650,6 +967,7 @@ public class DefaultFileMonitor implements Runnable, FileMonitor
                     // Check the timestamp to see if it has been modified
                     if (this.timestamp != this.file.getContent().getLastModifiedTime())
                     {
+                        changed = true;
                         this.timestamp = this.file.getContent().getLastModifiedTime();
                         // Fire change event
 
@@ -665,6 +983,7 @@ public class DefaultFileMonitor implements Runnable, FileMonitor
                 }
                 else if (!this.exists && this.file.exists())
                 {
+                    changed = true;
                     this.exists = this.file.exists();
                     this.timestamp = this.file.getContent().getLastModifiedTime();
                     // Don't fire if it's a folder because new file children
@@ -676,13 +995,25 @@ public class DefaultFileMonitor implements Runnable, FileMonitor
                     }
                 }
 
-                this.checkForNewChildren();
+                this.folder = this.exists && this.file.getType().hasChildren();
+                if (this.folder || previousChildren != null)
+                {
+                    // A failed listing leaves the children unchecked until the next run
+                    final FileObject[] listed = this.checkForNewChildren();
+                    if (listed != null && this.children != null
+                        && (previousChildren == null || !previousChildren.keySet().equals(this.children.keySet())))
+                    {
+                        changed = true;
+                    }
+                    changed |= this.checkListedChildren(previousChildren, listed);
+                }
 
             }
             catch (FileSystemException fse)
             {
                 LOG.error(fse.getLocalizedMessage(), fse);
             }
+            scheduleNextCheck(changed);
         }
 
     }
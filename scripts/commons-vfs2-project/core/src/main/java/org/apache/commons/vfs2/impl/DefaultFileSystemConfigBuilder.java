@@ -21,6 +21,7 @@ import org.apache.commons.vfs2.FileSystemConfigBuilder;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemOptions;
 import org.apache.commons.vfs2.UserAuthenticator;
+import org.apache.commons.vfs2.util.BufferPool;
 
 /**
  * Default options usable for all filesystems.
@@ -58,6 +59,131 @@ public class DefaultFileSystemConfigBuilder extends FileSystemConfigBuilder
         return (UserAuthenticator) getParam(opts, "userAuthenticator");
     }
 
+    /**
+     * Sets how long the data of a file, such as its type, size and last modified time,
+     * is cached before it is fetched again. This replaces the cache strategy of the
+     * manager for the file system, which helps when each fetch is a round trip to a
+     * server.
+     * @param opts The FileSystemOptions.
+     * @param timeToLive The time in milliseconds, 0 to follow the cache strategy.
+     * @see org.apache.commons.vfs2.cache.ExpiringFileObject
+     * @since 2.1
+     */
+    public void setCacheTimeToLive(FileSystemOptions opts, long timeToLive)
+    {
+        setParam(opts, "cacheTimeToLive", new Long(timeToLive));
+    }
+
+    /**
+     * @see #setCacheTimeToLive
+     * @param opts The FileSystemOptions.
+     * @return The time in milliseconds, 0 if not set.
+     * @since 2.1
+     */
+    public long getCacheTimeToLive(FileSystemOptions opts)
+    {
+        return getLong(opts, "cacheTimeToLive", 0L);
+    }
+
+    /**
+     * Sets how long the knowledge that a file does not exist is cached, when the
+     * cache time to live is set.
+     * @param opts The FileSystemOptions.
+     * @param timeToLive The time in milliseconds.
+     * @see #setCacheTimeToLive
+     * @since 2.1
+     */
+    public void setNegativeCacheTimeToLive(FileSystemOptions opts, long timeToLive)
+    {
+        setParam(opts, "negativeCacheTimeToLive", new Long(timeToLive));
+    }
+
+    /**
+     * @see #setNegativeCacheTimeToLive
+     * @param opts The FileSystemOptions.
+     * @return The time in milliseconds, the cache time to live if not set.
+     * @since 2.1
+     */
+    public long getNegativeCacheTimeToLive(FileSystemOptions opts)
+    {
+        return getLong(opts, "negativeCacheTimeToLive", getCacheTimeToLive(opts));
+    }
+
+    /**
+     * Sets the size of the buffer of the content streams of the files. The buffers
+     * are taken from a shared pool and given back when the streams are closed.
+     * @param opts The FileSystemOptions.
+     * @param bufferSize The size in bytes.
+     * @see org.apache.commons.vfs2.util.BufferPool
+     * @since 2.1
+     */
+    public void setStreamBufferSize(FileSystemOptions opts, int bufferSize)
+    {
+        setParam(opts, "streamBufferSize", new Integer(bufferSize));
+    }
+
+    /**
+     * @see #setStreamBufferSize
+     * @param opts The FileSystemOptions.
+     * @return The size in bytes, 8192 if not set.
+     * @since 2.1
+     */
+    public int getStreamBufferSize(FileSystemOptions opts)
+    {
+        return getInteger(opts, "streamBufferSize", BufferPool.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Sets how many files a recursive delete removes at the same time, on file systems
+     * which allow it. Files are deleted by the threads of the asynchronous operations of
+     * the manager, and by the thread which deletes.
+     * @param opts The FileSystemOptions.
+     * @param parallelism The number of files, 1 to delete one file after the other.
+     * @see org.apache.commons.vfs2.FileObject#delete(org.apache.commons.vfs2.FileSelector)
+     * @since 2.1
+     */
+    public void setDeleteParallelism(FileSystemOptions opts, int parallelism)
+    {
+        setParam(opts, "deleteParallelism", new Integer(parallelism));
+    }
+
+    /**
+     * @see #setDeleteParallelism
+     * @param opts The FileSystemOptions.
+     * @return The number of files, 1 if not set.
+     * @since 2.1
+     */
+    public int getDeleteParallelism(FileSystemOptions opts)
+    {
+        return getInteger(opts, "deleteParallelism", 1);
+    }
+
+    /**
+     * Sets how many files a copy transfers at the same time, between file systems which
+     * allow it. The larger value of the source and the destination file system is used.
+     * Files are transferred by the threads of the asynchronous operations of the manager,
+     * and by the thread which copies.
+     * @param opts The FileSystemOptions.
+     * @param parallelism The number of files, 1 to copy one file after the other.
+     * @see org.apache.commons.vfs2.FileObject#copyFrom
+     * @since 2.1
+     */
+    public void setCopyParallelism(FileSystemOptions opts, int parallelism)
+    {
+        setParam(opts, "copyParallelism", new Integer(parallelism));
+    }
+
+    /**
+     * @see #setCopyParallelism
+     * @param opts The FileSystemOptions.
+     * @return The number of files, 1 if not set.
+     * @since 2.1
+     */
+    public int getCopyParallelism(FileSystemOptions opts)
+    {
+        return getInteger(opts, "copyParallelism", 1);
+    }
+
     /**
      * Dummy class that implements FileSystem.
      */
@@ -23,9 +23,17 @@ import java.net.URLStreamHandlerFactory;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -44,6 +52,7 @@ import org.apache.commons.vfs2.FilesCache;
 import org.apache.commons.vfs2.NameScope;
 import org.apache.commons.vfs2.VFS;
 import org.apache.commons.vfs2.cache.SoftRefFilesCache;
+import org.apache.commons.vfs2.metrics.FileSystemMetrics;
 import org.apache.commons.vfs2.operations.FileOperationProvider;
 import org.apache.commons.vfs2.provider.AbstractFileName;
 import org.apache.commons.vfs2.provider.AbstractFileProvider;
@@ -66,7 +75,7 @@ public class DefaultFileSystemManager implements FileSystemManager
     /**
      * The provider for local files.
      */
-    private LocalFileProvider localFileProvider;
+    private volatile LocalFileProvider localFileProvider;
 
     /**
      * The default provider.
@@ -81,7 +90,12 @@ public class DefaultFileSystemManager implements FileSystemManager
     /**
      * Mapping from URI scheme to FileProvider.
      */
-    private final Map<String, FileProvider> providers = new HashMap<String, FileProvider>();
+    private final Map<String, FileProvider> providers = new ConcurrentHashMap<String, FileProvider>();
+
+    /**
+     * Mapping from URI scheme to the providers which are not created yet.
+     */
+    private final Map<String, LazyProvider> lazyProviders = new ConcurrentHashMap<String, LazyProvider>();
 
     /**
      * All components used by this manager.
@@ -126,13 +140,46 @@ public class DefaultFileSystemManager implements FileSystemManager
             this);
 
     private TemporaryFileStore tempFileStore;
+
+    /**
+     * The number of threads of the default executor of the asynchronous operations.
+     */
+    private static final int DEFAULT_ASYNC_THREADS = 16;
+
+    /**
+     * The executor of the asynchronous operations, and whether this manager created it.
+     */
+    private ExecutorService asyncExecutor;
+    private boolean ownAsyncExecutor;
+
+    /**
+     * The metrics of the file systems, null when nothing is measured.
+     */
+    private volatile FileSystemMetrics fileSystemMetrics;
+
     private final FileTypeMap map = new FileTypeMap();
     private final VirtualFileProvider vfsProvider = new VirtualFileProvider();
     private boolean init;
 
+    /**
+     * The scheme of the local files.
+     */
+    private static final String LOCAL_SCHEME = "file";
+
     private final Map<String, List<FileOperationProvider>> operationProviders =
           new HashMap<String, List<FileOperationProvider>>();
 
+    /**
+     * The maximum number of resolved names kept.
+     */
+    private static final int MAX_RESOLVED_NAMES = 1024;
+
+    /**
+     * Recently resolved names, by base name and relative name.
+     */
+    private final ConcurrentMap<ResolvedNameKey, FileName> resolvedNames =
+          new ConcurrentHashMap<ResolvedNameKey, FileName>();
+
     /**
      * Returns the logger used by this manager.
      * @return the Logger.
@@ -172,15 +219,7 @@ public class DefaultFileSystemManager implements FileSystemManager
             final FileProvider provider) throws FileSystemException
     {
         // Warn about duplicate providers
-        for (int i = 0; i < urlSchemes.length; i++)
-        {
-            final String scheme = urlSchemes[i];
-            if (providers.containsKey(scheme))
-            {
-                throw new FileSystemException(
-                        "vfs.impl/multiple-providers-for-scheme.error", scheme);
-            }
-        }
+        checkSchemes(urlSchemes);
 
         // Contextualise the component (if not already)
         setupComponent(provider);
@@ -191,6 +230,7 @@ public class DefaultFileSystemManager implements FileSystemManager
             final String scheme = urlSchemes[i];
             providers.put(scheme, provider);
         }
+        resolvedNames.clear();
 
         if (provider instanceof LocalFileProvider && localFileProvider == null)
         {
@@ -198,6 +238,49 @@ public class DefaultFileSystemManager implements FileSystemManager
         }
     }
 
+    /**
+     * Registers a file system provider which is only created, and initialised, the
+     * first time one of its schemes is used. The manager takes care of all lifecycle
+     * management.
+     *
+     * @param urlSchemes
+     *            The schemes the provider will handle.
+     * @param className
+     *            The class name of the provider.
+     * @param classLoader
+     *            The ClassLoader to load the provider with.
+     * @throws FileSystemException if a provider is already registered for one of the schemes.
+     * @since 2.1
+     */
+    public void addProvider(final String[] urlSchemes, final String className,
+            final ClassLoader classLoader) throws FileSystemException
+    {
+        checkSchemes(urlSchemes);
+
+        final LazyProvider provider = new LazyProvider(urlSchemes, className, classLoader);
+        for (int i = 0; i < urlSchemes.length; i++)
+        {
+            lazyProviders.put(urlSchemes[i], provider);
+        }
+        resolvedNames.clear();
+    }
+
+    /**
+     * Makes sure no provider is registered for the schemes yet.
+     */
+    private void checkSchemes(final String[] urlSchemes) throws FileSystemException
+    {
+        for (int i = 0; i < urlSchemes.length; i++)
+        {
+            final String scheme = urlSchemes[i];
+            if (hasProvider(scheme))
+            {
+                throw new FileSystemException(
+                        "vfs.impl/multiple-providers-for-scheme.error", scheme);
+            }
+        }
+    }
+
     /**
      * Returns true if this manager has a provider for a particular scheme.
      * @param scheme The scheme to check.
@@ -205,7 +288,62 @@ public class DefaultFileSystemManager implements FileSystemManager
      */
     public boolean hasProvider(final String scheme)
     {
-        return providers.containsKey(scheme);
+        return providers.containsKey(scheme) || lazyProviders.containsKey(scheme);
+    }
+
+    /**
+     * Returns the provider for a scheme, creating it if it was registered by class name.
+     * @param scheme The scheme.
+     * @return The provider, null if none is registered for the scheme.
+     * @throws FileSystemException if the provider cannot be created.
+     */
+    private FileProvider getProvider(final String scheme) throws FileSystemException
+    {
+        final FileProvider provider = providers.get(scheme);
+        if (provider != null || lazyProviders.isEmpty())
+        {
+            return provider;
+        }
+
+        synchronized (lazyProviders)
+        {
+            // another thread might have created it in the meantime
+            if (providers.containsKey(scheme))
+            {
+                return providers.get(scheme);
+            }
+            final LazyProvider lazyProvider = lazyProviders.get(scheme);
+            if (lazyProvider == null)
+            {
+                return null;
+            }
+
+            final FileProvider created = lazyProvider.createProvider();
+            setupComponent(created);
+            for (int i = 0; i < lazyProvider.schemes.length; i++)
+            {
+                providers.put(lazyProvider.schemes[i], created);
+                lazyProviders.remove(lazyProvider.schemes[i]);
+            }
+            if (created instanceof LocalFileProvider && localFileProvider == null)
+            {
+                localFileProvider = (LocalFileProvider) created;
+            }
+            return created;
+        }
+    }
+
+    /**
+     * Returns the provider for local files, null if there is none.
+     */
+    private LocalFileProvider findLocalFileProvider() throws FileSystemException
+    {
+        if (localFileProvider == null && lazyProviders.containsKey(LOCAL_SCHEME))
+        {
+            // only the provider of the file scheme is created to look for it
+            getProvider(LOCAL_SCHEME);
+        }
+        return localFileProvider;
     }
 
     /**
@@ -403,6 +541,72 @@ public class DefaultFileSystemManager implements FileSystemManager
         this.tempFileStore = tempFileStore;
     }
 
+    /**
+     * Sets the executor of the asynchronous file operations. The executor is not shut
+     * down by this manager. Any executor can be used, for example on a JVM with virtual
+     * threads {@code Executors.newVirtualThreadPerTaskExecutor()}, which runs each
+     * operation on a virtual thread of its own.
+     * @param executor The ExecutorService, or null to use a default pool of
+     * {@value #DEFAULT_ASYNC_THREADS} daemon threads.
+     * @since 2.1
+     */
+    public synchronized void setAsyncExecutor(final ExecutorService executor)
+    {
+        if (ownAsyncExecutor)
+        {
+            asyncExecutor.shutdown();
+        }
+        asyncExecutor = executor;
+        ownAsyncExecutor = false;
+    }
+
+    /**
+     * Returns the executor of the asynchronous file operations, creating the default
+     * pool when none was set.
+     * @return The ExecutorService. Never returns null.
+     * @since 2.1
+     */
+    public synchronized ExecutorService getAsyncExecutor()
+    {
+        if (asyncExecutor == null)
+        {
+            final AtomicInteger threadCount = new AtomicInteger();
+            asyncExecutor = Executors.newFixedThreadPool(DEFAULT_ASYNC_THREADS, new ThreadFactory()
+            {
+                public Thread newThread(final Runnable r)
+                {
+                    final Thread thread = new Thread(r, "vfs-async-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            ownAsyncExecutor = true;
+        }
+        return asyncExecutor;
+    }
+
+    /**
+     * Sets the metrics the file systems record their operations in. Unlike the files
+     * cache, metrics can be set at any time; file systems record in the metrics
+     * set when the operation completes.
+     * @param metrics The FileSystemMetrics, or null to measure nothing.
+     * @since 2.1
+     */
+    public void setFileSystemMetrics(final FileSystemMetrics metrics)
+    {
+        this.fileSystemMetrics = metrics;
+    }
+
+    /**
+     * Returns the metrics the file systems record their operations in.
+     * @return The FileSystemMetrics, null if nothing is measured.
+     * @since 2.1
+     */
+    public FileSystemMetrics getFileSystemMetrics()
+    {
+        return fileSystemMetrics;
+    }
+
     /**
      * Sets the logger to use.
      * @param log The Logger to use.
@@ -531,9 +735,12 @@ public class DefaultFileSystemManager implements FileSystemManager
         closeComponent(defaultProvider);
         closeComponent(fileReplicator);
         closeComponent(tempFileStore);
+        setAsyncExecutor(null);
 
         components.clear();
         providers.clear();
+        lazyProviders.clear();
+        resolvedNames.clear();
         filesCache.close();
         localFileProvider = null;
         defaultProvider = null;
@@ -687,7 +894,7 @@ public class DefaultFileSystemManager implements FileSystemManager
         if (scheme != null)
         {
             // An absolute URI - locate the provider
-            final FileProvider provider = providers.get(scheme);
+            final FileProvider provider = getProvider(scheme);
             if (provider != null)
             {
                 return provider.findFile(realBaseFile, uri, fileSystemOptions);
@@ -696,10 +903,11 @@ public class DefaultFileSystemManager implements FileSystemManager
         }
 
         // Handle absolute file names
-        if (localFileProvider != null
-                && localFileProvider.isAbsoluteLocalName(uri))
+        final LocalFileProvider localProvider = findLocalFileProvider();
+        if (localProvider != null
+                && localProvider.isAbsoluteLocalName(uri))
         {
-            return localFileProvider.findLocalFile(uri);
+            return localProvider.findLocalFile(uri);
         }
 
         if (scheme != null)
@@ -759,7 +967,32 @@ public class DefaultFileSystemManager implements FileSystemManager
         {
             realBase = base;
         }
+        if (realBase == null)
+        {
+            return doResolveName(realBase, name, scope);
+        }
 
+        final ResolvedNameKey key = new ResolvedNameKey(realBase, name, scope);
+        FileName resolved = resolvedNames.get(key);
+        if (resolved == null)
+        {
+            resolved = doResolveName(realBase, name, scope);
+            if (resolvedNames.size() >= MAX_RESOLVED_NAMES)
+            {
+                // start over rather than track the use of each name
+                resolvedNames.clear();
+            }
+            resolvedNames.put(key, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * Resolves a name, relative to the real base name.
+     */
+    private FileName doResolveName(final FileName realBase, final String name,
+            final NameScope scope) throws FileSystemException
+    {
         final StringBuilder buffer = new StringBuilder(name);
 
         // Adjust separators
@@ -792,34 +1025,31 @@ public class DefaultFileSystemManager implements FileSystemManager
                     "vfs.provider/invalid-descendent-name.error", name);
         }
 
-        String fullPath;
-        if (scheme != null)
+        if (scheme == null)
         {
-            fullPath = resolvedPath;
+            // A path in the file system of the base - keep the parsed root of the base
+            final FileProvider provider = getProvider(realBase.getScheme());
+            if (provider instanceof AbstractFileProvider)
+            {
+                return ((AbstractFileProvider) provider).createName(realBase, resolvedPath);
+            }
+            if (provider != null)
+            {
+                return provider.parseUri(realBase, realBase.getRootURI() + resolvedPath);
+            }
         }
         else
         {
-            scheme = realBase.getScheme();
-            fullPath = realBase.getRootURI() + resolvedPath;
-        }
-        final FileProvider provider = providers.get(scheme);
-        if (provider != null)
-        {
-            // todo: extend the filename parser to be able to parse
-            // only a pathname and take the missing informations from
-            // the base. Then we can get rid of the string operation.
-            // // String fullPath = base.getRootURI() +
-            // resolvedPath.substring(1);
-
-            return provider.parseUri(realBase, fullPath);
-        }
+            final FileProvider provider = getProvider(scheme);
+            if (provider != null)
+            {
+                return provider.parseUri(realBase, resolvedPath);
+            }
 
-        if (scheme != null)
-        {
             // An unknown scheme - hand it to the default provider - if possible
             if (defaultProvider != null)
             {
-                return defaultProvider.parseUri(realBase, fullPath);
+                return defaultProvider.parseUri(realBase, resolvedPath);
             }
         }
 
@@ -848,7 +1078,7 @@ public class DefaultFileSystemManager implements FileSystemManager
         if (scheme != null)
         {
             // An absolute URI - locate the provider
-            final FileProvider provider = providers.get(scheme);
+            final FileProvider provider = getProvider(scheme);
             if (provider != null)
             {
                 return provider.parseUri(null, uri);
@@ -858,10 +1088,11 @@ public class DefaultFileSystemManager implements FileSystemManager
         }
 
         // Handle absolute file names
-        if (localFileProvider != null
-                && localFileProvider.isAbsoluteLocalName(uri))
+        final LocalFileProvider localProvider = findLocalFileProvider();
+        if (localProvider != null
+                && localProvider.isAbsoluteLocalName(uri))
         {
-            return localFileProvider.parseUri(null, uri);
+            return localProvider.parseUri(null, uri);
         }
 
         if (scheme != null)
@@ -905,7 +1136,7 @@ public class DefaultFileSystemManager implements FileSystemManager
     public FileObject createFileSystem(final String scheme,
             final FileObject file) throws FileSystemException
     {
-        final FileProvider provider = providers.get(scheme);
+        final FileProvider provider = getProvider(scheme);
         if (provider == null)
         {
             throw new FileSystemException("vfs.impl/unknown-provider.error",
@@ -977,12 +1208,13 @@ public class DefaultFileSystemManager implements FileSystemManager
      */
     private LocalFileProvider getLocalFileProvider() throws FileSystemException
     {
-        if (localFileProvider == null)
+        final LocalFileProvider localProvider = findLocalFileProvider();
+        if (localProvider == null)
         {
             throw new FileSystemException(
                     "vfs.impl/no-local-file-provider.error");
         }
-        return localFileProvider;
+        return localProvider;
     }
 
     /**
@@ -1030,8 +1262,7 @@ public class DefaultFileSystemManager implements FileSystemManager
     {
         public URLStreamHandler createURLStreamHandler(final String protocol)
         {
-            FileProvider provider = providers.get(protocol);
-            if (provider != null)
+            if (hasProvider(protocol))
             {
                 return new DefaultURLStreamHandler(context);
             }
@@ -1047,9 +1278,9 @@ public class DefaultFileSystemManager implements FileSystemManager
      */
     public String[] getSchemes()
     {
-        String[] schemes = new String[providers.size()];
-        providers.keySet().toArray(schemes);
-        return schemes;
+        final Set<String> schemes = new HashSet<String>(providers.keySet());
+        schemes.addAll(lazyProviders.keySet());
+        return schemes.toArray(new String[schemes.size()]);
     }
 
     /**
@@ -1062,7 +1293,7 @@ public class DefaultFileSystemManager implements FileSystemManager
     public Collection<Capability> getProviderCapabilities(final String scheme)
             throws FileSystemException
     {
-        FileProvider provider = providers.get(scheme);
+        FileProvider provider = getProvider(scheme);
         if (provider == null)
         {
             throw new FileSystemException("vfs.impl/unknown-scheme.error",
@@ -1081,7 +1312,7 @@ public class DefaultFileSystemManager implements FileSystemManager
     public FileSystemConfigBuilder getFileSystemConfigBuilder(final String scheme)
             throws FileSystemException
     {
-        FileProvider provider = providers.get(scheme);
+        FileProvider provider = getProvider(scheme);
         if (provider == null)
         {
             throw new FileSystemException("vfs.impl/unknown-scheme.error", new Object[] {scheme});
@@ -1167,4 +1398,79 @@ public class DefaultFileSystemManager implements FileSystemManager
         }
         return providers.toArray(new FileOperationProvider[] {});
     }
+
+    /**
+     * The key of a resolved name.
+     */
+    private static final class ResolvedNameKey
+    {
+        private final FileName base;
+        private final String name;
+        private final NameScope scope;
+        private final boolean uriStyle;
+        private final int hashCode;
+
+        private ResolvedNameKey(final FileName base, final String name, final NameScope scope)
+        {
+            this.base = base;
+            this.name = name;
+            this.scope = scope;
+            this.uriStyle = VFS.isUriStyle();
+            this.hashCode = (base.hashCode() * 31 + name.hashCode()) * 31 + scope.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof ResolvedNameKey))
+            {
+                return false;
+            }
+            final ResolvedNameKey that = (ResolvedNameKey) o;
+            return hashCode == that.hashCode
+                && uriStyle == that.uriStyle
+                && scope == that.scope
+                && name.equals(that.name)
+                && base.equals(that.base);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+
+    /**
+     * A provider registered by class name, created the first time one of its schemes is used.
+     */
+    private static final class LazyProvider
+    {
+        private final String[] schemes;
+        private final String className;
+        private final ClassLoader classLoader;
+
+        private LazyProvider(final String[] schemes, final String className, final ClassLoader classLoader)
+        {
+            this.schemes = schemes.clone();
+            this.className = className;
+            this.classLoader = classLoader;
+        }
+
+        private FileProvider createProvider() throws FileSystemException
+        {
+            try
+            {
+                return (FileProvider) classLoader.loadClass(className).newInstance();
+            }
+            catch (final Exception e)
+            {
+                throw new FileSystemException("vfs.impl/create-provider.error", className, e);
+            }
+        }
+    }
 }
@@ -17,12 +17,14 @@
 package org.apache.commons.vfs2.impl;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemManager;
 import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.metrics.FileSystemMetrics;
 import org.apache.commons.vfs2.provider.FileReplicator;
 import org.apache.commons.vfs2.provider.TemporaryFileStore;
 import org.apache.commons.vfs2.provider.VfsComponentContext;
@@ -92,6 +94,22 @@ final class DefaultVfsComponentContext
         return manager.getTemporaryFileStore();
     }
 
+    /**
+     * Locates the executor of the asynchronous file operations.
+     */
+    public ExecutorService getAsyncExecutor() throws FileSystemException
+    {
+        return manager.getAsyncExecutor();
+    }
+
+    /**
+     * Locates the metrics to record the operations of the file systems in.
+     */
+    public FileSystemMetrics getFileSystemMetrics()
+    {
+        return manager.getFileSystemMetrics();
+    }
+
     /**
      * Returns the filesystem manager for the current context
      *
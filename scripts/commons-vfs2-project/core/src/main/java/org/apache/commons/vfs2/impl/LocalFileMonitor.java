@@ -0,0 +1,701 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.vfs2.FileChangeEvent;
+import org.apache.commons.vfs2.FileListener;
+import org.apache.commons.vfs2.FileMonitor;
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.NameScope;
+import org.apache.commons.vfs2.provider.UriParser;
+import org.apache.commons.vfs2.provider.local.LocalFileName;
+import org.apache.commons.vfs2.provider.local.LocalFileSystem;
+
+/**
+ * A {@link FileMonitor} which watches local files per directory.<br />
+ * <br />
+ * Where {@link DefaultFileMonitor} refreshes every monitored file object and asks
+ * it for its type, timestamp and children, this monitor keeps a snapshot of each
+ * watched directory and compares it with the {@link java.io.File} view of the
+ * directory: one timestamp per entry, and a listing only when the timestamp of the
+ * directory itself shows that entries were added or removed. File objects are
+ * only resolved for the files which changed.<br />
+ * <br />
+ * The changes found in one pass are coalesced and delivered to the listener as a
+ * batch at the end of the pass. Files which are not on the local file system are
+ * handed to a {@link DefaultFileMonitor} with the same listener and settings.
+ * <br /><b>Example usage:</b><br /><pre>
+ * LocalFileMonitor fm = new LocalFileMonitor(new CustomFileListener());
+ * fm.setRecursive(true);
+ * fm.addFile(fsManager.resolveFile("/home/username/monitored/"));
+ * fm.start();
+ * </pre>
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public class LocalFileMonitor implements Runnable, FileMonitor
+{
+    private static final Log LOG = LogFactory.getLog(LocalFileMonitor.class);
+
+    private static final long DEFAULT_DELAY = 1000;
+
+    /**
+     * The coarsest timestamp resolution of the common file systems (FAT). A directory
+     * listed within this time of its last modification is listed again, as a change
+     * in the same tick would not show in its timestamp.
+     */
+    private static final long TIMESTAMP_RESOLUTION = 2000;
+
+    private static final int CREATED = 1;
+    private static final int CHANGED = 2;
+    private static final int DELETED = 3;
+
+    /**
+     * The watched local directories.
+     */
+    private final Map<File, WatchedDirectory> directories = new HashMap<File, WatchedDirectory>();
+
+    /**
+     * The listener notified of the changes.
+     */
+    private final FileListener listener;
+
+    /**
+     * The monitor of the files which are not local, created on demand.
+     */
+    private DefaultFileMonitor fallback;
+
+    private Thread monitorThread;
+
+    private volatile boolean shouldRun = true;
+
+    private boolean started;
+
+    private boolean recursive;
+
+    private long delay = DEFAULT_DELAY;
+
+    public LocalFileMonitor(final FileListener listener)
+    {
+        this.listener = listener;
+    }
+
+    /**
+     * Access method to get the recursive setting when adding files for monitoring.
+     * @return true if monitoring is enabled for all descendents of a folder.
+     */
+    public boolean isRecursive()
+    {
+        return recursive;
+    }
+
+    /**
+     * Access method to set the recursive setting when adding files for monitoring.
+     * @param newRecursive true if monitoring should be enabled for all descendents.
+     */
+    public void setRecursive(final boolean newRecursive)
+    {
+        this.recursive = newRecursive;
+    }
+
+    /**
+     * Get the delay between runs.
+     * @return The delay period.
+     */
+    public long getDelay()
+    {
+        return delay;
+    }
+
+    /**
+     * Set the delay between runs.
+     * @param delay The delay period.
+     */
+    public void setDelay(final long delay)
+    {
+        if (delay > 0)
+        {
+            this.delay = delay;
+        }
+        else
+        {
+            this.delay = DEFAULT_DELAY;
+        }
+    }
+
+    /**
+     * Adds a file to be monitored. For a folder its children are monitored too, and
+     * all its descendents when the monitor is recursive.
+     * @param file The FileObject to monitor.
+     */
+    public void addFile(final FileObject file)
+    {
+        final File localFile = toLocalFile(file);
+        if (localFile == null)
+        {
+            getFallback().addFile(file);
+            return;
+        }
+
+        synchronized (directories)
+        {
+            try
+            {
+                final FileObject parent = file.getParent();
+                if (parent != null)
+                {
+                    watch(toLocalFile(parent), parent).addName(localFile.getName());
+                }
+                if (localFile.isDirectory())
+                {
+                    watchChildren(localFile, file, recursive, null);
+                }
+            }
+            catch (final FileSystemException fse)
+            {
+                LOG.error(fse.getLocalizedMessage(), fse);
+            }
+        }
+    }
+
+    /**
+     * Removes a file from being monitored.
+     * @param file The FileObject to remove from monitoring.
+     */
+    public void removeFile(final FileObject file)
+    {
+        final File localFile = toLocalFile(file);
+        if (localFile == null)
+        {
+            if (fallback != null)
+            {
+                fallback.removeFile(file);
+            }
+            return;
+        }
+
+        synchronized (directories)
+        {
+            final WatchedDirectory parent = directories.get(localFile.getParentFile());
+            if (parent != null && parent.removeName(localFile.getName()))
+            {
+                directories.remove(parent.dir);
+            }
+            unwatch(localFile, null);
+        }
+    }
+
+    /**
+     * Starts monitoring the files that have been added.
+     */
+    public synchronized void start()
+    {
+        if (monitorThread == null)
+        {
+            monitorThread = new Thread(this, "LocalFileMonitor");
+            monitorThread.setDaemon(true);
+            monitorThread.setPriority(Thread.MIN_PRIORITY);
+        }
+        monitorThread.start();
+        if (fallback != null)
+        {
+            fallback.start();
+        }
+        started = true;
+    }
+
+    /**
+     * Stops monitoring the files that have been added.
+     */
+    public synchronized void stop()
+    {
+        shouldRun = false;
+        if (fallback != null)
+        {
+            fallback.stop();
+        }
+    }
+
+    /**
+     * Checks the watched directories and delivers the changes, until stopped.
+     */
+    public void run()
+    {
+        while (!monitorThread.isInterrupted() && shouldRun)
+        {
+            final List<Event> events = check();
+            deliver(events);
+
+            try
+            {
+                Thread.sleep(getDelay());
+            }
+            catch (final InterruptedException e)
+            {
+                continue;
+            }
+        }
+
+        shouldRun = true;
+    }
+
+    /**
+     * Checks all watched directories once.
+     * @return the coalesced changes.
+     */
+    private List<Event> check()
+    {
+        final Map<File, Event> batch = new LinkedHashMap<File, Event>();
+        synchronized (directories)
+        {
+            final WatchedDirectory[] watched = directories.values().toArray(
+                new WatchedDirectory[directories.size()]);
+            for (int i = 0; i < watched.length; i++)
+            {
+                watched[i].check(batch);
+            }
+
+            // follow new and removed folders
+            final Event[] events = batch.values().toArray(new Event[batch.size()]);
+            for (int i = 0; i < events.length; i++)
+            {
+                final Event event = events[i];
+                final File file = new File(event.directory.dir, event.name);
+                if (event.type == DELETED && event.folder)
+                {
+                    unwatch(file, batch);
+                }
+                else if (event.type == CREATED && event.folder && event.directory.recursive)
+                {
+                    try
+                    {
+                        watchChildren(file, event.getFile(), true, batch);
+                    }
+                    catch (final FileSystemException fse)
+                    {
+                        LOG.error(fse.getLocalizedMessage(), fse);
+                    }
+                }
+            }
+        }
+        return new ArrayList<Event>(batch.values());
+    }
+
+    /**
+     * Notifies the listener of a batch of changes.
+     */
+    private void deliver(final List<Event> events)
+    {
+        if (listener == null)
+        {
+            return;
+        }
+        for (Event event : events)
+        {
+            try
+            {
+                final FileObject file = event.getFile();
+                file.refresh();
+                final FileChangeEvent changeEvent = new FileChangeEvent(file);
+                switch (event.type)
+                {
+                    case CREATED:
+                        listener.fileCreated(changeEvent);
+                        break;
+                    case DELETED:
+                        listener.fileDeleted(changeEvent);
+                        break;
+                    default:
+                        listener.fileChanged(changeEvent);
+                        break;
+                }
+            }
+            catch (final Exception e)
+            {
+                LOG.error(e.getLocalizedMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the watch of a directory, creating it if needed.
+     */
+    private WatchedDirectory watch(final File dir, final FileObject folder)
+    {
+        WatchedDirectory watched = directories.get(dir);
+        if (watched == null)
+        {
+            watched = new WatchedDirectory(dir, folder);
+            directories.put(dir, watched);
+        }
+        return watched;
+    }
+
+    /**
+     * Watches all children of a directory, and of its sub directories if recursive.
+     * @param batch receives create events for the children, or null to take the
+     * children as they are.
+     */
+    private void watchChildren(final File dir, final FileObject folder, final boolean watchRecursive,
+                               final Map<File, Event> batch)
+        throws FileSystemException
+    {
+        final WatchedDirectory watched = watch(dir, folder);
+        watched.recursive |= watchRecursive;
+        if (watched.allChildren && batch == null)
+        {
+            return;
+        }
+        watched.allChildren = true;
+        if (batch == null)
+        {
+            watched.takeSnapshot();
+        }
+        else
+        {
+            watched.check(batch);
+        }
+
+        if (watched.recursive)
+        {
+            for (Map.Entry<String, Entry> entry : watched.entries.entrySet())
+            {
+                if (entry.getValue().folder && entry.getValue().exists())
+                {
+                    watchChildren(new File(dir, entry.getKey()), watched.resolve(entry.getKey()), true, batch);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops watching the children of a directory and its sub directories.
+     * @param batch receives delete events for the children, or null.
+     */
+    private void unwatch(final File dir, final Map<File, Event> batch)
+    {
+        final WatchedDirectory watched = directories.get(dir);
+        if (watched == null)
+        {
+            return;
+        }
+        if (watched.names.isEmpty())
+        {
+            directories.remove(dir);
+        }
+        else
+        {
+            watched.allChildren = false;
+        }
+
+        final Iterator<Map.Entry<String, Entry>> iterEntries = watched.entries.entrySet().iterator();
+        while (iterEntries.hasNext())
+        {
+            final Map.Entry<String, Entry> entry = iterEntries.next();
+            if (watched.names.contains(entry.getKey()))
+            {
+                continue;
+            }
+            iterEntries.remove();
+            if (batch != null && entry.getValue().exists())
+            {
+                watched.addEvent(batch, DELETED, entry.getKey(), entry.getValue().folder);
+            }
+            if (entry.getValue().folder)
+            {
+                unwatch(new File(dir, entry.getKey()), batch);
+            }
+        }
+    }
+
+    private synchronized DefaultFileMonitor getFallback()
+    {
+        if (fallback == null)
+        {
+            fallback = new DefaultFileMonitor(listener);
+            fallback.setRecursive(recursive);
+            fallback.setDelay(delay);
+            if (started && shouldRun)
+            {
+                fallback.start();
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Returns the local file of a file object, or null when it is not a local file.
+     */
+    private static File toLocalFile(final FileObject file)
+    {
+        final FileName name = file.getName();
+        if (!(name instanceof LocalFileName) || !(file.getFileSystem() instanceof LocalFileSystem))
+        {
+            return null;
+        }
+        try
+        {
+            return new File(((LocalFileName) name).getRootFile() + name.getPathDecoded());
+        }
+        catch (final FileSystemException fse)
+        {
+            // left to the polling monitor
+            return null;
+        }
+    }
+
+    /**
+     * The state of a directory entry.
+     */
+    private static final class Entry
+    {
+        /** The last modification time, 0 while the file does not exist. */
+        private long lastModified;
+        private boolean folder;
+
+        private boolean exists()
+        {
+            return lastModified != 0;
+        }
+    }
+
+    /**
+     * A change of a directory entry.
+     */
+    private static final class Event
+    {
+        private final WatchedDirectory directory;
+        private final String name;
+        private final boolean folder;
+        private int type;
+
+        private Event(final WatchedDirectory directory, final String name, final int type, final boolean folder)
+        {
+            this.directory = directory;
+            this.name = name;
+            this.type = type;
+            this.folder = folder;
+        }
+
+        private FileObject getFile() throws FileSystemException
+        {
+            return directory.resolve(name);
+        }
+    }
+
+    /**
+     * A watched directory. Either all its children are watched, or only some names.
+     */
+    private static final class WatchedDirectory
+    {
+        private final File dir;
+        private final FileObject folder;
+
+        /** The names watched on their own, which may not exist. */
+        private final Set<String> names = new HashSet<String>();
+
+        /** The known entries, by name. */
+        private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+        private boolean allChildren;
+        private boolean recursive;
+
+        private long listedModified = -1;
+        private long listedAt;
+
+        private WatchedDirectory(final File dir, final FileObject folder)
+        {
+            this.dir = dir;
+            this.folder = folder;
+        }
+
+        private FileObject resolve(final String name) throws FileSystemException
+        {
+            return folder.resolveFile(UriParser.encode(name), NameScope.CHILD);
+        }
+
+        private void addName(final String name)
+        {
+            if (names.add(name) && !entries.containsKey(name))
+            {
+                final Entry entry = new Entry();
+                final File file = new File(dir, name);
+                entry.lastModified = lastModified(file);
+                entry.folder = entry.exists() && file.isDirectory();
+                entries.put(name, entry);
+            }
+        }
+
+        /**
+         * Stops watching a name on its own.
+         * @return true if nothing is watched in this directory anymore.
+         */
+        private boolean removeName(final String name)
+        {
+            if (names.remove(name) && !allChildren)
+            {
+                entries.remove(name);
+            }
+            return names.isEmpty() && !allChildren;
+        }
+
+        /**
+         * Records the current entries without reporting them.
+         */
+        private void takeSnapshot()
+        {
+            final Map<File, Event> ignored = new HashMap<File, Event>();
+            check(ignored);
+        }
+
+        /**
+         * Compares the directory with the snapshot and adds the changes to a batch.
+         */
+        private void check(final Map<File, Event> batch)
+        {
+            final Set<String> candidates;
+            final long modified = dir.lastModified();
+            if (allChildren
+                && (modified != listedModified || listedAt - listedModified < TIMESTAMP_RESOLUTION))
+            {
+                listedAt = System.currentTimeMillis();
+                listedModified = modified;
+                candidates = new HashSet<String>(names);
+                final String[] list = dir.list();
+                if (list != null)
+                {
+                    candidates.addAll(Arrays.asList(list));
+                }
+
+                // the entries which are not listed anymore
+                final Iterator<Map.Entry<String, Entry>> iterEntries = entries.entrySet().iterator();
+                while (iterEntries.hasNext())
+                {
+                    final Map.Entry<String, Entry> entry = iterEntries.next();
+                    if (!candidates.contains(entry.getKey()))
+                    {
+                        iterEntries.remove();
+                        addEvent(batch, DELETED, entry.getKey(), entry.getValue().folder);
+                    }
+                }
+            }
+            else
+            {
+                candidates = new HashSet<String>(entries.keySet());
+            }
+
+            for (String name : candidates)
+            {
+                final File file = new File(dir, name);
+                final long lastModified = lastModified(file);
+                Entry entry = entries.get(name);
+                if (entry == null || !entry.exists())
+                {
+                    if (lastModified != 0)
+                    {
+                        if (entry == null)
+                        {
+                            entry = new Entry();
+                            entries.put(name, entry);
+                        }
+                        entry.lastModified = lastModified;
+                        entry.folder = file.isDirectory();
+                        addEvent(batch, CREATED, name, entry.folder);
+                    }
+                }
+                else if (lastModified == 0)
+                {
+                    if (names.contains(name))
+                    {
+                        entry.lastModified = 0;
+                    }
+                    else
+                    {
+                        entries.remove(name);
+                    }
+                    addEvent(batch, DELETED, name, entry.folder);
+                }
+                else if (lastModified != entry.lastModified)
+                {
+                    entry.lastModified = lastModified;
+
+                    // Don't fire for folders, their children have their own events.
+                    if (!entry.folder)
+                    {
+                        addEvent(batch, CHANGED, name, false);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds a change to a batch, merging it with an earlier change of the same file.
+         */
+        private void addEvent(final Map<File, Event> batch, final int type, final String name,
+                              final boolean isFolder)
+        {
+            final File file = new File(dir, name);
+            final Event previous = batch.get(file);
+            if (previous == null)
+            {
+                batch.put(file, new Event(this, name, type, isFolder));
+            }
+            else if (previous.type == CREATED && type == DELETED)
+            {
+                batch.remove(file);
+            }
+            else if (previous.type == DELETED && type == CREATED)
+            {
+                previous.type = CHANGED;
+            }
+            else if (type == DELETED)
+            {
+                previous.type = DELETED;
+            }
+        }
+
+        /**
+         * Returns the modification time of a file, 0 if it does not exist.
+         */
+        private static long lastModified(final File file)
+        {
+            final long lastModified = file.lastModified();
+            if (lastModified == 0 && file.exists())
+            {
+                // an existing file with a zero timestamp
+                return 1;
+            }
+            return lastModified;
+        }
+    }
+}
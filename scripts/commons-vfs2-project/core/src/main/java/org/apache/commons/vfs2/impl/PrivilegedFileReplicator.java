@@ -27,6 +27,7 @@ import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSelector;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.provider.FileReplicator;
+import org.apache.commons.vfs2.provider.PinningFileReplicator;
 import org.apache.commons.vfs2.provider.VfsComponent;
 import org.apache.commons.vfs2.provider.VfsComponentContext;
 
@@ -37,7 +38,7 @@ import org.apache.commons.vfs2.provider.VfsComponentContext;
  * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
  */
 public class PrivilegedFileReplicator
-    implements FileReplicator, VfsComponent
+    implements PinningFileReplicator, VfsComponent
 {
     private final FileReplicator replicator;
     private final VfsComponent replicatorComponent;
@@ -130,6 +131,19 @@ public class PrivilegedFileReplicator
         }
     }
 
+    /**
+     * Releases a copy, if the wrapped replicator keeps copies until they are released.
+     * @param file The local copy.
+     * @since 2.1
+     */
+    public void releaseFile(final File file)
+    {
+        if (replicator instanceof PinningFileReplicator)
+        {
+            AccessController.doPrivileged(new ReleaseAction(file));
+        }
+    }
+
     /**
      * An action that initialises the wrapped replicator.
      */
@@ -172,6 +186,28 @@ public class PrivilegedFileReplicator
         }
     }
 
+    /**
+     * An action that releases a copy of the wrapped replicator.
+     */
+    private class ReleaseAction implements PrivilegedAction<Object>
+    {
+        private final File file;
+
+        public ReleaseAction(final File file)
+        {
+            this.file = file;
+        }
+
+        /**
+         * Performs the action.
+         */
+        public Object run()
+        {
+            ((PinningFileReplicator) replicator).releaseFile(file);
+            return null;
+        }
+    }
+
     /**
      * An action that closes the wrapped replicator.
      */
@@ -0,0 +1,411 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.impl;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.vfs2.FileSystemException;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * The entries of a {@link StandardFileSystemManager} configuration: the providers,
+ * operation providers, mime-type and extension maps, in the order they are added.
+ * <p>
+ * The entries are read from the XML configuration files, or from a prebuilt index,
+ * which does not need an XML parser. An index has one entry a line, with tab separated
+ * fields: the kind of the entry, the class name, mime-type or extension, then comma
+ * separated lists of the schemes, the required schemes and the required classes.
+ * Run this class with the file to write to, and optionally the URLs of the configuration
+ * files, to build an index. Without URLs the default configuration and the plugins
+ * on the classpath are indexed.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @see StandardFileSystemManager#setConfigurationIndex(URL)
+ * @since 2.1
+ */
+public class ProviderIndex
+{
+    static final String PROVIDER = "provider";
+    static final String DEFAULT_PROVIDER = "default-provider";
+    static final String OPERATION_PROVIDER = "operationProvider";
+    static final String MIME_TYPE_MAP = "mime-type-map";
+    static final String EXTENSION_MAP = "extension-map";
+
+    private static final String ENCODING = "UTF-8";
+    private static final String[] NONE = new String[0];
+
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    /**
+     * Reads the entries of an XML configuration file.
+     * @param configUri The URL of the configuration file.
+     * @return The entries.
+     * @throws FileSystemException if the file cannot be read or parsed.
+     */
+    public static ProviderIndex parse(final URL configUri) throws FileSystemException
+    {
+        try
+        {
+            final InputStream configStream = configUri.openStream();
+            try
+            {
+                return parse(configUri.toString(), configStream);
+            }
+            finally
+            {
+                configStream.close();
+            }
+        }
+        catch (final IOException e)
+        {
+            throw new FileSystemException("vfs.impl/load-config.error", configUri.toString(), e);
+        }
+    }
+
+    /**
+     * Reads the entries of an XML configuration file.
+     */
+    static ProviderIndex parse(final String configUri, final InputStream configStream)
+        throws FileSystemException
+    {
+        try
+        {
+            // Load up the config
+            // TODO - validate
+            final DocumentBuilder builder = createDocumentBuilder();
+            final Element config = builder.parse(configStream).getDocumentElement();
+
+            final ProviderIndex index = new ProviderIndex();
+            index.add(config);
+            return index;
+        }
+        catch (final Exception e)
+        {
+            throw new FileSystemException("vfs.impl/load-config.error", configUri, e);
+        }
+    }
+
+    /**
+     * Reads a prebuilt index.
+     * @param indexUri The URL of the index.
+     * @return The entries.
+     * @throws FileSystemException if the index cannot be read.
+     */
+    public static ProviderIndex read(final URL indexUri) throws FileSystemException
+    {
+        try
+        {
+            final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(indexUri.openStream(), ENCODING));
+            try
+            {
+                final ProviderIndex index = new ProviderIndex();
+                String line;
+                while ((line = reader.readLine()) != null)
+                {
+                    if (line.length() == 0 || line.charAt(0) == '#')
+                    {
+                        continue;
+                    }
+                    final String[] fields = line.split("\t", -1);
+                    if (fields.length != 5)
+                    {
+                        throw new IOException(line);
+                    }
+                    index.entries.add(new Entry(fields[0], fields[1],
+                        split(fields[2]), split(fields[3]), split(fields[4])));
+                }
+                return index;
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch (final IOException e)
+        {
+            throw new FileSystemException("vfs.impl/load-config.error", indexUri.toString(), e);
+        }
+    }
+
+    /**
+     * Adds the entries of another configuration after the entries of this one.
+     * @param index The other configuration.
+     */
+    public void add(final ProviderIndex index)
+    {
+        entries.addAll(index.entries);
+    }
+
+    /**
+     * Writes the entries as index.
+     * @param out The stream to write to, which is not closed.
+     * @throws IOException if an error occurs writing.
+     */
+    public void write(final OutputStream out) throws IOException
+    {
+        final Writer writer = new OutputStreamWriter(out, ENCODING);
+        writer.write("# Commons VFS provider index\n");
+        for (final Entry entry : entries)
+        {
+            writer.write(entry.kind + '\t' + entry.name
+                + '\t' + join(entry.schemes)
+                + '\t' + join(entry.requiredSchemes)
+                + '\t' + join(entry.requiredClasses) + '\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return The entries, in the order they are to be added to the manager.
+     */
+    List<Entry> getEntries()
+    {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Adds the entries of a parsed configuration file, the providers first, as the
+     * other entries depend on them.
+     */
+    private void add(final Element config)
+    {
+        final NodeList providers = config.getElementsByTagName(PROVIDER);
+        for (int i = 0; i < providers.getLength(); i++)
+        {
+            addProvider(PROVIDER, (Element) providers.item(i));
+        }
+
+        final NodeList operationProviders = config.getElementsByTagName(OPERATION_PROVIDER);
+        for (int i = 0; i < operationProviders.getLength(); i++)
+        {
+            final Element operationProvider = (Element) operationProviders.item(i);
+            entries.add(new Entry(OPERATION_PROVIDER, operationProvider.getAttribute("class-name"),
+                getSchemas(operationProvider), NONE, NONE));
+        }
+
+        // only the first default provider is used
+        final NodeList defProviders = config.getElementsByTagName(DEFAULT_PROVIDER);
+        if (defProviders.getLength() > 0)
+        {
+            addProvider(DEFAULT_PROVIDER, (Element) defProviders.item(0));
+        }
+
+        final NodeList mimeTypes = config.getElementsByTagName(MIME_TYPE_MAP);
+        for (int i = 0; i < mimeTypes.getLength(); i++)
+        {
+            final Element map = (Element) mimeTypes.item(i);
+            entries.add(new Entry(MIME_TYPE_MAP, map.getAttribute("mime-type"),
+                split(map.getAttribute("scheme")), NONE, NONE));
+        }
+
+        final NodeList extensions = config.getElementsByTagName(EXTENSION_MAP);
+        for (int i = 0; i < extensions.getLength(); i++)
+        {
+            final Element map = (Element) extensions.item(i);
+            entries.add(new Entry(EXTENSION_MAP, map.getAttribute("extension"),
+                split(map.getAttribute("scheme")), NONE, NONE));
+        }
+    }
+
+    private void addProvider(final String kind, final Element providerDef)
+    {
+        final ArrayList<String> requiredSchemes = new ArrayList<String>();
+        final ArrayList<String> requiredClasses = new ArrayList<String>();
+        final NodeList deps = providerDef.getElementsByTagName("if-available");
+        for (int i = 0; i < deps.getLength(); i++)
+        {
+            final Element dep = (Element) deps.item(i);
+            final String scheme = dep.getAttribute("scheme");
+            if (scheme != null && scheme.length() > 0)
+            {
+                requiredSchemes.add(scheme);
+            }
+            final String className = dep.getAttribute("class-name");
+            if (className != null && className.length() > 0)
+            {
+                requiredClasses.add(className);
+            }
+        }
+
+        entries.add(new Entry(kind, providerDef.getAttribute("class-name"), getSchemas(providerDef),
+            requiredSchemes.toArray(new String[requiredSchemes.size()]),
+            requiredClasses.toArray(new String[requiredClasses.size()])));
+    }
+
+    /**
+     * Extracts the schema names from a provider definition.
+     */
+    private static String[] getSchemas(final Element provider)
+    {
+        final ArrayList<String> schemas = new ArrayList<String>();
+        final NodeList schemaElements = provider.getElementsByTagName("scheme");
+        for (int i = 0; i < schemaElements.getLength(); i++)
+        {
+            final Element scheme = (Element) schemaElements.item(i);
+            schemas.add(scheme.getAttribute("name"));
+        }
+        return schemas.toArray(new String[schemas.size()]);
+    }
+
+    /**
+     * Configure and create a DocumentBuilder
+     * @return A DocumentBuilder for the configuration.
+     * @throws ParserConfigurationException if an error occurs.
+     */
+    private static DocumentBuilder createDocumentBuilder() throws ParserConfigurationException
+    {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setIgnoringElementContentWhitespace(true);
+        factory.setIgnoringComments(true);
+        factory.setExpandEntityReferences(true);
+        return factory.newDocumentBuilder();
+    }
+
+    private static String[] split(final String list)
+    {
+        return list == null || list.length() == 0 ? NONE : list.split(",");
+    }
+
+    private static String join(final String[] list)
+    {
+        final StringBuilder buffer = new StringBuilder();
+        for (int i = 0; i < list.length; i++)
+        {
+            if (i > 0)
+            {
+                buffer.append(',');
+            }
+            buffer.append(list[i]);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Writes an index.
+     * @param args The file to write the index to, then the URLs of the configuration
+     * files to index, if not the default configuration and the plugins.
+     * @throws Exception if an error occurs.
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        if (args.length == 0)
+        {
+            System.err.println("Usage: java " + ProviderIndex.class.getName() + " <index file> [<config URL>...]");
+            System.exit(1);
+        }
+
+        final ProviderIndex index = new ProviderIndex();
+        if (args.length > 1)
+        {
+            for (int i = 1; i < args.length; i++)
+            {
+                index.add(parse(new URL(args[i])));
+            }
+        }
+        else
+        {
+            index.add(parse(StandardFileSystemManager.class.getResource(StandardFileSystemManager.CONFIG_RESOURCE)));
+            final Enumeration<URL> plugins = ProviderIndex.class.getClassLoader().getResources(
+                StandardFileSystemManager.PLUGIN_CONFIG_RESOURCE);
+            while (plugins.hasMoreElements())
+            {
+                index.add(parse(plugins.nextElement()));
+            }
+        }
+
+        final OutputStream out = new FileOutputStream(args[0]);
+        try
+        {
+            index.write(out);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * An entry of the configuration.
+     */
+    static final class Entry
+    {
+        private final String kind;
+        private final String name;
+        private final String[] schemes;
+        private final String[] requiredSchemes;
+        private final String[] requiredClasses;
+
+        private Entry(final String kind, final String name, final String[] schemes,
+                      final String[] requiredSchemes, final String[] requiredClasses)
+        {
+            this.kind = kind;
+            this.name = name;
+            this.schemes = schemes;
+            this.requiredSchemes = requiredSchemes;
+            this.requiredClasses = requiredClasses;
+        }
+
+        /**
+         * @return The kind of entry, as the name of its XML element.
+         */
+        String getKind()
+        {
+            return kind;
+        }
+
+        /**
+         * @return The class name, mime-type or extension.
+         */
+        String getName()
+        {
+            return name;
+        }
+
+        String[] getSchemes()
+        {
+            return schemes;
+        }
+
+        String[] getRequiredSchemes()
+        {
+            return requiredSchemes;
+        }
+
+        String[] getRequiredClasses()
+        {
+            return requiredClasses;
+        }
+    }
+}
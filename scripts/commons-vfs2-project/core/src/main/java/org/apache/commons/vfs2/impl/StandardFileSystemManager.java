@@ -20,26 +20,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.Enumeration;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.VfsLog;
 import org.apache.commons.vfs2.operations.FileOperationProvider;
 import org.apache.commons.vfs2.provider.FileProvider;
 import org.apache.commons.vfs2.util.Messages;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
 /**
  * A {@link org.apache.commons.vfs2.FileSystemManager} that configures itself
  * from an XML (Default: providers.xml) configuration file.<br>
  * Certain providers are only loaded and available if the dependend library is in your
- * classpath. You have to configure your debugging facility to log "debug" messages to see
+ * classpath. The providers are created the first time their scheme is used. You have to configure your debugging facility to log "debug" messages to see
  * if a provider was skipped due to "unresolved externals".
  *
  * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
@@ -47,10 +40,11 @@ import org.w3c.dom.NodeList;
 public class StandardFileSystemManager
     extends DefaultFileSystemManager
 {
-    private static final String CONFIG_RESOURCE = "providers.xml";
-    private static final String PLUGIN_CONFIG_RESOURCE = "META-INF/vfs-providers.xml";
+    static final String CONFIG_RESOURCE = "providers.xml";
+    static final String PLUGIN_CONFIG_RESOURCE = "META-INF/vfs-providers.xml";
 
     private URL configUri;
+    private URL indexUri;
     private ClassLoader classLoader;
 
     /**
@@ -78,6 +72,18 @@ public class StandardFileSystemManager
         this.configUri = configUri;
     }
 
+    /**
+     * Sets a prebuilt index of the configuration for this manager, to use instead of
+     * the configuration file and the plugins.
+     * @param indexUri The URL of the index.
+     * @see ProviderIndex
+     * @since 2.1
+     */
+    public void setConfigurationIndex(final URL indexUri)
+    {
+        this.indexUri = indexUri;
+    }
+
     /**
      * Sets the ClassLoader to use to load the providers.  Default is to
      * use the ClassLoader that loaded this class.
@@ -108,22 +114,30 @@ public class StandardFileSystemManager
         }
         */
 
-        if (configUri == null)
+        if (indexUri != null)
+        {
+            // Configure from the index, which covers the plugins
+            configure(ProviderIndex.read(indexUri));
+        }
+        else
         {
-            // Use default config
-            final URL url = getClass().getResource(CONFIG_RESOURCE);
-            if (url == null)
+            if (configUri == null)
             {
-                throw new FileSystemException("vfs.impl/find-config-file.error", CONFIG_RESOURCE);
+                // Use default config
+                final URL url = getClass().getResource(CONFIG_RESOURCE);
+                if (url == null)
+                {
+                    throw new FileSystemException("vfs.impl/find-config-file.error", CONFIG_RESOURCE);
+                }
+                configUri = url;
             }
-            configUri = url;
-        }
 
-        // Configure
-        configure(configUri);
+            // Configure
+            configure(configUri);
 
-        // Configure Plugins
-        configurePlugins();
+            // Configure Plugins
+            configurePlugins();
+        }
 
         // Initialise super-class
         super.init();
@@ -183,35 +197,7 @@ public class StandardFileSystemManager
      */
     private void configure(final URL configUri) throws FileSystemException
     {
-        InputStream configStream = null;
-        try
-        {
-            // Load up the config
-            // TODO - validate
-            final DocumentBuilder builder = createDocumentBuilder();
-            configStream = configUri.openStream();
-            final Element config = builder.parse(configStream).getDocumentElement();
-
-            configure(config);
-        }
-        catch (final Exception e)
-        {
-            throw new FileSystemException("vfs.impl/load-config.error", configUri.toString(), e);
-        }
-        finally
-        {
-            if (configStream != null)
-            {
-                try
-                {
-                    configStream.close();
-                }
-                catch (IOException e)
-                {
-                    getLogger().warn(e.getLocalizedMessage(), e);
-                }
-            }
-        }
+        configure(ProviderIndex.parse(configUri));
     }
 
     /**
@@ -224,123 +210,68 @@ public class StandardFileSystemManager
     private void configure(final String configUri, final InputStream configStream)
             throws FileSystemException
     {
-        try
-        {
-            // Load up the config
-            // TODO - validate
-            final DocumentBuilder builder = createDocumentBuilder();
-            final Element config = builder.parse(configStream).getDocumentElement();
-
-            configure(config);
-
-        }
-        catch (final Exception e)
-        {
-            throw new FileSystemException("vfs.impl/load-config.error", configUri, e);
-        }
+        configure(ProviderIndex.parse(configUri, configStream));
     }
 
     /**
-     * Configure and create a DocumentBuilder
-     * @return A DocumentBuilder for the configuration.
-     * @throws ParserConfigurationException if an error occurs.
-     */
-    private DocumentBuilder createDocumentBuilder() throws ParserConfigurationException
-    {
-        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        factory.setIgnoringElementContentWhitespace(true);
-        factory.setIgnoringComments(true);
-        factory.setExpandEntityReferences(true);
-        return  factory.newDocumentBuilder();
-    }
-
-    /**
-     * Configures this manager from an parsed XML configuration file
-     * @param config The configuration Element.
+     * Configures this manager from the entries of a configuration.
+     * @param config The configuration.
      * @throws FileSystemException if an error occurs.
      */
-    private void configure(final Element config) throws FileSystemException
-    {
-        // Add the providers
-        final NodeList providers = config.getElementsByTagName("provider");
-        final int count = providers.getLength();
-        for (int i = 0; i < count; i++)
-        {
-            final Element provider = (Element) providers.item(i);
-            addProvider(provider, false);
-        }
-
-        // Add the operation providers
-        final NodeList operationProviders = config.getElementsByTagName("operationProvider");
-        for (int i = 0; i < operationProviders.getLength(); i++)
-        {
-            final Element operationProvider = (Element) operationProviders.item(i);
-            addOperationProvider(operationProvider);
-        }
-
-        // Add the default provider
-        final NodeList defProviders = config.getElementsByTagName("default-provider");
-        if (defProviders.getLength() > 0)
-        {
-            final Element provider = (Element) defProviders.item(0);
-            addProvider(provider, true);
-        }
-
-        // Add the mime-type maps
-        final NodeList mimeTypes = config.getElementsByTagName("mime-type-map");
-        for (int i = 0; i < mimeTypes.getLength(); i++)
-        {
-            final Element map = (Element) mimeTypes.item(i);
-            addMimeTypeMap(map);
-        }
-
-        // Add the extension maps
-        final NodeList extensions = config.getElementsByTagName("extension-map");
-        for (int i = 0; i < extensions.getLength(); i++)
-        {
-            final Element map = (Element) extensions.item(i);
-            addExtensionMap(map);
-        }
-    }
-
-    /**
-     * Adds an extension map.
-     * @param map containing the Elements.
-     */
-    private void addExtensionMap(final Element map)
+    private void configure(final ProviderIndex config) throws FileSystemException
     {
-        final String extension = map.getAttribute("extension");
-        final String scheme = map.getAttribute("scheme");
-        if (scheme != null && scheme.length() > 0)
+        for (final ProviderIndex.Entry entry : config.getEntries())
         {
-            addExtensionMap(extension, scheme);
+            final String kind = entry.getKind();
+            if (ProviderIndex.PROVIDER.equals(kind))
+            {
+                addProvider(entry, false);
+            }
+            else if (ProviderIndex.DEFAULT_PROVIDER.equals(kind))
+            {
+                addProvider(entry, true);
+            }
+            else if (ProviderIndex.OPERATION_PROVIDER.equals(kind))
+            {
+                addOperationProvider(entry);
+            }
+            else if (ProviderIndex.MIME_TYPE_MAP.equals(kind))
+            {
+                addMimeTypeMap(entry.getName(), getScheme(entry));
+            }
+            else if (ProviderIndex.EXTENSION_MAP.equals(kind))
+            {
+                final String scheme = getScheme(entry);
+                if (scheme.length() > 0)
+                {
+                    addExtensionMap(entry.getName(), scheme);
+                }
+            }
         }
     }
 
     /**
-     * Adds a mime-type map.
-     * @param map containing the Elements.
+     * Returns the scheme of a map entry.
      */
-    private void addMimeTypeMap(final Element map)
+    private String getScheme(final ProviderIndex.Entry map)
     {
-        final String mimeType = map.getAttribute("mime-type");
-        final String scheme = map.getAttribute("scheme");
-        addMimeTypeMap(mimeType, scheme);
+        return map.getSchemes().length > 0 ? map.getSchemes()[0] : "";
     }
 
     /**
-     * Adds a provider from a provider definition.
+     * Adds a provider from a provider definition.  The default provider is created
+     * at once, the others the first time one of their schemes is used.
      * @param providerDef the provider definition
      * @param isDefault true if the default should be used.
      * @throws FileSystemException if an error occurs.
      */
-    private void addProvider(final Element providerDef, final boolean isDefault)
+    private void addProvider(final ProviderIndex.Entry providerDef, final boolean isDefault)
         throws FileSystemException
     {
-        final String classname = providerDef.getAttribute("class-name");
+        final String classname = providerDef.getName();
 
         // Make sure all required schemes are available
-        final String[] requiredSchemes = getRequiredSchemes(providerDef);
+        final String[] requiredSchemes = providerDef.getRequiredSchemes();
         for (int i = 0; i < requiredSchemes.length; i++)
         {
             final String requiredScheme = requiredSchemes[i];
@@ -354,7 +285,7 @@ public class StandardFileSystemManager
         }
 
         // Make sure all required classes are in classpath
-        final String[] requiredClasses = getRequiredClasses(providerDef);
+        final String[] requiredClasses = providerDef.getRequiredClasses();
         for (int i = 0; i < requiredClasses.length; i++)
         {
             final String requiredClass = requiredClasses[i];
@@ -367,30 +298,37 @@ public class StandardFileSystemManager
             }
         }
 
+        final String[] schemas = providerDef.getSchemes();
+        if (!isDefault)
+        {
+            // Register the provider, it is created when needed
+            if (schemas.length > 0)
+            {
+                addProvider(schemas, classname, findClassLoader());
+            }
+            return;
+        }
+
         // Create and register the provider
         final FileProvider provider = (FileProvider) createInstance(classname);
-        final String[] schemas = getSchemas(providerDef);
         if (schemas.length > 0)
         {
             addProvider(schemas, provider);
         }
 
-        // Set as default, if required
-        if (isDefault)
-        {
-            setDefaultProvider(provider);
-        }
+        // Set as default
+        setDefaultProvider(provider);
     }
 
     /**
      * Adds a operationProvider from a operationProvider definition.
      */
-    private void addOperationProvider(final Element providerDef) throws FileSystemException
+    private void addOperationProvider(final ProviderIndex.Entry providerDef) throws FileSystemException
     {
-        final String classname = providerDef.getAttribute("class-name");
+        final String classname = providerDef.getName();
 
         // Attach only to available schemas
-        final String[] schemas = getSchemas(providerDef);
+        final String[] schemas = providerDef.getSchemes();
         for (int i = 0; i < schemas.length; i++)
         {
             final String schema = schemas[i];
@@ -403,75 +341,11 @@ public class StandardFileSystemManager
     }
 
     /**
-     * Tests if a class is available.
+     * Tests if a class is available, without loading it.
      */
     private boolean findClass(final String className)
     {
-        try
-        {
-            findClassLoader().loadClass(className);
-            return true;
-        }
-        catch (final ClassNotFoundException e)
-        {
-            return false;
-        }
-    }
-
-    /**
-     * Extracts the required classes from a provider definition.
-     */
-    private String[] getRequiredClasses(final Element providerDef)
-    {
-        final ArrayList<String> classes = new ArrayList<String>();
-        final NodeList deps = providerDef.getElementsByTagName("if-available");
-        final int count = deps.getLength();
-        for (int i = 0; i < count; i++)
-        {
-            final Element dep = (Element) deps.item(i);
-            String className = dep.getAttribute("class-name");
-            if (className != null && className.length() > 0)
-            {
-                classes.add(className);
-            }
-        }
-        return classes.toArray(new String[classes.size()]);
-    }
-
-    /**
-     * Extracts the required schemes from a provider definition.
-     */
-    private String[] getRequiredSchemes(final Element providerDef)
-    {
-        final ArrayList<String> schemes = new ArrayList<String>();
-        final NodeList deps = providerDef.getElementsByTagName("if-available");
-        final int count = deps.getLength();
-        for (int i = 0; i < count; i++)
-        {
-            final Element dep = (Element) deps.item(i);
-            String scheme = dep.getAttribute("scheme");
-            if (scheme != null && scheme.length() > 0)
-            {
-                schemes.add(scheme);
-            }
-        }
-        return schemes.toArray(new String[schemes.size()]);
-    }
-
-    /**
-     * Extracts the schema names from a provider definition.
-     */
-    private String[] getSchemas(final Element provider)
-    {
-        final ArrayList<String> schemas = new ArrayList<String>();
-        final NodeList schemaElements = provider.getElementsByTagName("scheme");
-        final int count = schemaElements.getLength();
-        for (int i = 0; i < count; i++)
-        {
-            final Element scheme = (Element) schemaElements.item(i);
-            schemas.add(scheme.getAttribute("name"));
-        }
-        return schemas.toArray(new String[schemas.size()]);
+        return findClassLoader().getResource(className.replace('.', '/') + ".class") != null;
     }
 
     /**
@@ -17,6 +17,7 @@
 package org.apache.commons.vfs2.impl;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.URL;
 import java.security.CodeSource;
 import java.security.Permission;
@@ -26,7 +27,10 @@ import java.security.SecureClassLoader;
 import java.security.cert.Certificate;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.jar.Attributes;
 import java.util.jar.Attributes.Name;
 
@@ -34,6 +38,8 @@ import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemManager;
 import org.apache.commons.vfs2.NameScope;
+import org.apache.commons.vfs2.Selectors;
+import org.apache.commons.vfs2.provider.UriParser;
 
 
 /**
@@ -41,6 +47,10 @@ import org.apache.commons.vfs2.NameScope;
  * VFS FileObjects refering both to folders and JAR files. Any FileObject
  * of type FileType.FILE is asumed to be a JAR and is opened
  * by creating a layered file system with the "jar" scheme.
+ * <p>
+ * The packages of the JAR files are indexed when the class loader is created, so
+ * that a class or resource is only looked up in the JAR files which contain its
+ * package. Folders are not indexed and are searched on each lookup.
  * TODO - Test this with signed Jars and a SecurityManager.
  *
  * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
@@ -48,8 +58,37 @@ import org.apache.commons.vfs2.NameScope;
  */
 public class VFSClassLoader extends SecureClassLoader
 {
+    static
+    {
+        // ClassLoader.registerAsParallelCapable() is available since Java 7
+        try
+        {
+            final Method register = ClassLoader.class.getDeclaredMethod("registerAsParallelCapable");
+            register.invoke(null);
+        }
+        catch (final Exception e)
+        {
+            // not parallel capable
+        }
+    }
+
     private final ArrayList<FileObject> resources = new ArrayList<FileObject>();
 
+    /**
+     * The files to search for each package folder, in search path order.
+     */
+    private final Map<String, List<FileObject>> packageIndex = new HashMap<String, List<FileObject>>();
+
+    /**
+     * The files which are not indexed, searched for packages not in the index.
+     */
+    private final List<FileObject> unindexed = new ArrayList<FileObject>();
+
+    /**
+     * The files by URI.
+     */
+    private final Map<String, FileObject> resourcesByUri = new HashMap<String, FileObject>();
+
     /**
      * Constructors a new VFSClassLoader for the given file.
      *
@@ -154,6 +193,43 @@ public class VFSClassLoader extends SecureClassLoader
             }
 
             resources.add(file);
+            resourcesByUri.put(file.getName().getURI(), file);
+            index(file);
+        }
+    }
+
+    /**
+     * Adds the package folders of a file to the index. Only the contents of
+     * layered file systems, such as JAR files, are indexed since they are
+     * listed from memory.
+     */
+    private void index(final FileObject file) throws FileSystemException
+    {
+        if (file.getFileSystem().getParentLayer() == null)
+        {
+            // a folder - search it for every package
+            unindexed.add(file);
+            final Iterator<List<FileObject>> it = packageIndex.values().iterator();
+            while (it.hasNext())
+            {
+                it.next().add(file);
+            }
+            return;
+        }
+
+        final FileObject[] folders = file.findFiles(Selectors.SELECT_FOLDERS);
+        for (int i = 0; i < folders.length; i++)
+        {
+            final String relativeName = file.getName().getRelativeName(folders[i].getName());
+            final String packageFolder = ".".equals(relativeName) ? "" : UriParser.decode(relativeName);
+            List<FileObject> files = packageIndex.get(packageFolder);
+            if (files == null)
+            {
+                // the folders added so far are searched for this package too
+                files = new ArrayList<FileObject>(unindexed);
+                packageIndex.put(packageFolder, files);
+            }
+            files.add(file);
         }
     }
 
@@ -212,7 +288,14 @@ public class VFSClassLoader extends SecureClassLoader
             }
             else
             {
-                definePackage(pkgName, res);
+                try
+                {
+                    definePackage(pkgName, res);
+                }
+                catch (final IllegalArgumentException e)
+                {
+                    // defined by another thread in the meantime
+                }
             }
         }
 
@@ -330,16 +413,7 @@ public class VFSClassLoader extends SecureClassLoader
      */
     private FileObject lookupFileObject(final String name)
     {
-        final Iterator<FileObject> it = resources.iterator();
-        while (it.hasNext())
-        {
-            final FileObject object = it.next();
-            if (name.equals(object.getName().getURI()))
-            {
-                return object;
-            }
-        }
-        return null;
+        return resourcesByUri.get(name);
     }
 
     /**
@@ -392,6 +466,18 @@ public class VFSClassLoader extends SecureClassLoader
         };
     }
 
+    /**
+     * Returns true if a resource name is a plain relative path.
+     */
+    private boolean isCanonical(final String name)
+    {
+        return !name.startsWith("/")
+            && name.indexOf("//") == -1
+            && name.indexOf("./") == -1
+            && name.indexOf('\\') == -1
+            && name.indexOf('%') == -1;
+    }
+
     /**
      * Searches through the search path of for the first class or resource
      * with specified name.
@@ -401,7 +487,24 @@ public class VFSClassLoader extends SecureClassLoader
      */
     private Resource loadResource(final String name) throws FileSystemException
     {
-        final Iterator<FileObject> it = resources.iterator();
+        final int pos = name.lastIndexOf('/');
+        final String packageFolder = pos == -1 ? "" : name.substring(0, pos);
+        List<FileObject> files;
+        if (!isCanonical(name))
+        {
+            // the index only knows canonical package folders
+            files = resources;
+        }
+        else
+        {
+            files = packageIndex.get(packageFolder);
+            if (files == null)
+            {
+                files = unindexed;
+            }
+        }
+
+        final Iterator<FileObject> it = files.iterator();
         while (it.hasNext())
         {
             final FileObject baseFile = it.next();
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.metrics;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.util.Messages;
+
+/**
+ * Keeps {@link FileSystemStatistics} for each scheme and each file system, and optionally
+ * registers them with an MBeanServer.
+ * <p>
+ * The statistics of a scheme add up those of all its file systems, including those
+ * closed. The statistics of a file system are dropped when it is closed.
+ * The statistics are registered under the names
+ * <code>org.apache.commons.vfs2:type=FileSystemStatistics,scheme=&lt;scheme&gt;</code> and
+ * <code>org.apache.commons.vfs2:type=FileSystemStatistics,scheme=&lt;scheme&gt;,fileSystem=&lt;root uri&gt;,id=&lt;n&gt;</code>.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public class DefaultFileSystemMetrics implements FileSystemMetrics
+{
+    /** The domain of the names of the MBeans. */
+    public static final String DOMAIN = "org.apache.commons.vfs2";
+
+    private final Log log = LogFactory.getLog(DefaultFileSystemMetrics.class);
+
+    private final MBeanServer mbeanServer;
+
+    private final ConcurrentMap<String, FileSystemStatistics> schemes
+        = new ConcurrentHashMap<String, FileSystemStatistics>();
+    private final ConcurrentMap<FileSystem, FileSystemStatistics> fileSystems
+        = new ConcurrentHashMap<FileSystem, FileSystemStatistics>();
+
+    /**
+     * Creates metrics which are not exposed through JMX.
+     */
+    public DefaultFileSystemMetrics()
+    {
+        this(null);
+    }
+
+    /**
+     * Creates metrics which are registered with an MBeanServer.
+     * @param mbeanServer The MBeanServer, null to not register the statistics.
+     */
+    public DefaultFileSystemMetrics(final MBeanServer mbeanServer)
+    {
+        this.mbeanServer = mbeanServer;
+    }
+
+    /**
+     * Returns the statistics of all the file systems of a scheme.
+     * @param scheme The scheme.
+     * @return The statistics, null if nothing was recorded for the scheme.
+     */
+    public FileSystemStatistics getSchemeStatistics(final String scheme)
+    {
+        return schemes.get(scheme);
+    }
+
+    /**
+     * Returns the statistics of a file system.
+     * @param fileSystem The file system.
+     * @return The statistics, null if nothing was recorded for the file system or it was closed.
+     */
+    public FileSystemStatistics getFileSystemStatistics(final FileSystem fileSystem)
+    {
+        return fileSystems.get(fileSystem);
+    }
+
+    public void operationCompleted(final FileSystem fileSystem, final FileSystemOperation operation,
+                                   final long nanos, final boolean failed)
+    {
+        getSchemeStatisticsFor(fileSystem).recordOperation(operation, nanos, failed);
+        getStatisticsFor(fileSystem).recordOperation(operation, nanos, failed);
+    }
+
+    public void lockAcquired(final FileSystem fileSystem, final long waitNanos)
+    {
+        getSchemeStatisticsFor(fileSystem).recordLock(waitNanos);
+        getStatisticsFor(fileSystem).recordLock(waitNanos);
+    }
+
+    public void cacheLookup(final FileSystem fileSystem, final boolean hit)
+    {
+        getSchemeStatisticsFor(fileSystem).recordCacheLookup(hit);
+        getStatisticsFor(fileSystem).recordCacheLookup(hit);
+    }
+
+    public void bytesRead(final FileSystem fileSystem, final long count)
+    {
+        getSchemeStatisticsFor(fileSystem).recordBytesRead(count);
+        getStatisticsFor(fileSystem).recordBytesRead(count);
+    }
+
+    public void bytesWritten(final FileSystem fileSystem, final long count)
+    {
+        getSchemeStatisticsFor(fileSystem).recordBytesWritten(count);
+        getStatisticsFor(fileSystem).recordBytesWritten(count);
+    }
+
+    public void fileSystemClosed(final FileSystem fileSystem)
+    {
+        if (fileSystems.remove(fileSystem) != null)
+        {
+            unregister(getObjectName(fileSystem));
+        }
+    }
+
+    /**
+     * Drops all the statistics and unregisters them from the MBeanServer.
+     */
+    public void close()
+    {
+        final Iterator<FileSystem> iterFileSystems = fileSystems.keySet().iterator();
+        while (iterFileSystems.hasNext())
+        {
+            fileSystemClosed(iterFileSystems.next());
+        }
+
+        final Iterator<Map.Entry<String, FileSystemStatistics>> iterSchemes = schemes.entrySet().iterator();
+        while (iterSchemes.hasNext())
+        {
+            final String scheme = iterSchemes.next().getKey();
+            iterSchemes.remove();
+            unregister(getObjectName(scheme));
+        }
+    }
+
+    private FileSystemStatistics getSchemeStatisticsFor(final FileSystem fileSystem)
+    {
+        final String scheme = fileSystem.getRootName().getScheme();
+        FileSystemStatistics statistics = schemes.get(scheme);
+        if (statistics == null)
+        {
+            statistics = new FileSystemStatistics();
+            final FileSystemStatistics previous = schemes.putIfAbsent(scheme, statistics);
+            if (previous != null)
+            {
+                return previous;
+            }
+            register(statistics, getObjectName(scheme));
+        }
+        return statistics;
+    }
+
+    private FileSystemStatistics getStatisticsFor(final FileSystem fileSystem)
+    {
+        FileSystemStatistics statistics = fileSystems.get(fileSystem);
+        if (statistics == null)
+        {
+            statistics = new FileSystemStatistics();
+            final FileSystemStatistics previous = fileSystems.putIfAbsent(fileSystem, statistics);
+            if (previous != null)
+            {
+                return previous;
+            }
+            register(statistics, getObjectName(fileSystem));
+        }
+        return statistics;
+    }
+
+    private String getObjectName(final String scheme)
+    {
+        return DOMAIN + ":type=FileSystemStatistics,scheme=" + ObjectName.quote(scheme);
+    }
+
+    private String getObjectName(final FileSystem fileSystem)
+    {
+        return getObjectName(fileSystem.getRootName().getScheme())
+            + ",fileSystem=" + ObjectName.quote(fileSystem.getRootName().getURI())
+            + ",id=" + Integer.toHexString(System.identityHashCode(fileSystem));
+    }
+
+    private void register(final FileSystemStatistics statistics, final String name)
+    {
+        if (mbeanServer == null)
+        {
+            return;
+        }
+        try
+        {
+            mbeanServer.registerMBean(statistics, new ObjectName(name));
+        }
+        catch (final JMException e)
+        {
+            log.warn(Messages.getString("vfs.metrics/register-mbean.warn", name), e);
+        }
+    }
+
+    private void unregister(final String name)
+    {
+        if (mbeanServer == null)
+        {
+            return;
+        }
+        try
+        {
+            final ObjectName objectName = new ObjectName(name);
+            if (mbeanServer.isRegistered(objectName))
+            {
+                mbeanServer.unregisterMBean(objectName);
+            }
+        }
+        catch (final JMException e)
+        {
+            log.warn(Messages.getString("vfs.metrics/unregister-mbean.warn", name), e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.metrics;
+
+import org.apache.commons.vfs2.FileSystem;
+
+/**
+ * Records what file systems do, for monitoring.
+ * <p>
+ * Metrics are registered with
+ * {@link org.apache.commons.vfs2.impl.DefaultFileSystemManager#setFileSystemMetrics}.
+ * The methods are called by the threads which access the files, at the same time, and
+ * should return quickly. Nothing is measured when no metrics are registered.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public interface FileSystemMetrics
+{
+    /**
+     * Records an operation of a file system.
+     * @param fileSystem The file system.
+     * @param operation The operation.
+     * @param nanos The duration of the operation, in nanoseconds.
+     * @param failed true if the operation threw an exception.
+     */
+    void operationCompleted(FileSystem fileSystem, FileSystemOperation operation, long nanos, boolean failed);
+
+    /**
+     * Records the acquisition of the lock of a file system.
+     * @param fileSystem The file system.
+     * @param waitNanos The time waited for the lock, in nanoseconds.
+     */
+    void lockAcquired(FileSystem fileSystem, long waitNanos);
+
+    /**
+     * Records a lookup in the files cache.
+     * @param fileSystem The file system.
+     * @param hit true if the file was found in the cache.
+     */
+    void cacheLookup(FileSystem fileSystem, boolean hit);
+
+    /**
+     * Records the bytes read through a content stream, when the stream is closed.
+     * @param fileSystem The file system.
+     * @param count The number of bytes read.
+     */
+    void bytesRead(FileSystem fileSystem, long count);
+
+    /**
+     * Records the bytes written through a content stream, when the stream is closed.
+     * @param fileSystem The file system.
+     * @param count The number of bytes written.
+     */
+    void bytesWritten(FileSystem fileSystem, long count);
+
+    /**
+     * Called when a file system is closed, nothing is recorded for it afterwards.
+     * @param fileSystem The file system.
+     */
+    void fileSystemClosed(FileSystem fileSystem);
+}
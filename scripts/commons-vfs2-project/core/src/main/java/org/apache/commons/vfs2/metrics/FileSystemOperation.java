@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.metrics;
+
+/**
+ * The operations of a file system which are measured, one for each call to a provider.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public enum FileSystemOperation
+{
+    /** Attaching a file object to the file. */
+    ATTACH,
+
+    /** Determining the type of a file. */
+    GET_TYPE,
+
+    /** Listing the children of a folder. */
+    LIST_CHILDREN,
+
+    /** Determining the size of a file. */
+    GET_CONTENT_SIZE,
+
+    /** Determining the last modified time of a file. */
+    GET_LAST_MODIFIED_TIME,
+
+    /** Opening a file for reading. */
+    GET_INPUT_STREAM,
+
+    /** Opening a file for writing. */
+    GET_OUTPUT_STREAM,
+
+    /** Opening a file for random access. */
+    GET_RANDOM_ACCESS_CONTENT,
+
+    /** Creating a folder. */
+    CREATE_FOLDER,
+
+    /** Deleting a file. */
+    DELETE,
+
+    /** Renaming a file. */
+    RENAME
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The statistics of a file system, or of all the file systems of a scheme.
+ * <p>
+ * The durations of the operations are kept as histograms with buckets of powers of two
+ * microseconds, so recording never allocates or locks.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public class FileSystemStatistics implements FileSystemStatisticsMBean
+{
+    /** The number of buckets of the latency histograms. */
+    public static final int HISTOGRAM_BUCKETS = 32;
+
+    private static final FileSystemOperation[] OPERATIONS = FileSystemOperation.values();
+
+    private final AtomicLongArray counts = new AtomicLongArray(OPERATIONS.length);
+    private final AtomicLongArray failures = new AtomicLongArray(OPERATIONS.length);
+    private final AtomicLongArray nanos = new AtomicLongArray(OPERATIONS.length);
+    private final AtomicLongArray histograms = new AtomicLongArray(OPERATIONS.length * HISTOGRAM_BUCKETS);
+
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong lockAcquisitions = new AtomicLong();
+    private final AtomicLong lockWaitNanos = new AtomicLong();
+
+    /**
+     * Records an operation.
+     * @param operation The operation.
+     * @param duration The duration, in nanoseconds.
+     * @param failed true if the operation failed.
+     */
+    public void recordOperation(final FileSystemOperation operation, final long duration, final boolean failed)
+    {
+        final int index = operation.ordinal();
+        counts.incrementAndGet(index);
+        if (failed)
+        {
+            failures.incrementAndGet(index);
+        }
+        nanos.addAndGet(index, duration);
+        histograms.incrementAndGet(index * HISTOGRAM_BUCKETS + getBucket(duration));
+    }
+
+    private static int getBucket(final long duration)
+    {
+        final long micros = duration / 1000;
+        if (micros <= 1)
+        {
+            return 0;
+        }
+        return Math.min(HISTOGRAM_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * Records the acquisition of the lock of the file system.
+     * @param waitNanos The time waited, in nanoseconds.
+     */
+    public void recordLock(final long waitNanos)
+    {
+        lockAcquisitions.incrementAndGet();
+        lockWaitNanos.addAndGet(waitNanos);
+    }
+
+    /**
+     * Records a lookup in the files cache.
+     * @param hit true if the file was found.
+     */
+    public void recordCacheLookup(final boolean hit)
+    {
+        (hit ? cacheHits : cacheMisses).incrementAndGet();
+    }
+
+    /**
+     * Records bytes read.
+     * @param count The number of bytes.
+     */
+    public void recordBytesRead(final long count)
+    {
+        bytesRead.addAndGet(count);
+    }
+
+    /**
+     * Records bytes written.
+     * @param count The number of bytes.
+     */
+    public void recordBytesWritten(final long count)
+    {
+        bytesWritten.addAndGet(count);
+    }
+
+    public String[] getOperations()
+    {
+        final String[] names = new String[OPERATIONS.length];
+        for (int i = 0; i < OPERATIONS.length; i++)
+        {
+            names[i] = OPERATIONS[i].name();
+        }
+        return names;
+    }
+
+    public long getCount(final String operation)
+    {
+        return getCount(FileSystemOperation.valueOf(operation));
+    }
+
+    /**
+     * @param operation The operation.
+     * @return The number of times the operation was performed.
+     */
+    public long getCount(final FileSystemOperation operation)
+    {
+        return counts.get(operation.ordinal());
+    }
+
+    public long getFailureCount(final String operation)
+    {
+        return getFailureCount(FileSystemOperation.valueOf(operation));
+    }
+
+    /**
+     * @param operation The operation.
+     * @return The number of times the operation failed.
+     */
+    public long getFailureCount(final FileSystemOperation operation)
+    {
+        return failures.get(operation.ordinal());
+    }
+
+    public double getMeanLatencyMillis(final String operation)
+    {
+        return getMeanLatencyMillis(FileSystemOperation.valueOf(operation));
+    }
+
+    /**
+     * @param operation The operation.
+     * @return The mean duration of the operation, in milliseconds.
+     */
+    public double getMeanLatencyMillis(final FileSystemOperation operation)
+    {
+        final long count = getCount(operation);
+        return count == 0 ? 0 : nanos.get(operation.ordinal()) / (count * 1000000.0);
+    }
+
+    public long[] getLatencyHistogram(final String operation)
+    {
+        return getLatencyHistogram(FileSystemOperation.valueOf(operation));
+    }
+
+    /**
+     * @param operation The operation.
+     * @return The histogram of the durations of the operation.
+     * @see FileSystemStatisticsMBean#getLatencyHistogram(String)
+     */
+    public long[] getLatencyHistogram(final FileSystemOperation operation)
+    {
+        final long[] histogram = new long[HISTOGRAM_BUCKETS];
+        final int start = operation.ordinal() * HISTOGRAM_BUCKETS;
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++)
+        {
+            histogram[i] = histograms.get(start + i);
+        }
+        return histogram;
+    }
+
+    public long getBytesRead()
+    {
+        return bytesRead.get();
+    }
+
+    public long getBytesWritten()
+    {
+        return bytesWritten.get();
+    }
+
+    public long getCacheHits()
+    {
+        return cacheHits.get();
+    }
+
+    public long getCacheMisses()
+    {
+        return cacheMisses.get();
+    }
+
+    public double getCacheHitRatio()
+    {
+        final long hits = getCacheHits();
+        final long lookups = hits + getCacheMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public long getLockAcquisitions()
+    {
+        return lockAcquisitions.get();
+    }
+
+    /**
+     * @return The total time waited for the lock of the file system, in nanoseconds.
+     */
+    public long getLockWaitNanos()
+    {
+        return lockWaitNanos.get();
+    }
+
+    public double getLockWaitMillis()
+    {
+        return getLockWaitNanos() / 1000000.0;
+    }
+
+    public void reset()
+    {
+        for (int i = 0; i < OPERATIONS.length; i++)
+        {
+            counts.set(i, 0);
+            failures.set(i, 0);
+            nanos.set(i, 0);
+        }
+        for (int i = 0; i < histograms.length(); i++)
+        {
+            histograms.set(i, 0);
+        }
+        bytesRead.set(0);
+        bytesWritten.set(0);
+        cacheHits.set(0);
+        cacheMisses.set(0);
+        lockAcquisitions.set(0);
+        lockWaitNanos.set(0);
+    }
+}
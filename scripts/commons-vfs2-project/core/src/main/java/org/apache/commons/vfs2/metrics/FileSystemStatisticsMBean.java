@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.metrics;
+
+/**
+ * The JMX interface of {@link FileSystemStatistics}.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public interface FileSystemStatisticsMBean
+{
+    /**
+     * @return The names of the operations measured.
+     */
+    String[] getOperations();
+
+    /**
+     * @param operation The name of the operation.
+     * @return The number of times the operation was performed.
+     */
+    long getCount(String operation);
+
+    /**
+     * @param operation The name of the operation.
+     * @return The number of times the operation failed.
+     */
+    long getFailureCount(String operation);
+
+    /**
+     * @param operation The name of the operation.
+     * @return The mean duration of the operation, in milliseconds.
+     */
+    double getMeanLatencyMillis(String operation);
+
+    /**
+     * Returns the distribution of the durations of an operation. Element i counts the
+     * operations which took from 2<sup>i</sup> to 2<sup>i+1</sup> microseconds, the first
+     * element also those which took less.
+     * @param operation The name of the operation.
+     * @return The histogram of the durations.
+     */
+    long[] getLatencyHistogram(String operation);
+
+    /**
+     * @return The number of bytes read through content streams.
+     */
+    long getBytesRead();
+
+    /**
+     * @return The number of bytes written through content streams.
+     */
+    long getBytesWritten();
+
+    /**
+     * @return The number of files found in the files cache.
+     */
+    long getCacheHits();
+
+    /**
+     * @return The number of files not found in the files cache.
+     */
+    long getCacheMisses();
+
+    /**
+     * @return The part of the lookups in the files cache which found the file, from 0 to 1.
+     */
+    double getCacheHitRatio();
+
+    /**
+     * @return The number of times the lock of the file system was acquired.
+     */
+    long getLockAcquisitions();
+
+    /**
+     * @return The total time waited for the lock of the file system, in milliseconds.
+     */
+    double getLockWaitMillis();
+
+    /**
+     * Sets all the statistics to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.operations.checksum;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.util.Messages;
+
+/**
+ * The checksums computed, by algorithm and URI of the file, along with the size and
+ * last modified time of the file they were computed for. A checksum is only used while
+ * both are unchanged.
+ * <p>
+ * The cache is kept in memory, and in a properties file when one is given, which is read
+ * when the cache is first used and written by {@link #save()}.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public class ChecksumCache
+{
+    private final Log log = LogFactory.getLog(ChecksumCache.class);
+
+    private final File file;
+    private final Properties entries = new Properties();
+    private boolean loaded;
+    private boolean modified;
+
+    /**
+     * Creates a cache kept in memory only.
+     */
+    public ChecksumCache()
+    {
+        this(null);
+    }
+
+    /**
+     * Creates a cache kept in a file.
+     * @param file The properties file, null to keep the cache in memory only.
+     */
+    public ChecksumCache(final File file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * Returns a cached checksum.
+     * @param algorithm The name of the algorithm.
+     * @param uri The URI of the file.
+     * @param size The size of the file.
+     * @param lastModified The last modified time of the file.
+     * @return The checksum, null if none is cached for this size and last modified time.
+     */
+    public synchronized byte[] get(final String algorithm, final String uri, final long size,
+                                   final long lastModified)
+    {
+        load();
+        final String value = entries.getProperty(getKey(algorithm, uri));
+        if (value == null)
+        {
+            return null;
+        }
+
+        final String[] parts = value.split(" ");
+        if (parts.length != 3
+            || !parts[0].equals(String.valueOf(size))
+            || !parts[1].equals(String.valueOf(lastModified)))
+        {
+            return null;
+        }
+        return fromHex(parts[2]);
+    }
+
+    /**
+     * Caches a checksum.
+     * @param algorithm The name of the algorithm.
+     * @param uri The URI of the file.
+     * @param size The size of the file.
+     * @param lastModified The last modified time of the file.
+     * @param checksum The checksum.
+     */
+    public synchronized void put(final String algorithm, final String uri, final long size,
+                                 final long lastModified, final byte[] checksum)
+    {
+        load();
+        entries.setProperty(getKey(algorithm, uri), size + " " + lastModified + " " + toHex(checksum));
+        modified = true;
+    }
+
+    /**
+     * Writes the cache to its file, if it has one and was modified.
+     * @throws FileSystemException if the file cannot be written.
+     */
+    public synchronized void save() throws FileSystemException
+    {
+        if (file == null || !modified)
+        {
+            return;
+        }
+
+        // write a copy, so the cache is not lost if the write fails
+        final File parent = file.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        final File temp = new File(parent, file.getName() + ".tmp");
+        try
+        {
+            final OutputStream out = new FileOutputStream(temp);
+            try
+            {
+                entries.store(out, null);
+            }
+            finally
+            {
+                out.close();
+            }
+            file.delete();
+            if (!temp.renameTo(file))
+            {
+                throw new IOException(temp.toString());
+            }
+            modified = false;
+        }
+        catch (final IOException e)
+        {
+            temp.delete();
+            throw new FileSystemException("vfs.operation.checksum/save-cache.error", file, e);
+        }
+    }
+
+    private void load()
+    {
+        if (loaded)
+        {
+            return;
+        }
+        loaded = true;
+        if (file == null || !file.exists())
+        {
+            return;
+        }
+
+        try
+        {
+            final InputStream in = new FileInputStream(file);
+            try
+            {
+                entries.load(in);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (final IOException e)
+        {
+            // start over with an empty cache
+            log.warn(Messages.getString("vfs.operation.checksum/load-cache.warn", file), e);
+            entries.clear();
+        }
+    }
+
+    private static String getKey(final String algorithm, final String uri)
+    {
+        return algorithm + " " + uri;
+    }
+
+    /**
+     * @param bytes The bytes.
+     * @return The bytes as lower case hexadecimal digits.
+     */
+    static String toHex(final byte[] bytes)
+    {
+        final StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (int i = 0; i < bytes.length; i++)
+        {
+            hex.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16));
+            hex.append(Character.forDigit(bytes[i] & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] fromHex(final String hex)
+    {
+        final byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            final int high = Character.digit(hex.charAt(2 * i), 16);
+            final int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0)
+            {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.operations.checksum;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.operations.AbstractFileOperationProvider;
+import org.apache.commons.vfs2.operations.FileOperation;
+import org.apache.commons.vfs2.provider.VfsComponent;
+import org.apache.commons.vfs2.provider.VfsComponentContext;
+import org.apache.commons.vfs2.util.Messages;
+
+/**
+ * Provides the {@link FileChecksum} operation.
+ * <p>
+ * Large files whose file system supports random access are read in chunks by the
+ * threads of the asynchronous operations of the manager, when the CRC-32 is computed.
+ * The cache is saved when the manager is closed.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public class ChecksumOperationProvider extends AbstractFileOperationProvider implements VfsComponent
+{
+    /** The default size of the chunks read in parallel. */
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /** The default number of chunks read at the same time. */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private Log log = LogFactory.getLog(ChecksumOperationProvider.class);
+    private VfsComponentContext context;
+
+    private final ChecksumCache cache;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    /**
+     * Creates the provider with a cache kept in memory.
+     * @throws FileSystemException if an error occurs.
+     */
+    public ChecksumOperationProvider() throws FileSystemException
+    {
+        this(new ChecksumCache());
+    }
+
+    /**
+     * Creates the provider.
+     * @param cache The cache of the checksums.
+     * @throws FileSystemException if an error occurs.
+     */
+    public ChecksumOperationProvider(final ChecksumCache cache) throws FileSystemException
+    {
+        this.cache = cache;
+        addOperation(DefaultFileChecksum.class);
+    }
+
+    /**
+     * @return The cache of the checksums.
+     */
+    public ChecksumCache getCache()
+    {
+        return cache;
+    }
+
+    /**
+     * Sets the size of the chunks read in parallel.
+     * @param chunkSize The size in bytes.
+     */
+    public void setChunkSize(final int chunkSize)
+    {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return The size of the chunks read in parallel.
+     */
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    /**
+     * Sets how many chunks of a file are read at the same time.
+     * @param parallelism The number of chunks, 1 to read the content in one go.
+     */
+    public void setParallelism(final int parallelism)
+    {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return The number of chunks read at the same time.
+     */
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * @return The executor which reads chunks, null if the provider is not registered.
+     * @throws FileSystemException if an error occurs.
+     */
+    ExecutorService getExecutor() throws FileSystemException
+    {
+        return context == null ? null : context.getAsyncExecutor();
+    }
+
+    @Override
+    protected void doCollectOperations(final Collection<Class<? extends FileOperation>> availableOperations,
+                                       final Collection<Class<? extends FileOperation>> resultList,
+                                       final FileObject file) throws FileSystemException
+    {
+        if (file.getType().hasContent())
+        {
+            resultList.addAll(availableOperations);
+        }
+    }
+
+    @Override
+    protected FileOperation instantiateOperation(final FileObject file,
+                                                 final Class<? extends FileOperation> operationClass)
+        throws FileSystemException
+    {
+        if (operationClass == DefaultFileChecksum.class)
+        {
+            return new DefaultFileChecksum(file, this);
+        }
+        return null;
+    }
+
+    public void setLogger(final Log logger)
+    {
+        this.log = logger;
+    }
+
+    public void setContext(final VfsComponentContext context)
+    {
+        this.context = context;
+    }
+
+    public void init() throws FileSystemException
+    {
+    }
+
+    /**
+     * Saves the cache.
+     */
+    public void close()
+    {
+        try
+        {
+            cache.save();
+        }
+        catch (final FileSystemException e)
+        {
+            log.warn(Messages.getString("vfs.operation.checksum/save-cache.warn"), e);
+        }
+    }
+}
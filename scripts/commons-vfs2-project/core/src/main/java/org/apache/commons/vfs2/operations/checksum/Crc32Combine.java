@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.operations.checksum;
+
+/**
+ * Combines the CRC-32 of two consecutive blocks of data into the CRC-32 of both, as
+ * crc32_combine() of zlib does, so blocks can be checksummed in parallel.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+final class Crc32Combine
+{
+    /** The reversed CRC-32 polynomial. */
+    private static final long POLYNOMIAL = 0xedb88320L;
+
+    private static final int BITS = 32;
+
+    private Crc32Combine()
+    {
+    }
+
+    /**
+     * Returns the CRC-32 of two blocks.
+     * @param crc1 The CRC-32 of the first block.
+     * @param crc2 The CRC-32 of the second block.
+     * @param length2 The length of the second block.
+     * @return The CRC-32 of the first block followed by the second.
+     */
+    static long combine(final long crc1, final long crc2, final long length2)
+    {
+        if (length2 <= 0)
+        {
+            return crc1;
+        }
+
+        // the operator which appends one zero bit, then two, then four
+        final long[] even = new long[BITS];
+        final long[] odd = new long[BITS];
+        odd[0] = POLYNOMIAL;
+        long row = 1;
+        for (int n = 1; n < BITS; n++)
+        {
+            odd[n] = row;
+            row <<= 1;
+        }
+        square(even, odd);
+        square(odd, even);
+
+        // append length2 zero bytes to crc1, one bit of the length at a time
+        long crc = crc1;
+        long length = length2;
+        do
+        {
+            square(even, odd);
+            if ((length & 1) != 0)
+            {
+                crc = times(even, crc);
+            }
+            length >>= 1;
+            if (length == 0)
+            {
+                break;
+            }
+
+            square(odd, even);
+            if ((length & 1) != 0)
+            {
+                crc = times(odd, crc);
+            }
+            length >>= 1;
+        }
+        while (length != 0);
+
+        return crc ^ crc2;
+    }
+
+    private static long times(final long[] matrix, final long vector)
+    {
+        long sum = 0;
+        long vec = vector;
+        for (int i = 0; vec != 0; i++)
+        {
+            if ((vec & 1) != 0)
+            {
+                sum ^= matrix[i];
+            }
+            vec >>>= 1;
+        }
+        return sum;
+    }
+
+    private static void square(final long[] square, final long[] matrix)
+    {
+        for (int n = 0; n < BITS; n++)
+        {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.operations.checksum;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+
+import org.apache.commons.vfs2.Capability;
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.RandomAccessContent;
+import org.apache.commons.vfs2.operations.AbstractFileOperation;
+import org.apache.commons.vfs2.util.FileObjectUtils;
+import org.apache.commons.vfs2.util.ParallelWork;
+import org.apache.commons.vfs2.util.RandomAccessMode;
+
+/**
+ * Computes the checksum of a file, from the cache, the server or the content.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+final class DefaultFileChecksum extends AbstractFileOperation implements FileChecksum
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ChecksumOperationProvider provider;
+    private String algorithm = SHA_256;
+    private byte[] checksum;
+
+    DefaultFileChecksum(final FileObject file, final ChecksumOperationProvider provider)
+    {
+        super(file);
+        this.provider = provider;
+    }
+
+    public void setAlgorithm(final String algorithm)
+    {
+        this.algorithm = algorithm;
+    }
+
+    public String getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    public byte[] getChecksum()
+    {
+        return checksum;
+    }
+
+    public String getHexChecksum()
+    {
+        return checksum == null ? null : ChecksumCache.toHex(checksum);
+    }
+
+    public void process() throws FileSystemException
+    {
+        final FileObject file = getFileObject();
+        if (!file.getType().hasContent())
+        {
+            throw new FileSystemException("vfs.operation.checksum/not-file.error", file.getName());
+        }
+
+        final FileContent content = file.getContent();
+        final long size = content.getSize();
+        final long lastModified = getLastModified(content);
+        // the friendly URI leaves out the password
+        final String uri = file.getName().getFriendlyURI();
+
+        byte[] result = null;
+        if (lastModified != -1)
+        {
+            result = provider.getCache().get(algorithm, uri, size, lastModified);
+        }
+        if (result == null && FileObjectUtils.isInstanceOf(file, ServerChecksum.class))
+        {
+            result = ((ServerChecksum) FileObjectUtils.getAbstractFileObject(file)).getServerChecksum(algorithm);
+        }
+        if (result == null)
+        {
+            result = compute(file, size);
+        }
+
+        if (lastModified != -1)
+        {
+            provider.getCache().put(algorithm, uri, size, lastModified, result);
+        }
+        checksum = result;
+    }
+
+    private static long getLastModified(final FileContent content)
+    {
+        try
+        {
+            return content.getLastModifiedTime();
+        }
+        catch (final FileSystemException e)
+        {
+            // the last modified time is not supported, nothing is cached
+            return -1;
+        }
+    }
+
+    private byte[] compute(final FileObject file, final long size) throws FileSystemException
+    {
+        if (CRC32.equals(algorithm))
+        {
+            final long crc;
+            final ExecutorService executor = provider.getExecutor();
+            if (provider.getParallelism() > 1 && executor != null
+                && size >= 2L * provider.getChunkSize()
+                && file.getFileSystem().hasCapability(Capability.RANDOM_ACCESS_READ))
+            {
+                crc = new ParallelCrc(executor, file, size).compute();
+            }
+            else
+            {
+                final CRC32 crc32 = new java.util.zip.CRC32();
+                read(file, new Sink()
+                {
+                    public void update(final byte[] buffer, final int len)
+                    {
+                        crc32.update(buffer, 0, len);
+                    }
+                });
+                crc = crc32.getValue();
+            }
+            return new byte[] {(byte) (crc >>> 24), (byte) (crc >>> 16), (byte) (crc >>> 8), (byte) crc};
+        }
+
+        final MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance(algorithm);
+        }
+        catch (final NoSuchAlgorithmException e)
+        {
+            throw new FileSystemException("vfs.operation.checksum/unknown-algorithm.error", algorithm, e);
+        }
+        read(file, new Sink()
+        {
+            public void update(final byte[] buffer, final int len)
+            {
+                digest.update(buffer, 0, len);
+            }
+        });
+        return digest.digest();
+    }
+
+    /**
+     * Receives the content read.
+     */
+    private interface Sink
+    {
+        void update(byte[] buffer, int len);
+    }
+
+    private static void read(final FileObject file, final Sink sink) throws FileSystemException
+    {
+        final InputStream in = file.getContent().getInputStream();
+        try
+        {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1)
+            {
+                sink.update(buffer, n);
+            }
+        }
+        catch (final IOException e)
+        {
+            throw new FileSystemException("vfs.operation.checksum/read.error", file.getName(), e);
+        }
+        finally
+        {
+            try
+            {
+                in.close();
+            }
+            catch (final IOException e)
+            {
+                throw new FileSystemException("vfs.operation.checksum/read.error", file.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Computes the CRC-32 of chunks of the content at the same time, each through a
+     * random access content of its own, and combines them. The thread which computes
+     * takes part, so the computation goes on even when the executor is busy.
+     */
+    private final class ParallelCrc extends ParallelWork<Integer>
+    {
+        private final FileObject file;
+        private final long size;
+        private final int chunkSize;
+        private final long[] crcs;
+
+        private ParallelCrc(final ExecutorService executor, final FileObject file, final long size)
+        {
+            super(executor, provider.getParallelism());
+            this.file = file;
+            this.size = size;
+            this.chunkSize = provider.getChunkSize();
+            this.crcs = new long[(int) ((size + chunkSize - 1) / chunkSize)];
+        }
+
+        long compute() throws FileSystemException
+        {
+            final List<Integer> chunks = new ArrayList<Integer>(crcs.length);
+            for (int i = 0; i < crcs.length; i++)
+            {
+                chunks.add(Integer.valueOf(i));
+            }
+            run(chunks);
+
+            long crc = crcs[0];
+            for (int i = 1; i < crcs.length; i++)
+            {
+                crc = Crc32Combine.combine(crc, crcs[i], getLength(i));
+            }
+            return crc;
+        }
+
+        private long getLength(final int chunk)
+        {
+            return Math.min(chunkSize, size - (long) chunk * chunkSize);
+        }
+
+        @Override
+        protected void process(final Integer chunk) throws FileSystemException
+        {
+            try
+            {
+                final RandomAccessContent content = file.getContent().getRandomAccessContent(RandomAccessMode.READ);
+                try
+                {
+                    crcs[chunk.intValue()] = computeChunk(content, chunk.intValue());
+                }
+                finally
+                {
+                    content.close();
+                }
+            }
+            catch (final FileSystemException e)
+            {
+                throw e;
+            }
+            catch (final IOException e)
+            {
+                throw new FileSystemException("vfs.operation.checksum/read.error", file.getName(), e);
+            }
+        }
+
+        private long computeChunk(final RandomAccessContent content, final int chunk) throws IOException
+        {
+            final CRC32 crc32 = new java.util.zip.CRC32();
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            content.seek((long) chunk * chunkSize);
+            long remaining = getLength(chunk);
+            while (remaining > 0)
+            {
+                final int n = (int) Math.min(buffer.length, remaining);
+                content.readFully(buffer, 0, n);
+                crc32.update(buffer, 0, n);
+                remaining -= n;
+            }
+            return crc32.getValue();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.operations.checksum;
+
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.operations.FileOperation;
+
+/**
+ * Computes a checksum of the content of a file.
+ * <p>
+ * The checksum is taken from the cache of the operation provider when the size and the
+ * last modified time of the file did not change, or from the server when the provider
+ * of the file supports it, and is only computed from the content otherwise.
+ * <pre>
+ * FileChecksum checksum = (FileChecksum) file.getFileOperations().getOperation(FileChecksum.class);
+ * checksum.setAlgorithm(FileChecksum.SHA_256);
+ * checksum.process();
+ * String hex = checksum.getHexChecksum();
+ * </pre>
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public interface FileChecksum extends FileOperation
+{
+    /** The CRC-32 of java.util.zip, which is computed in parallel over large files. */
+    String CRC32 = "CRC32";
+
+    /** The MD5 message digest. */
+    String MD5 = "MD5";
+
+    /** The SHA-1 message digest. */
+    String SHA_1 = "SHA-1";
+
+    /** The SHA-256 message digest, used when no algorithm is set. */
+    String SHA_256 = "SHA-256";
+
+    /**
+     * Sets the algorithm, {@link #CRC32} or the name of any
+     * {@link java.security.MessageDigest} algorithm.
+     * @param algorithm The name of the algorithm.
+     */
+    void setAlgorithm(final String algorithm);
+
+    /**
+     * @return The name of the algorithm.
+     */
+    String getAlgorithm();
+
+    /**
+     * Computes the checksum.
+     * @throws FileSystemException if the file is not a file, the algorithm is not
+     * known, or the content cannot be read.
+     */
+    void process() throws FileSystemException;
+
+    /**
+     * @return The checksum, null before {@link #process()}.
+     */
+    byte[] getChecksum();
+
+    /**
+     * @return The checksum as lower case hexadecimal digits, null before {@link #process()}.
+     */
+    String getHexChecksum();
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.operations.checksum;
+
+import org.apache.commons.vfs2.FileSystemException;
+
+/**
+ * Implemented by the file objects of providers whose servers know checksums of the
+ * files, so that {@link FileChecksum} does not need to read their content.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public interface ServerChecksum
+{
+    /**
+     * Returns the checksum of the file the server knows.
+     * @param algorithm The name of the algorithm, as in {@link FileChecksum#setAlgorithm}.
+     * @return The checksum, null if the server has none for the algorithm.
+     * @throws FileSystemException if an error occurs.
+     */
+    byte[] getServerChecksum(String algorithm) throws FileSystemException;
+}
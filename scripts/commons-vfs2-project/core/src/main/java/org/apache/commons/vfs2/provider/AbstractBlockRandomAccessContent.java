@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.util.RandomAccessMode;
+
+/**
+ * Read-only random access content which fetches the file in fixed-size blocks and keeps
+ * the most recently used blocks in memory.
+ * <p>
+ * Seeking only moves the file pointer. Missing blocks are fetched with one range read
+ * per run of adjacent missing blocks, and when the content is read sequentially the
+ * following blocks are fetched ahead in the same read.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public abstract class AbstractBlockRandomAccessContent extends AbstractRandomAccessStreamContent
+{
+    private final int blockSize;
+    private final int maxBlocks;
+    private final int prefetchBlocks;
+
+    /** The cached blocks, least recently used first. */
+    private final Map<Long, byte[]> blocks;
+
+    /** The index of the last block, once the end of the file has been seen. */
+    private long lastBlock = Long.MAX_VALUE;
+
+    /** The block of the previous read, to detect sequential reads. */
+    private long previousBlock = -1;
+
+    private long filePointer;
+    private DataInputStream dis;
+
+    private long rangeReadCount;
+    private long blockHitCount;
+    private long blockMissCount;
+
+    /**
+     * Creates the content.
+     * @param mode The access mode, only read is supported.
+     * @param blockSize The size of a block in bytes.
+     * @param maxBlocks The maximum number of blocks kept in memory.
+     * @param prefetchBlocks The number of blocks fetched ahead of sequential reads.
+     */
+    protected AbstractBlockRandomAccessContent(final RandomAccessMode mode, final int blockSize,
+                                               final int maxBlocks, final int prefetchBlocks)
+    {
+        super(mode);
+        this.blockSize = Math.max(1, blockSize);
+        this.maxBlocks = Math.max(1, maxBlocks);
+        this.prefetchBlocks = Math.max(0, Math.min(prefetchBlocks, this.maxBlocks - 1));
+        this.blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, byte[]> eldest)
+            {
+                return size() > AbstractBlockRandomAccessContent.this.maxBlocks;
+            }
+        };
+    }
+
+    /**
+     * Reads a range of the file.
+     * @param start The position of the first byte.
+     * @param buffer The buffer to read into.
+     * @param off The offset in the buffer.
+     * @param len The number of bytes to read.
+     * @return The number of bytes read, less than len only if the end of the file was reached.
+     * @throws IOException if an error occurs.
+     */
+    protected abstract int readRange(long start, byte[] buffer, int off, int len) throws IOException;
+
+    public long getFilePointer() throws IOException
+    {
+        return filePointer;
+    }
+
+    public void seek(final long pos) throws IOException
+    {
+        if (pos < 0)
+        {
+            throw new FileSystemException("vfs.provider/random-access-invalid-position.error",
+                new Object[]
+                {
+                    new Long(pos)
+                });
+        }
+
+        filePointer = pos;
+    }
+
+    @Override
+    protected DataInputStream getDataInputStream() throws IOException
+    {
+        if (dis == null)
+        {
+            dis = new DataInputStream(new BlockInputStream());
+        }
+        return dis;
+    }
+
+    public void close() throws IOException
+    {
+        synchronized (blocks)
+        {
+            blocks.clear();
+        }
+        dis = null;
+    }
+
+    /**
+     * @return The number of range reads issued.
+     */
+    public long getRangeReadCount()
+    {
+        return rangeReadCount;
+    }
+
+    /**
+     * @return The number of block lookups served from memory.
+     */
+    public long getBlockHitCount()
+    {
+        return blockHitCount;
+    }
+
+    /**
+     * @return The number of block lookups which needed a range read.
+     */
+    public long getBlockMissCount()
+    {
+        return blockMissCount;
+    }
+
+    /**
+     * Reads from the current file pointer and moves it.
+     * @return The number of bytes read, or -1 at the end of the file.
+     */
+    private int read(final byte[] buffer, final int off, final int len) throws IOException
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+
+        synchronized (blocks)
+        {
+            // read no more blocks at once than the cache holds, with the blocks fetched ahead
+            final long first = filePointer / blockSize;
+            final long last = Math.min((filePointer + len - 1) / blockSize,
+                first + maxBlocks - prefetchBlocks - 1);
+            fetch(first, last);
+
+            int count = 0;
+            while (count < len)
+            {
+                final long index = (filePointer + count) / blockSize;
+                final byte[] block = blocks.get(new Long(index));
+                final int pos = (int) ((filePointer + count) % blockSize);
+                if (block == null || pos >= block.length)
+                {
+                    break;
+                }
+
+                final int n = Math.min(len - count, block.length - pos);
+                System.arraycopy(block, pos, buffer, off + count, n);
+                count += n;
+            }
+
+            if (count == 0)
+            {
+                return -1;
+            }
+            filePointer += count;
+            return count;
+        }
+    }
+
+    /**
+     * Makes sure the blocks first to last are in memory, fetching each run of missing blocks
+     * with one range read. Must be called with the blocks locked.
+     */
+    private void fetch(final long first, final long last) throws IOException
+    {
+        final boolean sequential = first == previousBlock || first == previousBlock + 1;
+        previousBlock = last;
+
+        long index = first;
+        while (index <= last && index <= lastBlock)
+        {
+            if (blocks.containsKey(new Long(index)))
+            {
+                blockHitCount++;
+                index++;
+                continue;
+            }
+
+            // coalesce the adjacent missing blocks
+            long end = index;
+            while (end < last && !blocks.containsKey(new Long(end + 1)))
+            {
+                end++;
+            }
+            if (end == last && sequential)
+            {
+                long ahead = 0;
+                while (ahead < prefetchBlocks && !blocks.containsKey(new Long(end + 1)))
+                {
+                    end++;
+                    ahead++;
+                }
+            }
+
+            end = Math.min(end, lastBlock);
+            blockMissCount += Math.min(end, last) - index + 1;
+            readBlocks(index, end);
+            index = end + 1;
+        }
+    }
+
+    /**
+     * Reads the blocks first to end with a single range read.
+     */
+    private void readBlocks(final long first, final long end) throws IOException
+    {
+        final long start = first * blockSize;
+        final byte[] buffer = new byte[(int) ((end - first + 1) * blockSize)];
+        final int count = readRange(start, buffer, 0, buffer.length);
+        rangeReadCount++;
+
+        if (count < buffer.length)
+        {
+            lastBlock = first + Math.max(0, count - 1) / blockSize;
+        }
+
+        for (long index = first; index <= end; index++)
+        {
+            final int offset = (int) ((index - first) * blockSize);
+            if (offset >= count && index > first)
+            {
+                break;
+            }
+
+            final int n = Math.max(0, Math.min(blockSize, count - offset));
+            final byte[] block = new byte[n];
+            System.arraycopy(buffer, offset, block, 0, n);
+            blocks.put(new Long(index), block);
+        }
+    }
+
+    /**
+     * Reads the content at the file pointer.
+     */
+    private class BlockInputStream extends InputStream
+    {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public int read() throws IOException
+        {
+            final int n = AbstractBlockRandomAccessContent.this.read(single, 0, 1);
+            return n < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException
+        {
+            return AbstractBlockRandomAccessContent.this.read(b, off, len);
+        }
+
+        @Override
+        public long skip(final long n) throws IOException
+        {
+            if (n <= 0)
+            {
+                return 0;
+            }
+
+            final long skipped = Math.min(n, Math.max(0, length() - filePointer));
+            filePointer += skipped;
+            return skipped;
+        }
+    }
+}
@@ -33,6 +33,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.vfs2.AsyncFileObject;
 import org.apache.commons.vfs2.Capability;
 import org.apache.commons.vfs2.FileContent;
 import org.apache.commons.vfs2.FileContentInfoFactory;
@@ -47,6 +48,8 @@ import org.apache.commons.vfs2.FileUtil;
 import org.apache.commons.vfs2.NameScope;
 import org.apache.commons.vfs2.RandomAccessContent;
 import org.apache.commons.vfs2.Selectors;
+import org.apache.commons.vfs2.impl.DefaultFileSystemConfigBuilder;
+import org.apache.commons.vfs2.metrics.FileSystemOperation;
 import org.apache.commons.vfs2.operations.DefaultFileOperations;
 import org.apache.commons.vfs2.operations.FileOperations;
 import org.apache.commons.vfs2.util.FileObjectUtils;
@@ -216,6 +219,22 @@ public abstract class AbstractFileObject implements FileObject
         throw new FileSystemException("vfs.provider/delete-not-supported.error");
     }
 
+    /**
+     * Deletes the file and all its descendants in one operation, for example when the
+     * server can remove a whole folder. Is only called when all the descendants of the file
+     * are to be deleted and the file exists. The names of the files deleted are added to the
+     * list as they are deleted, so their cached info can be updated even when this fails
+     * half way. This implementation returns false.
+     * @param deleted The names of the files deleted.
+     * @return true if the files were deleted, false if the provider cannot delete a tree.
+     * @throws Exception if an error occurs.
+     * @since 2.1
+     */
+    protected boolean doDeleteTree(final List<FileName> deleted) throws Exception
+    {
+        return false;
+    }
+
     /**
      * Renames the file.  Is only called when:
      * <ul>
@@ -484,8 +503,10 @@ public abstract class AbstractFileObject implements FileObject
      */
     public FileType getType() throws FileSystemException
     {
+        final long lockStart = startLockWait();
         synchronized (fs)
         {
+            fs.lockAcquired(lockStart);
             attach();
 
             // VFS-210: get the type only if requested for
@@ -493,7 +514,17 @@ public abstract class AbstractFileObject implements FileObject
             {
                 if (type == null)
                 {
-                    setFileType(doGetType());
+                    final long start = fs.startOperation();
+                    boolean completed = false;
+                    try
+                    {
+                        setFileType(doGetType());
+                        completed = true;
+                    }
+                    finally
+                    {
+                        fs.endOperation(FileSystemOperation.GET_TYPE, start, completed);
+                    }
                 }
                 if (type == null)
                 {
@@ -607,8 +638,10 @@ public abstract class AbstractFileObject implements FileObject
             }
         }
 
+        final long lockStart = startLockWait();
         synchronized (fs)
         {
+            fs.lockAcquired(lockStart);
             // Locate the parent of this file
             if (parent == null)
             {
@@ -625,8 +658,10 @@ public abstract class AbstractFileObject implements FileObject
      */
     public FileObject[] getChildren() throws FileSystemException
     {
+        final long lockStart = startLockWait();
         synchronized (fs)
         {
+            fs.lockAcquired(lockStart);
             // VFS-210
             if (!getFileSystem().hasCapability(Capability.LIST_CHILDREN))
             {
@@ -648,10 +683,13 @@ public abstract class AbstractFileObject implements FileObject
             }
 
             // allow the filesystem to return resolved children. e.g. prefill type for webdav
-            FileObject[] childrenObjects;
+            FileObject[] childrenObjects = null;
+            final long resolvedStart = fs.startOperation();
+            boolean resolvedCompleted = false;
             try
             {
                 childrenObjects = doListChildrenResolved();
+                resolvedCompleted = true;
                 children = extractNames(childrenObjects);
             }
             catch (FileSystemException exc)
@@ -663,6 +701,13 @@ public abstract class AbstractFileObject implements FileObject
             {
                 throw new FileSystemException("vfs.provider/list-children.error", new Object[]{name}, exc);
             }
+            finally
+            {
+                if (!resolvedCompleted || childrenObjects != null)
+                {
+                    fs.endOperation(FileSystemOperation.LIST_CHILDREN, resolvedStart, resolvedCompleted);
+                }
+            }
 
             if (childrenObjects != null)
             {
@@ -671,9 +716,12 @@ public abstract class AbstractFileObject implements FileObject
 
             // List the children
             final String[] files;
+            final long start = fs.startOperation();
+            boolean completed = false;
             try
             {
                 files = doListChildren();
+                completed = true;
             }
             catch (FileSystemException exc)
             {
@@ -684,6 +732,10 @@ public abstract class AbstractFileObject implements FileObject
             {
                 throw new FileSystemException("vfs.provider/list-children.error", new Object[]{name}, exc);
             }
+            finally
+            {
+                fs.endOperation(FileSystemOperation.LIST_CHILDREN, start, completed);
+            }
 
             if (files == null)
             {
@@ -814,8 +866,10 @@ public abstract class AbstractFileObject implements FileObject
      */
     private boolean deleteSelf() throws FileSystemException
     {
+        final long lockStart = startLockWait();
         synchronized (fs)
         {
+            fs.lockAcquired(lockStart);
             /* Its possible to delete a read-only file if you have write-execute access to the directory
             if (!isWriteable())
             {
@@ -834,7 +888,7 @@ public abstract class AbstractFileObject implements FileObject
             try
             {
                 // Delete the file
-                doDelete();
+                deleteFile();
 
                 // Update cached info
                 handleDelete();
@@ -852,6 +906,155 @@ public abstract class AbstractFileObject implements FileObject
         }
     }
 
+    /**
+     * Deletes this file while other threads delete other files of the file system.
+     * The lock of the file system is only held to update the cached info.
+     *
+     * @return true if this object has been deleted
+     * @throws FileSystemException if an error occurs.
+     */
+    private boolean deleteSelfConcurrently() throws FileSystemException
+    {
+        try
+        {
+            // Delete the file
+            deleteFile();
+
+            // Update cached info
+            final long lockStart = startLockWait();
+            synchronized (fs)
+            {
+                fs.lockAcquired(lockStart);
+                handleDelete();
+            }
+        }
+        catch (final RuntimeException re)
+        {
+            throw re;
+        }
+        catch (final Exception exc)
+        {
+            throw new FileSystemException("vfs.provider/delete.error", new Object[]{name}, exc);
+        }
+
+        return true;
+    }
+
+    /**
+     * Has the provider delete this file.
+     */
+    private void deleteFile() throws Exception
+    {
+        final long start = fs.startOperation();
+        boolean completed = false;
+        try
+        {
+            doDelete();
+            completed = true;
+        }
+        finally
+        {
+            fs.endOperation(FileSystemOperation.DELETE, start, completed);
+        }
+    }
+
+    /**
+     * Deletes this file, unless it is a folder which still has children.
+     *
+     * @param concurrently true if other threads delete other files of the file system.
+     * @return true if this object has been deleted
+     * @throws FileSystemException if an error occurs.
+     */
+    boolean deleteIfEmpty(final boolean concurrently) throws FileSystemException
+    {
+        // VFS-210: It seems impossible to me that findFiles will return a list with hidden files/directories
+        // in it, else it would not be hidden. Checking for the file-type seems ok in this case
+        // If the file is a folder, make sure all its children have been deleted
+        if (getType().hasChildren() && getChildren().length != 0)
+        {
+            // Skip - as the selector forced us not to delete all files
+            return false;
+        }
+
+        return concurrently ? deleteSelfConcurrently() : deleteSelf();
+    }
+
+    /**
+     * Has the provider delete this file and all its descendants in one operation.
+     *
+     * @return the number of deleted files, -1 if the provider cannot.
+     * @throws FileSystemException if an error occurs.
+     */
+    private int deleteTree() throws FileSystemException
+    {
+        final List<FileName> deleted = new ArrayList<FileName>();
+        final long lockStart = startLockWait();
+        synchronized (fs)
+        {
+            fs.lockAcquired(lockStart);
+            final long start = fs.startOperation();
+            boolean supported = true;
+            boolean completed = false;
+            try
+            {
+                supported = doDeleteTree(deleted);
+                completed = true;
+            }
+            catch (final RuntimeException re)
+            {
+                throw re;
+            }
+            catch (final Exception exc)
+            {
+                throw new FileSystemException("vfs.provider/delete.error", new Object[]{name}, exc);
+            }
+            finally
+            {
+                if (supported)
+                {
+                    fs.endOperation(FileSystemOperation.DELETE, start, completed);
+                }
+
+                // Update the cached info of the files deleted, even if the provider failed half way
+                handleTreeDelete(deleted);
+            }
+
+            return supported ? deleted.size() : -1;
+        }
+    }
+
+    /**
+     * Updates the cached files of a deleted tree, and notifies the listeners of its files.
+     * Files which are neither cached nor listened to are not resolved.
+     */
+    private void handleTreeDelete(final List<FileName> deleted) throws FileSystemException
+    {
+        for (final FileName deletedName : deleted)
+        {
+            FileObject file = deletedName.equals(name) ? this : fs.getFileFromCache(deletedName);
+            if (file == null)
+            {
+                if (!fs.hasListeners(deletedName))
+                {
+                    continue;
+                }
+                file = fs.resolveFile(deletedName);
+            }
+            try
+            {
+                FileObjectUtils.getAbstractFileObject(file).handleDelete();
+            }
+            catch (final RuntimeException re)
+            {
+                throw re;
+            }
+            catch (final Exception exc)
+            {
+                throw new FileSystemException("vfs.provider/delete.error", new Object[]{deletedName}, exc);
+            }
+        }
+    }
+
     /**
      * Deletes this file.
      *
@@ -883,10 +1086,27 @@ public abstract class AbstractFileObject implements FileObject
         }
         */
 
+        // Let the provider remove the whole tree at once, if it can
+        if (selector == Selectors.SELECT_ALL && exists())
+        {
+            final int treeDeleted = deleteTree();
+            if (treeDeleted >= 0)
+            {
+                return treeDeleted;
+            }
+        }
+
         // Locate all the files to delete
         ArrayList<FileObject> files = new ArrayList<FileObject>();
         findFiles(selector, true, files);
 
+        final int parallelism =
+            DefaultFileSystemConfigBuilder.getInstance().getDeleteParallelism(fs.getFileSystemOptions());
+        if (parallelism > 1 && files.size() > 1 && fs.isConcurrentDeleteSupported())
+        {
+            return new ParallelDelete(fs.getContext().getAsyncExecutor(), parallelism).delete(files);
+        }
+
         // Delete 'em
         final int count = files.size();
         for (int i = 0; i < count; i++)
@@ -894,17 +1114,8 @@ public abstract class AbstractFileObject implements FileObject
             final AbstractFileObject file = FileObjectUtils.getAbstractFileObject(files.get(i));
             // file.attach();
 
-            // VFS-210: It seems impossible to me that findFiles will return a list with hidden files/directories
-            // in it, else it would not be hidden. Checking for the file-type seems ok in this case
-            // If the file is a folder, make sure all its children have been deleted
-            if (file.getType().hasChildren() && file.getChildren().length != 0)
-            {
-                // Skip - as the selector forced us not to delete all files
-                continue;
-            }
-
             // Delete the file
-            boolean deleted = file.deleteSelf();
+            boolean deleted = file.deleteIfEmpty(false);
             if (deleted)
             {
                 nuofDeleted++;
@@ -920,8 +1131,10 @@ public abstract class AbstractFileObject implements FileObject
      */
     public void createFile() throws FileSystemException
     {
+        final long lockStart = startLockWait();
         synchronized (fs)
         {
+            fs.lockAcquired(lockStart);
             try
             {
                 // VFS-210: We do not want to trunc any existing file, checking for its existence is
@@ -955,8 +1168,10 @@ public abstract class AbstractFileObject implements FileObject
      */
     public void createFolder() throws FileSystemException
     {
+        final long lockStart = startLockWait();
         synchronized (fs)
         {
+            fs.lockAcquired(lockStart);
             // VFS-210: we create a folder only if it does not already exist. So this check should be safe.
             if (getType().hasChildren())
             {
@@ -982,10 +1197,20 @@ public abstract class AbstractFileObject implements FileObject
                 parent.createFolder();
             }
 
+            final long start = fs.startOperation();
+            boolean completed = false;
             try
             {
                 // Create the folder
-                doCreateFolder();
+                try
+                {
+                    doCreateFolder();
+                    completed = true;
+                }
+                finally
+                {
+                    fs.endOperation(FileSystemOperation.CREATE_FOLDER, start, completed);
+                }
 
                 // Update cached info
                 handleCreate(FileType.FOLDER);
@@ -1026,6 +1251,14 @@ public abstract class AbstractFileObject implements FileObject
         final ArrayList<FileObject> files = new ArrayList<FileObject>();
         file.findFiles(selector, false, files);
 
+        final FileSystem srcFs = file.getFileSystem();
+        final DefaultFileSystemConfigBuilder builder = DefaultFileSystemConfigBuilder.getInstance();
+        final int parallelism = Math.max(builder.getCopyParallelism(fs.getFileSystemOptions()),
+            builder.getCopyParallelism(srcFs.getFileSystemOptions()));
+        final List<FileObject[]> transfers = parallelism > 1 && fs.isConcurrentTransferSupported()
+            && srcFs instanceof AbstractFileSystem && ((AbstractFileSystem) srcFs).isConcurrentTransferSupported()
+            ? new ArrayList<FileObject[]>() : null;
+
         // Copy everything across
         final int count = files.size();
         for (int i = 0; i < count; i++)
@@ -1050,7 +1283,15 @@ public abstract class AbstractFileObject implements FileObject
             {
                 if (srcFile.getType().hasContent())
                 {
-                    FileUtil.copyContent(srcFile, destFile);
+                    if (transfers != null)
+                    {
+                        // the folders are created first, the content is transferred below
+                        transfers.add(new FileObject[]{srcFile, destFile});
+                    }
+                    else
+                    {
+                        FileUtil.copyContent(srcFile, destFile);
+                    }
                 }
                 else if (srcFile.getType().hasChildren())
                 {
@@ -1062,6 +1303,11 @@ public abstract class AbstractFileObject implements FileObject
                 throw new FileSystemException("vfs.provider/copy-file.error", new Object[]{srcFile, destFile}, e);
             }
         }
+
+        if (transfers != null && !transfers.isEmpty())
+        {
+            new ParallelCopy(fs.getContext().getAsyncExecutor(), parallelism).copy(transfers);
+        }
     }
 
     /**
@@ -1099,7 +1345,17 @@ public abstract class AbstractFileObject implements FileObject
             try
             {
                 attach();
-                doRename(destFile);
+                final long start = fs.startOperation();
+                boolean completed = false;
+                try
+                {
+                    doRename(destFile);
+                    completed = true;
+                }
+                finally
+                {
+                    fs.endOperation(FileSystemOperation.RENAME, start, completed);
+                }
 
                 (FileObjectUtils.getAbstractFileObject(destFile)).handleCreate(getType());
 
@@ -1206,8 +1462,10 @@ public abstract class AbstractFileObject implements FileObject
      */
     public FileContent getContent() throws FileSystemException
     {
+        final long lockStart = startLockWait();
         synchronized (fs)
         {
+            fs.lockAcquired(lockStart);
             attach();
             if (content == null)
             {
@@ -1302,9 +1560,13 @@ public abstract class AbstractFileObject implements FileObject
         */
 
         // Get the raw input stream
+        final long start = fs.startOperation();
+        boolean completed = false;
         try
         {
-            return doGetInputStream();
+            final InputStream in = doGetInputStream();
+            completed = true;
+            return in;
         }
         catch (final org.apache.commons.vfs2.FileNotFoundException exc)
         {
@@ -1322,6 +1584,10 @@ public abstract class AbstractFileObject implements FileObject
         {
             throw new FileSystemException("vfs.provider/read.error", name, exc);
         }
+        finally
+        {
+            fs.endOperation(FileSystemOperation.GET_INPUT_STREAM, start, completed);
+        }
     }
 
     /**
@@ -1365,14 +1631,22 @@ public abstract class AbstractFileObject implements FileObject
         }
 
         // Get the raw input stream
+        final long start = fs.startOperation();
+        boolean completed = false;
         try
         {
-            return doGetRandomAccessContent(mode);
+            final RandomAccessContent content = doGetRandomAccessContent(mode);
+            completed = true;
+            return content;
         }
         catch (final Exception exc)
         {
             throw new FileSystemException("vfs.provider/random-access.error", name, exc);
         }
+        finally
+        {
+            fs.endOperation(FileSystemOperation.GET_RANDOM_ACCESS_CONTENT, start, completed);
+        }
     }
 
     /**
@@ -1426,9 +1700,13 @@ public abstract class AbstractFileObject implements FileObject
         }
 
 // Get the raw output stream
+        final long start = fs.startOperation();
+        boolean completed = false;
         try
         {
-            return doGetOutputStream(bAppend);
+            final OutputStream out = doGetOutputStream(bAppend);
+            completed = true;
+            return out;
         }
         catch (RuntimeException re)
         {
@@ -1438,6 +1716,10 @@ public abstract class AbstractFileObject implements FileObject
         {
             throw new FileSystemException("vfs.provider/write.error", new Object[]{name}, exc);
         }
+        finally
+        {
+            fs.endOperation(FileSystemOperation.GET_OUTPUT_STREAM, start, completed);
+        }
     }
 
     /**
@@ -1447,8 +1729,10 @@ public abstract class AbstractFileObject implements FileObject
      */
     private void detach() throws Exception
     {
+        final long lockStart = startLockWait();
         synchronized (fs)
         {
+            fs.lockAcquired(lockStart);
             if (attached)
             {
                 try
@@ -1486,23 +1770,39 @@ public abstract class AbstractFileObject implements FileObject
         children = null;
     }
 
+    /**
+     * Starts measuring the wait for the lock of the file system, unless this thread
+     * already holds it.
+     */
+    private long startLockWait()
+    {
+        final long start = fs.startOperation();
+        return start == AbstractFileSystem.NOT_MEASURED || Thread.holdsLock(fs)
+            ? AbstractFileSystem.NOT_MEASURED : start;
+    }
+
     /**
      * Attaches to the file.
      * @throws FileSystemException if an error occurs.
      */
     private void attach() throws FileSystemException
     {
+        final long lockStart = startLockWait();
         synchronized (fs)
         {
+            fs.lockAcquired(lockStart);
             if (attached)
             {
                 return;
             }
 
+            final long start = fs.startOperation();
+            boolean completed = false;
             try
             {
                 // Attach and determine the file type
                 doAttach();
+                completed = true;
                 attached = true;
                 // now the type could already be injected by doAttach (e.g from parent to child)
 
@@ -1521,6 +1821,10 @@ public abstract class AbstractFileObject implements FileObject
             {
                 throw new FileSystemException("vfs.provider/get-type.error", new Object[]{name}, exc);
             }
+            finally
+            {
+                fs.endOperation(FileSystemOperation.ATTACH, start, completed);
+            }
 
             // fs.fileAttached(this);
         }
@@ -1552,8 +1856,10 @@ public abstract class AbstractFileObject implements FileObject
      */
     protected void handleCreate(final FileType newType) throws Exception
     {
+        final long lockStart = startLockWait();
         synchronized (fs)
         {
+            fs.lockAcquired(lockStart);
             if (attached)
             {
                 // Fix up state
@@ -1581,8 +1887,10 @@ public abstract class AbstractFileObject implements FileObject
      */
     protected void handleDelete() throws Exception
     {
+        final long lockStart = startLockWait();
         synchronized (fs)
         {
+            fs.lockAcquired(lockStart);
             if (attached)
             {
                 // Fix up state
@@ -1845,6 +2153,31 @@ public abstract class AbstractFileObject implements FileObject
         return operations;
     }
 
+    /**
+     * Returns the asynchronous operations of this file.
+     * @return The asynchronous operations.
+     * @throws FileSystemException if an error occurs.
+     * @since 2.1
+     */
+    public AsyncFileObject async() throws FileSystemException
+    {
+        // not kept, so that the operations run on the current executor of the manager
+        return doCreateAsyncFileObject();
+    }
+
+    /**
+     * Creates the asynchronous operations of this file. This implementation runs the
+     * blocking operations on the executor of the file system manager, providers with
+     * asynchronous I/O of their own may override it.
+     * @return The asynchronous operations.
+     * @throws FileSystemException if an error occurs.
+     * @since 2.1
+     */
+    protected AsyncFileObject doCreateAsyncFileObject() throws FileSystemException
+    {
+        return new DefaultAsyncFileObject(this, fs.getContext().getAsyncExecutor());
+    }
+
     @Override
     protected void finalize() throws Throwable
     {
@@ -25,6 +25,7 @@ import org.apache.commons.vfs2.FileSystem;
 import org.apache.commons.vfs2.FileSystemConfigBuilder;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.FileType;
 import org.apache.commons.vfs2.provider.local.GenericFileNameParser;
 
 /**
@@ -191,4 +192,30 @@ public abstract class AbstractFileProvider
         throw new FileSystemException("vfs.provider/filename-parser-missing.error");
         // return GenericFileName.parseUri(getFileNameParser(), uri, 0);
     }
+
+    /**
+     * Creates the name of a path in the file system of a base name, without parsing
+     * the root URI of the base name again. The path is canonicalized as
+     * {@link #parseUri} would do for the full URI.
+     *
+     * @param base The base name, as returned by this provider.
+     * @param path The absolute, normalised path.
+     * @return The FileName.
+     * @throws FileSystemException if an error occurs.
+     * @since 2.1
+     */
+    public FileName createName(FileName base, String path) throws FileSystemException
+    {
+        if (getFileNameParser() == null || !(base instanceof AbstractFileName) || base instanceof URLFileName)
+        {
+            // a URL name carries its query string, which does not belong to the new name
+            return parseUri(base, base.getRootURI() + path);
+        }
+
+        final StringBuilder buffer = new StringBuilder(path);
+        UriParser.canonicalizePath(buffer, 0, buffer.length(), getFileNameParser());
+        UriParser.fixSeparators(buffer);
+        final FileType fileType = UriParser.normalisePath(buffer);
+        return ((AbstractFileName) base).createName(buffer.toString(), fileType);
+    }
 }
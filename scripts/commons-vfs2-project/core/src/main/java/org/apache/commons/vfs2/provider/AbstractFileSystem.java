@@ -41,12 +41,15 @@ import org.apache.commons.vfs2.FileSystemManager;
 import org.apache.commons.vfs2.FileSystemOptions;
 import org.apache.commons.vfs2.FilesCache;
 import org.apache.commons.vfs2.VfsLog;
+import org.apache.commons.vfs2.cache.ExpiringFileObject;
 import org.apache.commons.vfs2.cache.OnCallRefreshFileObject;
 import org.apache.commons.vfs2.events.AbstractFileChangeEvent;
 import org.apache.commons.vfs2.events.ChangedEvent;
 import org.apache.commons.vfs2.events.CreateEvent;
 import org.apache.commons.vfs2.events.DeleteEvent;
 import org.apache.commons.vfs2.impl.DefaultFileSystemConfigBuilder;
+import org.apache.commons.vfs2.metrics.FileSystemMetrics;
+import org.apache.commons.vfs2.metrics.FileSystemOperation;
 import org.apache.commons.vfs2.util.Messages;
 
 /**
@@ -99,6 +102,12 @@ public abstract class AbstractFileSystem
 
     private FileSystemKey cacheKey;
 
+    /**
+     * The start time returned by {@link #startOperation()} when nothing is measured.
+     * @since 2.1
+     */
+    public static final long NOT_MEASURED = Long.MIN_VALUE;
+
     /**
      * open streams counter for this filesystem
      */
@@ -140,6 +149,12 @@ public abstract class AbstractFileSystem
         closeCommunicationLink();
 
         parentLayer = null;
+
+        final FileSystemMetrics metrics = getMetrics();
+        if (metrics != null)
+        {
+            metrics.fileSystemClosed(this);
+        }
     }
 
     /**
@@ -231,6 +246,115 @@ public abstract class AbstractFileSystem
         getCache().removeFile(this, name);
     }
 
+    /**
+     * Returns the metrics to record in, null if nothing is measured.
+     */
+    private FileSystemMetrics getMetrics()
+    {
+        final VfsComponentContext context = getContext();
+        return context == null ? null : context.getFileSystemMetrics();
+    }
+
+    /**
+     * Starts measuring an operation, or the wait for the lock of this file system.
+     * @return The start time, {@link #NOT_MEASURED} if nothing is measured.
+     * @since 2.1
+     */
+    public long startOperation()
+    {
+        return getMetrics() == null ? NOT_MEASURED : System.nanoTime();
+    }
+
+    /**
+     * Records an operation of this file system.
+     * @param operation The operation.
+     * @param start The value returned by {@link #startOperation()}.
+     * @param completed false if the operation threw an exception.
+     * @since 2.1
+     */
+    public void endOperation(final FileSystemOperation operation, final long start, final boolean completed)
+    {
+        if (start != NOT_MEASURED)
+        {
+            final FileSystemMetrics metrics = getMetrics();
+            if (metrics != null)
+            {
+                metrics.operationCompleted(this, operation, System.nanoTime() - start, !completed);
+            }
+        }
+    }
+
+    /**
+     * Records the acquisition of the lock of this file system.
+     * @param start The value returned by {@link #startOperation()} before waiting for the lock.
+     * @since 2.1
+     */
+    public void lockAcquired(final long start)
+    {
+        if (start != NOT_MEASURED)
+        {
+            final FileSystemMetrics metrics = getMetrics();
+            if (metrics != null)
+            {
+                metrics.lockAcquired(this, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Records the bytes read through a content stream.
+     * @param count The number of bytes.
+     * @since 2.1
+     */
+    public void bytesRead(final long count)
+    {
+        final FileSystemMetrics metrics = getMetrics();
+        if (metrics != null)
+        {
+            metrics.bytesRead(this, count);
+        }
+    }
+
+    /**
+     * Records the bytes written through a content stream.
+     * @param count The number of bytes.
+     * @since 2.1
+     */
+    public void bytesWritten(final long count)
+    {
+        final FileSystemMetrics metrics = getMetrics();
+        if (metrics != null)
+        {
+            metrics.bytesWritten(this, count);
+        }
+    }
+
+    /**
+     * Returns true if the provider can delete files of this file system from several
+     * threads at the same time, so a recursive delete does not hold the lock of the file
+     * system while the provider deletes each file. This implementation returns false.
+     * @return true if files can be deleted concurrently.
+     * @see org.apache.commons.vfs2.impl.DefaultFileSystemConfigBuilder#setDeleteParallelism
+     * @since 2.1
+     */
+    protected boolean isConcurrentDeleteSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Returns true if the provider can read and write the content of several files of
+     * this file system at the same time, so a copy can transfer files from several
+     * threads. This implementation returns false.
+     * @return true if the content of files can be transferred concurrently.
+     * @see org.apache.commons.vfs2.impl.DefaultFileSystemConfigBuilder#setCopyParallelism
+     * @since 2.1
+     */
+    protected boolean isConcurrentTransferSupported()
+    {
+        return false;
+    }
+
     /**
      * Determines if this file system has a particular capability.
      * @param capability the Capability to check for.
@@ -331,6 +455,12 @@ public abstract class AbstractFileSystem
         if (useCache)
         {
             file = getFileFromCache(name);
+
+            final FileSystemMetrics metrics = getMetrics();
+            if (metrics != null)
+            {
+                metrics.cacheLookup(this, file != null);
+            }
         }
         else
         {
@@ -361,7 +491,8 @@ public abstract class AbstractFileSystem
         /**
          * resync the file information if requested
          */
-        if (getFileSystemManager().getCacheStrategy().equals(CacheStrategy.ON_RESOLVE))
+        if (getFileSystemManager().getCacheStrategy().equals(CacheStrategy.ON_RESOLVE)
+            && getCacheTimeToLive() <= 0)
         {
             file.refresh();
         }
@@ -370,7 +501,13 @@ public abstract class AbstractFileSystem
 
     protected FileObject decorateFileObject(FileObject file)  throws FileSystemException
     {
-        if (getFileSystemManager().getCacheStrategy().equals(CacheStrategy.ON_CALL))
+        final long timeToLive = getCacheTimeToLive();
+        if (timeToLive > 0)
+        {
+            file = new ExpiringFileObject(file, timeToLive,
+                DefaultFileSystemConfigBuilder.getInstance().getNegativeCacheTimeToLive(fileSystemOptions));
+        }
+        else if (getFileSystemManager().getCacheStrategy().equals(CacheStrategy.ON_CALL))
         {
             file = new OnCallRefreshFileObject(file);
         }
@@ -428,6 +565,14 @@ public abstract class AbstractFileSystem
         }
     }
 
+    /**
+     * Returns how long the data of the files is cached, 0 to follow the cache strategy.
+     */
+    private long getCacheTimeToLive()
+    {
+        return DefaultFileSystemConfigBuilder.getInstance().getCacheTimeToLive(fileSystemOptions);
+    }
+
     /**
      * Return the FileSystemOptions used to instantiate this filesystem.
      * @return the FileSystemOptions.
@@ -447,6 +592,31 @@ public abstract class AbstractFileSystem
         // return manager;
     }
 
+    /**
+     * Releases a local copy made by {@link #replicateFile}, once this file system does not
+     * read it anymore, so the replicator may delete it.
+     * @param file The local copy.
+     * @see PinningFileReplicator
+     * @since 2.1
+     */
+    protected void releaseReplica(final File file)
+    {
+        final FileReplicator replicator;
+        try
+        {
+            replicator = getContext().getReplicator();
+        }
+        catch (final FileSystemException e)
+        {
+            // no replicator, nothing to release
+            return;
+        }
+        if (replicator instanceof PinningFileReplicator)
+        {
+            ((PinningFileReplicator) replicator).releaseFile(file);
+        }
+    }
+
     /**
      * Returns the accuracy of the last modification time.
      *
@@ -510,6 +680,19 @@ public abstract class AbstractFileSystem
         }
     }
 
+    /**
+     * Determines if listeners are registered on a file of this file system.
+     * @param name The name of the file.
+     * @return true if at least one listener is registered on the file.
+     */
+    boolean hasListeners(final FileName name)
+    {
+        synchronized (listenerMap)
+        {
+            return listenerMap.containsKey(name);
+        }
+    }
+
     /**
      * Removes a listener from a file in this file system.
      * @param file The FileObject to be monitored.
@@ -17,6 +17,7 @@
 package org.apache.commons.vfs2.provider;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.apache.commons.vfs2.RandomAccessContent;
 import org.apache.commons.vfs2.util.RandomAccessMode;
@@ -30,6 +31,9 @@ import org.apache.commons.vfs2.util.RandomAccessMode;
  */
 public abstract class AbstractRandomAccessContent implements RandomAccessContent
 {
+    /** The size of the buffer used to copy between byte buffers and arrays. */
+    private static final int BUFFER_SIZE = 8192;
+
     private final RandomAccessMode mode;
 
     protected AbstractRandomAccessContent(final RandomAccessMode mode)
@@ -107,6 +111,73 @@ public abstract class AbstractRandomAccessContent implements RandomAccessContent
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Reads through {@link #getInputStream()}.
+     * @param buffer The buffer to read into.
+     * @return The number of bytes read, or -1 at the end of the file.
+     * @throws IOException if an error occurs.
+     * @since 2.1
+     */
+    public int read(final ByteBuffer buffer) throws IOException
+    {
+        if (!buffer.hasRemaining())
+        {
+            return 0;
+        }
+
+        if (buffer.hasArray())
+        {
+            final int count = getInputStream().read(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                buffer.remaining());
+            if (count > 0)
+            {
+                buffer.position(buffer.position() + count);
+            }
+            return count;
+        }
+
+        final byte[] bytes = new byte[Math.min(buffer.remaining(), BUFFER_SIZE)];
+        final int count = getInputStream().read(bytes, 0, bytes.length);
+        if (count > 0)
+        {
+            buffer.put(bytes, 0, count);
+        }
+        return count;
+    }
+
+    /**
+     * Writes through {@link #write(byte[], int, int)}.
+     * @param buffer The buffer to write.
+     * @throws IOException if an error occurs.
+     * @since 2.1
+     */
+    public void write(final ByteBuffer buffer) throws IOException
+    {
+        if (buffer.hasArray())
+        {
+            write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+
+        final byte[] bytes = new byte[Math.min(buffer.remaining(), BUFFER_SIZE)];
+        while (buffer.hasRemaining())
+        {
+            final int count = Math.min(buffer.remaining(), bytes.length);
+            buffer.get(bytes, 0, count);
+            write(bytes, 0, count);
+        }
+    }
+
+    /**
+     * Does nothing, the content is stored when it is closed.
+     * @throws IOException if an error occurs.
+     * @since 2.1
+     */
+    public void force() throws IOException
+    {
+    }
+
     /**
      * @deprecated see {@link java.io.DataInputStream#readLine()} This method will be removed when it is
      * removed from the DataInput interface this class implements (which will probably never happen).
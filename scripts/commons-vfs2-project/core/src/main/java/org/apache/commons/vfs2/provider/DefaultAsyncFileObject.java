@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.vfs2.AsyncFileObject;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileUtil;
+
+/**
+ * Runs the blocking operations of a file on an executor.
+ * <p>
+ * Providers with asynchronous I/O of their own can extend this class and override the
+ * operations they perform natively.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public class DefaultAsyncFileObject implements AsyncFileObject
+{
+    private final FileObject file;
+    private final ExecutorService executor;
+
+    /**
+     * Creates the operations of a file.
+     * @param file The file.
+     * @param executor The executor to run the operations on.
+     */
+    public DefaultAsyncFileObject(final FileObject file, final ExecutorService executor)
+    {
+        this.file = file;
+        this.executor = executor;
+    }
+
+    public FileObject getFile()
+    {
+        return file;
+    }
+
+    /**
+     * @return The executor the operations run on.
+     */
+    protected ExecutorService getExecutor()
+    {
+        return executor;
+    }
+
+    public Future<Boolean> exists()
+    {
+        return executor.submit(new Callable<Boolean>()
+        {
+            public Boolean call() throws Exception
+            {
+                return Boolean.valueOf(file.exists());
+            }
+        });
+    }
+
+    public Future<FileObject[]> getChildren()
+    {
+        return executor.submit(new Callable<FileObject[]>()
+        {
+            public FileObject[] call() throws Exception
+            {
+                return file.getChildren();
+            }
+        });
+    }
+
+    public Future<byte[]> readAllBytes()
+    {
+        return executor.submit(new Callable<byte[]>()
+        {
+            public byte[] call() throws Exception
+            {
+                return FileUtil.getContent(file);
+            }
+        });
+    }
+
+    public Future<FileObject> copyTo(final FileObject destFile, final FileSelector selector)
+    {
+        return executor.submit(new Callable<FileObject>()
+        {
+            public FileObject call() throws Exception
+            {
+                destFile.copyFrom(file, selector);
+                return destFile;
+            }
+        });
+    }
+
+    public Future<Boolean> delete()
+    {
+        return executor.submit(new Callable<Boolean>()
+        {
+            public Boolean call() throws Exception
+            {
+                return Boolean.valueOf(file.delete());
+            }
+        });
+    }
+
+    public Future<Integer> delete(final FileSelector selector)
+    {
+        return executor.submit(new Callable<Integer>()
+        {
+            public Integer call() throws Exception
+            {
+                return new Integer(file.delete(selector));
+            }
+        });
+    }
+}
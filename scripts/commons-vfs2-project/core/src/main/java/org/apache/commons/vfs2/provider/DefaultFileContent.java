@@ -19,6 +19,9 @@ package org.apache.commons.vfs2.provider;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.security.cert.Certificate;
 import java.util.Collections;
 import java.util.Map;
@@ -30,6 +33,8 @@ import org.apache.commons.vfs2.FileContentInfoFactory;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.RandomAccessContent;
+import org.apache.commons.vfs2.impl.DefaultFileSystemConfigBuilder;
+import org.apache.commons.vfs2.metrics.FileSystemOperation;
 import org.apache.commons.vfs2.util.MonitorInputStream;
 import org.apache.commons.vfs2.util.MonitorOutputStream;
 import org.apache.commons.vfs2.util.MonitorRandomAccessContent;
@@ -66,6 +71,11 @@ public final class DefaultFileContent implements FileContent
      */
     private int openStreams;
 
+    /**
+     * The size of the buffer of the streams, 0 until it is known.
+     */
+    private int bufferSize;
+
     public DefaultFileContent(final AbstractFileObject file, final FileContentInfoFactory fileContentInfoFactory)
     {
         this.fileObject = file;
@@ -136,15 +146,24 @@ public final class DefaultFileContent implements FileContent
         }
         */
 
+        final AbstractFileSystem fs = (AbstractFileSystem) fileObject.getFileSystem();
+        final long start = fs.startOperation();
+        boolean completed = false;
         try
         {
             // Get the size
-            return fileObject.doGetContentSize();
+            final long size = fileObject.doGetContentSize();
+            completed = true;
+            return size;
         }
         catch (final Exception exc)
         {
             throw new FileSystemException("vfs.provider/get-size.error", new Object[]{fileObject}, exc);
         }
+        finally
+        {
+            fs.endOperation(FileSystemOperation.GET_CONTENT_SIZE, start, completed);
+        }
     }
 
     /**
@@ -164,14 +183,23 @@ public final class DefaultFileContent implements FileContent
         {
             throw new FileSystemException("vfs.provider/get-last-modified-no-exist.error", fileObject);
         }
+        final AbstractFileSystem fs = (AbstractFileSystem) fileObject.getFileSystem();
+        final long start = fs.startOperation();
+        boolean completed = false;
         try
         {
-            return fileObject.doGetLastModifiedTime();
+            final long lastModified = fileObject.doGetLastModifiedTime();
+            completed = true;
+            return lastModified;
         }
         catch (final Exception e)
         {
             throw new FileSystemException("vfs.provider/get-last-modified.error", fileObject, e);
         }
+        finally
+        {
+            fs.endOperation(FileSystemOperation.GET_LAST_MODIFIED_TIME, start, completed);
+        }
     }
 
     /**
@@ -395,7 +423,7 @@ public final class DefaultFileContent implements FileContent
         // Get the raw input stream
         final InputStream instr = fileObject.getInputStream();
 
-        final InputStream wrappedInstr = new FileContentInputStream(fileObject, instr);
+        final InputStream wrappedInstr = new FileContentInputStream(fileObject, instr, getBufferSize());
 
         this.getThreadData().addInstr(wrappedInstr);
         streamOpened();
@@ -461,13 +489,51 @@ public final class DefaultFileContent implements FileContent
         final OutputStream outstr = fileObject.getOutputStream(bAppend);
 
         // Create wrapper
-        this.getThreadData().setOutstr(new FileContentOutputStream(fileObject, outstr));
+        this.getThreadData().setOutstr(new FileContentOutputStream(fileObject, outstr, getBufferSize()));
         streamOpened();
 
         // setState(STATE_OPENED);
         return this.getThreadData().getOutstr();
     }
 
+    /**
+     * Returns a channel for reading the content.  Closing the channel closes the
+     * underlying input stream.
+     * @return The ReadableByteChannel.
+     * @throws FileSystemException if an error occurs.
+     * @since 2.1
+     */
+    public ReadableByteChannel getReadableChannel() throws FileSystemException
+    {
+        return Channels.newChannel(getInputStream());
+    }
+
+    /**
+     * Returns a channel for writing the content.  Closing the channel closes the
+     * underlying output stream.
+     * @param bAppend true if the data written should be appended.
+     * @return The WritableByteChannel.
+     * @throws FileSystemException if an error occurs.
+     * @since 2.1
+     */
+    public WritableByteChannel getWritableChannel(final boolean bAppend) throws FileSystemException
+    {
+        return Channels.newChannel(getOutputStream(bAppend));
+    }
+
+    /**
+     * Returns the size of the buffer of the streams, as configured for the file system.
+     */
+    private int getBufferSize()
+    {
+        if (bufferSize == 0)
+        {
+            bufferSize = DefaultFileSystemConfigBuilder.getInstance().getStreamBufferSize(
+                fileObject.getFileSystem().getFileSystemOptions());
+        }
+        return bufferSize;
+    }
+
     /**
      * Closes all resources used by the content, including all streams, readers
      * and writers.
@@ -589,10 +655,11 @@ public final class DefaultFileContent implements FileContent
     {
         // avoid gc
         private final FileObject file;
+        private boolean countRecorded;
 
-        FileContentInputStream(final FileObject file, final InputStream instr)
+        FileContentInputStream(final FileObject file, final InputStream instr, final int bufferSize)
         {
-            super(instr);
+            super(instr, bufferSize);
             this.file = file;
         }
 
@@ -624,6 +691,12 @@ public final class DefaultFileContent implements FileContent
             }
             finally
             {
+                if (!countRecorded)
+                {
+                    // the provider may close the stream again while it ends the input
+                    countRecorded = true;
+                    ((AbstractFileSystem) fileObject.getFileSystem()).bytesRead(getCount());
+                }
                 endInput(this);
             }
         }
@@ -672,10 +745,11 @@ public final class DefaultFileContent implements FileContent
     {
         // avoid gc
         private final FileObject file;
+        private boolean countRecorded;
 
-        FileContentOutputStream(final FileObject file, final OutputStream outstr)
+        FileContentOutputStream(final FileObject file, final OutputStream outstr, final int bufferSize)
         {
-            super(outstr);
+            super(outstr, bufferSize);
             this.file = file;
         }
 
@@ -707,6 +781,12 @@ public final class DefaultFileContent implements FileContent
             }
             finally
             {
+                if (!countRecorded)
+                {
+                    // the provider may close the stream again while it ends the output
+                    countRecorded = true;
+                    ((AbstractFileSystem) fileObject.getFileSystem()).bytesWritten(getCount());
+                }
                 try
                 {
                     endOutput();
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileUtil;
+import org.apache.commons.vfs2.util.ParallelWork;
+
+/**
+ * Copies the content of files from several threads.
+ * <p>
+ * The folders of the destination are created before, so the files only have their
+ * content transferred. The thread which copies takes part, so the copy goes on even
+ * when the executor is busy.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+final class ParallelCopy extends ParallelWork<FileObject[]>
+{
+    /**
+     * @param executor The executor of the threads which help.
+     * @param parallelism The number of files copied at the same time.
+     */
+    ParallelCopy(final ExecutorService executor, final int parallelism)
+    {
+        super(executor, parallelism);
+    }
+
+    /**
+     * Copies the content of files.
+     * @param transfers The source and the destination of each file.
+     * @throws FileSystemException if a file could not be copied.
+     */
+    void copy(final List<FileObject[]> transfers) throws FileSystemException
+    {
+        run(transfers);
+    }
+
+    @Override
+    protected void process(final FileObject[] transfer) throws FileSystemException
+    {
+        try
+        {
+            FileUtil.copyContent(transfer[0], transfer[1]);
+        }
+        catch (final IOException e)
+        {
+            throw new FileSystemException("vfs.provider/copy-file.error", transfer, e);
+        }
+    }
+}
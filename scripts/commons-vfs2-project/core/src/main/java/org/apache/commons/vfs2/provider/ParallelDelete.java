@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.util.FileObjectUtils;
+import org.apache.commons.vfs2.util.ParallelWork;
+
+/**
+ * Deletes files of a file system from several threads.
+ * <p>
+ * The files are deleted level by level, the deepest first. Files at the same depth
+ * are never the ancestor of one another, so they are deleted at the same time, and
+ * a folder is only deleted once all its selected descendants are. The thread which
+ * deletes takes part, so the delete goes on even when the executor is busy.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+final class ParallelDelete extends ParallelWork<AbstractFileObject>
+{
+    private final AtomicInteger deleted = new AtomicInteger();
+
+    /**
+     * @param executor The executor of the threads which help.
+     * @param parallelism The number of files deleted at the same time.
+     */
+    ParallelDelete(final ExecutorService executor, final int parallelism)
+    {
+        super(executor, parallelism);
+    }
+
+    /**
+     * Deletes files.
+     * @param files The files, folders with children are skipped.
+     * @return The number of files deleted.
+     * @throws FileSystemException if a file could not be deleted.
+     */
+    int delete(final List<FileObject> files) throws FileSystemException
+    {
+        final TreeMap<Integer, List<AbstractFileObject>> levels = new TreeMap<Integer, List<AbstractFileObject>>();
+        for (final FileObject file : files)
+        {
+            final Integer depth = Integer.valueOf(file.getName().getDepth());
+            List<AbstractFileObject> level = levels.get(depth);
+            if (level == null)
+            {
+                level = new ArrayList<AbstractFileObject>();
+                levels.put(depth, level);
+            }
+            level.add(FileObjectUtils.getAbstractFileObject(file));
+        }
+
+        while (!levels.isEmpty())
+        {
+            run(levels.remove(levels.lastKey()));
+        }
+        return deleted.get();
+    }
+
+    @Override
+    protected void process(final AbstractFileObject file) throws FileSystemException
+    {
+        if (file.deleteIfEmpty(true))
+        {
+            deleted.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider;
+
+import java.io.File;
+
+/**
+ * A file replicator which may delete the copies it made, and so keeps each copy
+ * it handed out until it is released.
+ * <p>
+ * File systems which read a copy after {@link #replicateFile} returned release it once
+ * they are closed.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @see AbstractFileSystem#releaseReplica
+ * @since 2.1
+ */
+public interface PinningFileReplicator extends FileReplicator
+{
+    /**
+     * Releases a copy returned by {@link #replicateFile}, once the caller does not use it
+     * anymore. Files which are not copies of this replicator are ignored.
+     *
+     * @param file The local copy.
+     */
+    void releaseFile(File file);
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.vfs2.Capability;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.RandomAccessContent;
+import org.apache.commons.vfs2.provider.local.LocalFileSystem;
+import org.apache.commons.vfs2.util.RandomAccessMode;
+
+/**
+ * Reads the file below a layered file system in place, through its random access content
+ * and a block cache, instead of replicating it.
+ * <p>
+ * Reads are positional, so that the streams of several entries of an archive can be read
+ * at the same time. The random access content of the file is opened on the first read and
+ * released by {@link #close}, after which the next read opens it again.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public class RandomAccessLayer
+{
+    private static final int BLOCK_SIZE = 32 * 1024;
+    private static final int MAX_BLOCKS = 32;
+    private static final int PREFETCH_BLOCKS = 2;
+
+    private final FileObject file;
+    private final long length;
+
+    private RandomAccessContent content;
+    private BlockContent blocks;
+
+    /**
+     * Creates the layer.
+     * @param file The file to read.
+     * @throws FileSystemException if the size of the file can not be determined.
+     */
+    public RandomAccessLayer(final FileObject file) throws FileSystemException
+    {
+        this.file = file;
+        this.length = file.getContent().getSize();
+    }
+
+    /**
+     * Returns true if a file can be read in place. Local files are excluded, as replicating
+     * them costs nothing.
+     * @param file The file below the layered file system.
+     * @return true if the file system of the file supports random access reads.
+     * @throws FileSystemException if an error occurs.
+     */
+    public static boolean isSupported(final FileObject file) throws FileSystemException
+    {
+        final FileSystem fileSystem = file.getFileSystem();
+        return !(fileSystem instanceof LocalFileSystem)
+            && fileSystem.hasCapability(Capability.RANDOM_ACCESS_READ);
+    }
+
+    /**
+     * @return The file read.
+     */
+    public FileObject getFile()
+    {
+        return file;
+    }
+
+    /**
+     * @return The size of the file when the layer was created.
+     */
+    public long length()
+    {
+        return length;
+    }
+
+    /**
+     * Reads from a position of the file.
+     * @param pos The position of the first byte.
+     * @param b The buffer to read into.
+     * @param off The offset in the buffer.
+     * @param len The maximum number of bytes to read.
+     * @return The number of bytes read, or -1 at the end of the file.
+     * @throws IOException if an error occurs.
+     */
+    public synchronized int read(final long pos, final byte[] b, final int off, final int len)
+        throws IOException
+    {
+        if (blocks == null)
+        {
+            content = file.getContent().getRandomAccessContent(RandomAccessMode.READ);
+            blocks = new BlockContent();
+        }
+        blocks.seek(pos);
+        return blocks.getInputStream().read(b, off, len);
+    }
+
+    /**
+     * Reads exactly a range of the file.
+     * @param pos The position of the first byte.
+     * @param b The buffer to read into.
+     * @param off The offset in the buffer.
+     * @param len The number of bytes to read.
+     * @throws IOException if an error occurs, or the file ends before the range.
+     */
+    public void readFully(final long pos, final byte[] b, final int off, final int len) throws IOException
+    {
+        int count = 0;
+        while (count < len)
+        {
+            final int n = read(pos + count, b, off + count, len - count);
+            if (n < 0)
+            {
+                throw new FileSystemException("vfs.provider/random-access-eof.error", file.getName());
+            }
+            count += n;
+        }
+    }
+
+    /**
+     * Creates a stream on a range of the file.
+     * @param start The position of the first byte.
+     * @param size The number of bytes of the range.
+     * @return The stream.
+     */
+    public InputStream getInputStream(final long start, final long size)
+    {
+        return new RangeInputStream(start, start + size);
+    }
+
+    /**
+     * Releases the random access content of the file and the cached blocks.
+     * @throws IOException if an error occurs closing the content.
+     */
+    public synchronized void close() throws IOException
+    {
+        if (blocks == null)
+        {
+            return;
+        }
+
+        blocks.close();
+        blocks = null;
+        try
+        {
+            content.close();
+        }
+        finally
+        {
+            content = null;
+        }
+    }
+
+    /**
+     * Caches the blocks of the random access content of the file.
+     */
+    private class BlockContent extends AbstractBlockRandomAccessContent
+    {
+        private BlockContent()
+        {
+            super(RandomAccessMode.READ, BLOCK_SIZE, MAX_BLOCKS, PREFETCH_BLOCKS);
+        }
+
+        public long length()
+        {
+            return length;
+        }
+
+        @Override
+        protected int readRange(final long start, final byte[] buffer, final int off, final int len)
+            throws IOException
+        {
+            if (start >= length)
+            {
+                return 0;
+            }
+
+            content.seek(start);
+            final InputStream in = content.getInputStream();
+            final int max = (int) Math.min(len, length - start);
+            int count = 0;
+            while (count < max)
+            {
+                final int n = in.read(buffer, off + count, max - count);
+                if (n < 0)
+                {
+                    break;
+                }
+                count += n;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Reads a range of the file, independently of other streams.
+     */
+    private class RangeInputStream extends InputStream
+    {
+        private final long end;
+        private long pos;
+
+        private RangeInputStream(final long start, final long end)
+        {
+            this.pos = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            final byte[] b = new byte[1];
+            final int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException
+        {
+            if (len == 0)
+            {
+                return 0;
+            }
+            if (pos >= end)
+            {
+                return -1;
+            }
+
+            final int n = RandomAccessLayer.this.read(pos, b, off, (int) Math.min(len, end - pos));
+            if (n > 0)
+            {
+                pos += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException
+        {
+            final long skipped = Math.max(0, Math.min(n, end - pos));
+            pos += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available()
+        {
+            return (int) Math.min(Integer.MAX_VALUE, end - pos);
+        }
+    }
+}
@@ -17,12 +17,14 @@
 package org.apache.commons.vfs2.provider;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemManager;
 import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.metrics.FileSystemMetrics;
 
 /**
  * Allows VFS components to access the services they need, such as the file
@@ -81,6 +83,21 @@ public interface VfsComponentContext
      */
     TemporaryFileStore getTemporaryFileStore() throws FileSystemException;
 
+    /**
+     * Locates the executor of the asynchronous file operations.
+     * @return The ExecutorService.
+     * @throws FileSystemException if an error occurs.
+     * @since 2.1
+     */
+    ExecutorService getAsyncExecutor() throws FileSystemException;
+
+    /**
+     * Locates the metrics to record the operations of the file systems in.
+     * @return The FileSystemMetrics, null if nothing is measured.
+     * @since 2.1
+     */
+    FileSystemMetrics getFileSystemMetrics();
+
     /**
      * Returns a {@link FileObject} for a local file.
      * @param file The File to convert to a FileObject.
@@ -22,6 +22,7 @@ package org.apache.commons.vfs2.provider.bzip2;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.Executor;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
@@ -46,10 +47,33 @@ public class Bzip2FileObject extends CompressedFileFileObject
     {
         // check file
         InputStream is = getContainer().getContent().getInputStream();
+        final int threads = getThreads();
+        if (threads > 1)
+        {
+            return wrapInputStream(getName().getURI(), is, getAsyncExecutor(), threads);
+        }
         return wrapInputStream(getName().getURI(), is);
     }
 
     public static InputStream wrapInputStream(final String name, final InputStream is) throws IOException
+    {
+        return wrapInputStream(name, is, null, 1);
+    }
+
+    /**
+     * Wraps a bzip2 compressed stream.
+     * @param name The name of the file, for error messages.
+     * @param is The compressed stream, starting with the "BZ" file header chars.
+     * @param executor The executor of the threads decompressing blocks, such as the
+     * executor of the asynchronous operations of the manager.
+     * @param threads The number of blocks decompressed at the same time.
+     * @return The uncompressed stream.
+     * @throws IOException if the stream is not bzip2 compressed.
+     * @since 2.1
+     */
+    public static InputStream wrapInputStream(final String name, final InputStream is, final Executor executor,
+                                              final int threads)
+        throws IOException
     {
         final int b1 = is.read();
         final int b2 = is.read();
@@ -57,6 +81,10 @@ public class Bzip2FileObject extends CompressedFileFileObject
         {
             throw new FileSystemException("vfs.provider.compressedFile/not-a-compressedFile-file.error", name);
         }
+        if (threads > 1)
+        {
+            return new ParallelCBZip2InputStream(is, executor, threads);
+        }
         return new CBZip2InputStream(is);
     }
 
@@ -64,9 +92,45 @@ public class Bzip2FileObject extends CompressedFileFileObject
     protected OutputStream doGetOutputStream(boolean bAppend) throws Exception
     {
         OutputStream os = getContainer().getContent().getOutputStream(false);
+        final int threads = getThreads();
+        if (threads > 1)
+        {
+            return wrapOutputStream(os, 9, getAsyncExecutor(), threads);
+        }
+        return wrapOutputStream(os, 9, null, 1);
+    }
+
+    /**
+     * Wraps a stream to compress to it in the bzip2 format.
+     * @param os The stream to write the "BZ" file header chars and the compressed data to.
+     * @param blockSize The block size, in 100k units.
+     * @param executor The executor of the threads compressing blocks, such as the
+     * executor of the asynchronous operations of the manager.
+     * @param threads The number of blocks compressed at the same time.
+     * @return The compressing stream.
+     * @throws IOException if the header can not be written.
+     * @since 2.1
+     */
+    public static OutputStream wrapOutputStream(final OutputStream os, final int blockSize, final Executor executor,
+                                                final int threads)
+        throws IOException
+    {
         os.write('B');
         os.write('Z');
+        if (threads > 1)
+        {
+            return new ParallelCBZip2OutputStream(os, blockSize, executor, threads);
+        }
+        return new CBZip2OutputStream(os, blockSize);
+    }
 
-        return new CBZip2OutputStream(os);
+    private int getThreads()
+    {
+        return Bzip2FileSystemConfigBuilder.getInstance().getThreads(getFileSystem().getFileSystemOptions());
+    }
+
+    private Executor getAsyncExecutor() throws FileSystemException
+    {
+        return ((Bzip2FileSystem) getFileSystem()).getAsyncExecutor();
     }
 }
@@ -24,6 +24,7 @@ import org.apache.commons.vfs2.Capability;
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemConfigBuilder;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemOptions;
 import org.apache.commons.vfs2.provider.compressed.CompressedFileFileProvider;
@@ -66,4 +67,10 @@ public class Bzip2FileProvider extends CompressedFileFileProvider
     {
         return capabilities;
     }
+
+    @Override
+    public FileSystemConfigBuilder getConfigBuilder()
+    {
+        return Bzip2FileSystemConfigBuilder.getInstance();
+    }
 }
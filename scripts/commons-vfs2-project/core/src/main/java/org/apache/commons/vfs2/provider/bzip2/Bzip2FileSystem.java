@@ -17,6 +17,7 @@
 package org.apache.commons.vfs2.provider.bzip2;
 
 import java.util.Collection;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.vfs2.Capability;
 import org.apache.commons.vfs2.FileName;
@@ -49,4 +50,12 @@ public class Bzip2FileSystem extends CompressedFileFileSystem
     {
         caps.addAll(Bzip2FileProvider.capabilities);
     }
+
+    /**
+     * Returns the executor the blocks are compressed and decompressed on.
+     */
+    ExecutorService getAsyncExecutor() throws FileSystemException
+    {
+        return getContext().getAsyncExecutor();
+    }
 }
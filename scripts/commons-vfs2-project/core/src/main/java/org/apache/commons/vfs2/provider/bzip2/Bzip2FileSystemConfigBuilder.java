@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.bzip2;
+
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemConfigBuilder;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Config Builder for the Bzip2 file system, also used for tbz2 archives.
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public final class Bzip2FileSystemConfigBuilder extends FileSystemConfigBuilder
+{
+    /** threads key. */
+    private static final String THREADS_KEY = "threads";
+
+    /** config builder SINGLETON. */
+    private static final Bzip2FileSystemConfigBuilder SINGLETON = new Bzip2FileSystemConfigBuilder();
+
+    /**
+     * Constructor
+     */
+    private Bzip2FileSystemConfigBuilder()
+    {
+        super("bzip2.");
+    }
+
+    /**
+     * @return the config builder SINGLETON
+     */
+    public static Bzip2FileSystemConfigBuilder getInstance()
+    {
+        return SINGLETON;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<? extends FileSystem> getConfigClass()
+    {
+        return Bzip2FileSystem.class;
+    }
+
+    /**
+     * Sets the number of threads which compress and decompress blocks.
+     * <p>
+     * With more than one thread the blocks of a stream are compressed and decompressed
+     * concurrently, on the threads of the asynchronous operations of the manager, which
+     * all streams share. The compressed data is the same. The default is 1, which
+     * compresses and decompresses on the thread using the stream.
+     *
+     * @param opts The FileSystem options.
+     * @param threads The number of threads.
+     */
+    public void setThreads(FileSystemOptions opts, int threads)
+    {
+        setParam(opts, THREADS_KEY, new Integer(threads));
+    }
+
+    /**
+     * @param opts The FileSystem options.
+     * @return The number of threads which compress and decompress blocks.
+     * @see #setThreads
+     */
+    public int getThreads(FileSystemOptions opts)
+    {
+        return getInteger(opts, THREADS_KEY, 1);
+    }
+}
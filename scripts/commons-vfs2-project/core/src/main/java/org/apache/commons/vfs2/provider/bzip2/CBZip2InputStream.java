@@ -26,8 +26,12 @@ import static org.apache.commons.vfs2.provider.bzip2.BZip2Constants.RAND_NUMS;
 import static org.apache.commons.vfs2.provider.bzip2.BZip2Constants.RUNA;
 import static org.apache.commons.vfs2.provider.bzip2.BZip2Constants.RUNB;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.vfs2.FileSystemException;
 
 /*
  * This package is based on the work done by Keiron Liddle, Aftex Software
@@ -116,6 +120,11 @@ class CBZip2InputStream extends InputStream
     private int storedCombinedCRC;
     private int[] tt;
 
+    /** Decode single blocks only, see {@link #decodeBlock}. */
+    private boolean singleBlock;
+    private boolean blockHeaderValid;
+    private long bytesRead;
+
     CBZip2InputStream(final InputStream input)
     {
         bsSetStream(input);
@@ -124,6 +133,78 @@ class CBZip2InputStream extends InputStream
         setupBlock();
     }
 
+    /**
+     * Creates a decoder for single blocks, which are found by another stream.
+     *
+     * @param blockSize the block size of the stream, in 100k units
+     * @see #decodeBlock
+     */
+    CBZip2InputStream(final int blockSize)
+    {
+        singleBlock = true;
+        setDecompressStructureSizes(blockSize);
+    }
+
+    /**
+     * Decodes one block and verifies its CRC.
+     *
+     * @param input the compressed data, starting with the byte which holds the first bit of the block header
+     * @param skipBits the number of bits of the first byte before the block header
+     * @param output the stream to write the uncompressed data to
+     * @return the number of bits of the input used by the block, including the skipped bits
+     * @throws EOFException if the input ends before the block
+     * @throws IOException if the block is corrupted
+     */
+    long decodeBlock(final InputStream input, final int skipBits, final OutputStream output)
+            throws IOException
+    {
+        bsSetStream(input);
+        bytesRead = 0;
+        streamEnd = false;
+        blockHeaderValid = false;
+        try
+        {
+            bsR(skipBits);
+            initBlock();
+            if (!blockHeaderValid)
+            {
+                throw new FileSystemException("vfs.provider.bzip2/bad-block.error");
+            }
+
+            setupBlock();
+            for (int c = read(); c != -1; c = read())
+            {
+                output.write(c);
+            }
+        }
+        catch (final TruncatedBlockException e)
+        {
+            throw new EOFException();
+        }
+        catch (final RuntimeException e)
+        {
+            throw new FileSystemException("vfs.provider.bzip2/bad-block.error", e);
+        }
+        finally
+        {
+            inputStream = null;
+        }
+
+        if (storedBlockCRC != computedBlockCRC)
+        {
+            throw new FileSystemException("vfs.provider.bzip2/bad-block.error");
+        }
+        return bytesRead * 8 - bsLive;
+    }
+
+    /**
+     * @return the CRC of the last block decoded.
+     */
+    int getBlockCRC()
+    {
+        return storedBlockCRC;
+    }
+
     private static void badBlockHeader()
     {
         cadvise();
@@ -281,6 +362,11 @@ class CBZip2InputStream extends InputStream
         else
         {
             endBlock();
+            if (singleBlock)
+            {
+                streamEnd = true;
+                return;
+            }
             initBlock();
             setupBlock();
         }
@@ -357,6 +443,11 @@ class CBZip2InputStream extends InputStream
         else
         {
             endBlock();
+            if (singleBlock)
+            {
+                streamEnd = true;
+                return;
+            }
             initBlock();
             setupBlock();
         }
@@ -461,27 +552,7 @@ class CBZip2InputStream extends InputStream
         {
             zn++;
 
-            while (bsLive < 1)
-            {
-                int zzi = 0;
-                try
-                {
-                    zzi = inputStream.read();
-                }
-                catch (IOException e)
-                {
-                    compressedStreamEOF();
-                }
-                if (zzi == -1)
-                {
-                    compressedStreamEOF();
-                }
-                bsBuff = (bsBuff << 8) | (zzi & 0xff);
-                bsLive += 8;
-            }
-
-            zj = (bsBuff >> (bsLive - 1)) & 1;
-            bsLive--;
+            zj = bsR(1);
 
             zvec = (zvec << 1) | zj;
         }
@@ -524,27 +595,7 @@ class CBZip2InputStream extends InputStream
                     {
                         zn++;
 
-                        while (bsLive < 1)
-                        {
-                            int zzi = 0;
-                            try
-                            {
-                                zzi = inputStream.read();
-                            }
-                            catch (IOException e)
-                            {
-                                compressedStreamEOF();
-                            }
-                            if (zzi == -1)
-                            {
-                                compressedStreamEOF();
-                            }
-                            bsBuff = (bsBuff << 8) | (zzi & 0xff);
-                            bsLive += 8;
-                        }
-
-                        zj = (bsBuff >> (bsLive - 1)) & 1;
-                        bsLive--;
+                        zj = bsR(1);
                         zvec = (zvec << 1) | zj;
                     }
 
@@ -616,24 +667,7 @@ class CBZip2InputStream extends InputStream
                 {
                     zn++;
 
-                    while (bsLive < 1)
-                    {
-                        char ch = 0;
-                        try
-                        {
-                            ch = (char) inputStream.read();
-                        }
-                        catch (IOException e)
-                        {
-                            compressedStreamEOF();
-                        }
-
-                        bsBuff = (bsBuff << 8) | (ch & 0xff);
-                        bsLive += 8;
-                    }
-
-                    zj = (bsBuff >> (bsLive - 1)) & 1;
-                    bsLive--;
+                    zj = bsR(1);
 
                     zvec = (zvec << 1) | zj;
                 }
@@ -696,11 +730,16 @@ class CBZip2InputStream extends InputStream
 
             if (ch == -1)
             {
+                if (singleBlock)
+                {
+                    throw new TruncatedBlockException();
+                }
                 compressedStreamEOF();
             }
 
             bsBuff = (bsBuff << 8) | (ch & 0xff);
             bsLive += 8;
+            bytesRead++;
         }
 
         final int result = (bsBuff >> (bsLive - n)) & ((1 << n) - 1);
@@ -733,6 +772,11 @@ class CBZip2InputStream extends InputStream
         /*
          * A bad CRC is considered a fatal error.
          */
+        if (singleBlock)
+        {
+            // checked by decodeBlock
+            return;
+        }
         if (storedBlockCRC != computedBlockCRC)
         {
             crcError();
@@ -816,10 +860,14 @@ class CBZip2InputStream extends InputStream
         if (magic1 != 0x31 || magic2 != 0x41 || magic3 != 0x59 ||
                 magic4 != 0x26 || magic5 != 0x53 || magic6 != 0x59)
         {
-            badBlockHeader();
+            if (!singleBlock)
+            {
+                badBlockHeader();
+            }
             streamEnd = true;
             return;
         }
+        blockHeaderValid = true;
 
         storedBlockCRC = readInt();
 
@@ -1003,4 +1051,12 @@ class CBZip2InputStream extends InputStream
     {
         bsFinishedWithStream();
     }
+
+    /**
+     * Thrown when the input of a single block ends before the block.
+     */
+    private static final class TruncatedBlockException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+    }
 }
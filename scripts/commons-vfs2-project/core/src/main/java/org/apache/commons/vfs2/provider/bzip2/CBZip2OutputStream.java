@@ -151,7 +151,28 @@ class CBZip2OutputStream extends OutputStream
     {
         bsSetStream(output);
         workFactor = 50;
+        blockSize100k = checkBlockSize(blockSize);
+        block = createBlock(blockSize100k);
+        allocateCompressStructures();
+        initialize();
+        initBlock();
+    }
 
+    /**
+     * Creates a compressor for single blocks, which are filled by another stream.
+     *
+     * @param blockSize the block size, in 100k units
+     * @see #compressBlock
+     */
+    CBZip2OutputStream(final int blockSize)
+    {
+        workFactor = 50;
+        blockSize100k = checkBlockSize(blockSize);
+        allocateCompressStructures();
+    }
+
+    static int checkBlockSize(final int blockSize)
+    {
         int outBlockSize = blockSize;
         if (outBlockSize > 9)
         {
@@ -161,10 +182,16 @@ class CBZip2OutputStream extends OutputStream
         {
             outBlockSize = 1;
         }
-        blockSize100k = outBlockSize;
-        allocateCompressStructures();
-        initialize();
-        initBlock();
+        return outBlockSize;
+    }
+
+    /**
+     * Allocates a block buffer, which holds the run-length encoded data of a block
+     * and the overshoot used when sorting.
+     */
+    static char[] createBlock(final int blockSize100k)
+    {
+        return new char[(BASE_BLOCK_SIZE * blockSize100k + 1 + NUM_OVERSHOOT_BYTES)];
     }
 
     private static void hbMakeCodeLengths(char[] len, int[] freq,
@@ -462,12 +489,11 @@ class CBZip2OutputStream extends OutputStream
     private void allocateCompressStructures()
     {
         int n = BASE_BLOCK_SIZE * blockSize100k;
-        block = new char[(n + 1 + NUM_OVERSHOOT_BYTES)];
         quadrant = new int[(n + NUM_OVERSHOOT_BYTES)];
         zptr = new int[n];
         ftab = new int[65537];
 
-        if (block == null || quadrant == null || zptr == null
+        if (quadrant == null || zptr == null
                 || ftab == null)
         {
             //int totalDraw = (n + 1 + NUM_OVERSHOOT_BYTES) + (n + NUM_OVERSHOOT_BYTES) + n + 65537;
@@ -601,6 +627,48 @@ class CBZip2OutputStream extends OutputStream
         combinedCRC = (combinedCRC << 1) | (combinedCRC >>> 31);
         combinedCRC ^= blockCRC;
 
+        writeBlock();
+    }
+
+    /**
+     * Compresses one block, which was filled by another stream, and writes it to the given stream.
+     * The block is not byte aligned, the last byte written is padded with zero bits.
+     *
+     * @param data the run-length encoded data, starting at offset 1, which is overwritten
+     * @param dataLast the index of the last char of the data
+     * @param dataInUse the chars used in the block
+     * @param dataCRC the CRC of the uncompressed data of the block
+     * @param output the stream to write the compressed block to
+     * @return the number of bits used in the last byte written, 1 to 8
+     * @throws IOException if the output stream fails
+     */
+    int compressBlock(final char[] data, final int dataLast, final boolean[] dataInUse, final int dataCRC,
+                      final OutputStream output)
+            throws IOException
+    {
+        block = data;
+        last = dataLast;
+        System.arraycopy(dataInUse, 0, inUse, 0, inUse.length);
+        blockCRC = dataCRC;
+        bsSetStream(output);
+        try
+        {
+            writeBlock();
+
+            final int lastBits = (bsLive - 1) % 8 + 1;
+            bsFinishedWithStream();
+            return lastBits;
+        }
+        finally
+        {
+            block = null;
+            bsStream = null;
+        }
+    }
+
+    private void writeBlock()
+            throws IOException
+    {
         /*
          * sort the block and establish posn of original string
          */
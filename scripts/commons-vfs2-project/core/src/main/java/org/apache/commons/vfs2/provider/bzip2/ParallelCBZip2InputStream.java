@@ -0,0 +1,478 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.bzip2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.vfs2.FileSystemException;
+
+/**
+ * An input stream that decompresses from the BZip2 format (without the file
+ * header chars), decompressing several blocks concurrently.
+ * <p>
+ * The compressed data is scanned for the 48 bit block header and end of stream
+ * magic numbers, which are not byte aligned, and the blocks between them are
+ * decoded on worker threads. The magic numbers may appear by chance inside a block,
+ * such a block is decoded again together with the data following the false header,
+ * and blocks which start inside the previous block are skipped.
+ * <p>
+ * The worker threads are shared with other streams, the reading thread decodes the
+ * next block itself when no worker has started it.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+class ParallelCBZip2InputStream extends InputStream
+{
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long END_MAGIC = 0x177245385090L;
+    private static final long MAGIC_MASK = 0xffffffffffffL;
+    private static final int MAGIC_BITS = 48;
+
+    private static final int READ_SIZE = 64 * 1024;
+
+    private final InputStream inputStream;
+    private final Executor executor;
+    private final int maxPending;
+    private int blockSize100k;
+
+    /** Decoders not used by a worker. */
+    private final Queue<CBZip2InputStream> decoders = new ConcurrentLinkedQueue<CBZip2InputStream>();
+
+    /** The sections found between magic numbers, in stream order. */
+    private final LinkedList<Section> pending = new LinkedList<Section>();
+
+    /** The compressed data of the open section, starting at byte bufferStart of the stream. */
+    private byte[] buffer = new byte[READ_SIZE];
+    private int bufferLength;
+    private long bufferStart;
+
+    /** The last 8 bytes scanned and the number of bytes scanned. */
+    private long window;
+    private long scanned;
+
+    /** The bit position of the magic number starting the open section, or -1. */
+    private long sectionStart = -1;
+    private boolean sectionIsEnd;
+    private boolean inputEnd;
+
+    /** The bit position the next block must start at. */
+    private long expectedStart;
+    private int computedCombinedCRC;
+    private boolean streamEnd;
+
+    private byte[] current;
+    private int currentPos;
+
+    /**
+     * Creates a stream decompressing several blocks at the same time.
+     *
+     * @param input the compressed data, after the "BZ" file header chars
+     * @param executor the executor of the threads decompressing blocks
+     * @param threads the number of blocks decompressed at the same time
+     * @throws IOException if the stream header can not be read
+     */
+    ParallelCBZip2InputStream(final InputStream input, final Executor executor, final int threads)
+            throws IOException
+    {
+        inputStream = input;
+        this.executor = executor;
+        maxPending = Math.max(1, threads);
+
+        final int magic3 = input.read();
+        final int magic4 = input.read();
+        if (magic3 != 'h' || magic4 < '1' || magic4 > '9')
+        {
+            streamEnd = true;
+            return;
+        }
+        blockSize100k = magic4 - '0';
+    }
+
+    /**
+     * Returns the number of uncompressed bytes of the current block not read yet,
+     * or 1 as long as the stream is not at end, see {@link CBZip2InputStream#available()}.
+     */
+    @Override
+    public int available() throws IOException
+    {
+        if (current != null && currentPos < current.length)
+        {
+            return current.length - currentPos;
+        }
+        return streamEnd ? 0 : 1;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (!fillCurrent())
+        {
+            return -1;
+        }
+        return current[currentPos++] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+        if (!fillCurrent())
+        {
+            return -1;
+        }
+
+        final int n = Math.min(len, current.length - currentPos);
+        System.arraycopy(current, currentPos, b, off, n);
+        currentPos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        streamEnd = true;
+        current = null;
+        for (Section section : pending)
+        {
+            if (section.future != null)
+            {
+                section.future.cancel(true);
+            }
+        }
+        pending.clear();
+        inputStream.close();
+    }
+
+    /**
+     * Makes sure the current block has data left, decoding the next block if required.
+     * @return false at the end of the stream.
+     */
+    private boolean fillCurrent() throws IOException
+    {
+        while (current == null || currentPos >= current.length)
+        {
+            if (streamEnd)
+            {
+                return false;
+            }
+            current = nextBlock();
+            currentPos = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the data of the next block, or null at the end of the stream.
+     */
+    private byte[] nextBlock() throws IOException
+    {
+        while (true)
+        {
+            Section section = nextSection();
+            if (section.start < expectedStart)
+            {
+                // a magic number inside the previous block
+                section.cancel();
+                continue;
+            }
+            if (section.start > expectedStart)
+            {
+                throw new FileSystemException("vfs.provider.bzip2/bad-block.error");
+            }
+
+            if (section.end)
+            {
+                final int storedCombinedCRC = (int) section.readBits(MAGIC_BITS, 32);
+                if (storedCombinedCRC != computedCombinedCRC)
+                {
+                    throw new FileSystemException("vfs.provider.bzip2/bad-stream-crc.error");
+                }
+                streamEnd = true;
+                return null;
+            }
+
+            DecodedBlock block = section.get();
+            while (block.truncated)
+            {
+                // the section was ended by a magic number inside the block
+                final Section next = nextSection();
+                next.cancel();
+                section = section.merge(next);
+                block = decode(section);
+            }
+
+            expectedStart = section.firstByte * 8 + block.bits;
+            computedCombinedCRC = (computedCombinedCRC << 1) | (computedCombinedCRC >>> 31);
+            computedCombinedCRC ^= block.crc;
+            return block.data;
+        }
+    }
+
+    /**
+     * Returns the next section, scanning more of the compressed data if required.
+     */
+    private Section nextSection() throws IOException
+    {
+        if (pending.isEmpty())
+        {
+            scan(1);
+            if (pending.isEmpty())
+            {
+                throw new EOFException();
+            }
+        }
+
+        final Section section = pending.removeFirst();
+        scan(maxPending);
+        return section;
+    }
+
+    /**
+     * Reads and scans the compressed data until the given number of sections are pending
+     * or the input ends.
+     */
+    private void scan(final int sections) throws IOException
+    {
+        while (pending.size() < sections && !inputEnd)
+        {
+            if (bufferLength == buffer.length)
+            {
+                final byte[] larger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, larger, 0, bufferLength);
+                buffer = larger;
+            }
+
+            final int n = inputStream.read(buffer, bufferLength, Math.min(READ_SIZE, buffer.length - bufferLength));
+            if (n < 0)
+            {
+                inputEnd = true;
+                if (sectionStart >= 0)
+                {
+                    endSection(bufferStart * 8 + bufferLength * 8L);
+                }
+                break;
+            }
+
+            final int end = bufferLength + n;
+            for (int i = bufferLength; i < end; i++)
+            {
+                window = (window << 8) | (buffer[i] & 0xff);
+                scanned++;
+                if (scanned * 8 < MAGIC_BITS)
+                {
+                    continue;
+                }
+
+                // the magic numbers are not byte aligned, try the earliest positions first
+                for (int shift = 7; shift >= 0; shift--)
+                {
+                    final long magic = (window >>> shift) & MAGIC_MASK;
+                    if ((magic == BLOCK_MAGIC || magic == END_MAGIC) && scanned * 8 >= MAGIC_BITS + shift)
+                    {
+                        final long position = scanned * 8 - shift - MAGIC_BITS;
+                        if (sectionStart >= 0)
+                        {
+                            endSection(position);
+                        }
+                        sectionStart = position;
+                        sectionIsEnd = magic == END_MAGIC;
+                    }
+                }
+            }
+            bufferLength = end;
+
+            // keep the data from the byte holding the start of the open section
+            final long keepFrom = sectionStart >= 0 ? sectionStart / 8 : bufferStart + bufferLength - 8;
+            final int discard = (int) Math.max(0, keepFrom - bufferStart);
+            if (discard > 0)
+            {
+                System.arraycopy(buffer, discard, buffer, 0, bufferLength - discard);
+                bufferLength -= discard;
+                bufferStart += discard;
+            }
+        }
+    }
+
+    /**
+     * Ends the open section at the given bit position, and decodes it if it is a block.
+     * The buffer must hold the data up to the position.
+     */
+    private void endSection(final long position)
+    {
+        final long firstByte = sectionStart / 8;
+        final long lastByte = (position + 7) / 8;
+        final byte[] data = new byte[(int) (lastByte - firstByte)];
+        System.arraycopy(buffer, (int) (firstByte - bufferStart), data, 0, data.length);
+
+        final Section section = new Section(sectionStart, firstByte, data, sectionIsEnd);
+        if (!sectionIsEnd)
+        {
+            section.future = new FutureTask<DecodedBlock>(new Callable<DecodedBlock>()
+            {
+                public DecodedBlock call() throws IOException
+                {
+                    return decode(section);
+                }
+            });
+            ParallelCBZip2OutputStream.execute(executor, section.future);
+        }
+        pending.addLast(section);
+    }
+
+    private DecodedBlock decode(final Section section) throws IOException
+    {
+        CBZip2InputStream decoder = decoders.poll();
+        if (decoder == null)
+        {
+            decoder = new CBZip2InputStream(blockSize100k);
+        }
+
+        try
+        {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream(
+                BZip2Constants.BASE_BLOCK_SIZE * blockSize100k);
+            final long bits = decoder.decodeBlock(new ByteArrayInputStream(section.data),
+                (int) (section.start - section.firstByte * 8), output);
+            return new DecodedBlock(output.toByteArray(), bits, decoder.getBlockCRC(), false);
+        }
+        catch (final EOFException e)
+        {
+            return new DecodedBlock(null, 0, 0, true);
+        }
+        finally
+        {
+            decoders.add(decoder);
+        }
+    }
+
+    /**
+     * The compressed data from a magic number to the next one.
+     */
+    private static final class Section
+    {
+        private final long start;
+        private final long firstByte;
+        private final byte[] data;
+        private final boolean end;
+        private FutureTask<DecodedBlock> future;
+
+        private Section(final long start, final long firstByte, final byte[] data, final boolean end)
+        {
+            this.start = start;
+            this.firstByte = firstByte;
+            this.data = data;
+            this.end = end;
+        }
+
+        private DecodedBlock get() throws IOException
+        {
+            try
+            {
+                // decode the block here if no worker started it
+                future.run();
+                return future.get();
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            catch (final ExecutionException e)
+            {
+                if (e.getCause() instanceof IOException)
+                {
+                    throw (IOException) e.getCause();
+                }
+                throw new FileSystemException("vfs.provider.bzip2/bad-block.error", e.getCause());
+            }
+        }
+
+        private void cancel()
+        {
+            if (future != null)
+            {
+                future.cancel(true);
+            }
+        }
+
+        /**
+         * Appends the data of the following section.
+         */
+        private Section merge(final Section next)
+        {
+            final int keep = (int) (next.firstByte - firstByte);
+            final byte[] merged = new byte[keep + next.data.length];
+            System.arraycopy(data, 0, merged, 0, keep);
+            System.arraycopy(next.data, 0, merged, keep, next.data.length);
+            return new Section(start, firstByte, merged, false);
+        }
+
+        /**
+         * Reads bits following the start of the section.
+         */
+        private long readBits(final int offset, final int count) throws IOException
+        {
+            long value = 0;
+            long bit = start - firstByte * 8 + offset;
+            for (int i = 0; i < count; i++, bit++)
+            {
+                final int index = (int) (bit / 8);
+                if (index >= data.length)
+                {
+                    throw new EOFException();
+                }
+                value = (value << 1) | ((data[index] >> (7 - (int) (bit % 8))) & 1);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * The uncompressed data of a block.
+     */
+    private static final class DecodedBlock
+    {
+        private final byte[] data;
+        private final long bits;
+        private final int crc;
+        private final boolean truncated;
+
+        private DecodedBlock(final byte[] data, final long bits, final int crc, final boolean truncated)
+        {
+            this.data = data;
+            this.bits = bits;
+            this.crc = crc;
+            this.truncated = truncated;
+        }
+    }
+}
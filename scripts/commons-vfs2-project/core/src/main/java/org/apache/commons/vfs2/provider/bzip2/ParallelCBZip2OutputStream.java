@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.bzip2;
+
+import static org.apache.commons.vfs2.provider.bzip2.BZip2Constants.BASE_BLOCK_SIZE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.vfs2.FileSystemException;
+
+/**
+ * An output stream that compresses into the BZip2 format (without the file
+ * header chars), compressing several blocks concurrently.
+ * <p>
+ * The blocks are filled on the writing thread exactly as {@link CBZip2OutputStream}
+ * fills them, sorted and Huffman coded on worker threads, and written in order,
+ * so the output is identical to the output of {@link CBZip2OutputStream}.
+ * <p>
+ * The worker threads are shared with other streams, the writing thread compresses the
+ * oldest block itself when no worker has started it.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+class ParallelCBZip2OutputStream extends OutputStream
+{
+    private final int blockSize100k;
+    private final int allowableBlockSize;
+
+    private final Executor executor;
+    private final int maxPending;
+
+    /** The blocks being compressed, in stream order. */
+    private final LinkedList<FutureTask<CompressedBlock>> pending = new LinkedList<FutureTask<CompressedBlock>>();
+
+    /** Compressors not used by a worker, each worker uses one at a time. */
+    private final Queue<CBZip2OutputStream> compressors = new ConcurrentLinkedQueue<CBZip2OutputStream>();
+
+    /** Blocks which have been written and can be filled again. */
+    private final LinkedList<Block> freeBlocks = new LinkedList<Block>();
+
+    private final CRC crc = new CRC();
+    private Block block;
+    private int combinedCRC;
+
+    private int currentChar = -1;
+    private int runLength;
+    private boolean closed;
+
+    private final OutputStream bsStream;
+    private int bsBuff;
+    private int bsLive;
+
+    /**
+     * Creates a stream compressing several blocks at the same time.
+     *
+     * @param output the stream to write the compressed data to
+     * @param blockSize the block size, in 100k units
+     * @param executor the executor of the threads compressing blocks
+     * @param threads the number of blocks compressed at the same time
+     * @throws IOException if the header can not be written
+     */
+    ParallelCBZip2OutputStream(final OutputStream output, final int blockSize, final Executor executor,
+                               final int threads)
+            throws IOException
+    {
+        bsStream = output;
+        blockSize100k = CBZip2OutputStream.checkBlockSize(blockSize);
+
+        /*
+         * 20 is just a paranoia constant, as in CBZip2OutputStream
+         */
+        allowableBlockSize = BASE_BLOCK_SIZE * blockSize100k - 20;
+
+        this.executor = executor;
+        maxPending = Math.max(1, threads);
+
+        bsW(8, 'h');
+        bsW(8, '0' + blockSize100k);
+        initBlock();
+    }
+
+    @Override
+    public void write(final int bv)
+            throws IOException
+    {
+        int b = (256 + bv) % 256;
+        if (currentChar != -1)
+        {
+            if (currentChar == b)
+            {
+                runLength++;
+                if (runLength > 254)
+                {
+                    writeRun();
+                    currentChar = -1;
+                    runLength = 0;
+                }
+            }
+            else
+            {
+                writeRun();
+                runLength = 1;
+                currentChar = b;
+            }
+        }
+        else
+        {
+            currentChar = b;
+            runLength++;
+        }
+    }
+
+    @Override
+    public void flush()
+            throws IOException
+    {
+        bsStream.flush();
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+
+        try
+        {
+            if (runLength > 0)
+            {
+                writeRun();
+            }
+            currentChar = -1;
+            endBlock();
+            while (!pending.isEmpty())
+            {
+                writeCompressedBlock();
+            }
+
+            bsW(8, 0x17);
+            bsW(8, 0x72);
+            bsW(8, 0x45);
+            bsW(8, 0x38);
+            bsW(8, 0x50);
+            bsW(8, 0x90);
+            bsW(8, (combinedCRC >> 24) & 0xff);
+            bsW(8, (combinedCRC >> 16) & 0xff);
+            bsW(8, (combinedCRC >> 8) & 0xff);
+            bsW(8, combinedCRC & 0xff);
+            while (bsLive > 0)
+            {
+                bsStream.write(bsBuff >> 24);
+                bsBuff <<= 8;
+                bsLive -= 8;
+            }
+        }
+        finally
+        {
+            for (FutureTask<CompressedBlock> task : pending)
+            {
+                task.cancel(true);
+            }
+            bsStream.close();
+        }
+    }
+
+    private void initBlock()
+    {
+        block = freeBlocks.isEmpty() ? new Block(blockSize100k) : freeBlocks.removeFirst();
+        crc.initialiseCRC();
+        block.last = -1;
+        for (int i = 0; i < 256; i++)
+        {
+            block.inUse[i] = false;
+        }
+    }
+
+    private void endBlock()
+            throws IOException
+    {
+        block.crc = crc.getFinalCRC();
+        combinedCRC = (combinedCRC << 1) | (combinedCRC >>> 31);
+        combinedCRC ^= block.crc;
+
+        final Block full = block;
+        final FutureTask<CompressedBlock> task = new FutureTask<CompressedBlock>(new Callable<CompressedBlock>()
+        {
+            public CompressedBlock call() throws IOException
+            {
+                return compress(full);
+            }
+        });
+        pending.addLast(task);
+        execute(executor, task);
+
+        // write the blocks which are done, and wait when too many are pending
+        while (!pending.isEmpty() && (pending.size() > maxPending || pending.getFirst().isDone()))
+        {
+            writeCompressedBlock();
+        }
+    }
+
+    /**
+     * Hands a task to the executor. A task the executor rejects is run by the thread
+     * which waits for its result.
+     */
+    static void execute(final Executor executor, final FutureTask<?> task)
+    {
+        try
+        {
+            executor.execute(task);
+        }
+        catch (final RejectedExecutionException e)
+        {
+            // run when its result is needed
+        }
+    }
+
+    /**
+     * Compresses a block on a worker thread.
+     */
+    private CompressedBlock compress(final Block full)
+            throws IOException
+    {
+        CBZip2OutputStream compressor = compressors.poll();
+        if (compressor == null)
+        {
+            compressor = new CBZip2OutputStream(blockSize100k);
+        }
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(BASE_BLOCK_SIZE * blockSize100k / 2);
+        final int lastBits = compressor.compressBlock(full.data, full.last, full.inUse, full.crc, output);
+        compressors.add(compressor);
+        return new CompressedBlock(full, output.toByteArray(), lastBits);
+    }
+
+    /**
+     * Waits for the oldest pending block and appends its bits to the stream.
+     */
+    private void writeCompressedBlock()
+            throws IOException
+    {
+        final FutureTask<CompressedBlock> task = pending.removeFirst();
+        final CompressedBlock compressed;
+        try
+        {
+            // compress the block here if no worker started it
+            task.run();
+            compressed = task.get();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        catch (final ExecutionException e)
+        {
+            throw new FileSystemException("vfs.provider.bzip2/compress.error", e.getCause());
+        }
+
+        final byte[] bytes = compressed.bytes;
+        final int last = bytes.length - 1;
+        for (int i = 0; i < last; i++)
+        {
+            bsW(8, bytes[i] & 0xff);
+        }
+        bsW(compressed.lastBits, (bytes[last] & 0xff) >>> (8 - compressed.lastBits));
+
+        freeBlocks.addLast(compressed.block);
+    }
+
+    private void bsW(final int n, final int v)
+            throws IOException
+    {
+        while (bsLive >= 8)
+        {
+            bsStream.write(bsBuff >> 24); // write 8-bit
+            bsBuff <<= 8;
+            bsLive -= 8;
+        }
+        bsBuff |= (v << (32 - bsLive - n));
+        bsLive += n;
+    }
+
+    private void writeRun()
+            throws IOException
+    {
+        if (block.last < allowableBlockSize)
+        {
+            final char[] data = block.data;
+            block.inUse[currentChar] = true;
+            for (int i = 0; i < runLength; i++)
+            {
+                crc.updateCRC((char) currentChar);
+            }
+            if (runLength < 4)
+            {
+                for (int i = 0; i < runLength; i++)
+                {
+                    block.last++;
+                    data[block.last + 1] = (char) currentChar;
+                }
+            }
+            else
+            {
+                block.inUse[runLength - 4] = true;
+                for (int i = 0; i < 4; i++)
+                {
+                    block.last++;
+                    data[block.last + 1] = (char) currentChar;
+                }
+                block.last++;
+                data[block.last + 1] = (char) (runLength - 4);
+            }
+        }
+        else
+        {
+            endBlock();
+            initBlock();
+            writeRun();
+        }
+    }
+
+    /**
+     * The run-length encoded data of a block.
+     */
+    private static final class Block
+    {
+        private final char[] data;
+        private final boolean[] inUse = new boolean[256];
+        private int last;
+        private int crc;
+
+        private Block(final int blockSize100k)
+        {
+            data = CBZip2OutputStream.createBlock(blockSize100k);
+        }
+    }
+
+    /**
+     * The bits of a compressed block.
+     */
+    private static final class CompressedBlock
+    {
+        private final Block block;
+        private final byte[] bytes;
+        private final int lastBits;
+
+        private CompressedBlock(final Block block, final byte[] bytes, final int lastBits)
+        {
+            this.block = block;
+            this.bytes = bytes;
+            this.lastBits = lastBits;
+        }
+    }
+}
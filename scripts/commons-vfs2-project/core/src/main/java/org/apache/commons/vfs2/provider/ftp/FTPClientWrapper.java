@@ -303,4 +303,9 @@ class FTPClientWrapper implements FtpClient
     {
         return getFtpClient().getReplyString();
     }
+
+    public boolean sendNoOp() throws IOException
+    {
+        return ftpClient != null && ftpClient.sendNoOp();
+    }
 }
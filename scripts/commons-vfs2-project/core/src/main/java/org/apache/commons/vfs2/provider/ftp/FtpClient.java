@@ -56,4 +56,12 @@ public interface FtpClient
     boolean abort() throws IOException;
 
     String getReplyString() throws IOException;
+
+    /**
+     * Sends a NOOP command to the server, to check that the connection is still usable.
+     * @return true if the server accepted the command.
+     * @throws IOException if an I/O error occurs.
+     * @since 2.1
+     */
+    boolean sendNoOp() throws IOException;
 }
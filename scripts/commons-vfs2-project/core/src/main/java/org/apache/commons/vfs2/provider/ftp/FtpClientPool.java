@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.ftp;
+
+import java.io.IOException;
+
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.util.ConnectionPool;
+
+/**
+ * A bounded pool of {@link FtpClient}s.
+ * <p>
+ * Idle clients are validated with a NOOP command before they are reused, if testing on borrow is enabled.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public abstract class FtpClientPool extends ConnectionPool<FtpClient>
+{
+    /**
+     * Creates a pool.
+     * @param maxActive The maximum number of clients, idle or borrowed.
+     * @param minIdle The number of idle clients which are never evicted.
+     * @param maxIdle The maximum number of idle clients.
+     * @param idleTimeout The time in milliseconds after which an idle client is evicted,
+     * or 0 if idle clients are never evicted.
+     * @param maxWait The time in milliseconds to wait for a client when the pool is exhausted,
+     * or a negative value to wait indefinitely.
+     * @param testOnBorrow true if an idle client should be validated with a NOOP command before it is reused.
+     */
+    protected FtpClientPool(final int maxActive, final int minIdle, final int maxIdle,
+                            final long idleTimeout, final long maxWait, final boolean testOnBorrow)
+    {
+        super(maxActive, minIdle, maxIdle, idleTimeout, maxWait, testOnBorrow);
+    }
+
+    @Override
+    protected boolean isOpen(final FtpClient client)
+    {
+        try
+        {
+            return client.isConnected();
+        }
+        catch (FileSystemException e)
+        {
+            return false;
+        }
+    }
+
+    @Override
+    protected boolean testConnection(final FtpClient client)
+    {
+        try
+        {
+            return client.sendNoOp();
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+    }
+}
@@ -34,6 +34,7 @@ import org.apache.commons.vfs2.FileNotFolderException;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.NameScope;
 import org.apache.commons.vfs2.RandomAccessContent;
 import org.apache.commons.vfs2.provider.AbstractFileName;
 import org.apache.commons.vfs2.provider.AbstractFileObject;
@@ -378,9 +379,46 @@ public class FtpFileObject extends AbstractFileObject
             {
                 return getLinkDestination().getChildren();
             }
+
+            // List the children of this file
+            doGetChildren();
+
+            // VFS-210
+            if (children == null)
+            {
+                return null;
+            }
+
+            // Hand each child its entry of the listing, so that its type, size
+            // and last modified time are known without another round-trip
+            final FileObject[] childObjects = new FileObject[children.size()];
+            int childNum = -1;
+            Iterator<FTPFile> iterChildren = children.values().iterator();
+            while (iterChildren.hasNext())
+            {
+                childNum++;
+                final FTPFile child = iterChildren.next();
+                final FileObject fo = getFileSystem().resolveFile(
+                    getFileSystem().getFileSystemManager().resolveName(
+                        getName(), UriParser.encode(child.getName()), NameScope.CHILD));
+                ((FtpFileObject) FileObjectUtils.getAbstractFileObject(fo)).setFileInfo(child);
+                childObjects[childNum] = fo;
+            }
+            return childObjects;
         }
+    }
 
-        return null;
+    /**
+     * Sets the info of this file from the listing of its parent. The type known
+     * before is forgotten, the next request takes it from the new info.
+     */
+    private void setFileInfo(final FTPFile fileInfo)
+    {
+        synchronized (getFileSystem())
+        {
+            this.fileInfo = fileInfo;
+            injectType(null);
+        }
     }
 
     /**
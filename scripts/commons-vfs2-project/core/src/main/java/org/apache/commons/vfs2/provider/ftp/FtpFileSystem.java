@@ -18,7 +18,6 @@ package org.apache.commons.vfs2.provider.ftp;
 
 import java.io.IOException;
 import java.util.Collection;
-import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -45,8 +44,8 @@ public class FtpFileSystem extends AbstractFileSystem
 //    private final String username;
 //    private final String password;
 
-    // An idle client
-    private final AtomicReference<FtpClient> idleClient = new AtomicReference<FtpClient>();
+    // The idle and borrowed clients
+    private final FtpClientPool clientPool;
 
     /**
      * @param rootName The root of the file system.
@@ -61,18 +60,37 @@ public class FtpFileSystem extends AbstractFileSystem
         // hostname = rootName.getHostName();
         // port = rootName.getPort();
 
-        idleClient.set(ftpClient);
+        final FtpFileSystemConfigBuilder builder = FtpFileSystemConfigBuilder.getInstance();
+        clientPool = new FtpClientPool(builder.getPoolMaxActive(fileSystemOptions),
+            builder.getPoolMinIdle(fileSystemOptions),
+            builder.getPoolMaxIdle(fileSystemOptions),
+            builder.getPoolIdleTimeout(fileSystemOptions),
+            builder.getPoolMaxWait(fileSystemOptions),
+            builder.getPoolTestOnBorrow(fileSystemOptions))
+        {
+            @Override
+            protected FtpClient createConnection() throws FileSystemException
+            {
+                return createWrapper();
+            }
+
+            @Override
+            protected void destroyConnection(final FtpClient client)
+            {
+                closeConnection(client);
+            }
+        };
+        if (ftpClient != null)
+        {
+            clientPool.addIdleConnection(ftpClient);
+        }
     }
 
     @Override
     protected void doCloseCommunicationLink()
     {
-        FtpClient idle = idleClient.getAndSet(null);
-        // Clean up the connection
-        if (idle != null)
-        {
-            closeConnection(idle);
-        }
+        // Clean up the idle connections
+        clientPool.clear();
     }
 
     /**
@@ -112,14 +130,18 @@ public class FtpFileSystem extends AbstractFileSystem
      */
     public FtpClient getClient() throws FileSystemException
     {
-        FtpClient client = idleClient.getAndSet(null);
-
-        if (client == null || !client.isConnected())
-        {
-            client = new FTPClientWrapper((GenericFileName) getRoot().getName(), getFileSystemOptions());
-        }
+        return clientPool.borrowConnection();
+    }
 
-        return client;
+    /**
+     * Creates a new connection to the server, when no idle client can be reused.
+     * @return The FtpClient.
+     * @throws FileSystemException if an error occurs.
+     * @since 2.1
+     */
+    protected FtpClient createWrapper() throws FileSystemException
+    {
+        return new FTPClientWrapper((GenericFileName) getRootName(), getFileSystemOptions());
     }
 
     /**
@@ -128,12 +150,8 @@ public class FtpFileSystem extends AbstractFileSystem
      */
     public void putClient(final FtpClient client)
     {
-        // Save client for reuse if none is idle.
-        if (!idleClient.compareAndSet(null, client))
-        {
-            // An idle client is already present so close the connection.
-            closeConnection(client);
-        }
+        // Keep the client for reuse, the pool closes it if it is full.
+        clientPool.releaseConnection(client);
     }
 
 
@@ -48,6 +48,21 @@ public final class FtpFileSystemConfigBuilder extends FileSystemConfigBuilder
             FtpFileSystemConfigBuilder.class.getName() + ".SHORT_MONTH_NAMES";
     private static final String ENCODING =
             FtpFileSystemConfigBuilder.class.getName() + ".ENCODING";
+    private static final String POOL_MAX_ACTIVE =
+            FtpFileSystemConfigBuilder.class.getName() + ".POOL_MAX_ACTIVE";
+    private static final String POOL_MIN_IDLE =
+            FtpFileSystemConfigBuilder.class.getName() + ".POOL_MIN_IDLE";
+    private static final String POOL_MAX_IDLE =
+            FtpFileSystemConfigBuilder.class.getName() + ".POOL_MAX_IDLE";
+    private static final String POOL_IDLE_TIMEOUT =
+            FtpFileSystemConfigBuilder.class.getName() + ".POOL_IDLE_TIMEOUT";
+    private static final String POOL_MAX_WAIT =
+            FtpFileSystemConfigBuilder.class.getName() + ".POOL_MAX_WAIT";
+    private static final String POOL_TEST_ON_BORROW =
+            FtpFileSystemConfigBuilder.class.getName() + ".POOL_TEST_ON_BORROW";
+
+    private static final int DEFAULT_POOL_MAX_IDLE = 8;
+    private static final long DEFAULT_POOL_MAX_WAIT = 60000;
 
     private FtpFileSystemConfigBuilder()
     {
@@ -332,4 +347,146 @@ public final class FtpFileSystemConfigBuilder extends FileSystemConfigBuilder
     {
         return  (String) getParam(opts, ENCODING);
     }
+
+    /**
+     * Sets the maximum number of connections, idle or in use, the file system opens to the server.
+     * When all connections are in use, further operations wait for a connection to be released.
+     *
+     * @param opts The FileSystemOptions.
+     * @param maxActive The maximum number of connections.
+     * @since 2.1
+     */
+    public void setPoolMaxActive(FileSystemOptions opts, int maxActive)
+    {
+        setParam(opts, POOL_MAX_ACTIVE, new Integer(maxActive));
+    }
+
+    /**
+     * @param opts The FileSystemOptions.
+     * @return The maximum number of connections, unbounded by default.
+     * @see #setPoolMaxActive
+     * @since 2.1
+     */
+    public int getPoolMaxActive(FileSystemOptions opts)
+    {
+        return getInteger(opts, POOL_MAX_ACTIVE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Sets the number of idle connections which are never closed by the idle timeout.
+     *
+     * @param opts The FileSystemOptions.
+     * @param minIdle The minimum number of idle connections.
+     * @since 2.1
+     */
+    public void setPoolMinIdle(FileSystemOptions opts, int minIdle)
+    {
+        setParam(opts, POOL_MIN_IDLE, new Integer(minIdle));
+    }
+
+    /**
+     * @param opts The FileSystemOptions.
+     * @return The minimum number of idle connections, 0 by default.
+     * @see #setPoolMinIdle
+     * @since 2.1
+     */
+    public int getPoolMinIdle(FileSystemOptions opts)
+    {
+        return getInteger(opts, POOL_MIN_IDLE, 0);
+    }
+
+    /**
+     * Sets the maximum number of idle connections kept open for reuse.
+     *
+     * @param opts The FileSystemOptions.
+     * @param maxIdle The maximum number of idle connections.
+     * @since 2.1
+     */
+    public void setPoolMaxIdle(FileSystemOptions opts, int maxIdle)
+    {
+        setParam(opts, POOL_MAX_IDLE, new Integer(maxIdle));
+    }
+
+    /**
+     * @param opts The FileSystemOptions.
+     * @return The maximum number of idle connections, 8 by default.
+     * @see #setPoolMaxIdle
+     * @since 2.1
+     */
+    public int getPoolMaxIdle(FileSystemOptions opts)
+    {
+        return getInteger(opts, POOL_MAX_IDLE, DEFAULT_POOL_MAX_IDLE);
+    }
+
+    /**
+     * Sets the time after which an idle connection is closed.<br />
+     * If you set the timeout to 0 idle connections are never closed.
+     *
+     * @param opts The FileSystemOptions.
+     * @param idleTimeout The timeout in milliseconds.
+     * @since 2.1
+     */
+    public void setPoolIdleTimeout(FileSystemOptions opts, long idleTimeout)
+    {
+        setParam(opts, POOL_IDLE_TIMEOUT, new Long(idleTimeout));
+    }
+
+    /**
+     * @param opts The FileSystemOptions.
+     * @return The idle timeout in milliseconds, 0 by default.
+     * @see #setPoolIdleTimeout
+     * @since 2.1
+     */
+    public long getPoolIdleTimeout(FileSystemOptions opts)
+    {
+        return getLong(opts, POOL_IDLE_TIMEOUT, 0);
+    }
+
+    /**
+     * Sets how long an operation waits for a connection when the maximum number of
+     * connections are in use.<br />
+     * If you set a negative value the operation waits indefinitely.
+     *
+     * @param opts The FileSystemOptions.
+     * @param maxWait The time to wait in milliseconds.
+     * @since 2.1
+     */
+    public void setPoolMaxWait(FileSystemOptions opts, long maxWait)
+    {
+        setParam(opts, POOL_MAX_WAIT, new Long(maxWait));
+    }
+
+    /**
+     * @param opts The FileSystemOptions.
+     * @return The time to wait in milliseconds, 60 seconds by default.
+     * @see #setPoolMaxWait
+     * @since 2.1
+     */
+    public long getPoolMaxWait(FileSystemOptions opts)
+    {
+        return getLong(opts, POOL_MAX_WAIT, DEFAULT_POOL_MAX_WAIT);
+    }
+
+    /**
+     * Validate idle connections with a NOOP command before they are reused.
+     *
+     * @param opts The FileSystemOptions.
+     * @param testOnBorrow true if idle connections should be validated.
+     * @since 2.1
+     */
+    public void setPoolTestOnBorrow(FileSystemOptions opts, boolean testOnBorrow)
+    {
+        setParam(opts, POOL_TEST_ON_BORROW, testOnBorrow ? Boolean.TRUE : Boolean.FALSE);
+    }
+
+    /**
+     * @param opts The FileSystemOptions.
+     * @return true if idle connections are validated, false by default.
+     * @see #setPoolTestOnBorrow
+     * @since 2.1
+     */
+    public boolean getPoolTestOnBorrow(FileSystemOptions opts)
+    {
+        return getBoolean(opts, POOL_TEST_ON_BORROW, false);
+    }
 }
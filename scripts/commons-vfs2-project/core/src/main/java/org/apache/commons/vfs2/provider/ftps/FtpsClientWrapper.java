@@ -267,4 +267,9 @@ class FtpsClientWrapper implements FtpClient
     {
         return getFtpsClient().getReplyString();
     }
+
+    public boolean sendNoOp() throws IOException
+    {
+        return getFtpsClient().sendNoOp();
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.gzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.commons.vfs2.FileSystemException;
+
+/**
+ * Decompresses gzip data from a checkpoint, that is from the start of a deflate
+ * block with the data before it as dictionary, up to the end of the last member.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+final class GzipCheckpointInputStream extends InputStream
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    private final PushbackInputStream in;
+    private final Inflater inflater = new Inflater(true);
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferLength;
+    private final byte[] single = new byte[1];
+    private boolean eof;
+
+    /**
+     * Creates the stream.
+     * @param in The compressed data, positioned at the checkpoint.
+     * @param window The decompressed data before the checkpoint.
+     */
+    GzipCheckpointInputStream(final InputStream in, final byte[] window)
+    {
+        this.in = new PushbackInputStream(in, BUFFER_SIZE);
+        if (window.length > 0)
+        {
+            inflater.setDictionary(window);
+        }
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        final int n = read(single, 0, 1);
+        return n < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+
+        while (!eof)
+        {
+            final int n;
+            try
+            {
+                n = inflater.inflate(b, off, len);
+            }
+            catch (final DataFormatException e)
+            {
+                throw new FileSystemException("vfs.provider.gzip/bad-data.error", e);
+            }
+            if (n > 0)
+            {
+                return n;
+            }
+
+            if (inflater.finished())
+            {
+                nextMember();
+            }
+            else if (inflater.needsInput())
+            {
+                bufferLength = in.read(buffer, 0, buffer.length);
+                if (bufferLength < 0)
+                {
+                    throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+                }
+                inflater.setInput(buffer, 0, bufferLength);
+            }
+            else
+            {
+                // a dictionary is needed, which raw deflate data never asks for
+                throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Skips the trailer of the member which ended, and the header of the next one.
+     */
+    private void nextMember() throws IOException
+    {
+        final int remaining = inflater.getRemaining();
+        if (remaining > 0)
+        {
+            in.unread(buffer, bufferLength - remaining, remaining);
+        }
+
+        // the CRC and size of the member
+        for (int i = 0; i < 8; i++)
+        {
+            if (in.read() < 0)
+            {
+                throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+            }
+        }
+
+        if (GzipScanner.readHeader(in, false))
+        {
+            inflater.reset();
+        }
+        else
+        {
+            eof = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        inflater.end();
+        in.close();
+    }
+}
@@ -22,9 +22,11 @@ import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.RandomAccessContent;
 import org.apache.commons.vfs2.provider.AbstractFileName;
 import org.apache.commons.vfs2.provider.compressed.CompressedFileFileObject;
 import org.apache.commons.vfs2.provider.compressed.CompressedFileFileSystem;
+import org.apache.commons.vfs2.util.RandomAccessMode;
 
 /**
  * the gzip file.
@@ -45,6 +47,17 @@ public class GzipFileObject extends CompressedFileFileObject
         return new GZIPInputStream(is);
     }
 
+    /**
+     * Returns read only random access to the decompressed content.  The first
+     * random access decompresses the whole file to index it.
+     */
+    @Override
+    protected RandomAccessContent doGetRandomAccessContent(final RandomAccessMode mode) throws Exception
+    {
+        final GzipIndex index = ((GzipFileSystem) getFileSystem()).getIndex(getContainer());
+        return new GzipRandomAccessContent(getContainer(), index);
+    }
+
     @Override
     protected OutputStream doGetOutputStream(boolean bAppend) throws Exception
     {
@@ -24,6 +24,7 @@ import org.apache.commons.vfs2.Capability;
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemConfigBuilder;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemOptions;
 import org.apache.commons.vfs2.provider.compressed.CompressedFileFileProvider;
@@ -46,6 +47,7 @@ public class GzipFileProvider extends CompressedFileFileProvider
         Capability.LIST_CHILDREN,
         Capability.WRITE_CONTENT,
         Capability.READ_CONTENT,
+        Capability.RANDOM_ACCESS_READ,
         Capability.URI,
         Capability.COMPRESS
     }));
@@ -67,4 +69,10 @@ public class GzipFileProvider extends CompressedFileFileProvider
     {
         return capabilities;
     }
+
+    @Override
+    public FileSystemConfigBuilder getConfigBuilder()
+    {
+        return GzipFileSystemConfigBuilder.getInstance();
+    }
 }
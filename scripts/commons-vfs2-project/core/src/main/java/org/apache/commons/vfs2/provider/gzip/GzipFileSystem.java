@@ -16,6 +16,8 @@
  */
 package org.apache.commons.vfs2.provider.gzip;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Collection;
 
 import org.apache.commons.vfs2.Capability;
@@ -33,6 +35,9 @@ import org.apache.commons.vfs2.provider.compressed.CompressedFileFileSystem;
  */
 public class GzipFileSystem extends CompressedFileFileSystem
 {
+    /** The index for random access, built on the first random access. */
+    private GzipIndex index;
+
     protected GzipFileSystem(FileName rootName, FileObject parentLayer, FileSystemOptions fileSystemOptions)
     {
         super(rootName, parentLayer, fileSystemOptions);
@@ -44,6 +49,41 @@ public class GzipFileSystem extends CompressedFileFileSystem
         return new GzipFileObject(name, getParentLayer(), this);
     }
 
+    /**
+     * Returns the index of the gzip file, decompressing it all when there is no
+     * index of its current content yet.
+     * @param container The gzip file.
+     * @return The index of its current content.
+     * @throws IOException if the gzip file can not be read.
+     * @since 2.1
+     */
+    public synchronized GzipIndex getIndex(final FileObject container) throws IOException
+    {
+        if (index != null && !index.isCurrent(container))
+        {
+            index.delete();
+            index = null;
+        }
+        if (index == null)
+        {
+            final int span = GzipFileSystemConfigBuilder.getInstance().getCheckpointSpan(getFileSystemOptions());
+            final File windowFile = getContext().getTemporaryFileStore().allocateFile(
+                container.getName().getBaseName() + ".idx");
+            index = GzipIndex.build(container, span, windowFile);
+        }
+        return index;
+    }
+
+    @Override
+    protected void doCloseCommunicationLink()
+    {
+        if (index != null)
+        {
+            index.delete();
+            index = null;
+        }
+    }
+
     @Override
     protected void addCapabilities(final Collection<Capability> caps)
     {
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.gzip;
+
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemConfigBuilder;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Config Builder for the Gzip file system.
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public final class GzipFileSystemConfigBuilder extends FileSystemConfigBuilder
+{
+    /** checkpoint span key. */
+    private static final String CHECKPOINT_SPAN_KEY = "checkpointspan";
+
+    /** The default checkpoint span, 1MB. */
+    private static final int DEFAULT_CHECKPOINT_SPAN = 1024 * 1024;
+
+    /** config builder SINGLETON. */
+    private static final GzipFileSystemConfigBuilder SINGLETON = new GzipFileSystemConfigBuilder();
+
+    /**
+     * Constructor
+     */
+    private GzipFileSystemConfigBuilder()
+    {
+        super("gz.");
+    }
+
+    /**
+     * @return the config builder SINGLETON
+     */
+    public static GzipFileSystemConfigBuilder getInstance()
+    {
+        return SINGLETON;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<? extends FileSystem> getConfigClass()
+    {
+        return GzipFileSystem.class;
+    }
+
+    /**
+     * Sets the number of decompressed bytes between the checkpoints of the index
+     * used for random access.
+     * <p>
+     * The first random access to a gzip file decompresses it all and keeps a
+     * checkpoint about every span bytes, from which later reads decompress. Each
+     * checkpoint keeps 32K of data, compressed, in a temporary file. The default
+     * is 1MB.
+     *
+     * @param opts The FileSystem options.
+     * @param span The number of bytes.
+     */
+    public void setCheckpointSpan(FileSystemOptions opts, int span)
+    {
+        setParam(opts, CHECKPOINT_SPAN_KEY, new Integer(span));
+    }
+
+    /**
+     * @param opts The FileSystem options.
+     * @return The number of decompressed bytes between checkpoints.
+     * @see #setCheckpointSpan
+     */
+    public int getCheckpointSpan(FileSystemOptions opts)
+    {
+        return getInteger(opts, CHECKPOINT_SPAN_KEY, DEFAULT_CHECKPOINT_SPAN);
+    }
+}
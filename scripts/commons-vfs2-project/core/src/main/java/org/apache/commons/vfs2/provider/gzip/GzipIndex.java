@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.gzip;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+
+/**
+ * The places where the decompression of a gzip file can be restarted.
+ * <p>
+ * A checkpoint is kept about every span of decompressed bytes: the position of a
+ * deflate block in the compressed data, the position of its data in the
+ * decompressed data, and the 32K of decompressed data before it. The windows are
+ * kept compressed in a file, the positions in memory.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public final class GzipIndex
+{
+    private final long containerSize;
+    private final long containerLastModified;
+    private final File windowFile;
+
+    private long length;
+    private final List<long[]> checkpoints = new ArrayList<long[]>();
+
+    private GzipIndex(final long containerSize, final long containerLastModified, final File windowFile)
+    {
+        this.containerSize = containerSize;
+        this.containerLastModified = containerLastModified;
+        this.windowFile = windowFile;
+    }
+
+    /**
+     * Decompresses a gzip file to build its index.
+     * @param container The gzip file.
+     * @param span The number of decompressed bytes between checkpoints.
+     * @param windowFile The file to keep the windows in.
+     * @return The index.
+     * @throws IOException if an error occurs reading the file or writing the windows.
+     */
+    static GzipIndex build(final FileObject container, final int span, final File windowFile)
+        throws IOException
+    {
+        final FileContent content = container.getContent();
+        final GzipIndex index = new GzipIndex(content.getSize(), getLastModified(container), windowFile);
+
+        windowFile.getParentFile().mkdirs();
+        final CountingOutputStream windows = new CountingOutputStream(
+            new BufferedOutputStream(new FileOutputStream(windowFile)));
+        final InputStream in = content.getInputStream();
+        try
+        {
+            final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try
+            {
+                index.length = new GzipScanner(in).scan(new GzipScanner.BlockListener()
+                {
+                    private long next;
+
+                    public void blockStart(final GzipScanner scanner) throws IOException
+                    {
+                        if (!scanner.isByteAligned() || scanner.getUncompressedOffset() < next)
+                        {
+                            return;
+                        }
+
+                        final byte[] window = scanner.getWindow();
+                        final long windowOffset = windows.count;
+                        deflater.reset();
+                        final DeflaterOutputStream out = new DeflaterOutputStream(windows, deflater);
+                        out.write(window);
+                        out.finish();
+
+                        index.checkpoints.add(new long[]
+                        {
+                            scanner.getCompressedOffset(),
+                            scanner.getUncompressedOffset(),
+                            windowOffset,
+                            windows.count - windowOffset,
+                            window.length
+                        });
+                        next = scanner.getUncompressedOffset() + span;
+                    }
+                });
+            }
+            finally
+            {
+                deflater.end();
+            }
+        }
+        finally
+        {
+            in.close();
+            windows.close();
+        }
+
+        return index;
+    }
+
+    private static long getLastModified(final FileObject container)
+    {
+        try
+        {
+            return container.getContent().getLastModifiedTime();
+        }
+        catch (final FileSystemException e)
+        {
+            // the last modified time is not supported
+            return -1;
+        }
+    }
+
+    /**
+     * Returns true if the gzip file did not change since the index was built.
+     * @param container The gzip file.
+     * @return true if the index can be used.
+     * @throws FileSystemException if an error occurs.
+     */
+    boolean isCurrent(final FileObject container) throws FileSystemException
+    {
+        return container.getContent().getSize() == containerSize
+            && getLastModified(container) == containerLastModified;
+    }
+
+    /**
+     * Deletes the file of the windows.
+     */
+    void delete()
+    {
+        windowFile.delete();
+    }
+
+    /**
+     * @return The size of the decompressed data.
+     */
+    public long getLength()
+    {
+        return length;
+    }
+
+    /**
+     * @return The number of checkpoints.
+     */
+    public int getCheckpointCount()
+    {
+        return checkpoints.size();
+    }
+
+    /**
+     * Returns the last checkpoint at or before a position.
+     * @param pos The position in the decompressed data.
+     * @return The index of the checkpoint.
+     */
+    int getCheckpoint(final long pos)
+    {
+        int low = 0;
+        int high = checkpoints.size() - 1;
+        while (low < high)
+        {
+            final int mid = (low + high + 1) >>> 1;
+            if (getUncompressedOffset(mid) <= pos)
+            {
+                low = mid;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param checkpoint The index of the checkpoint.
+     * @return The position of the checkpoint in the compressed data.
+     */
+    long getCompressedOffset(final int checkpoint)
+    {
+        return checkpoints.get(checkpoint)[0];
+    }
+
+    /**
+     * @param checkpoint The index of the checkpoint.
+     * @return The position of the checkpoint in the decompressed data.
+     */
+    long getUncompressedOffset(final int checkpoint)
+    {
+        return checkpoints.get(checkpoint)[1];
+    }
+
+    /**
+     * Reads the decompressed data before a checkpoint.
+     * @param checkpoint The index of the checkpoint.
+     * @return The window, at most 32K.
+     * @throws IOException if an error occurs reading the window.
+     */
+    byte[] getWindow(final int checkpoint) throws IOException
+    {
+        final long[] entry = checkpoints.get(checkpoint);
+        final byte[] compressed = new byte[(int) entry[3]];
+        final RandomAccessFile file = new RandomAccessFile(windowFile, "r");
+        try
+        {
+            file.seek(entry[2]);
+            file.readFully(compressed);
+        }
+        finally
+        {
+            file.close();
+        }
+
+        final byte[] window = new byte[(int) entry[4]];
+        final DataInputStream in = new DataInputStream(
+            new InflaterInputStream(new ByteArrayInputStream(compressed)));
+        try
+        {
+            in.readFully(window);
+        }
+        finally
+        {
+            in.close();
+        }
+        return window;
+    }
+
+    /**
+     * Counts the bytes written.
+     */
+    private static final class CountingOutputStream extends OutputStream
+    {
+        private final OutputStream out;
+        private long count;
+
+        private CountingOutputStream(final OutputStream out)
+        {
+            this.out = out;
+        }
+
+        @Override
+        public void write(final int b) throws IOException
+        {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException
+        {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            out.close();
+        }
+    }
+}
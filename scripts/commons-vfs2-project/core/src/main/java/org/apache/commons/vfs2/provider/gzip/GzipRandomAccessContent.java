@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.gzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.vfs2.Capability;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.RandomAccessContent;
+import org.apache.commons.vfs2.provider.AbstractBlockRandomAccessContent;
+import org.apache.commons.vfs2.util.RandomAccessMode;
+
+/**
+ * Reads the decompressed content of a gzip file in random order.
+ * <p>
+ * A read decompresses from the checkpoint before it, or goes on with the current
+ * decompression when it is ahead of the last read and no checkpoint is closer.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+final class GzipRandomAccessContent extends AbstractBlockRandomAccessContent
+{
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int MAX_BLOCKS = 16;
+
+    private final FileObject container;
+    private final GzipIndex index;
+
+    /** The current decompression, null if none. */
+    private InputStream stream;
+    private RandomAccessContent containerContent;
+
+    /** The position of the current decompression in the decompressed data. */
+    private long position;
+
+    private final byte[] skipBuffer = new byte[8192];
+
+    GzipRandomAccessContent(final FileObject container, final GzipIndex index)
+    {
+        super(RandomAccessMode.READ, BLOCK_SIZE, MAX_BLOCKS, 0);
+        this.container = container;
+        this.index = index;
+    }
+
+    public long length() throws IOException
+    {
+        return index.getLength();
+    }
+
+    @Override
+    protected int readRange(final long start, final byte[] buffer, final int off, final int len)
+        throws IOException
+    {
+        if (start >= index.getLength())
+        {
+            return 0;
+        }
+
+        final int checkpoint = index.getCheckpoint(start);
+        if (stream == null || start < position || index.getUncompressedOffset(checkpoint) > position)
+        {
+            open(checkpoint);
+        }
+
+        while (position < start)
+        {
+            final int n = stream.read(skipBuffer, 0, (int) Math.min(skipBuffer.length, start - position));
+            if (n < 0)
+            {
+                return 0;
+            }
+            position += n;
+        }
+
+        int count = 0;
+        while (count < len)
+        {
+            final int n = stream.read(buffer, off + count, len - count);
+            if (n < 0)
+            {
+                break;
+            }
+            count += n;
+        }
+        position += count;
+        return count;
+    }
+
+    /**
+     * Starts decompressing at a checkpoint.
+     */
+    private void open(final int checkpoint) throws IOException
+    {
+        closeStream();
+
+        final long offset = index.getCompressedOffset(checkpoint);
+        final InputStream in;
+        if (container.getFileSystem().hasCapability(Capability.RANDOM_ACCESS_READ))
+        {
+            containerContent = container.getContent().getRandomAccessContent(RandomAccessMode.READ);
+            containerContent.seek(offset);
+            in = containerContent.getInputStream();
+        }
+        else
+        {
+            in = container.getContent().getInputStream();
+            long skipped = 0;
+            while (skipped < offset)
+            {
+                final long n = in.skip(offset - skipped);
+                if (n <= 0)
+                {
+                    in.close();
+                    throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+                }
+                skipped += n;
+            }
+        }
+
+        stream = new GzipCheckpointInputStream(in, index.getWindow(checkpoint));
+        position = index.getUncompressedOffset(checkpoint);
+    }
+
+    private void closeStream() throws IOException
+    {
+        try
+        {
+            if (stream != null)
+            {
+                stream.close();
+            }
+        }
+        finally
+        {
+            stream = null;
+            if (containerContent != null)
+            {
+                containerContent.close();
+                containerContent = null;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        super.close();
+        closeStream();
+    }
+}
@@ -0,0 +1,685 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.gzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.apache.commons.vfs2.FileSystemException;
+
+/**
+ * Decompresses gzip data to find the places where decompression can be restarted.
+ * <p>
+ * Deflate data can only be restarted at the start of a block, with the last 32K of
+ * the decompressed data as dictionary. <code>java.util.zip.Inflater</code> does not
+ * tell where the blocks start, so this class decodes the deflate format (RFC 1951)
+ * itself. It keeps the sliding window only, not the decompressed data, and tells a
+ * listener about the start of each block.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+final class GzipScanner
+{
+    /** The size of the deflate window. */
+    static final int WINDOW_SIZE = 32768;
+
+    private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+
+    private static final int MAX_BITS = 15;
+
+    /** The number of bits decoded with a single table lookup. */
+    private static final int FAST_BITS = 9;
+
+    private static final int FHCRC = 0x02;
+    private static final int FEXTRA = 0x04;
+    private static final int FNAME = 0x08;
+    private static final int FCOMMENT = 0x10;
+
+    private static final int[] LENGTH_BASE =
+    {
+        3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+        35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258
+    };
+
+    private static final int[] LENGTH_EXTRA =
+    {
+        0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+        3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0
+    };
+
+    private static final int[] DISTANCE_BASE =
+    {
+        1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193,
+        257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145,
+        8193, 12289, 16385, 24577
+    };
+
+    private static final int[] DISTANCE_EXTRA =
+    {
+        0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6,
+        7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13
+    };
+
+    /** The order of the code length code lengths. */
+    private static final int[] CODE_LENGTH_ORDER =
+    {
+        16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15
+    };
+
+    private static final Huffman FIXED_LENGTH_CODE = new Huffman(288);
+    private static final Huffman FIXED_DISTANCE_CODE = new Huffman(30);
+
+    static
+    {
+        final int[] lengths = new int[288];
+        Arrays.fill(lengths, 0, 144, 8);
+        Arrays.fill(lengths, 144, 256, 9);
+        Arrays.fill(lengths, 256, 280, 7);
+        Arrays.fill(lengths, 280, 288, 8);
+        FIXED_LENGTH_CODE.construct(lengths, 0, 288);
+
+        Arrays.fill(lengths, 0, 30, 5);
+        FIXED_DISTANCE_CODE.construct(lengths, 0, 30);
+    }
+
+    /**
+     * Receives the start of the deflate blocks.
+     */
+    interface BlockListener
+    {
+        /**
+         * Called before the header of each block is read.
+         * @param scanner The scanner, positioned at the start of the block.
+         * @throws IOException if an error occurs.
+         */
+        void blockStart(GzipScanner scanner) throws IOException;
+    }
+
+    private final InputStream in;
+    private final byte[] input = new byte[8192];
+    private int inputPos;
+    private int inputLength;
+
+    /** The number of bytes read from the stream before the input buffer. */
+    private long inputBase;
+
+    private int bitBuffer;
+    private int bitCount;
+
+    private final byte[] window = new byte[WINDOW_SIZE];
+    private long outCount;
+
+    private final Huffman codeLengthCode = new Huffman(19);
+    private final Huffman lengthCode = new Huffman(288);
+    private final Huffman distanceCode = new Huffman(30);
+    private final int[] lengths = new int[286 + 30];
+
+    /**
+     * Creates a scanner.
+     * @param in The gzip data.
+     */
+    GzipScanner(final InputStream in)
+    {
+        this.in = in;
+    }
+
+    /**
+     * Decompresses all the members of the gzip data.
+     * @param listener Told about the start of each block.
+     * @return The size of the decompressed data.
+     * @throws IOException if the data is not gzip data, or on error reading it.
+     */
+    long scan(final BlockListener listener) throws IOException
+    {
+        final InputStream aligned = new InputStream()
+        {
+            @Override
+            public int read() throws IOException
+            {
+                return readAligned();
+            }
+        };
+
+        if (!readHeader(aligned, true))
+        {
+            throw new FileSystemException("vfs.provider.gzip/not-a-gzip-file.error");
+        }
+        do
+        {
+            inflate(listener);
+
+            // skip the CRC and size of the member
+            dropBits();
+            for (int i = 0; i < 8; i++)
+            {
+                alignedByte();
+            }
+        }
+        while (readHeader(aligned, false));
+
+        return outCount;
+    }
+
+    /**
+     * Returns true if the next block starts on a byte boundary.
+     */
+    boolean isByteAligned()
+    {
+        return (bitCount & 7) == 0;
+    }
+
+    /**
+     * Returns the position in the gzip data of the next byte, when byte aligned.
+     */
+    long getCompressedOffset()
+    {
+        return inputBase + inputPos - (bitCount >> 3);
+    }
+
+    /**
+     * Returns the number of bytes decompressed so far.
+     */
+    long getUncompressedOffset()
+    {
+        return outCount;
+    }
+
+    /**
+     * Returns the last 32K of the decompressed data, or less at the start of the data.
+     */
+    byte[] getWindow()
+    {
+        final int size = (int) Math.min(outCount, WINDOW_SIZE);
+        final byte[] copy = new byte[size];
+        final int start = (int) (outCount - size) & WINDOW_MASK;
+        final int first = Math.min(size, WINDOW_SIZE - start);
+        System.arraycopy(window, start, copy, 0, first);
+        System.arraycopy(window, 0, copy, first, size - first);
+        return copy;
+    }
+
+    /**
+     * Reads the header of a gzip member.
+     * @param in The stream, positioned at the header.
+     * @param first true for the first member, which must exist.
+     * @return true if a member follows, false at the end of the data.
+     * @throws IOException if the header is not valid.
+     */
+    static boolean readHeader(final InputStream in, final boolean first) throws IOException
+    {
+        final int id1 = in.read();
+        if (id1 < 0 && !first)
+        {
+            return false;
+        }
+        final int id2 = in.read();
+        if (id1 != 0x1f || id2 != 0x8b)
+        {
+            if (first)
+            {
+                throw new FileSystemException("vfs.provider.gzip/not-a-gzip-file.error");
+            }
+
+            // trailing garbage, which GZIPInputStream ignores as well
+            return false;
+        }
+        if (in.read() != 8)
+        {
+            throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+        }
+
+        final int flags = readByte(in);
+        for (int i = 0; i < 6; i++)
+        {
+            // time, extra flags and OS
+            readByte(in);
+        }
+        if ((flags & FEXTRA) != 0)
+        {
+            final int length = readByte(in) | readByte(in) << 8;
+            for (int i = 0; i < length; i++)
+            {
+                readByte(in);
+            }
+        }
+        if ((flags & FNAME) != 0)
+        {
+            while (readByte(in) != 0)
+            {
+            }
+        }
+        if ((flags & FCOMMENT) != 0)
+        {
+            while (readByte(in) != 0)
+            {
+            }
+        }
+        if ((flags & FHCRC) != 0)
+        {
+            readByte(in);
+            readByte(in);
+        }
+        return true;
+    }
+
+    private static int readByte(final InputStream in) throws IOException
+    {
+        final int b = in.read();
+        if (b < 0)
+        {
+            throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+        }
+        return b;
+    }
+
+    /**
+     * Decompresses the blocks of a member.
+     */
+    private void inflate(final BlockListener listener) throws IOException
+    {
+        boolean last;
+        do
+        {
+            listener.blockStart(this);
+
+            last = bits(1) == 1;
+            final int type = bits(2);
+            if (type == 0)
+            {
+                stored();
+            }
+            else if (type == 1)
+            {
+                codes(FIXED_LENGTH_CODE, FIXED_DISTANCE_CODE);
+            }
+            else if (type == 2)
+            {
+                dynamic();
+            }
+            else
+            {
+                throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+            }
+        }
+        while (!last);
+    }
+
+    /**
+     * Copies a stored block.
+     */
+    private void stored() throws IOException
+    {
+        dropBits();
+        final int length = alignedByte() | alignedByte() << 8;
+        final int check = alignedByte() | alignedByte() << 8;
+        if (length != (~check & 0xffff))
+        {
+            throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+        }
+
+        for (int i = 0; i < length; i++)
+        {
+            window[(int) outCount & WINDOW_MASK] = (byte) alignedByte();
+            outCount++;
+        }
+    }
+
+    /**
+     * Reads the codes of a dynamic block and decodes it.
+     */
+    private void dynamic() throws IOException
+    {
+        final int lengthCount = bits(5) + 257;
+        final int distanceCount = bits(5) + 1;
+        final int codeLengthCount = bits(4) + 4;
+        if (lengthCount > 286 || distanceCount > 30)
+        {
+            throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+        }
+
+        Arrays.fill(lengths, 0, 19, 0);
+        for (int i = 0; i < codeLengthCount; i++)
+        {
+            lengths[CODE_LENGTH_ORDER[i]] = bits(3);
+        }
+        if (codeLengthCode.construct(lengths, 0, 19) != 0)
+        {
+            throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+        }
+
+        final int count = lengthCount + distanceCount;
+        int index = 0;
+        while (index < count)
+        {
+            int symbol = decode(codeLengthCode);
+            if (symbol < 16)
+            {
+                lengths[index++] = symbol;
+                continue;
+            }
+
+            int length = 0;
+            if (symbol == 16)
+            {
+                if (index == 0)
+                {
+                    throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+                }
+                length = lengths[index - 1];
+                symbol = 3 + bits(2);
+            }
+            else if (symbol == 17)
+            {
+                symbol = 3 + bits(3);
+            }
+            else
+            {
+                symbol = 11 + bits(7);
+            }
+            if (index + symbol > count)
+            {
+                throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+            }
+            while (symbol-- > 0)
+            {
+                lengths[index++] = length;
+            }
+        }
+
+        if (lengths[256] == 0)
+        {
+            // no end of block code
+            throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+        }
+
+        // incomplete codes are only allowed with a single code
+        int left = lengthCode.construct(lengths, 0, lengthCount);
+        if (left < 0 || left > 0 && lengthCount - lengthCode.count[0] != 1)
+        {
+            throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+        }
+        left = distanceCode.construct(lengths, lengthCount, distanceCount);
+        if (left < 0 || left > 0 && distanceCount - distanceCode.count[0] != 1)
+        {
+            throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+        }
+
+        codes(lengthCode, distanceCode);
+    }
+
+    /**
+     * Decodes the literals and matches of a block up to its end.
+     */
+    private void codes(final Huffman literals, final Huffman distances) throws IOException
+    {
+        for (;;)
+        {
+            int symbol = decode(literals);
+            if (symbol < 256)
+            {
+                window[(int) outCount & WINDOW_MASK] = (byte) symbol;
+                outCount++;
+                continue;
+            }
+            if (symbol == 256)
+            {
+                return;
+            }
+
+            symbol -= 257;
+            if (symbol >= 29)
+            {
+                throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+            }
+            final int length = LENGTH_BASE[symbol] + bits(LENGTH_EXTRA[symbol]);
+
+            symbol = decode(distances);
+            if (symbol >= 30)
+            {
+                throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+            }
+            final int distance = DISTANCE_BASE[symbol] + bits(DISTANCE_EXTRA[symbol]);
+            if (distance > outCount)
+            {
+                throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+            }
+
+            int to = (int) outCount & WINDOW_MASK;
+            int from = (to - distance) & WINDOW_MASK;
+            for (int i = 0; i < length; i++)
+            {
+                window[to] = window[from];
+                to = (to + 1) & WINDOW_MASK;
+                from = (from + 1) & WINDOW_MASK;
+            }
+            outCount += length;
+        }
+    }
+
+    /**
+     * Decodes a symbol, with a table lookup for the short codes.
+     */
+    private int decode(final Huffman code) throws IOException
+    {
+        while (bitCount < FAST_BITS)
+        {
+            final int b = nextByte();
+            if (b < 0)
+            {
+                break;
+            }
+            bitBuffer |= b << bitCount;
+            bitCount += 8;
+        }
+
+        final int entry = code.fast[bitBuffer & ((1 << FAST_BITS) - 1)];
+        final int length = entry >>> 16;
+        if (entry != 0 && length <= bitCount)
+        {
+            bitBuffer >>>= length;
+            bitCount -= length;
+            return entry & 0xffff;
+        }
+
+        // a long code, decoded a bit at a time
+        int value = 0;
+        int first = 0;
+        int index = 0;
+        for (int len = 1; len <= MAX_BITS; len++)
+        {
+            value |= bits(1);
+            final int count = code.count[len];
+            if (value - count < first)
+            {
+                return code.symbol[index + value - first];
+            }
+            index += count;
+            first += count;
+            first <<= 1;
+            value <<= 1;
+        }
+        throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+    }
+
+    /**
+     * Reads bits, the first bit read is the lowest.
+     */
+    private int bits(final int need) throws IOException
+    {
+        while (bitCount < need)
+        {
+            final int b = nextByte();
+            if (b < 0)
+            {
+                throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+            }
+            bitBuffer |= b << bitCount;
+            bitCount += 8;
+        }
+
+        final int value = bitBuffer & ((1 << need) - 1);
+        bitBuffer >>>= need;
+        bitCount -= need;
+        return value;
+    }
+
+    /**
+     * Skips the bits up to the next byte boundary.
+     */
+    private void dropBits()
+    {
+        final int drop = bitCount & 7;
+        bitBuffer >>>= drop;
+        bitCount -= drop;
+    }
+
+    /**
+     * Reads a byte once byte aligned, -1 at the end of the data.
+     */
+    private int readAligned() throws IOException
+    {
+        if (bitCount >= 8)
+        {
+            final int b = bitBuffer & 0xff;
+            bitBuffer >>>= 8;
+            bitCount -= 8;
+            return b;
+        }
+        return nextByte();
+    }
+
+    private int alignedByte() throws IOException
+    {
+        final int b = readAligned();
+        if (b < 0)
+        {
+            throw new FileSystemException("vfs.provider.gzip/bad-data.error");
+        }
+        return b;
+    }
+
+    private int nextByte() throws IOException
+    {
+        if (inputPos == inputLength)
+        {
+            inputBase += inputLength;
+            inputPos = 0;
+            inputLength = 0;
+            final int n = in.read(input, 0, input.length);
+            if (n <= 0)
+            {
+                return -1;
+            }
+            inputLength = n;
+        }
+        return input[inputPos++] & 0xff;
+    }
+
+    /**
+     * A canonical Huffman code.
+     */
+    private static final class Huffman
+    {
+        /** The number of codes of each length. */
+        private final int[] count = new int[MAX_BITS + 1];
+
+        /** The symbols, ordered by code. */
+        private final int[] symbol;
+
+        /** (length << 16) | symbol, by the next FAST_BITS bits, 0 for longer codes. */
+        private final int[] fast = new int[1 << FAST_BITS];
+
+        private final int[] offsets = new int[MAX_BITS + 1];
+
+        private Huffman(final int symbols)
+        {
+            symbol = new int[symbols];
+        }
+
+        /**
+         * Builds the code from the code lengths.
+         * @return 0 for a complete code, a negative value for an over-subscribed code,
+         * a positive value for an incomplete code.
+         */
+        private int construct(final int[] lengths, final int offset, final int n)
+        {
+            Arrays.fill(count, 0);
+            for (int i = 0; i < n; i++)
+            {
+                count[lengths[offset + i]]++;
+            }
+            Arrays.fill(fast, 0);
+            if (count[0] == n)
+            {
+                return 0;
+            }
+
+            int left = 1;
+            for (int len = 1; len <= MAX_BITS; len++)
+            {
+                left <<= 1;
+                left -= count[len];
+                if (left < 0)
+                {
+                    return left;
+                }
+            }
+
+            offsets[1] = 0;
+            for (int len = 1; len < MAX_BITS; len++)
+            {
+                offsets[len + 1] = offsets[len] + count[len];
+            }
+            for (int i = 0; i < n; i++)
+            {
+                final int len = lengths[offset + i];
+                if (len != 0)
+                {
+                    symbol[offsets[len]++] = i;
+                }
+            }
+
+            int code = 0;
+            int index = 0;
+            for (int len = 1; len <= FAST_BITS; len++)
+            {
+                for (int i = 0; i < count[len]; i++)
+                {
+                    final int entry = len << 16 | symbol[index++];
+                    for (int j = reverse(code, len); j < fast.length; j += 1 << len)
+                    {
+                        fast[j] = entry;
+                    }
+                    code++;
+                }
+                code <<= 1;
+            }
+            return left;
+        }
+
+        private static int reverse(final int code, final int length)
+        {
+            int reversed = 0;
+            for (int i = 0; i < length; i++)
+            {
+                reversed = reversed << 1 | (code >>> i & 1);
+            }
+            return reversed;
+        }
+    }
+}
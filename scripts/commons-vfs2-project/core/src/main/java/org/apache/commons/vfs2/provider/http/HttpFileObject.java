@@ -20,7 +20,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 
+import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HeaderElement;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpMethod;
 import org.apache.commons.httpclient.URIException;
@@ -33,6 +35,8 @@ import org.apache.commons.vfs2.FileNotFoundException;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileType;
 import org.apache.commons.vfs2.RandomAccessContent;
+import org.apache.commons.vfs2.operations.checksum.FileChecksum;
+import org.apache.commons.vfs2.operations.checksum.ServerChecksum;
 import org.apache.commons.vfs2.provider.AbstractFileName;
 import org.apache.commons.vfs2.provider.AbstractFileObject;
 import org.apache.commons.vfs2.provider.URLFileName;
@@ -45,7 +49,7 @@ import org.apache.commons.vfs2.util.RandomAccessMode;
  * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
  * @todo status codes
  */
-public class HttpFileObject extends AbstractFileObject
+public class HttpFileObject extends AbstractFileObject implements ServerChecksum
 {
     private final HttpFileSystem fileSystem;
     private final String urlCharset;
@@ -222,6 +226,72 @@ public class HttpFileObject extends AbstractFileObject
         return method;
     }
 
+    /**
+     * Asks the server for the digest of the content, as of RFC 3230, or its MD5
+     * in the Content-MD5 header.
+     * @since 2.1
+     */
+    public byte[] getServerChecksum(final String algorithm) throws FileSystemException
+    {
+        final String digestName;
+        if (FileChecksum.SHA_256.equals(algorithm))
+        {
+            digestName = "SHA-256";
+        }
+        else if (FileChecksum.SHA_1.equals(algorithm))
+        {
+            digestName = "SHA";
+        }
+        else if (FileChecksum.MD5.equals(algorithm))
+        {
+            digestName = "MD5";
+        }
+        else
+        {
+            return null;
+        }
+
+        final HeadMethod headMethod = new HeadMethod();
+        try
+        {
+            setupMethod(headMethod);
+            headMethod.setRequestHeader("Want-Digest", digestName);
+            final int status = fileSystem.getClient().executeMethod(headMethod);
+            if (status != HttpURLConnection.HTTP_OK)
+            {
+                return null;
+            }
+
+            final Header digest = headMethod.getResponseHeader("Digest");
+            if (digest != null)
+            {
+                final HeaderElement[] elements = digest.getElements();
+                for (int i = 0; i < elements.length; i++)
+                {
+                    if (digestName.equalsIgnoreCase(elements[i].getName()) && elements[i].getValue() != null)
+                    {
+                        return Base64.decodeBase64(elements[i].getValue().getBytes("US-ASCII"));
+                    }
+                }
+            }
+
+            final Header contentMd5 = headMethod.getResponseHeader("Content-MD5");
+            if (contentMd5 != null && "MD5".equals(digestName))
+            {
+                return Base64.decodeBase64(contentMd5.getValue().trim().getBytes("US-ASCII"));
+            }
+            return null;
+        }
+        catch (final IOException e)
+        {
+            throw new FileSystemException("vfs.provider.http/head.error", getName(), e);
+        }
+        finally
+        {
+            headMethod.releaseConnection();
+        }
+    }
+
     /*
     protected Map doGetAttributes() throws Exception
     {
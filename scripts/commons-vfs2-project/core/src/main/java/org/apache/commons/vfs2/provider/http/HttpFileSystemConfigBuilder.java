@@ -38,6 +38,18 @@ public class HttpFileSystemConfigBuilder extends FileSystemConfigBuilder
 
     private static final String OPTION_NAME_PREEMPTIVE_AUTHENTICATION = "preemptiveAuth";
 
+    private static final String RANDOM_ACCESS_BLOCK_SIZE = "randomAccessBlockSize";
+
+    private static final String RANDOM_ACCESS_MAX_BLOCKS = "randomAccessMaxBlocks";
+
+    private static final String RANDOM_ACCESS_PREFETCH_BLOCKS = "randomAccessPrefetchBlocks";
+
+    private static final int DEFAULT_RANDOM_ACCESS_BLOCK_SIZE = 64 * 1024;
+
+    private static final int DEFAULT_RANDOM_ACCESS_MAX_BLOCKS = 16;
+
+    private static final int DEFAULT_RANDOM_ACCESS_PREFETCH_BLOCKS = 2;
+
     /** @since 2.0 */
     protected HttpFileSystemConfigBuilder(String prefix)
     {
@@ -238,6 +250,72 @@ public class HttpFileSystemConfigBuilder extends FileSystemConfigBuilder
         setParam(opts, OPTION_NAME_PREEMPTIVE_AUTHENTICATION, Boolean.valueOf(preemptiveAuth));
     }
 
+    /**
+     * Sets the size of the blocks random access content fetches with range requests.
+     * @param opts The FileSystemOptions.
+     * @param blockSize The block size in bytes.
+     * @since 2.1
+     */
+    public void setRandomAccessBlockSize(FileSystemOptions opts, int blockSize)
+    {
+        setParam(opts, RANDOM_ACCESS_BLOCK_SIZE, new Integer(blockSize));
+    }
+
+    /**
+     * Retrieve the size of the blocks random access content fetches, 64 KB by default.
+     * @param opts The FileSystemOptions.
+     * @return The block size in bytes.
+     * @since 2.1
+     */
+    public int getRandomAccessBlockSize(FileSystemOptions opts)
+    {
+        return getInteger(opts, RANDOM_ACCESS_BLOCK_SIZE, DEFAULT_RANDOM_ACCESS_BLOCK_SIZE);
+    }
+
+    /**
+     * Sets the number of blocks random access content keeps in memory.
+     * @param opts The FileSystemOptions.
+     * @param maxBlocks The maximum number of blocks.
+     * @since 2.1
+     */
+    public void setRandomAccessMaxBlocks(FileSystemOptions opts, int maxBlocks)
+    {
+        setParam(opts, RANDOM_ACCESS_MAX_BLOCKS, new Integer(maxBlocks));
+    }
+
+    /**
+     * Retrieve the number of blocks random access content keeps in memory, 16 by default.
+     * @param opts The FileSystemOptions.
+     * @return The maximum number of blocks.
+     * @since 2.1
+     */
+    public int getRandomAccessMaxBlocks(FileSystemOptions opts)
+    {
+        return getInteger(opts, RANDOM_ACCESS_MAX_BLOCKS, DEFAULT_RANDOM_ACCESS_MAX_BLOCKS);
+    }
+
+    /**
+     * Sets the number of blocks random access content fetches ahead when it is read sequentially.
+     * @param opts The FileSystemOptions.
+     * @param prefetchBlocks The number of blocks, 0 to disable fetching ahead.
+     * @since 2.1
+     */
+    public void setRandomAccessPrefetchBlocks(FileSystemOptions opts, int prefetchBlocks)
+    {
+        setParam(opts, RANDOM_ACCESS_PREFETCH_BLOCKS, new Integer(prefetchBlocks));
+    }
+
+    /**
+     * Retrieve the number of blocks random access content fetches ahead, 2 by default.
+     * @param opts The FileSystemOptions.
+     * @return The number of blocks.
+     * @since 2.1
+     */
+    public int getRandomAccessPrefetchBlocks(FileSystemOptions opts)
+    {
+        return getInteger(opts, RANDOM_ACCESS_PREFETCH_BLOCKS, DEFAULT_RANDOM_ACCESS_PREFETCH_BLOCKS);
+    }
+
     @Override
     protected Class<? extends FileSystem> getConfigClass()
     {
@@ -16,150 +16,117 @@
  */
 package org.apache.commons.vfs2.provider.http;
 
-import java.io.DataInputStream;
-import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.vfs2.FileSystemException;
-import org.apache.commons.vfs2.provider.AbstractRandomAccessStreamContent;
-import org.apache.commons.vfs2.util.MonitorInputStream;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.provider.AbstractBlockRandomAccessContent;
 import org.apache.commons.vfs2.util.RandomAccessMode;
 
 /**
  * RandomAccess content using Http.
+ * <p>
+ * The content is fetched in blocks with bounded range requests and the most recently
+ * used blocks are kept in memory, see {@link HttpFileSystemConfigBuilder#setRandomAccessBlockSize}.
+ *
  * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
  */
-class HttpRandomAccessContent extends AbstractRandomAccessStreamContent
+class HttpRandomAccessContent extends AbstractBlockRandomAccessContent
 {
-    protected long filePointer = 0;
+    /** The status of a range request beyond the end of the file. */
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
 
     private final HttpFileObject fileObject;
     private final HttpFileSystem fileSystem;
 
-    private DataInputStream dis = null;
-    private MonitorInputStream mis = null;
-
     HttpRandomAccessContent(final HttpFileObject fileObject, RandomAccessMode mode)
     {
-        super(mode);
-
-        this.fileObject = fileObject;
-        fileSystem = (HttpFileSystem) this.fileObject.getFileSystem();
-    }
-
-    public long getFilePointer() throws IOException
-    {
-        return filePointer;
+        this(fileObject, mode, fileObject.getFileSystem().getFileSystemOptions());
     }
 
-    public void seek(long pos) throws IOException
+    private HttpRandomAccessContent(final HttpFileObject fileObject, final RandomAccessMode mode,
+                                    final FileSystemOptions opts)
     {
-        if (pos == filePointer)
-        {
-            // no change
-            return;
-        }
+        super(mode,
+            HttpFileSystemConfigBuilder.getInstance().getRandomAccessBlockSize(opts),
+            HttpFileSystemConfigBuilder.getInstance().getRandomAccessMaxBlocks(opts),
+            HttpFileSystemConfigBuilder.getInstance().getRandomAccessPrefetchBlocks(opts));
 
-        if (pos < 0)
-        {
-            throw new FileSystemException("vfs.provider/random-access-invalid-position.error",
-                new Object[]
-                {
-                    new Long(pos)
-                });
-        }
-        if (dis != null)
-        {
-            close();
-        }
-
-        filePointer = pos;
+        this.fileObject = fileObject;
+        fileSystem = (HttpFileSystem) this.fileObject.getFileSystem();
     }
 
     @Override
-    protected DataInputStream getDataInputStream() throws IOException
+    protected int readRange(final long start, final byte[] buffer, final int off, final int len) throws IOException
     {
-        if (dis != null)
-        {
-            return dis;
-        }
-
         final GetMethod getMethod = new GetMethod();
         fileObject.setupMethod(getMethod);
-        getMethod.setRequestHeader("Range", "bytes=" + filePointer + "-");
-        final int status = fileSystem.getClient().executeMethod(getMethod);
-        if (status != HttpURLConnection.HTTP_PARTIAL && status != HttpURLConnection.HTTP_OK)
+        getMethod.setRequestHeader("Range", "bytes=" + start + "-" + (start + len - 1));
+        try
         {
-            throw new FileSystemException("vfs.provider.http/get-range.error", new Object[]
+            final int status = fileSystem.getClient().executeMethod(getMethod);
+            if (status == HTTP_RANGE_NOT_SATISFIABLE)
             {
-                fileObject.getName(),
-                new Long(filePointer)
-            });
-        }
-
-        mis = new HttpFileObject.HttpInputStream(getMethod);
-        // If the range request was ignored
-        if (status == HttpURLConnection.HTTP_OK)
-        {
-            long skipped = mis.skip(filePointer);
-            if (skipped != filePointer)
+                return 0;
+            }
+            if (status != HttpURLConnection.HTTP_PARTIAL && status != HttpURLConnection.HTTP_OK)
             {
                 throw new FileSystemException("vfs.provider.http/get-range.error", new Object[]
                 {
                     fileObject.getName(),
-                    new Long(filePointer)
+                    new Long(start)
                 });
             }
-        }
-        dis = new DataInputStream(new FilterInputStream(mis)
-        {
-            @Override
-            public int read() throws IOException
+
+            final InputStream in = getMethod.getResponseBodyAsStream();
+            if (in == null)
             {
-                int ret = super.read();
-                if (ret > -1)
-                {
-                    filePointer++;
-                }
-                return ret;
+                return 0;
             }
 
-            @Override
-            public int read(byte[] b) throws IOException
+            // If the range request was ignored
+            if (status == HttpURLConnection.HTTP_OK)
             {
-                int ret = super.read(b);
-                if (ret > -1)
+                long skipped = 0;
+                while (skipped < start)
+                {
+                    final long n = in.skip(start - skipped);
+                    if (n <= 0)
+                    {
+                        break;
+                    }
+                    skipped += n;
+                }
+                if (skipped != start)
                 {
-                    filePointer += ret;
+                    return 0;
                 }
-                return ret;
             }
 
-            @Override
-            public int read(byte[] b, int off, int len) throws IOException
+            int count = 0;
+            while (count < len)
             {
-                int ret = super.read(b, off, len);
-                if (ret > -1)
+                final int n = in.read(buffer, off + count, len - count);
+                if (n < 0)
                 {
-                    filePointer += ret;
+                    break;
                 }
-                return ret;
+                count += n;
             }
-        });
-
-        return dis;
-    }
 
-
-    public void close() throws IOException
-    {
-        if (dis != null)
+            if (status == HttpURLConnection.HTTP_OK)
+            {
+                // don't download the rest of the file when the connection is released
+                getMethod.abort();
+            }
+            return count;
+        }
+        finally
         {
-            dis.close();
-            dis = null;
-            mis = null;
+            getMethod.releaseConnection();
         }
     }
 
@@ -50,6 +50,16 @@ public class JarFileSystem extends ZipFileSystem
         super(rootName, file, fileSystemOptions);
     }
 
+    /**
+     * Jar files are always replicated, the manifest and the certificates of the entries
+     * are read through {@link JarFile}.
+     */
+    @Override
+    protected boolean canReadInPlace(final FileObject parentLayer)
+    {
+        return false;
+    }
+
     @Override
     protected ZipFile createZipFile(File file) throws FileSystemException
     {
@@ -25,6 +25,7 @@ import org.apache.commons.vfs2.Capability;
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemConfigBuilder;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemOptions;
 import org.apache.commons.vfs2.provider.AbstractOriginatingFileProvider;
@@ -130,4 +131,10 @@ public class DefaultLocalFileProvider
     {
         return capabilities;
     }
+
+    @Override
+    public FileSystemConfigBuilder getConfigBuilder()
+    {
+        return LocalFileSystemConfigBuilder.getInstance();
+    }
 }
@@ -22,10 +22,14 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.List;
 
+import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileSystemOptions;
 import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.NameScope;
 import org.apache.commons.vfs2.RandomAccessContent;
 import org.apache.commons.vfs2.provider.AbstractFileName;
 import org.apache.commons.vfs2.provider.AbstractFileObject;
@@ -85,6 +89,12 @@ public class LocalFile extends AbstractFileObject implements FileObject
     @Override
     protected FileType doGetType() throws Exception
     {
+        // A folder is known from a single stat
+        if (file.isDirectory())
+        {
+            return FileType.FOLDER;
+        }
+
         // JDK BUG: 6192331
         // if (!file.exists())
         if (!file.exists() && file.length() < 1)
@@ -92,11 +102,6 @@ public class LocalFile extends AbstractFileObject implements FileObject
             return FileType.IMAGINARY;
         }
 
-        if (file.isDirectory())
-        {
-            return FileType.FOLDER;
-        }
-
         // In doubt, treat an existing file as file
         // if (file.isFile())
         // {
@@ -127,6 +132,51 @@ public class LocalFile extends AbstractFileObject implements FileObject
         }
     }
 
+    /**
+     * Deletes this file and its descendants, without creating file objects for them.
+     */
+    @Override
+    protected boolean doDeleteTree(final List<FileName> deleted) throws Exception
+    {
+        deleteTree(file, getName(), deleted);
+        return true;
+    }
+
+    private void deleteTree(final File target, final FileName targetName, final List<FileName> deleted)
+        throws IOException
+    {
+        if (target.isDirectory() && !isLink(target))
+        {
+            final String[] children = target.list();
+            for (int i = 0; children != null && i < children.length; i++)
+            {
+                final FileName childName = getFileSystem().getFileSystemManager().resolveName(
+                    targetName, UriParser.encode(children[i]), NameScope.CHILD);
+                deleteTree(new File(target, children[i]), childName, deleted);
+            }
+        }
+
+        if (!target.delete())
+        {
+            throw new FileSystemException("vfs.provider.local/delete-file.error", target);
+        }
+        deleted.add(targetName);
+    }
+
+    /**
+     * Returns true if the file is a symbolic link, whose target is not deleted.
+     */
+    private static boolean isLink(final File target) throws IOException
+    {
+        final File parent = target.getParentFile();
+        if (parent == null)
+        {
+            return false;
+        }
+        final File canonical = new File(parent.getCanonicalFile(), target.getName());
+        return !canonical.getCanonicalFile().equals(canonical);
+    }
+
     /**
      * rename this file
      */
@@ -231,6 +281,12 @@ public class LocalFile extends AbstractFileObject implements FileObject
     @Override
     protected RandomAccessContent doGetRandomAccessContent(final RandomAccessMode mode) throws Exception
     {
+        final LocalFileSystemConfigBuilder builder = LocalFileSystemConfigBuilder.getInstance();
+        final FileSystemOptions opts = getFileSystem().getFileSystemOptions();
+        if (builder.isMemoryMapped(opts))
+        {
+            return new MappedFileRandomAccessContent(file, mode, builder.getMappedSegmentSize(opts));
+        }
         return new LocalFileRandomAccessContent(file, mode);
     }
 
@@ -22,6 +22,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.provider.AbstractRandomAccessContent;
@@ -282,4 +284,26 @@ class LocalFileRandomAccessContent extends AbstractRandomAccessContent
     {
         return rafis;
     }
+
+    @Override
+    public int read(ByteBuffer buffer) throws IOException
+    {
+        return raf.getChannel().read(buffer);
+    }
+
+    @Override
+    public void write(ByteBuffer buffer) throws IOException
+    {
+        final FileChannel channel = raf.getChannel();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void force() throws IOException
+    {
+        raf.getChannel().force(true);
+    }
 }
@@ -87,4 +87,21 @@ public class LocalFileSystem
         return file;
     }
 
+    /**
+     * Local files can be deleted by several threads at the same time.
+     */
+    @Override
+    protected boolean isConcurrentDeleteSupported()
+    {
+        return true;
+    }
+
+    /**
+     * The content of local files can be read and written by several threads at the same time.
+     */
+    @Override
+    protected boolean isConcurrentTransferSupported()
+    {
+        return true;
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.local;
+
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemConfigBuilder;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Config Builder for the local file system.
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public final class LocalFileSystemConfigBuilder extends FileSystemConfigBuilder
+{
+    /** memory mapped key. */
+    private static final String MEMORY_MAPPED_KEY = "memorymapped";
+
+    /** mapped segment size key. */
+    private static final String MAPPED_SEGMENT_SIZE_KEY = "mappedsegmentsize";
+
+    /** The default size of a mapped segment, 1GB. */
+    private static final int DEFAULT_MAPPED_SEGMENT_SIZE = 1024 * 1024 * 1024;
+
+    /** config builder SINGLETON. */
+    private static final LocalFileSystemConfigBuilder SINGLETON = new LocalFileSystemConfigBuilder();
+
+    /**
+     * Constructor
+     */
+    private LocalFileSystemConfigBuilder()
+    {
+        super("local.");
+    }
+
+    /**
+     * @return the config builder SINGLETON
+     */
+    public static LocalFileSystemConfigBuilder getInstance()
+    {
+        return SINGLETON;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<? extends FileSystem> getConfigClass()
+    {
+        return LocalFileSystem.class;
+    }
+
+    /**
+     * Sets whether the random access content of files maps them in memory.
+     * <p>
+     * Reads and writes then copy from and to the mapped memory instead of calling
+     * the operating system, which suits many small reads such as index lookups.
+     * Files are mapped in segments, so files larger than 2GB are supported. Writes
+     * past the end of the file go to the file directly. The default is false.
+     *
+     * @param opts The FileSystem options.
+     * @param memoryMapped true to map the files in memory.
+     */
+    public void setMemoryMapped(FileSystemOptions opts, boolean memoryMapped)
+    {
+        setParam(opts, MEMORY_MAPPED_KEY, Boolean.valueOf(memoryMapped));
+    }
+
+    /**
+     * @param opts The FileSystem options.
+     * @return true if the random access content of files maps them in memory.
+     * @see #setMemoryMapped
+     */
+    public boolean isMemoryMapped(FileSystemOptions opts)
+    {
+        return getBoolean(opts, MEMORY_MAPPED_KEY, false);
+    }
+
+    /**
+     * Sets the size of the segments in which files are mapped in memory.
+     *
+     * @param opts The FileSystem options.
+     * @param segmentSize The size in bytes, 1GB by default.
+     * @see #setMemoryMapped
+     */
+    public void setMappedSegmentSize(FileSystemOptions opts, int segmentSize)
+    {
+        setParam(opts, MAPPED_SEGMENT_SIZE_KEY, new Integer(segmentSize));
+    }
+
+    /**
+     * @param opts The FileSystem options.
+     * @return The size of the segments in which files are mapped in memory.
+     * @see #setMappedSegmentSize
+     */
+    public int getMappedSegmentSize(FileSystemOptions opts)
+    {
+        return getInteger(opts, MAPPED_SEGMENT_SIZE_KEY, DEFAULT_MAPPED_SEGMENT_SIZE);
+    }
+}
@@ -0,0 +1,583 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.local;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.provider.AbstractRandomAccessContent;
+import org.apache.commons.vfs2.util.RandomAccessMode;
+
+/**
+ * RandomAccess for local files, through the file mapped in memory.
+ * <p>
+ * The file is mapped in segments of a fixed size, each mapped on first use. A value
+ * read or written across two segments goes through a small array. Writes past the
+ * end of the file go to the file channel, the last segment is mapped again when it
+ * is used after the file grew.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+class MappedFileRandomAccessContent extends AbstractRandomAccessContent
+{
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final boolean writable;
+    private final int segmentSize;
+
+    /** The mapped segments, null until used. */
+    private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+
+    private long length;
+    private long filePointer;
+
+    /** Holds a value read or written across two segments. */
+    private final byte[] scratch = new byte[8];
+    private final ByteBuffer scratchBuffer = ByteBuffer.wrap(scratch);
+
+    private final InputStream input = new InputStream()
+    {
+        @Override
+        public int read() throws IOException
+        {
+            if (filePointer >= length)
+            {
+                return -1;
+            }
+            return readUnsignedByte();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException
+        {
+            if (len == 0)
+            {
+                return 0;
+            }
+            final int count = (int) Math.min(len, length - filePointer);
+            if (count <= 0)
+            {
+                return -1;
+            }
+            readFully(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException
+        {
+            final long count = Math.max(0, Math.min(n, length - filePointer));
+            filePointer += count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException
+        {
+            return (int) Math.max(0, Math.min(Integer.MAX_VALUE, length - filePointer));
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            MappedFileRandomAccessContent.this.close();
+        }
+    };
+
+    MappedFileRandomAccessContent(final File localFile, final RandomAccessMode mode, final int segmentSize)
+        throws FileSystemException
+    {
+        super(mode);
+        this.writable = mode.requestWrite();
+        this.segmentSize = segmentSize;
+
+        try
+        {
+            raf = new RandomAccessFile(localFile, mode.getModeString());
+        }
+        catch (final FileNotFoundException e)
+        {
+            throw new FileSystemException("vfs.provider/random-access-open-failed.error", localFile);
+        }
+        channel = raf.getChannel();
+        try
+        {
+            length = channel.size();
+        }
+        catch (final IOException e)
+        {
+            close(raf);
+            throw new FileSystemException("vfs.provider/random-access-open-failed.error", localFile, e);
+        }
+    }
+
+    private static void close(final RandomAccessFile raf)
+    {
+        try
+        {
+            raf.close();
+        }
+        catch (final IOException e)
+        {
+            // ignore, the open failed already
+        }
+    }
+
+    public long getFilePointer() throws IOException
+    {
+        return filePointer;
+    }
+
+    public void seek(final long pos) throws IOException
+    {
+        if (pos < 0)
+        {
+            throw new FileSystemException("vfs.provider/random-access-invalid-position.error",
+                new Object[]
+                {
+                    new Long(pos)
+                });
+        }
+        filePointer = pos;
+    }
+
+    public long length() throws IOException
+    {
+        return length;
+    }
+
+    /**
+     * Closes the file. The segments stay mapped until they are garbage collected.
+     */
+    public void close() throws IOException
+    {
+        segments.clear();
+        raf.close();
+    }
+
+    /**
+     * Writes the changed segments and the file to the device.
+     */
+    @Override
+    public void force() throws IOException
+    {
+        for (int i = 0; i < segments.size(); i++)
+        {
+            final MappedByteBuffer segment = segments.get(i);
+            if (segment != null)
+            {
+                segment.force();
+            }
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Returns the segment holding a position, mapping it if needed.
+     * The position must be before the end of the file.
+     */
+    private MappedByteBuffer segment(final long pos) throws IOException
+    {
+        final int index = (int) (pos / segmentSize);
+        while (segments.size() <= index)
+        {
+            segments.add(null);
+        }
+
+        final long start = (long) index * segmentSize;
+        final int size = (int) Math.min(segmentSize, length - start);
+        MappedByteBuffer segment = segments.get(index);
+        if (segment == null || segment.capacity() < size)
+        {
+            segment = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                start, size);
+            segments.set(index, segment);
+        }
+        return segment;
+    }
+
+    /**
+     * Returns the segment holding the next bytes, or null if they span two segments.
+     * @throws EOFException if there are not as many bytes before the end of the file.
+     */
+    private MappedByteBuffer segmentFor(final int count) throws IOException
+    {
+        if (filePointer + count > length)
+        {
+            throw new EOFException();
+        }
+        final long offset = filePointer % segmentSize;
+        if (offset + count > segmentSize)
+        {
+            return null;
+        }
+        return segment(filePointer);
+    }
+
+    private int offset()
+    {
+        return (int) (filePointer % segmentSize);
+    }
+
+    /**
+     * Reads a value across two segments into the scratch buffer.
+     */
+    private ByteBuffer readScratch(final int count) throws IOException
+    {
+        readFully(scratch, 0, count);
+        return scratchBuffer;
+    }
+
+    public byte readByte() throws IOException
+    {
+        final MappedByteBuffer segment = segmentFor(1);
+        final byte value = segment.get(offset());
+        filePointer++;
+        return value;
+    }
+
+    public int readUnsignedByte() throws IOException
+    {
+        return readByte() & 0xff;
+    }
+
+    public boolean readBoolean() throws IOException
+    {
+        return readByte() != 0;
+    }
+
+    public short readShort() throws IOException
+    {
+        final MappedByteBuffer segment = segmentFor(2);
+        if (segment == null)
+        {
+            return readScratch(2).getShort(0);
+        }
+        final short value = segment.getShort(offset());
+        filePointer += 2;
+        return value;
+    }
+
+    public int readUnsignedShort() throws IOException
+    {
+        return readShort() & 0xffff;
+    }
+
+    public char readChar() throws IOException
+    {
+        return (char) readShort();
+    }
+
+    public int readInt() throws IOException
+    {
+        final MappedByteBuffer segment = segmentFor(4);
+        if (segment == null)
+        {
+            return readScratch(4).getInt(0);
+        }
+        final int value = segment.getInt(offset());
+        filePointer += 4;
+        return value;
+    }
+
+    public float readFloat() throws IOException
+    {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    public long readLong() throws IOException
+    {
+        final MappedByteBuffer segment = segmentFor(8);
+        if (segment == null)
+        {
+            return readScratch(8).getLong(0);
+        }
+        final long value = segment.getLong(offset());
+        filePointer += 8;
+        return value;
+    }
+
+    public double readDouble() throws IOException
+    {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    public String readUTF() throws IOException
+    {
+        return DataInputStream.readUTF(this);
+    }
+
+    public int skipBytes(final int n) throws IOException
+    {
+        final int count = (int) Math.max(0, Math.min(n, length - filePointer));
+        filePointer += count;
+        return count;
+    }
+
+    public void readFully(final byte[] b) throws IOException
+    {
+        readFully(b, 0, b.length);
+    }
+
+    public void readFully(final byte[] b, final int off, final int len) throws IOException
+    {
+        int count = 0;
+        while (count < len)
+        {
+            if (filePointer >= length)
+            {
+                throw new EOFException();
+            }
+            final MappedByteBuffer segment = segment(filePointer);
+            final int offset = offset();
+            final int n = Math.min(len - count, segment.capacity() - offset);
+            segment.position(offset);
+            segment.get(b, off + count, n);
+            filePointer += n;
+            count += n;
+        }
+    }
+
+    @Override
+    public int read(final ByteBuffer buffer) throws IOException
+    {
+        if (!buffer.hasRemaining())
+        {
+            return 0;
+        }
+        if (filePointer >= length)
+        {
+            return -1;
+        }
+
+        final long end = Math.min(length, filePointer + buffer.remaining());
+        final int count = (int) (end - filePointer);
+        while (filePointer < end)
+        {
+            final MappedByteBuffer segment = segment(filePointer);
+            final int offset = offset();
+            final int n = (int) Math.min(end - filePointer, segment.capacity() - offset);
+            segment.limit(offset + n).position(offset);
+            buffer.put(segment);
+            segment.clear();
+            filePointer += n;
+        }
+        return count;
+    }
+
+    public InputStream getInputStream() throws IOException
+    {
+        return input;
+    }
+
+    private void assertWritable() throws IOException
+    {
+        if (!writable)
+        {
+            throw new FileSystemException("vfs.provider.local/random-access-read-only.error");
+        }
+    }
+
+    /**
+     * Returns the segment holding the next bytes to write, or null if they span two
+     * segments or go past the end of the file.
+     */
+    private MappedByteBuffer segmentForWrite(final int count) throws IOException
+    {
+        assertWritable();
+        if (filePointer + count > length || offset() + count > segmentSize)
+        {
+            return null;
+        }
+        return segment(filePointer);
+    }
+
+    private void writeScratch(final int count) throws IOException
+    {
+        write(scratch, 0, count);
+    }
+
+    @Override
+    public void write(final int b) throws IOException
+    {
+        final MappedByteBuffer segment = segmentForWrite(1);
+        if (segment == null)
+        {
+            scratch[0] = (byte) b;
+            writeScratch(1);
+            return;
+        }
+        segment.put(offset(), (byte) b);
+        filePointer++;
+    }
+
+    @Override
+    public void writeByte(final int v) throws IOException
+    {
+        write(v);
+    }
+
+    @Override
+    public void writeBoolean(final boolean v) throws IOException
+    {
+        write(v ? 1 : 0);
+    }
+
+    @Override
+    public void writeShort(final int v) throws IOException
+    {
+        final MappedByteBuffer segment = segmentForWrite(2);
+        if (segment == null)
+        {
+            scratchBuffer.putShort(0, (short) v);
+            writeScratch(2);
+            return;
+        }
+        segment.putShort(offset(), (short) v);
+        filePointer += 2;
+    }
+
+    @Override
+    public void writeChar(final int v) throws IOException
+    {
+        writeShort(v);
+    }
+
+    @Override
+    public void writeInt(final int v) throws IOException
+    {
+        final MappedByteBuffer segment = segmentForWrite(4);
+        if (segment == null)
+        {
+            scratchBuffer.putInt(0, v);
+            writeScratch(4);
+            return;
+        }
+        segment.putInt(offset(), v);
+        filePointer += 4;
+    }
+
+    @Override
+    public void writeFloat(final float v) throws IOException
+    {
+        writeInt(Float.floatToIntBits(v));
+    }
+
+    @Override
+    public void writeLong(final long v) throws IOException
+    {
+        final MappedByteBuffer segment = segmentForWrite(8);
+        if (segment == null)
+        {
+            scratchBuffer.putLong(0, v);
+            writeScratch(8);
+            return;
+        }
+        segment.putLong(offset(), v);
+        filePointer += 8;
+    }
+
+    @Override
+    public void writeDouble(final double v) throws IOException
+    {
+        writeLong(Double.doubleToLongBits(v));
+    }
+
+    @Override
+    public void write(final byte[] b) throws IOException
+    {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException
+    {
+        write(ByteBuffer.wrap(b, off, len));
+    }
+
+    /**
+     * Writes into the mapped segments up to the end of the file, and the rest to
+     * the file channel.
+     */
+    @Override
+    public void write(final ByteBuffer buffer) throws IOException
+    {
+        assertWritable();
+        while (buffer.hasRemaining() && filePointer < length)
+        {
+            final MappedByteBuffer segment = segment(filePointer);
+            final int offset = offset();
+            final int n = Math.min(buffer.remaining(), segment.capacity() - offset);
+            final int limit = buffer.limit();
+            buffer.limit(buffer.position() + n);
+            segment.position(offset);
+            segment.put(buffer);
+            buffer.limit(limit);
+            filePointer += n;
+        }
+
+        while (buffer.hasRemaining())
+        {
+            filePointer += channel.write(buffer, filePointer);
+            length = Math.max(length, filePointer);
+        }
+    }
+
+    @Override
+    public void writeBytes(final String s) throws IOException
+    {
+        final byte[] bytes = new byte[s.length()];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = (byte) s.charAt(i);
+        }
+        write(bytes);
+    }
+
+    @Override
+    public void writeChars(final String s) throws IOException
+    {
+        final ByteBuffer bytes = ByteBuffer.allocate(s.length() * 2);
+        for (int i = 0; i < s.length(); i++)
+        {
+            bytes.putChar(s.charAt(i));
+        }
+        bytes.flip();
+        write(bytes);
+    }
+
+    @Override
+    public void writeUTF(final String str) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(str.length() + 2);
+        new DataOutputStream(bytes).writeUTF(str);
+        write(bytes.toByteArray());
+    }
+}
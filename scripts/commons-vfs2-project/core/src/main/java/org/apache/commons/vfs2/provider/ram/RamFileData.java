@@ -16,8 +16,14 @@
  */
 package org.apache.commons.vfs2.provider.ram;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -27,6 +33,9 @@ import org.apache.commons.vfs2.FileType;
 
 /**
  * RAM File Object Data.
+ * <p>
+ * The content is kept in chunks of a fixed size, so that growing a file never copies
+ * more than a chunk. A chunk which was never written is not allocated and reads as zeros.
  * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
  */
 class RamFileData implements Serializable
@@ -34,7 +43,7 @@ class RamFileData implements Serializable
     /**
      * serialVersionUID format is YYYYMMDD for the date of the last binary change.
      */
-    private static final long serialVersionUID = 20101208L;
+    private static final long serialVersionUID = 20261018L;
 
     /**
      * File Name.
@@ -47,9 +56,37 @@ class RamFileData implements Serializable
     private FileType type;
 
     /**
-     * Bytes.
+     * The default size of a chunk of content.
      */
-    private byte[] buffer;
+    static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * The smallest chunk allocated.
+     */
+    private static final int MIN_CHUNK_CAPACITY = 64;
+
+    private static final ByteBuffer[] EMPTY_CHUNKS = new ByteBuffer[0];
+
+    /**
+     * The size of a chunk.
+     */
+    private final int chunkSize;
+
+    /**
+     * Whether the chunks are allocated outside of the heap.
+     */
+    private final boolean direct;
+
+    /**
+     * The chunks of content. A chunk is null, or smaller than the chunk size, when
+     * its end was never written.
+     */
+    private transient ByteBuffer[] chunks;
+
+    /**
+     * The size of the content.
+     */
+    private long size;
 
     /**
      * Last modified time
@@ -66,8 +103,20 @@ class RamFileData implements Serializable
      * @param name The file name.
      */
     public RamFileData(FileName name)
+    {
+        this(name, DEFAULT_CHUNK_SIZE, false);
+    }
+
+    /**
+     * @param name The file name.
+     * @param chunkSize The size of a chunk of content.
+     * @param direct true to allocate the content outside of the heap.
+     */
+    public RamFileData(FileName name, int chunkSize, boolean direct)
     {
         super();
+        this.chunkSize = chunkSize;
+        this.direct = direct;
         this.children = Collections.synchronizedCollection(new ArrayList<RamFileData>());
         this.clear();
         if (name == null)
@@ -77,23 +126,6 @@ class RamFileData implements Serializable
         this.name = name;
     }
 
-    /**
-     * @return Returns the buffer.
-     */
-    byte[] getBuffer()
-    {
-        return buffer;
-    }
-
-    /**
-     * @param buffer The buffer.
-     */
-    void setBuffer(byte[] buffer)
-    {
-        updateLastModified();
-        this.buffer = buffer;
-    }
-
     /**
      * @return Returns the lastModified.
      */
@@ -133,7 +165,11 @@ class RamFileData implements Serializable
      */
     void clear()
     {
-        this.buffer = new byte[0];
+        synchronized (this)
+        {
+            this.chunks = EMPTY_CHUNKS;
+            this.size = 0;
+        }
         updateLastModified();
         this.type = FileType.IMAGINARY;
         this.children.clear();
@@ -262,25 +298,304 @@ class RamFileData implements Serializable
     }
 
     /**
-     * @return Returns the size of the buffer
+     * @return Returns the size of the content
+     */
+    synchronized long size()
+    {
+        return size;
+    }
+
+    /**
+     * Reads content.
+     *
+     * @param pos The position to read from.
+     * @param b The buffer to read into.
+     * @param off The offset in the buffer.
+     * @param len The number of bytes to read.
+     * @return The number of bytes read, -1 at the end of the content.
+     */
+    synchronized int read(long pos, byte[] b, int off, int len)
+    {
+        if (pos >= size)
+        {
+            return len == 0 ? 0 : -1;
+        }
+
+        int total = 0;
+        while (len > 0 && pos < size)
+        {
+            final int index = (int) (pos / chunkSize);
+            final int offset = (int) (pos % chunkSize);
+            int count = (int) Math.min(Math.min(len, chunkSize - offset), size - pos);
+
+            final ByteBuffer chunk = index < chunks.length ? chunks[index] : null;
+            final int available = chunk == null ? 0 : chunk.capacity() - offset;
+            if (available <= 0)
+            {
+                // never written
+                Arrays.fill(b, off, off + count, (byte) 0);
+            }
+            else
+            {
+                count = Math.min(count, available);
+                get(chunk, offset, b, off, count);
+            }
+
+            pos += count;
+            off += count;
+            len -= count;
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Writes content, growing it if needed.
+     *
+     * @param pos The position to write at.
+     * @param b The bytes to write.
+     * @param off The offset of the bytes.
+     * @param len The number of bytes to write.
      */
-    int size()
+    synchronized void write(long pos, byte[] b, int off, int len)
     {
-        return buffer.length;
+        final long end = pos + len;
+        while (len > 0)
+        {
+            final int index = (int) (pos / chunkSize);
+            final int offset = (int) (pos % chunkSize);
+            final int count = Math.min(len, chunkSize - offset);
+
+            final ByteBuffer chunk = ensureCapacity(index, offset + count);
+            put(chunk, offset, b, off, count);
+
+            pos += count;
+            off += count;
+            len -= count;
+        }
+        if (end > size)
+        {
+            size = end;
+        }
+        updateLastModified();
     }
 
     /**
-     * Resize the buffer
+     * Sets the size of the content. Content past a smaller size is dropped, content
+     * up to a larger size reads as zeros.
      *
-     * @param newSize The new buffer size.
+     * @param newSize The new size.
      */
-    void resize(int newSize)
+    synchronized void setSize(long newSize)
     {
-        int size = this.size();
-        byte[] newBuf = new byte[newSize];
-        System.arraycopy(this.buffer, 0, newBuf, 0, size);
-        this.buffer = newBuf;
+        if (newSize < size)
+        {
+            final int keep = (int) ((newSize + chunkSize - 1) / chunkSize);
+            if (keep < chunks.length)
+            {
+                final ByteBuffer[] newChunks = new ByteBuffer[keep];
+                System.arraycopy(chunks, 0, newChunks, 0, keep);
+                chunks = newChunks;
+            }
+
+            // clear the end of the last chunk, so that it reads as zeros when the content grows again
+            final int end = (int) (newSize % chunkSize);
+            if (end != 0 && keep > 0 && keep <= chunks.length && chunks[keep - 1] != null)
+            {
+                final ByteBuffer last = chunks[keep - 1];
+                if (end < last.capacity())
+                {
+                    put(last, end, new byte[last.capacity() - end], 0, last.capacity() - end);
+                }
+            }
+        }
+        size = newSize;
         updateLastModified();
     }
 
+    /**
+     * Takes the content of another file, which is left empty.
+     *
+     * @param from The file to take the content of.
+     */
+    void takeContent(RamFileData from)
+    {
+        final ByteBuffer[] fromChunks;
+        final long fromSize;
+        synchronized (from)
+        {
+            fromChunks = from.chunks;
+            fromSize = from.size;
+            from.chunks = EMPTY_CHUNKS;
+            from.size = 0;
+        }
+        synchronized (this)
+        {
+            this.chunks = fromChunks;
+            this.size = fromSize;
+        }
+    }
+
+    /**
+     * Returns a stream which reads the content from the chunks.
+     *
+     * @return The InputStream.
+     */
+    InputStream getInputStream()
+    {
+        return new InputStream()
+        {
+            private long pos;
+            private long mark;
+
+            @Override
+            public int read() throws IOException
+            {
+                final byte[] b = new byte[1];
+                final int count = read(b, 0, 1);
+                return count == -1 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException
+            {
+                final int count = RamFileData.this.read(pos, b, off, len);
+                if (count > 0)
+                {
+                    pos += count;
+                }
+                return count;
+            }
+
+            @Override
+            public long skip(long n) throws IOException
+            {
+                final long skipped = Math.max(0, Math.min(n, size() - pos));
+                pos += skipped;
+                return skipped;
+            }
+
+            @Override
+            public int available() throws IOException
+            {
+                return (int) Math.max(0, Math.min(Integer.MAX_VALUE, size() - pos));
+            }
+
+            @Override
+            public boolean markSupported()
+            {
+                return true;
+            }
+
+            @Override
+            public void mark(int readlimit)
+            {
+                mark = pos;
+            }
+
+            @Override
+            public void reset() throws IOException
+            {
+                pos = mark;
+            }
+        };
+    }
+
+    /**
+     * Returns the chunk at an index, with at least the given capacity.
+     */
+    private ByteBuffer ensureCapacity(int index, int capacity)
+    {
+        if (index >= chunks.length)
+        {
+            final ByteBuffer[] newChunks = new ByteBuffer[Math.max(index + 1, chunks.length * 2)];
+            System.arraycopy(chunks, 0, newChunks, 0, chunks.length);
+            chunks = newChunks;
+        }
+
+        final ByteBuffer chunk = chunks[index];
+        final int oldCapacity = chunk == null ? 0 : chunk.capacity();
+        if (oldCapacity >= capacity)
+        {
+            return chunk;
+        }
+
+        // grow the chunk up to the chunk size, copying at most a chunk
+        int newCapacity = Math.max(oldCapacity, MIN_CHUNK_CAPACITY);
+        while (newCapacity < capacity)
+        {
+            newCapacity *= 2;
+        }
+        newCapacity = Math.min(newCapacity, chunkSize);
+
+        final ByteBuffer newChunk = direct ? ByteBuffer.allocateDirect(newCapacity) : ByteBuffer.allocate(newCapacity);
+        if (chunk != null)
+        {
+            final ByteBuffer source = chunk.duplicate();
+            source.clear();
+            newChunk.put(source);
+            newChunk.clear();
+        }
+        chunks[index] = newChunk;
+        return newChunk;
+    }
+
+    private static void get(ByteBuffer chunk, int offset, byte[] b, int off, int len)
+    {
+        if (chunk.hasArray())
+        {
+            System.arraycopy(chunk.array(), chunk.arrayOffset() + offset, b, off, len);
+        }
+        else
+        {
+            final ByteBuffer source = chunk.duplicate();
+            source.position(offset);
+            source.get(b, off, len);
+        }
+    }
+
+    private static void put(ByteBuffer chunk, int offset, byte[] b, int off, int len)
+    {
+        if (chunk.hasArray())
+        {
+            System.arraycopy(b, off, chunk.array(), chunk.arrayOffset() + offset, len);
+        }
+        else
+        {
+            final ByteBuffer dest = chunk.duplicate();
+            dest.position(offset);
+            dest.put(b, off, len);
+        }
+    }
+
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException
+    {
+        out.defaultWriteObject();
+        final byte[] b = new byte[chunkSize];
+        for (long pos = 0; pos < size;)
+        {
+            final int count = read(pos, b, 0, b.length);
+            out.write(b, 0, count);
+            pos += count;
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        chunks = EMPTY_CHUNKS;
+        final long length = size;
+        final long modified = lastModified;
+        size = 0;
+        final byte[] b = new byte[chunkSize];
+        for (long pos = 0; pos < length;)
+        {
+            final int count = (int) Math.min(b.length, length - pos);
+            in.readFully(b, 0, count);
+            write(pos, b, 0, count);
+            pos += count;
+        }
+        lastModified = modified;
+    }
+
 }
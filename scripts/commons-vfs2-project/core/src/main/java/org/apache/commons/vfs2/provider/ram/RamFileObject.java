@@ -16,7 +16,6 @@
  */
 package org.apache.commons.vfs2.provider.ram;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -92,7 +91,7 @@ public class RamFileObject extends AbstractFileObject implements FileObject
     @Override
     protected long doGetContentSize() throws Exception
     {
-        return this.data.getBuffer().length;
+        return this.data.size();
     }
 
     /*
@@ -109,7 +108,7 @@ public class RamFileObject extends AbstractFileObject implements FileObject
             throw new FileSystemException("vfs.provider/read-not-file.error", getName());
         }
 
-        return new ByteArrayInputStream(this.data.getBuffer());
+        return this.data.getInputStream();
     }
 
     /*
@@ -122,7 +121,7 @@ public class RamFileObject extends AbstractFileObject implements FileObject
     {
         if (!bAppend)
         {
-            this.data.setBuffer(new byte[0]);
+            truncate();
         }
         return new RamFileOutputStream(this);
     }
@@ -253,7 +252,7 @@ public class RamFileObject extends AbstractFileObject implements FileObject
     /**
      * @return Returns the size of the RAMFileData
      */
-    int size()
+    long size()
     {
         if (data == null)
         {
@@ -263,23 +262,32 @@ public class RamFileObject extends AbstractFileObject implements FileObject
     }
 
     /**
-     * @param newSize
+     * Writes content, growing the file if needed.
+     *
+     * @param pos The position to write at.
+     * @param b The bytes to write.
+     * @param off The offset of the bytes.
+     * @param len The number of bytes to write.
      * @throws IOException
      *             if the new size exceeds the limit
      */
-    synchronized void resize(int newSize) throws IOException
+    synchronized void write(long pos, byte[] b, int off, int len) throws IOException
     {
-        if (fs.getFileSystemOptions() != null)
+        final long growth = pos + len - this.size();
+        if (growth > 0)
         {
-            int maxSize = RamFileSystemConfigBuilder.getInstance().getMaxSize(
-                    fs.getFileSystemOptions());
-            if (fs.size() + newSize - this.size() > maxSize)
-            {
-                throw new IOException("FileSystem capacity (" + maxSize
-                        + ") exceeded.");
-            }
+            fs.allocate(growth);
         }
-        this.data.resize(newSize);
+        this.data.write(pos, b, off, len);
+    }
+
+    /**
+     * Drops the content.
+     */
+    synchronized void truncate()
+    {
+        fs.release(this.size());
+        this.data.setSize(0);
     }
 
 }
@@ -60,19 +60,16 @@ public class RamFileOutputStream extends OutputStream
     @Override
     public void write(byte[] b, int off, int len) throws IOException
     {
-        int size = this.file.getData().size();
-        int newSize = this.file.getData().size() + len;
         // Store the Exception in order to notify the client again on close()
         try
         {
-            this.file.resize(newSize);
+            this.file.write(this.file.size(), b, off, len);
         }
         catch (IOException e)
         {
             this.exc = e;
             throw e;
         }
-        System.arraycopy(b, off, this.file.getData().getBuffer(), size, len);
     }
 
     /*
@@ -22,6 +22,7 @@ import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.commons.vfs2.RandomAccessContent;
 import org.apache.commons.vfs2.util.RandomAccessMode;
@@ -37,11 +38,6 @@ public class RamFileRandomAccessContent implements RandomAccessContent
      */
     protected int filePointer = 0;
 
-    /**
-     * Buffer
-     */
-    private byte[] buf;
-
     /**
      * buffer
      */
@@ -81,7 +77,6 @@ public class RamFileRandomAccessContent implements RandomAccessContent
     public RamFileRandomAccessContent(RamFileObject file, RandomAccessMode mode)
     {
         super();
-        this.buf = file.getData().getBuffer();
         this.file = file;
         this.mode = mode;
 
@@ -161,7 +156,7 @@ public class RamFileRandomAccessContent implements RandomAccessContent
      */
     public long length() throws IOException
     {
-        return buf.length;
+        return file.size();
     }
 
     /*
@@ -234,9 +229,10 @@ public class RamFileRandomAccessContent implements RandomAccessContent
      */
     public int readUnsignedByte() throws IOException
     {
-        if (filePointer < buf.length)
+        if (filePointer < file.size())
         {
-            return buf[filePointer++] & 0xFF;
+            file.getData().read(filePointer++, buffer1, 0, 1);
+            return buffer1[0] & 0xFF;
         }
         else
         {
@@ -302,7 +298,7 @@ public class RamFileRandomAccessContent implements RandomAccessContent
 
         long newPos = filePointer + n;
 
-        if (newPos > buf.length)
+        if (newPos > file.size())
         {
             throw new IndexOutOfBoundsException("Tyring to skip too much bytes");
         }
@@ -341,14 +337,14 @@ public class RamFileRandomAccessContent implements RandomAccessContent
                     + this.getLeftBytes() + ") ");
         }
 
-        System.arraycopy(buf, filePointer, b, off, len);
+        file.getData().read(filePointer, b, off, len);
 
         filePointer += len;
     }
 
     private int getLeftBytes()
     {
-        return buf.length - filePointer;
+        return (int) (file.size() - filePointer);
     }
 
     /*
@@ -368,13 +364,7 @@ public class RamFileRandomAccessContent implements RandomAccessContent
      */
     public void write(byte[] b, int off, int len) throws IOException
     {
-        if (this.getLeftBytes() < len)
-        {
-            int newSize = this.buf.length + len - this.getLeftBytes();
-            this.file.resize(newSize);
-            this.buf = this.file.getData().getBuffer();
-        }
-        System.arraycopy(b, off, this.buf, filePointer, len);
+        this.file.write(filePointer, b, off, len);
         this.filePointer += len;
     }
 
@@ -606,4 +596,44 @@ public class RamFileRandomAccessContent implements RandomAccessContent
     {
         return rafis;
     }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.commons.vfs2.RandomAccessContent#read(java.nio.ByteBuffer)
+     */
+    public int read(ByteBuffer dst) throws IOException
+    {
+        final int len = Math.min(dst.remaining(), getLeftBytes());
+        if (len <= 0)
+        {
+            return dst.hasRemaining() ? -1 : 0;
+        }
+        final byte[] b = new byte[len];
+        readFully(b);
+        dst.put(b);
+        return len;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.commons.vfs2.RandomAccessContent#write(java.nio.ByteBuffer)
+     */
+    public void write(ByteBuffer src) throws IOException
+    {
+        final byte[] b = new byte[src.remaining()];
+        src.get(b);
+        write(b);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.commons.vfs2.RandomAccessContent#force()
+     */
+    public void force() throws IOException
+    {
+        // the content is in memory only
+    }
 }
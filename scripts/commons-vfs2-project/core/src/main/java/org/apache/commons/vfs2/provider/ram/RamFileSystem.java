@@ -27,6 +27,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.vfs2.Capability;
 import org.apache.commons.vfs2.FileName;
@@ -53,6 +54,26 @@ public class RamFileSystem extends AbstractFileSystem implements Serializable
      */
     private final Map<FileName, RamFileData> cache;
 
+    /**
+     * The size of a chunk of file content.
+     */
+    private final int chunkSize;
+
+    /**
+     * Whether file content is kept outside of the heap.
+     */
+    private final boolean directBuffers;
+
+    /**
+     * The maximum size of the content of all files.
+     */
+    private final long maxSize;
+
+    /**
+     * The size of the content of all files.
+     */
+    private final AtomicLong size = new AtomicLong();
+
     /**
      * @param rootName The root file name.
      * @param fileSystemOptions The FileSystem options.
@@ -61,8 +82,12 @@ public class RamFileSystem extends AbstractFileSystem implements Serializable
     {
         super(rootName, null, fileSystemOptions);
         this.cache = Collections.synchronizedMap(new HashMap<FileName, RamFileData>());
+        final RamFileSystemConfigBuilder builder = RamFileSystemConfigBuilder.getInstance();
+        this.chunkSize = builder.getChunkSize(fileSystemOptions);
+        this.directBuffers = builder.isDirectBuffers(fileSystemOptions);
+        this.maxSize = fileSystemOptions != null ? builder.getMaxSize(fileSystemOptions) : Long.MAX_VALUE;
         // create root
-        RamFileData rootData = new RamFileData(rootName);
+        RamFileData rootData = createData(rootName);
         rootData.setType(FileType.FOLDER);
         rootData.setLastModified(System.currentTimeMillis());
         this.cache.put(rootName, rootData);
@@ -138,6 +163,7 @@ public class RamFileSystem extends AbstractFileSystem implements Serializable
 
         // Remove reference from cache
         this.cache.remove(file.getName());
+        release(file.getData().size());
         // Notify the parent
         RamFileObject parent = (RamFileObject) this.resolveFile(file
                 .getParent().getName());
@@ -197,7 +223,8 @@ public class RamFileSystem extends AbstractFileSystem implements Serializable
         }
         // Copy data
 
-        to.getData().setBuffer(from.getData().getBuffer());
+        release(to.getData().size());
+        to.getData().takeContent(from.getData());
         to.getData().setLastModified(from.getData().getLastModified());
         to.getData().setType(from.getData().getType());
 
@@ -214,11 +241,19 @@ public class RamFileSystem extends AbstractFileSystem implements Serializable
         RamFileData data = this.cache.get(fo.getName());
         if (data == null)
         {
-            data = new RamFileData(fo.getName());
+            data = createData(fo.getName());
         }
         fo.setData(data);
     }
 
+    /**
+     * Creates the data of a file.
+     */
+    private RamFileData createData(FileName name)
+    {
+        return new RamFileData(name, chunkSize, directBuffers);
+    }
+
     /**
      * Import a Tree.
      *
@@ -301,19 +336,42 @@ public class RamFileSystem extends AbstractFileSystem implements Serializable
     /**
      * @return Returns the size of the FileSystem
      */
-    int size()
+    long size()
+    {
+        return size.get();
+    }
+
+    /**
+     * Reserves room for more content.
+     *
+     * @param bytes The number of bytes the content grows.
+     * @throws IOException if the maximum size of the file system is exceeded.
+     */
+    void allocate(long bytes) throws IOException
     {
-        int size = 0;
-        synchronized (cache)
+        while (true)
         {
-            Iterator<RamFileData> iter = cache.values().iterator();
-            while (iter.hasNext())
+            final long current = size.get();
+            if (current + bytes > maxSize)
             {
-                RamFileData data = iter.next();
-                size += data.size();
+                throw new IOException("FileSystem capacity (" + maxSize
+                        + ") exceeded.");
+            }
+            if (size.compareAndSet(current, current + bytes))
+            {
+                return;
             }
         }
-        return size;
+    }
+
+    /**
+     * Gives back the room of dropped content.
+     *
+     * @param bytes The number of bytes the content shrinks.
+     */
+    void release(long bytes)
+    {
+        size.addAndGet(-bytes);
     }
 
     /**
@@ -323,6 +381,7 @@ public class RamFileSystem extends AbstractFileSystem implements Serializable
     public void close()
     {
         this.cache.clear();
+        this.size.set(0);
         super.close();
     }
 }
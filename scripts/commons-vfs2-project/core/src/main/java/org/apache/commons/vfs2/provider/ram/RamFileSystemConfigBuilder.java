@@ -30,6 +30,12 @@ public final class RamFileSystemConfigBuilder extends FileSystemConfigBuilder
     /** max size key. */
     private static final String MAX_SIZE_KEY = "maxsize";
 
+    /** chunk size key. */
+    private static final String CHUNK_SIZE_KEY = "chunksize";
+
+    /** direct buffers key. */
+    private static final String DIRECT_BUFFERS_KEY = "directbuffers";
+
     /** config builder SINGLETON. */
     private static final RamFileSystemConfigBuilder SINGLETON = new RamFileSystemConfigBuilder();
 
@@ -79,4 +85,52 @@ public final class RamFileSystemConfigBuilder extends FileSystemConfigBuilder
         setParam(opts, MAX_SIZE_KEY, new Integer(sizeInBytes));
     }
 
+
+    /**
+     * @param opts The FileSystem options.
+     * @return The size of a chunk of file content.
+     * @see #setChunkSize
+     * @since 2.1
+     */
+    public int getChunkSize(FileSystemOptions opts)
+    {
+        return getInteger(opts, CHUNK_SIZE_KEY, RamFileData.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Sets the size of the chunks the content of the files is kept in. Growing a
+     * file copies at most a chunk. Defaults to 64KB.
+     *
+     * @param opts The FileSystem options.
+     * @param sizeInBytes The size of a chunk.
+     * @since 2.1
+     */
+    public void setChunkSize(FileSystemOptions opts, int sizeInBytes)
+    {
+        setParam(opts, CHUNK_SIZE_KEY, new Integer(sizeInBytes));
+    }
+
+    /**
+     * @param opts The FileSystem options.
+     * @return true if the content of the files is kept outside of the heap.
+     * @see #setDirectBuffers
+     * @since 2.1
+     */
+    public boolean isDirectBuffers(FileSystemOptions opts)
+    {
+        return getBoolean(opts, DIRECT_BUFFERS_KEY, false);
+    }
+
+    /**
+     * Sets whether the content of the files is kept in direct buffers, outside of
+     * the heap. Defaults to false.
+     *
+     * @param opts The FileSystem options.
+     * @param directBuffers true to keep the content outside of the heap.
+     * @since 2.1
+     */
+    public void setDirectBuffers(FileSystemOptions opts, boolean directBuffers)
+    {
+        setParam(opts, DIRECT_BUFFERS_KEY, directBuffers ? Boolean.TRUE : Boolean.FALSE);
+    }
 }
@@ -160,7 +160,8 @@ public class SftpFileObject extends AbstractFileObject implements FileObject
                 // maybe the channel has some problems, so recreate the channel and retry
                 if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE)
                 {
-                    channel.disconnect();
+                    fileSystem.invalidateChannel(channel);
+                    channel = null;
                     channel = fileSystem.getChannel();
                     setStat(channel.stat(relPath));
                 }
@@ -185,7 +186,10 @@ public class SftpFileObject extends AbstractFileObject implements FileObject
         }
         finally
         {
-            fileSystem.putChannel(channel);
+            if (channel != null)
+            {
+                fileSystem.putChannel(channel);
+            }
         }
     }
 
@@ -517,9 +521,11 @@ public class SftpFileObject extends AbstractFileObject implements FileObject
                 return new SftpInputStream(channel, is);
 
             }
-            finally
+            catch (final Exception e)
             {
-//              fileSystem.putChannel(channel);
+                // the channel is only given back when the stream is closed
+                fileSystem.putChannel(channel);
+                throw e;
             }
         }
     }
@@ -538,7 +544,15 @@ public class SftpFileObject extends AbstractFileObject implements FileObject
         */
 
         final ChannelSftp channel = fileSystem.getChannel();
-        return new SftpOutputStream(channel, channel.put(relPath));
+        try
+        {
+            return new SftpOutputStream(channel, channel.put(relPath));
+        }
+        catch (final Exception e)
+        {
+            fileSystem.putChannel(channel);
+            throw e;
+        }
     }
 
     /**
@@ -18,6 +18,7 @@ package org.apache.commons.vfs2.provider.sftp;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.vfs2.Capability;
 import org.apache.commons.vfs2.FileObject;
@@ -28,6 +29,7 @@ import org.apache.commons.vfs2.UserAuthenticationData;
 import org.apache.commons.vfs2.provider.AbstractFileName;
 import org.apache.commons.vfs2.provider.AbstractFileSystem;
 import org.apache.commons.vfs2.provider.GenericFileName;
+import org.apache.commons.vfs2.util.ConnectionPool;
 import org.apache.commons.vfs2.util.UserAuthenticatorUtils;
 
 import com.jcraft.jsch.ChannelSftp;
@@ -45,104 +47,151 @@ public class SftpFileSystem
     implements FileSystem
 {
 
-    private Session session;
+    /** The sessions the channels are spread over, connected on demand. */
+    private final Session[] sessions;
+    /** The lock of each session, so a slow connect only holds up the channels of its session. */
+    private final Object[] sessionLocks;
+    private final AtomicInteger nextSession = new AtomicInteger();
     // private final JSch jSch;
-    private ChannelSftp idleChannel;
+    private final ConnectionPool<ChannelSftp> channelPool;
 
     protected SftpFileSystem(final GenericFileName rootName,
                              final Session session,
                              final FileSystemOptions fileSystemOptions)
     {
         super(rootName, null, fileSystemOptions);
-        this.session = session;
+
+        final SftpFileSystemConfigBuilder builder = SftpFileSystemConfigBuilder.getInstance();
+        this.sessions = new Session[Math.max(1, builder.getSessionCount(fileSystemOptions))];
+        this.sessions[0] = session;
+        this.sessionLocks = new Object[sessions.length];
+        for (int i = 0; i < sessionLocks.length; i++)
+        {
+            sessionLocks[i] = new Object();
+        }
+        this.channelPool = new ConnectionPool<ChannelSftp>(
+            builder.getPoolMaxActive(fileSystemOptions),
+            builder.getPoolMinIdle(fileSystemOptions),
+            builder.getPoolMaxIdle(fileSystemOptions),
+            builder.getPoolIdleTimeout(fileSystemOptions),
+            builder.getPoolMaxWait(fileSystemOptions),
+            builder.getPoolTestOnBorrow(fileSystemOptions))
+        {
+            @Override
+            protected ChannelSftp createConnection() throws FileSystemException
+            {
+                return createChannel();
+            }
+
+            @Override
+            protected void destroyConnection(final ChannelSftp channel)
+            {
+                channel.disconnect();
+            }
+
+            @Override
+            protected boolean isOpen(final ChannelSftp channel)
+            {
+                return channel.isConnected() && !channel.isClosed();
+            }
+
+            @Override
+            protected boolean testConnection(final ChannelSftp channel)
+            {
+                try
+                {
+                    channel.stat(".");
+                    return true;
+                }
+                catch (final SftpException e)
+                {
+                    return false;
+                }
+            }
+        };
     }
 
     @Override
     protected void doCloseCommunicationLink()
     {
-        if (idleChannel != null)
-        {
-            idleChannel.disconnect();
-            idleChannel = null;
-        }
+        channelPool.clear();
 
-        if (session != null)
+        for (int i = 0; i < sessions.length; i++)
         {
-            session.disconnect();
-            session = null;
+            synchronized (sessionLocks[i])
+            {
+                if (sessions[i] != null)
+                {
+                    sessions[i].disconnect();
+                    sessions[i] = null;
+                }
+            }
         }
     }
 
     /**
      * Returns an SFTP channel to the server.
+     * <p>
+     * Channels are taken from a pool, which is configured with
+     * {@link SftpFileSystemConfigBuilder}. Every channel must be given back
+     * with {@link #putChannel}.
      */
     protected ChannelSftp getChannel() throws IOException
     {
-        if (this.session == null || !this.session.isConnected())
-        {
-            doCloseCommunicationLink();
+        return channelPool.borrowConnection();
+    }
 
-            // channel closed. e.g. by freeUnusedResources, but now we need it again
-            Session session;
-            UserAuthenticationData authData = null;
-            try
-            {
-                final GenericFileName rootName = (GenericFileName) getRootName();
-
-                authData = UserAuthenticatorUtils.authenticate(getFileSystemOptions(),
-                    SftpFileProvider.AUTHENTICATOR_TYPES);
-
-                session = SftpClientFactory.createConnection(
-                    rootName.getHostName(),
-                    rootName.getPort(),
-                    UserAuthenticatorUtils.getData(authData, UserAuthenticationData.USERNAME,
-                        UserAuthenticatorUtils.toChar(rootName.getUserName())),
-                    UserAuthenticatorUtils.getData(authData, UserAuthenticationData.PASSWORD,
-                        UserAuthenticatorUtils.toChar(rootName.getPassword())),
-                    getFileSystemOptions());
-            }
-            catch (final Exception e)
-            {
-                throw new FileSystemException("vfs.provider.sftp/connect.error",
-                    getRootName(),
-                    e);
-            }
-            finally
-            {
-                UserAuthenticatorUtils.cleanup(authData);
-            }
+    /**
+     * Returns a channel to the pool.
+     */
+    protected void putChannel(final ChannelSftp channel)
+    {
+        // the pool closes the channel if it is no longer connected
+        channelPool.releaseConnection(channel);
+    }
 
-            this.session = session;
-        }
+    /**
+     * Closes a channel which failed, instead of returning it to the pool.
+     */
+    protected void invalidateChannel(final ChannelSftp channel)
+    {
+        channelPool.invalidateConnection(channel);
+    }
 
+    /**
+     * Returns the pool of channels, which can be used to monitor the connections of this file system.
+     * @return The channel pool.
+     * @since 2.1
+     */
+    public ConnectionPool<ChannelSftp> getChannelPool()
+    {
+        return channelPool;
+    }
+
+    /**
+     * Opens a new channel on the next session, connecting the session if required.
+     */
+    private ChannelSftp createChannel() throws FileSystemException
+    {
         try
         {
-            // Use the pooled channel, or create a new one
-            final ChannelSftp channel;
-            if (idleChannel != null)
-            {
-                channel = idleChannel;
-                idleChannel = null;
-            }
-            else
-            {
-                channel = (ChannelSftp) session.openChannel("sftp");
-                channel.connect();
+            final ChannelSftp channel = openChannel(getSession());
+            channel.connect();
 
-                Boolean userDirIsRoot =
-                    SftpFileSystemConfigBuilder.getInstance().getUserDirIsRoot(getFileSystemOptions());
-                String workingDirectory = getRootName().getPath();
-                if (workingDirectory != null && (userDirIsRoot == null || !userDirIsRoot.booleanValue()))
+            Boolean userDirIsRoot =
+                SftpFileSystemConfigBuilder.getInstance().getUserDirIsRoot(getFileSystemOptions());
+            String workingDirectory = getRootName().getPath();
+            if (workingDirectory != null && (userDirIsRoot == null || !userDirIsRoot.booleanValue()))
+            {
+                try
                 {
-                    try
-                    {
-                        channel.cd(workingDirectory);
-                    }
-                    catch (SftpException e)
-                    {
-                        throw new FileSystemException("vfs.provider.sftp/change-work-directory.error",
-                            workingDirectory);
-                    }
+                    channel.cd(workingDirectory);
+                }
+                catch (SftpException e)
+                {
+                    channel.disconnect();
+                    throw new FileSystemException("vfs.provider.sftp/change-work-directory.error",
+                        workingDirectory);
                 }
             }
 
@@ -157,22 +206,97 @@ public class SftpFileSystem
     }
 
     /**
-     * Returns a channel to the pool.
+     * Returns the next session in turn, reconnecting it if it was closed.
      */
-    protected void putChannel(final ChannelSftp channel)
+    private Session getSession() throws FileSystemException
     {
-        if (idleChannel == null)
+        final int index = (nextSession.getAndIncrement() & Integer.MAX_VALUE) % sessions.length;
+        synchronized (sessionLocks[index])
         {
-            // put back the channel only if it is still connected
-            if (channel.isConnected() && !channel.isClosed())
+            Session session = sessions[index];
+            if (session == null || !isConnected(session))
             {
-                idleChannel = channel;
+                // session closed. e.g. by freeUnusedResources, but now we need it again
+                if (session != null)
+                {
+                    session.disconnect();
+                }
+                session = createSession();
+                sessions[index] = session;
             }
+            return session;
+        }
+    }
+
+    /**
+     * Checks whether a session can still open channels.
+     * @param session The session.
+     * @return true if the session is connected.
+     * @since 2.1
+     */
+    protected boolean isConnected(final Session session)
+    {
+        return session.isConnected();
+    }
+
+    /**
+     * Opens an SFTP channel on a session. The channel is connected by the caller.
+     * @param session The session, connected.
+     * @return The channel.
+     * @throws JSchException if the channel could not be opened.
+     * @since 2.1
+     */
+    protected ChannelSftp openChannel(final Session session) throws JSchException
+    {
+        return (ChannelSftp) session.openChannel("sftp");
+    }
+
+    /**
+     * Connects a new session to the server, when a session slot has none or its session
+     * was closed.
+     * @return The session.
+     * @throws FileSystemException if the session could not be connected.
+     * @since 2.1
+     */
+    protected Session createSession() throws FileSystemException
+    {
+        UserAuthenticationData authData = null;
+        try
+        {
+            final GenericFileName rootName = (GenericFileName) getRootName();
+
+            authData = UserAuthenticatorUtils.authenticate(getFileSystemOptions(),
+                SftpFileProvider.AUTHENTICATOR_TYPES);
+
+            return SftpClientFactory.createConnection(
+                rootName.getHostName(),
+                rootName.getPort(),
+                UserAuthenticatorUtils.getData(authData, UserAuthenticationData.USERNAME,
+                    UserAuthenticatorUtils.toChar(rootName.getUserName())),
+                UserAuthenticatorUtils.getData(authData, UserAuthenticationData.PASSWORD,
+                    UserAuthenticatorUtils.toChar(rootName.getPassword())),
+                getFileSystemOptions());
         }
-        else
+        catch (final Exception e)
         {
-            channel.disconnect();
+            throw new FileSystemException("vfs.provider.sftp/connect.error",
+                getRootName(),
+                e);
         }
+        finally
+        {
+            UserAuthenticatorUtils.cleanup(authData);
+        }
+    }
+
+    /**
+     * Files can be deleted by several threads at the same time.
+     */
+    @Override
+    protected boolean isConcurrentDeleteSupported()
+    {
+        // each delete borrows a channel of its own from the pool
+        return true;
     }
 
     /**
@@ -41,6 +41,18 @@ public final class SftpFileSystemConfigBuilder extends FileSystemConfigBuilder
     private static final SftpFileSystemConfigBuilder BUILDER = new SftpFileSystemConfigBuilder();
     private static final String USER_DIR_IS_ROOT = SftpFileSystemConfigBuilder.class.getName() + ".USER_DIR_IS_ROOT";
     private static final String TIMEOUT = SftpFileSystemConfigBuilder.class.getName() + ".TIMEOUT";
+    private static final String SESSION_COUNT = SftpFileSystemConfigBuilder.class.getName() + ".SESSION_COUNT";
+    private static final String POOL_MAX_ACTIVE = SftpFileSystemConfigBuilder.class.getName() + ".POOL_MAX_ACTIVE";
+    private static final String POOL_MIN_IDLE = SftpFileSystemConfigBuilder.class.getName() + ".POOL_MIN_IDLE";
+    private static final String POOL_MAX_IDLE = SftpFileSystemConfigBuilder.class.getName() + ".POOL_MAX_IDLE";
+    private static final String POOL_IDLE_TIMEOUT =
+        SftpFileSystemConfigBuilder.class.getName() + ".POOL_IDLE_TIMEOUT";
+    private static final String POOL_MAX_WAIT = SftpFileSystemConfigBuilder.class.getName() + ".POOL_MAX_WAIT";
+    private static final String POOL_TEST_ON_BORROW =
+        SftpFileSystemConfigBuilder.class.getName() + ".POOL_TEST_ON_BORROW";
+
+    private static final int DEFAULT_POOL_MAX_IDLE = 8;
+    private static final long DEFAULT_POOL_MAX_WAIT = 60000;
 
     private SftpFileSystemConfigBuilder()
     {
@@ -367,4 +379,171 @@ public final class SftpFileSystemConfigBuilder extends FileSystemConfigBuilder
     {
         return (String) getParam(opts, "PreferredAuthentications");
     }
+
+    /**
+     * Sets the number of SSH sessions the file system opens to the server.
+     * Channels are spread over the sessions, to avoid the per connection channel limit of the server
+     * and to spread the transfers over several connections.
+     *
+     * @param opts The FileSystem options.
+     * @param sessionCount The number of sessions.
+     * @since 2.1
+     */
+    public void setSessionCount(FileSystemOptions opts, int sessionCount)
+    {
+        setParam(opts, SESSION_COUNT, new Integer(sessionCount));
+    }
+
+    /**
+     * @param opts The FileSystem options.
+     * @return The number of sessions, 1 by default.
+     * @see #setSessionCount
+     * @since 2.1
+     */
+    public int getSessionCount(FileSystemOptions opts)
+    {
+        return getInteger(opts, SESSION_COUNT, 1);
+    }
+
+    /**
+     * Sets the maximum number of sftp channels, idle or in use, the file system opens to the server.
+     * When all channels are in use, further operations wait for a channel to be released.
+     *
+     * @param opts The FileSystem options.
+     * @param maxActive The maximum number of channels.
+     * @since 2.1
+     */
+    public void setPoolMaxActive(FileSystemOptions opts, int maxActive)
+    {
+        setParam(opts, POOL_MAX_ACTIVE, new Integer(maxActive));
+    }
+
+    /**
+     * @param opts The FileSystem options.
+     * @return The maximum number of channels, unbounded by default.
+     * @see #setPoolMaxActive
+     * @since 2.1
+     */
+    public int getPoolMaxActive(FileSystemOptions opts)
+    {
+        return getInteger(opts, POOL_MAX_ACTIVE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Sets the number of idle channels which are never closed by the idle timeout.
+     *
+     * @param opts The FileSystem options.
+     * @param minIdle The minimum number of idle channels.
+     * @since 2.1
+     */
+    public void setPoolMinIdle(FileSystemOptions opts, int minIdle)
+    {
+        setParam(opts, POOL_MIN_IDLE, new Integer(minIdle));
+    }
+
+    /**
+     * @param opts The FileSystem options.
+     * @return The minimum number of idle channels, 0 by default.
+     * @see #setPoolMinIdle
+     * @since 2.1
+     */
+    public int getPoolMinIdle(FileSystemOptions opts)
+    {
+        return getInteger(opts, POOL_MIN_IDLE, 0);
+    }
+
+    /**
+     * Sets the maximum number of idle channels kept open for reuse.
+     *
+     * @param opts The FileSystem options.
+     * @param maxIdle The maximum number of idle channels.
+     * @since 2.1
+     */
+    public void setPoolMaxIdle(FileSystemOptions opts, int maxIdle)
+    {
+        setParam(opts, POOL_MAX_IDLE, new Integer(maxIdle));
+    }
+
+    /**
+     * @param opts The FileSystem options.
+     * @return The maximum number of idle channels, 8 by default.
+     * @see #setPoolMaxIdle
+     * @since 2.1
+     */
+    public int getPoolMaxIdle(FileSystemOptions opts)
+    {
+        return getInteger(opts, POOL_MAX_IDLE, DEFAULT_POOL_MAX_IDLE);
+    }
+
+    /**
+     * Sets the time after which an idle channel is closed.<br />
+     * If you set the timeout to 0 idle channels are never closed.
+     *
+     * @param opts The FileSystem options.
+     * @param idleTimeout The timeout in milliseconds.
+     * @since 2.1
+     */
+    public void setPoolIdleTimeout(FileSystemOptions opts, long idleTimeout)
+    {
+        setParam(opts, POOL_IDLE_TIMEOUT, new Long(idleTimeout));
+    }
+
+    /**
+     * @param opts The FileSystem options.
+     * @return The idle timeout in milliseconds, 0 by default.
+     * @see #setPoolIdleTimeout
+     * @since 2.1
+     */
+    public long getPoolIdleTimeout(FileSystemOptions opts)
+    {
+        return getLong(opts, POOL_IDLE_TIMEOUT, 0);
+    }
+
+    /**
+     * Sets how long an operation waits for a channel when the maximum number of
+     * channels are in use.<br />
+     * If you set a negative value the operation waits indefinitely.
+     *
+     * @param opts The FileSystem options.
+     * @param maxWait The time to wait in milliseconds.
+     * @since 2.1
+     */
+    public void setPoolMaxWait(FileSystemOptions opts, long maxWait)
+    {
+        setParam(opts, POOL_MAX_WAIT, new Long(maxWait));
+    }
+
+    /**
+     * @param opts The FileSystem options.
+     * @return The time to wait in milliseconds, 60 seconds by default.
+     * @see #setPoolMaxWait
+     * @since 2.1
+     */
+    public long getPoolMaxWait(FileSystemOptions opts)
+    {
+        return getLong(opts, POOL_MAX_WAIT, DEFAULT_POOL_MAX_WAIT);
+    }
+
+    /**
+     * Check idle channels with a round-trip to the server before they are reused.
+     *
+     * @param opts The FileSystem options.
+     * @param testOnBorrow true if idle channels should be checked.
+     * @since 2.1
+     */
+    public void setPoolTestOnBorrow(FileSystemOptions opts, boolean testOnBorrow)
+    {
+        setParam(opts, POOL_TEST_ON_BORROW, testOnBorrow ? Boolean.TRUE : Boolean.FALSE);
+    }
+
+    /**
+     * @param opts The FileSystem options.
+     * @return true if idle channels are checked, false by default.
+     * @see #setPoolTestOnBorrow
+     * @since 2.1
+     */
+    public boolean getPoolTestOnBorrow(FileSystemOptions opts)
+    {
+        return getBoolean(opts, POOL_TEST_ON_BORROW, false);
+    }
 }
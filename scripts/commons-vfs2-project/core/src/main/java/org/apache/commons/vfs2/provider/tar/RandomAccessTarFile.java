@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.tar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.vfs2.provider.RandomAccessLayer;
+
+/**
+ * An uncompressed tar file read in place, through a {@link RandomAccessLayer}.
+ * <p>
+ * The headers are read one after the other, skipping the data of the entries, and the
+ * data of an entry is read from its position when the entry is.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+final class RandomAccessTarFile
+{
+    private static final int RECORD_SIZE = 512;
+
+    private final RandomAccessLayer layer;
+    private final List<TarEntry> entries = new ArrayList<TarEntry>();
+    private final Map<TarEntry, Long> dataOffsets = new IdentityHashMap<TarEntry, Long>();
+
+    /**
+     * Reads the headers of a tar file.
+     * @param layer The tar file.
+     * @throws IOException if an error occurs.
+     */
+    RandomAccessTarFile(final RandomAccessLayer layer) throws IOException
+    {
+        this.layer = layer;
+
+        final byte[] header = new byte[RECORD_SIZE];
+        String longName = null;
+        long pos = 0;
+        while (pos + RECORD_SIZE <= layer.length())
+        {
+            layer.readFully(pos, header, 0, RECORD_SIZE);
+            if (isEOFRecord(header))
+            {
+                break;
+            }
+
+            final TarEntry entry = new TarEntry(header);
+            final long dataOffset = pos + RECORD_SIZE;
+            final long size = entry.getSize();
+            pos = dataOffset + (size + RECORD_SIZE - 1) / RECORD_SIZE * RECORD_SIZE;
+
+            if (entry.isGNULongNameEntry())
+            {
+                // the name of the next entry
+                final byte[] name = new byte[(int) size];
+                layer.readFully(dataOffset, name, 0, name.length);
+                int length = name.length;
+                if (length > 0 && name[length - 1] == 0)
+                {
+                    length--;
+                }
+                longName = new String(name, 0, length);
+                continue;
+            }
+
+            if (longName != null)
+            {
+                entry.setName(longName);
+                longName = null;
+            }
+            entries.add(entry);
+            dataOffsets.put(entry, new Long(dataOffset));
+        }
+    }
+
+    private static boolean isEOFRecord(final byte[] record)
+    {
+        for (int i = 0; i < record.length; i++)
+        {
+            if (record[i] != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The entries, in the order of the file.
+     */
+    List<TarEntry> getEntries()
+    {
+        return entries;
+    }
+
+    /**
+     * Creates a stream to read the content of an entry.
+     * @param entry An entry of this file.
+     * @return The stream.
+     */
+    InputStream getInputStream(final TarEntry entry)
+    {
+        final Long dataOffset = dataOffsets.get(entry);
+        return layer.getInputStream(dataOffset.longValue(), entry.getSize());
+    }
+}
@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
 
@@ -39,8 +40,10 @@ import org.apache.commons.vfs2.Selectors;
 import org.apache.commons.vfs2.VfsLog;
 import org.apache.commons.vfs2.provider.AbstractFileName;
 import org.apache.commons.vfs2.provider.AbstractFileSystem;
+import org.apache.commons.vfs2.provider.RandomAccessLayer;
 import org.apache.commons.vfs2.provider.UriParser;
 import org.apache.commons.vfs2.provider.bzip2.Bzip2FileObject;
+import org.apache.commons.vfs2.provider.bzip2.Bzip2FileSystemConfigBuilder;
 
 /**
  * A read-only file system for Tar files.
@@ -52,8 +55,14 @@ public class TarFileSystem extends AbstractFileSystem implements FileSystem
     private static final Log LOG = LogFactory.getLog(TarFileSystem.class);
 
     private final File file;
+    /** True once the local copy is released to the replicator. */
+    private boolean replicaReleased;
     private TarInputStream tarFile;
 
+    /** The file below, when the tar file is read in place instead of replicated. */
+    private final RandomAccessLayer layer;
+    private RandomAccessTarFile archive;
+
     protected TarFileSystem(final AbstractFileName rootName,
                             final FileObject parentLayer,
                             final FileSystemOptions fileSystemOptions)
@@ -61,6 +70,16 @@ public class TarFileSystem extends AbstractFileSystem implements FileSystem
     {
         super(rootName, parentLayer, fileSystemOptions);
 
+        // Compressed tar files can only be read from the start
+        if ("tar".equalsIgnoreCase(rootName.getScheme()) && RandomAccessLayer.isSupported(parentLayer))
+        {
+            // The headers and the entries are read when needed
+            file = null;
+            layer = new RandomAccessLayer(parentLayer);
+            return;
+        }
+        layer = null;
+
         // Make a local copy of the file
         file = parentLayer.getFileSystem().replicateFile(parentLayer, Selectors.SELECT_SELF);
 
@@ -84,8 +103,9 @@ public class TarFileSystem extends AbstractFileSystem implements FileSystem
         try
         {
             List<TarFileObject> strongRef = new ArrayList<TarFileObject>(100);
+            final Iterator<TarEntry> entries = layer != null ? getArchive().getEntries().iterator() : null;
             TarEntry entry;
-            while ((entry = getTarFile().getNextEntry()) != null)
+            while ((entry = getNextEntry(entries)) != null)
             {
                 AbstractFileName name = (AbstractFileName) getFileSystemManager().resolveName(getRootName(),
                     UriParser.encode(entry.getName()));
@@ -136,18 +156,65 @@ public class TarFileSystem extends AbstractFileSystem implements FileSystem
         }
     }
 
+    /**
+     * Returns the next entry while building the index.
+     * @param entries The entries of the tar file read in place, null if it is replicated.
+     */
+    private TarEntry getNextEntry(final Iterator<TarEntry> entries) throws IOException
+    {
+        if (entries != null)
+        {
+            return entries.hasNext() ? entries.next() : null;
+        }
+        return getTarFile().getNextEntry();
+    }
+
+    /**
+     * Returns the tar file read in place, reading its headers on the first call.
+     */
+    private synchronized RandomAccessTarFile getArchive() throws FileSystemException
+    {
+        if (archive == null)
+        {
+            try
+            {
+                archive = new RandomAccessTarFile(layer);
+            }
+            catch (final IOException ioe)
+            {
+                throw new FileSystemException("vfs.provider.tar/open-tar-file.error", getParentLayer().getName(), ioe);
+            }
+        }
+        return archive;
+    }
+
     public InputStream getInputStream(TarEntry entry) throws FileSystemException
     {
-        resetTarFile();
+        if (layer != null)
+        {
+            return getArchive().getInputStream(entry);
+        }
+
+        // Each stream skips through a tar file of its own, so that entries can be read
+        // at the same time
+        final TarInputStream entryTarFile = createTarFile(this.file);
         try
         {
-            while (!tarFile.getNextEntry().equals(entry))
+            while (!entryTarFile.getNextEntry().equals(entry))
             {
             }
-            return tarFile;
+            return entryTarFile;
         }
         catch (IOException e)
         {
+            try
+            {
+                entryTarFile.close();
+            }
+            catch (IOException closeException)
+            {
+                // the read error is reported
+            }
             throw new FileSystemException(e);
         }
     }
@@ -183,7 +250,7 @@ public class TarFileSystem extends AbstractFileSystem implements FileSystem
 
     protected TarInputStream getTarFile() throws FileSystemException
     {
-        if (tarFile == null && this.file.exists())
+        if (tarFile == null && this.file != null && this.file.exists())
         {
             recreateTarFile();
         }
@@ -207,6 +274,12 @@ public class TarFileSystem extends AbstractFileSystem implements FileSystem
             }
             else if ("tbz2".equalsIgnoreCase(getRootName().getScheme()))
             {
+                final int threads = Bzip2FileSystemConfigBuilder.getInstance().getThreads(getFileSystemOptions());
+                if (threads > 1)
+                {
+                    return new TarInputStream(Bzip2FileObject.wrapInputStream(file.getAbsolutePath(),
+                        new FileInputStream(file), getContext().getAsyncExecutor(), threads));
+                }
                 return new TarInputStream(Bzip2FileObject.wrapInputStream(file.getAbsolutePath(),
                     new FileInputStream(file)));
             }
@@ -218,6 +291,23 @@ public class TarFileSystem extends AbstractFileSystem implements FileSystem
         }
     }
 
+    /**
+     * Closes the file system, and releases the local copy of the tar file.
+     */
+    @Override
+    public void close()
+    {
+        super.close();
+        synchronized (this)
+        {
+            if (file != null && !replicaReleased)
+            {
+                replicaReleased = true;
+                releaseReplica(file);
+            }
+        }
+    }
+
     @Override
     protected void doCloseCommunicationLink()
     {
@@ -229,6 +319,11 @@ public class TarFileSystem extends AbstractFileSystem implements FileSystem
                 tarFile.close();
                 tarFile = null;
             }
+            if (layer != null)
+            {
+                // The entries stay known, the content is opened again by the next read
+                layer.close();
+            }
         }
         catch (final IOException e)
         {
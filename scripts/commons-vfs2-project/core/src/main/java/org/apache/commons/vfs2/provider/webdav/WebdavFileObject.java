@@ -35,6 +35,7 @@ import org.apache.commons.httpclient.methods.RequestEntity;
 import org.apache.commons.httpclient.params.HttpMethodParams;
 import org.apache.commons.httpclient.util.DateUtil;
 import org.apache.commons.vfs2.FileContentInfoFactory;
+import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileNotFolderException;
 import org.apache.commons.vfs2.FileNotFoundException;
 import org.apache.commons.vfs2.FileObject;
@@ -87,9 +88,28 @@ public class WebdavFileObject extends HttpFileObject implements FileObject
     private final WebdavFileSystem fileSystem;
     private final String urlCharset;
 
+    /** The properties requested for each file of a deep listing. */
+    private static final DavPropertyNameSet DEEP_LISTING_PROPERTIES = new DavPropertyNameSet();
+
+    /** The properties requested for each file of a tree, to list their names. */
+    private static final DavPropertyNameSet TREE_PROPERTIES = new DavPropertyNameSet();
+
+    static
+    {
+        DEEP_LISTING_PROPERTIES.add(DavPropertyName.create(DavConstants.PROPERTY_DISPLAYNAME));
+        DEEP_LISTING_PROPERTIES.add(DavPropertyName.create(DavConstants.PROPERTY_RESOURCETYPE));
+        DEEP_LISTING_PROPERTIES.add(DavPropertyName.create(DavConstants.PROPERTY_GETCONTENTLENGTH));
+        DEEP_LISTING_PROPERTIES.add(DavPropertyName.create(DavConstants.PROPERTY_GETLASTMODIFIED));
+        TREE_PROPERTIES.add(DavPropertyName.create(DavConstants.PROPERTY_RESOURCETYPE));
+    }
+
     /** The FileSystemConfigBuilder */
     private final WebdavFileSystemConfigBuilder builder;
 
+    /** The properties and the children received with the deep listing of an ancestor. */
+    private volatile DavPropertySet primedProperties;
+    private volatile FileObject[] primedChildren;
+
     protected WebdavFileObject(final AbstractFileName name, final WebdavFileSystem fileSystem)
     {
         super(name, fileSystem);
@@ -98,6 +118,45 @@ public class WebdavFileObject extends HttpFileObject implements FileObject
         this.urlCharset = builder.getUrlCharset(getFileSystem().getFileSystemOptions());
     }
 
+    /**
+     * Detaches this file object from its file resource.
+     */
+    @Override
+    protected void doDetach() throws Exception
+    {
+        super.doDetach();
+        clearPrimed();
+    }
+
+    /**
+     * Called when the type or content of this file changes.
+     */
+    @Override
+    protected void onChange() throws Exception
+    {
+        super.onChange();
+        clearPrimed();
+    }
+
+    /**
+     * Called when the children of this file change.
+     */
+    @Override
+    protected void onChildrenChanged(final FileName child, final FileType newType) throws Exception
+    {
+        super.onChildrenChanged(child, newType);
+        primedChildren = null;
+    }
+
+    /**
+     * Forgets what the deep listing of an ancestor told about this file.
+     */
+    private void clearPrimed()
+    {
+        primedProperties = null;
+        primedChildren = null;
+    }
+
     protected void configureMethod(HttpMethodBase httpMethod)
     {
         httpMethod.getParams().setParameter(HttpMethodParams.RETRY_HANDLER, WebdavMethodRetryHandler.getInstance());
@@ -141,6 +200,22 @@ public class WebdavFileObject extends HttpFileObject implements FileObject
     @Override
     protected FileObject[] doListChildrenResolved() throws Exception
     {
+        final FileObject[] primed = primedChildren;
+        if (primed != null)
+        {
+            primedChildren = null;
+            return primed;
+        }
+
+        if (builder.isDeepListing(getFileSystem().getFileSystemOptions()) && !fileSystem.isDeepListingRefused())
+        {
+            final FileObject[] children = doListDescendants();
+            if (children != null)
+            {
+                return children;
+            }
+        }
+
         PropFindMethod method = null;
         try
         {
@@ -204,6 +279,121 @@ public class WebdavFileObject extends HttpFileObject implements FileObject
         }
     }
 
+    /**
+     * Lists this folder together with all its descendants, in one request of infinite
+     * depth. The files of the tree keep their properties and children, so they are not
+     * requested again.
+     *
+     * @return The children, null if the server refused the request.
+     * @throws Exception if an error occurs.
+     */
+    private FileObject[] doListDescendants() throws Exception
+    {
+        MultiStatusResponse[] responses = propFindTree(DEEP_LISTING_PROPERTIES);
+        if (responses == null)
+        {
+            return null;
+        }
+
+        String basePath = basePath();
+        Map<FileName, List<FileObject>> children = new HashMap<FileName, List<FileObject>>();
+        List<WebdavFileObject> folders = new ArrayList<WebdavFileObject>();
+        boolean folder = false;
+        for (int i = 0; i < responses.length; ++i)
+        {
+            MultiStatusResponse response = responses[i];
+            DavPropertySet properties = response.getProperties(HttpStatus.SC_OK);
+            String relativePath = relativePath(response.getHref(), basePath);
+            if (relativePath == null)
+            {
+                continue;
+            }
+            if (relativePath.length() == 0)
+            {
+                folder = isCollection(properties.get(DavPropertyName.RESOURCETYPE));
+                continue;
+            }
+
+            FileName childName = getFileSystem().getFileSystemManager().resolveName(getName(),
+                    relativePath, NameScope.DESCENDENT);
+            WebdavFileObject fo = (WebdavFileObject) FileObjectUtils.getAbstractFileObject(
+                    getFileSystem().resolveFile(childName));
+            fo.primedProperties = properties;
+            if (isCollection(properties.get(DavPropertyName.RESOURCETYPE)))
+            {
+                folders.add(fo);
+            }
+
+            FileName parentName = childName.getParent();
+            List<FileObject> siblings = children.get(parentName);
+            if (siblings == null)
+            {
+                siblings = new ArrayList<FileObject>();
+                children.put(parentName, siblings);
+            }
+            siblings.add(fo);
+        }
+
+        if (!folder)
+        {
+            throw new FileNotFolderException(getName());
+        }
+        for (WebdavFileObject fo : folders)
+        {
+            List<FileObject> list = children.get(fo.getName());
+            fo.primedChildren = list == null ? new FileObject[0] : list.toArray(new FileObject[list.size()]);
+        }
+        List<FileObject> list = children.get(getName());
+        return list == null ? new FileObject[0] : list.toArray(new FileObject[list.size()]);
+    }
+
+    /**
+     * Requests properties of this file and all its descendants, with one request of
+     * infinite depth.
+     *
+     * @param properties The properties requested.
+     * @return The responses, null if the server did not answer the request.
+     * @throws FileSystemException if an error occurs.
+     */
+    private MultiStatusResponse[] propFindTree(final DavPropertyNameSet properties) throws FileSystemException
+    {
+        PropFindMethod method = null;
+        try
+        {
+            method = new PropFindMethod(urlString((URLFileName) getName()), properties,
+                    DavConstants.DEPTH_INFINITY);
+            setupMethod(method);
+            int status = fileSystem.getClient().executeMethod(method);
+            if (!method.succeeded())
+            {
+                // RFC 4918 lets servers refuse infinite depth with 403 (propfind-finite-depth),
+                // older servers answer 400 or 501
+                if (status == HttpStatus.SC_FORBIDDEN || status == HttpStatus.SC_BAD_REQUEST
+                        || status == HttpStatus.SC_NOT_IMPLEMENTED)
+                {
+                    fileSystem.setDeepListingRefused();
+                }
+                return null;
+            }
+            return method.getResponseBodyAsMultiStatus().getResponses();
+        }
+        catch (DavException e)
+        {
+            throw new FileSystemException(e.getMessage(), e);
+        }
+        catch (IOException e)
+        {
+            throw new FileSystemException(e.getMessage(), e);
+        }
+        finally
+        {
+            if (method != null)
+            {
+                method.releaseConnection();
+            }
+        }
+    }
+
     /**
      * Creates this file as a folder.
      */
@@ -234,6 +424,80 @@ public class WebdavFileObject extends HttpFileObject implements FileObject
         execute(method);
     }
 
+    /**
+     * Deletes a collection and all its members with one request. The names of the members
+     * are listed first, to know what was deleted.
+     */
+    @Override
+    protected boolean doDeleteTree(final List<FileName> deleted) throws Exception
+    {
+        final List<FileName> names = new ArrayList<FileName>();
+        if (getType().hasChildren())
+        {
+            listDescendantNames(names);
+        }
+        names.add(getName());
+        doDelete();
+        deleted.addAll(names);
+        return true;
+    }
+
+    /**
+     * Lists the names of the descendants of this folder, without resolving the files. They
+     * are listed with one request of infinite depth, or with one request for each folder
+     * if the server refuses it.
+     *
+     * @param names The list to add the names to.
+     * @throws Exception if an error occurs.
+     */
+    private void listDescendantNames(final List<FileName> names) throws Exception
+    {
+        String basePath = basePath();
+        MultiStatusResponse[] responses = fileSystem.isDeepListingRefused() ? null : propFindTree(TREE_PROPERTIES);
+        if (responses != null)
+        {
+            for (int i = 0; i < responses.length; ++i)
+            {
+                String relativePath = relativePath(responses[i].getHref(), basePath);
+                if (relativePath != null && relativePath.length() > 0)
+                {
+                    names.add(getFileSystem().getFileSystemManager().resolveName(getName(), relativePath,
+                            NameScope.DESCENDENT));
+                }
+            }
+            return;
+        }
+
+        List<String> folders = new ArrayList<String>();
+        folders.add(basePath);
+        while (!folders.isEmpty())
+        {
+            String folderPath = folders.remove(folders.size() - 1);
+            PropFindMethod method = new PropFindMethod(urlString((URLFileName) getName()), TREE_PROPERTIES,
+                    DavConstants.DEPTH_1);
+            setupMethod(method);
+            // a member found by the previous requests
+            method.setPath(folderPath);
+            execute(method);
+            responses = method.getResponseBodyAsMultiStatus().getResponses();
+            for (int i = 0; i < responses.length; ++i)
+            {
+                MultiStatusResponse response = responses[i];
+                String memberPath = relativePath(response.getHref(), folderPath);
+                if (memberPath == null || memberPath.length() == 0)
+                {
+                    continue;
+                }
+                names.add(getFileSystem().getFileSystemManager().resolveName(getName(),
+                        relativePath(response.getHref(), basePath), NameScope.DESCENDENT));
+                if (isCollection(response.getProperties(HttpStatus.SC_OK).get(DavPropertyName.RESOURCETYPE)))
+                {
+                    folders.add(folderPath + memberPath + "/");
+                }
+            }
+        }
+    }
+
     /**
      * Rename the file.
      */
@@ -447,16 +711,7 @@ public class WebdavFileObject extends HttpFileObject implements FileObject
     {
         try
         {
-            DavProperty property = getProperty(name, DavConstants.PROPERTY_RESOURCETYPE);
-            Node node;
-            if (property != null && (node = (Node) property.getValue()) != null)
-            {
-                return node.getLocalName().equals(DavConstants.XML_COLLECTION);
-            }
-            else
-            {
-                return false;
-            }
+            return isCollection(getProperty(name, DavConstants.PROPERTY_RESOURCETYPE));
         }
         catch (FileNotFoundException fse)
         {
@@ -464,6 +719,19 @@ public class WebdavFileObject extends HttpFileObject implements FileObject
         }
     }
 
+    private static boolean isCollection(DavProperty resourceType)
+    {
+        Node node;
+        if (resourceType != null && (node = (Node) resourceType.getValue()) != null)
+        {
+            return node.getLocalName().equals(DavConstants.XML_COLLECTION);
+        }
+        else
+        {
+            return false;
+        }
+    }
+
     DavProperty getProperty(URLFileName fileName, String property)
             throws FileSystemException
     {
@@ -473,6 +741,12 @@ public class WebdavFileObject extends HttpFileObject implements FileObject
     DavProperty getProperty(URLFileName fileName, DavPropertyName name)
             throws FileSystemException
     {
+        DavPropertySet primed = primedProperties;
+        if (primed != null && fileName.equals(getName()) && DEEP_LISTING_PROPERTIES.contains(name))
+        {
+            // received with the deep listing of an ancestor
+            return primed.get(name);
+        }
         DavPropertyNameSet nameSet = new DavPropertyNameSet();
         nameSet.add(name);
         DavPropertySet propertySet = getProperties(fileName, nameSet, false);
@@ -583,14 +857,79 @@ public class WebdavFileObject extends HttpFileObject implements FileObject
         }
     }
 
+    /**
+     * Returns the path of a href, which is either an absolute URI or an absolute path.
+     *
+     * @param href The href of a response.
+     * @return The encoded path.
+     */
+    private static String hrefPath(String href)
+    {
+        int scheme = href.indexOf("://");
+        if (scheme < 0)
+        {
+            return href;
+        }
+        int path = href.indexOf('/', scheme + 3);
+        return path < 0 ? "/" : href.substring(path);
+    }
+
+    /**
+     * @return The encoded path of this file, ending with a slash.
+     */
+    private String basePath()
+    {
+        String basePath = hrefPath(hrefString((URLFileName) getName()));
+        return basePath.endsWith("/") ? basePath : basePath + "/";
+    }
+
+    /**
+     * Returns the path of a href relative to a folder.
+     *
+     * @param href The href of a response.
+     * @param basePath The encoded path of the folder, ending with a slash.
+     * @return The encoded relative path, without a trailing slash. An empty string for the
+     * folder itself, null if the href is not below the folder.
+     */
+    private static String relativePath(String href, String basePath)
+    {
+        String path = hrefPath(href);
+        if (!path.endsWith("/"))
+        {
+            path += "/";
+        }
+        if (!path.startsWith(basePath))
+        {
+            return null;
+        }
+        if (path.length() == basePath.length())
+        {
+            return "";
+        }
+        return path.substring(basePath.length(), path.length() - 1);
+    }
+
+    /**
+     * Checks whether a href is the one of a file. The paths are compared, as servers
+     * answer with absolute URIs or with absolute paths.
+     *
+     * @param href The href of a response.
+     * @param fileName The name of the file.
+     * @return true if the href is the one of the file.
+     */
     private boolean isCurrentFile(String href, URLFileName fileName)
     {
-        String name = hrefString(fileName);
-        if (href.endsWith("/") && !name.endsWith("/"))
+        String path = hrefPath(href);
+        String name = hrefPath(hrefString(fileName));
+        if (!path.endsWith("/"))
+        {
+            path += "/";
+        }
+        if (!name.endsWith("/"))
         {
             name += "/";
         }
-        return href.equals(name);
+        return path.equals(name);
     }
 
     /**
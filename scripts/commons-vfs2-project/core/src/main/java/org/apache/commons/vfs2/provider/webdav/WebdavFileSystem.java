@@ -37,6 +37,8 @@ import org.apache.commons.vfs2.provider.http.HttpFileSystem;
  */
 public class WebdavFileSystem extends HttpFileSystem implements FileSystem
 {
+    private volatile boolean deepListingRefused;
+
     protected WebdavFileSystem(final GenericFileName rootName, final HttpClient client,
                                final FileSystemOptions fileSystemOptions)
     {
@@ -59,6 +61,44 @@ public class WebdavFileSystem extends HttpFileSystem implements FileSystem
         caps.addAll(WebdavFileProvider.capabilities);
     }
 
+    /**
+     * Files can be deleted by several threads at the same time, the connections
+     * of the client are pooled.
+     */
+    @Override
+    protected boolean isConcurrentDeleteSupported()
+    {
+        return true;
+    }
+
+    /**
+     * Files can be uploaded and downloaded by several threads at the same time, each
+     * request borrows a connection of its own from the pool.
+     * @see org.apache.commons.vfs2.provider.http.HttpFileSystemConfigBuilder#setMaxConnectionsPerHost
+     */
+    @Override
+    protected boolean isConcurrentTransferSupported()
+    {
+        return true;
+    }
+
+    /**
+     * @return true if the server refused a listing of infinite depth.
+     */
+    boolean isDeepListingRefused()
+    {
+        return deepListingRefused;
+    }
+
+    /**
+     * Records that the server refuses listings of infinite depth, the folders are
+     * listed one level at a time from now on.
+     */
+    void setDeepListingRefused()
+    {
+        deepListingRefused = true;
+    }
+
     /**
      * Creates a file object.  This method is called only if the requested
      * file is not cached.
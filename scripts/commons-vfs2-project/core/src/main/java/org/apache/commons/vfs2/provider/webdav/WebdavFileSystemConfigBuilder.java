@@ -80,6 +80,31 @@ public final class WebdavFileSystemConfigBuilder extends HttpFileSystemConfigBui
         return getBoolean(opts, "versioning", false);
     }
 
+    /**
+     * Whether to list a folder together with all its descendants, in one request of
+     * infinite depth. The children, types, sizes and last modified times of the whole
+     * tree are known afterwards, without a request for each folder. Servers which refuse
+     * such requests are listed one level at a time.
+     * @param opts The FileSystem options.
+     * @param deepListing true if folders should be listed with all their descendants.
+     * @since 2.1
+     */
+    public void setDeepListing(FileSystemOptions opts, boolean deepListing)
+    {
+        setParam(opts, "deepListing", Boolean.valueOf(deepListing));
+    }
+
+    /**
+     * @see #setDeepListing
+     * @param opts The FileSystem options.
+     * @return true if folders are listed with all their descendants.
+     * @since 2.1
+     */
+    public boolean isDeepListing(FileSystemOptions opts)
+    {
+        return getBoolean(opts, "deepListing", false);
+    }
+
     /**
      * @return The Webdav FileSystem Class object.
      */
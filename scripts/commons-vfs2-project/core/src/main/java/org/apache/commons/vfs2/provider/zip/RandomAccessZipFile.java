@@ -0,0 +1,414 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.zip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.provider.RandomAccessLayer;
+
+/**
+ * A zip file read in place, through a {@link RandomAccessLayer}.
+ * <p>
+ * Only the central directory is read when the file is opened, the local header and the
+ * data of an entry are read when the entry is. Entries are stored or deflated, archives
+ * split over several disks are not supported.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+final class RandomAccessZipFile
+{
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int ZIP64_EXTRA = 0x0001;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_END_SIZE = 56;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int MAX_COMMENT = 0xffff;
+    private static final long MAGIC_32 = 0xffffffffL;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final RandomAccessLayer layer;
+    private final List<Entry> entries = new ArrayList<Entry>();
+    private final Map<String, Entry> entriesByName = new HashMap<String, Entry>();
+
+    /**
+     * Reads the central directory of a zip file.
+     * @param layer The zip file.
+     * @throws IOException if an error occurs, or the file is not a zip file.
+     */
+    RandomAccessZipFile(final RandomAccessLayer layer) throws IOException
+    {
+        this.layer = layer;
+
+        final long end = findEnd();
+        final byte[] record = read(end, END_SIZE);
+        long count = getShort(record, 10);
+        long size = getInt(record, 12);
+        long offset = getInt(record, 16);
+        long base = end - size - offset;
+
+        if ((count == 0xffff || size == MAGIC_32 || offset == MAGIC_32) && end >= ZIP64_LOCATOR_SIZE)
+        {
+            final byte[] locator = read(end - ZIP64_LOCATOR_SIZE, ZIP64_LOCATOR_SIZE);
+            if (getInt(locator, 0) == ZIP64_LOCATOR)
+            {
+                final long zip64End = getLong(locator, 8);
+                final byte[] zip64 = read(zip64End, ZIP64_END_SIZE);
+                if (getInt(zip64, 0) != ZIP64_END_OF_CENTRAL_DIRECTORY)
+                {
+                    throw corrupted();
+                }
+                count = getLong(zip64, 32);
+                size = getLong(zip64, 40);
+                offset = getLong(zip64, 48);
+                base = zip64End - size - offset;
+            }
+        }
+
+        if (base < 0 || size > Integer.MAX_VALUE)
+        {
+            throw corrupted();
+        }
+        readCentralDirectory(base, read(base + offset, (int) size), count);
+    }
+
+    /**
+     * Searches the end of central directory record, which is followed by a comment of up to 64K.
+     */
+    private long findEnd() throws IOException
+    {
+        final long length = layer.length();
+        if (length < END_SIZE)
+        {
+            throw corrupted();
+        }
+
+        final int tail = (int) Math.min(length, END_SIZE + MAX_COMMENT);
+        final byte[] buffer = read(length - tail, tail);
+        for (int i = tail - END_SIZE; i >= 0; i--)
+        {
+            if (getInt(buffer, i) == END_OF_CENTRAL_DIRECTORY
+                && i + END_SIZE + getShort(buffer, i + 20) <= tail)
+            {
+                return length - tail + i;
+            }
+        }
+        throw corrupted();
+    }
+
+    private void readCentralDirectory(final long base, final byte[] directory, final long count)
+        throws IOException
+    {
+        int pos = 0;
+        for (long i = 0; i < count; i++)
+        {
+            if (pos + CENTRAL_HEADER_SIZE > directory.length || getInt(directory, pos) != CENTRAL_HEADER)
+            {
+                throw corrupted();
+            }
+
+            final int nameLength = getShort(directory, pos + 28);
+            final int extraLength = getShort(directory, pos + 30);
+            final int commentLength = getShort(directory, pos + 32);
+            final int next = pos + CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+            if (next > directory.length)
+            {
+                throw corrupted();
+            }
+
+            final int nameStart = pos + CENTRAL_HEADER_SIZE;
+            final String name = decode(directory, nameStart, nameLength);
+            long compressedSize = getInt(directory, pos + 20);
+            long size = getInt(directory, pos + 24);
+            long headerOffset = getInt(directory, pos + 42);
+
+            final byte[] extra = new byte[extraLength];
+            System.arraycopy(directory, nameStart + nameLength, extra, 0, extraLength);
+
+            // the sizes and offset which do not fit, in the order of the central header
+            final int zip64 = findExtra(extra, ZIP64_EXTRA);
+            if (zip64 >= 0)
+            {
+                int field = zip64 + 4;
+                final int fieldsEnd = field + getShort(extra, zip64 + 2);
+                if (size == MAGIC_32 && field + 8 <= fieldsEnd)
+                {
+                    size = getLong(extra, field);
+                    field += 8;
+                }
+                if (compressedSize == MAGIC_32 && field + 8 <= fieldsEnd)
+                {
+                    compressedSize = getLong(extra, field);
+                    field += 8;
+                }
+                if (headerOffset == MAGIC_32 && field + 8 <= fieldsEnd)
+                {
+                    headerOffset = getLong(extra, field);
+                }
+            }
+
+            final Entry entry = new Entry(name, base + headerOffset, getShort(directory, pos + 10));
+            entry.setTime(dosToJavaTime(getInt(directory, pos + 12)));
+            entry.setCrc(getInt(directory, pos + 16));
+            entry.setSize(size);
+            entry.setCompressedSize(compressedSize);
+            if (extraLength > 0)
+            {
+                try
+                {
+                    entry.setExtra(extra);
+                }
+                catch (final IllegalArgumentException e)
+                {
+                    // a malformed extra field, the entry can still be read
+                }
+            }
+            if (commentLength > 0)
+            {
+                entry.setComment(decode(directory, nameStart + nameLength + extraLength, commentLength));
+            }
+
+            entries.add(entry);
+            if (!entriesByName.containsKey(name))
+            {
+                entriesByName.put(name, entry);
+            }
+            pos = next;
+        }
+    }
+
+    /**
+     * @return The entries, in the order of the central directory.
+     */
+    Enumeration<? extends ZipEntry> entries()
+    {
+        return Collections.enumeration(entries);
+    }
+
+    /**
+     * Looks up an entry, as {@link java.util.zip.ZipFile#getEntry}.
+     * @param name The name of the entry.
+     * @return The entry, or null if not found.
+     */
+    ZipEntry getEntry(final String name)
+    {
+        final Entry entry = entriesByName.get(name);
+        if (entry == null && !name.endsWith("/"))
+        {
+            return entriesByName.get(name + "/");
+        }
+        return entry;
+    }
+
+    /**
+     * Creates a stream to read the content of an entry.
+     * @param zipEntry An entry of this file.
+     * @return The stream.
+     * @throws IOException if an error occurs.
+     */
+    InputStream getInputStream(final ZipEntry zipEntry) throws IOException
+    {
+        final Entry entry = (Entry) zipEntry;
+        final InputStream in = layer.getInputStream(entry.getDataOffset(), entry.getCompressedSize());
+        if (entry.compressionMethod == ZipEntry.STORED)
+        {
+            return in;
+        }
+        if (entry.compressionMethod == ZipEntry.DEFLATED)
+        {
+            return new EntryInputStream(in, (int) Math.min(BUFFER_SIZE, Math.max(1, entry.getCompressedSize())));
+        }
+        in.close();
+        throw new FileSystemException("vfs.provider.zip/unsupported-method.error", entry.getName());
+    }
+
+    private byte[] read(final long pos, final int len) throws IOException
+    {
+        if (pos < 0 || pos + len > layer.length())
+        {
+            throw corrupted();
+        }
+        final byte[] buffer = new byte[len];
+        layer.readFully(pos, buffer, 0, len);
+        return buffer;
+    }
+
+    private FileSystemException corrupted()
+    {
+        return new FileSystemException("vfs.provider.zip/bad-zip-file.error", layer.getFile().getName());
+    }
+
+    private static String decode(final byte[] b, final int off, final int len)
+    {
+        try
+        {
+            // as java.util.zip.ZipFile, names are UTF-8 whether or not the language encoding flag is set
+            return new String(b, off, len, "UTF-8");
+        }
+        catch (final UnsupportedEncodingException e)
+        {
+            // UTF-8 is always supported
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static int findExtra(final byte[] extra, final int id)
+    {
+        int pos = 0;
+        while (pos + 4 <= extra.length)
+        {
+            if (getShort(extra, pos) == id)
+            {
+                return pos;
+            }
+            pos += 4 + getShort(extra, pos + 2);
+        }
+        return -1;
+    }
+
+    private static long dosToJavaTime(final long time)
+    {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set((int) (((time >> 25) & 0x7f) + 1980),
+            (int) (((time >> 21) & 0x0f) - 1),
+            (int) ((time >> 16) & 0x1f),
+            (int) ((time >> 11) & 0x1f),
+            (int) ((time >> 5) & 0x3f),
+            (int) ((time << 1) & 0x3e));
+        return calendar.getTimeInMillis();
+    }
+
+    private static int getShort(final byte[] b, final int off)
+    {
+        return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8;
+    }
+
+    private static long getInt(final byte[] b, final int off)
+    {
+        return (getShort(b, off) | (long) getShort(b, off + 2) << 16) & MAGIC_32;
+    }
+
+    private static long getLong(final byte[] b, final int off)
+    {
+        return getInt(b, off) | getInt(b, off + 4) << 32;
+    }
+
+    /**
+     * An entry, with the position of its local header.
+     */
+    private final class Entry extends ZipEntry
+    {
+        private final long headerOffset;
+        private final int compressionMethod;
+        private long dataOffset = -1;
+
+        private Entry(final String name, final long headerOffset, final int compressionMethod)
+        {
+            super(name);
+            this.headerOffset = headerOffset;
+            this.compressionMethod = compressionMethod;
+
+            // ZipEntry only accepts the methods java.util.zip can read
+            if (compressionMethod == STORED || compressionMethod == DEFLATED)
+            {
+                setMethod(compressionMethod);
+            }
+        }
+
+        /**
+         * Reads the local header, which may have other extra fields than the central one.
+         */
+        private synchronized long getDataOffset() throws IOException
+        {
+            if (dataOffset < 0)
+            {
+                final byte[] header = read(headerOffset, LOCAL_HEADER_SIZE);
+                if (getInt(header, 0) != LOCAL_HEADER)
+                {
+                    throw corrupted();
+                }
+                dataOffset = headerOffset + LOCAL_HEADER_SIZE + getShort(header, 26) + getShort(header, 28);
+            }
+            return dataOffset;
+        }
+    }
+
+    /**
+     * Inflates the data of an entry, with the dummy byte the inflater may need at the end.
+     */
+    private static final class EntryInputStream extends InflaterInputStream
+    {
+        private boolean eof;
+
+        private EntryInputStream(final InputStream in, final int size)
+        {
+            super(in, new Inflater(true), size);
+        }
+
+        @Override
+        protected void fill() throws IOException
+        {
+            if (eof)
+            {
+                throw new EOFException("Unexpected end of zip entry");
+            }
+            len = in.read(buf, 0, buf.length);
+            if (len < 0)
+            {
+                buf[0] = 0;
+                len = 1;
+                eof = true;
+            }
+            inf.setInput(buf, 0, len);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                super.close();
+            }
+            finally
+            {
+                inf.end();
+            }
+        }
+    }
+}
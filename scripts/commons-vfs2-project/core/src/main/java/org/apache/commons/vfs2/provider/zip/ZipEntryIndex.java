@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.zip;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+
+/**
+ * A compact, read-only index of the entries of a zip file.
+ * <p>
+ * The index holds the normalized path of every entry and of every implied parent folder
+ * in a sorted array, together with primitive arrays for the parent, first child and next
+ * sibling of each path. Paths are relative to the root of the archive and the root itself
+ * is the empty path at offset 0. No {@link ZipEntry} is retained, entries are looked up
+ * in the zip file when a file object is created.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+final class ZipEntryIndex
+{
+    /** The path is a folder. */
+    private static final byte FOLDER = 1;
+
+    /** The path has an entry in the zip file. */
+    private static final byte ENTRY = 2;
+
+    /** Indexes shared between file systems, by archive key. */
+    private static final Map<String, SoftReference<ZipEntryIndex>> INDEXES =
+        new HashMap<String, SoftReference<ZipEntryIndex>>();
+
+    private final String[] paths;
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final byte[] flags;
+
+    /** Entry names which differ from their normalized path, usually empty. */
+    private final Map<String, String> entryNames;
+
+    private ZipEntryIndex(final Enumeration<? extends ZipEntry> entries)
+    {
+        final Set<String> folders = new HashSet<String>();
+        final Map<String, String> files = new HashMap<String, String>();
+        final Map<String, String> aliases = new HashMap<String, String>();
+        folders.add("");
+
+        while (entries.hasMoreElements())
+        {
+            final ZipEntry entry = entries.nextElement();
+            final String entryName = entry.getName();
+            final String path = normalize(entryName);
+            if (path.length() == 0)
+            {
+                continue;
+            }
+
+            if (!path.equals(entryName)
+                && !(entryName.length() == path.length() + 1 && entryName.startsWith(path)))
+            {
+                aliases.put(path, entryName);
+            }
+
+            if (entry.isDirectory())
+            {
+                folders.add(path);
+                // an entry for this folder
+                files.put(path, null);
+            }
+            else if (!files.containsKey(path))
+            {
+                files.put(path, path);
+            }
+
+            // Make sure all ancestors exist
+            for (int sep = path.lastIndexOf('/'); sep > 0; sep = path.lastIndexOf('/', sep - 1))
+            {
+                if (!folders.add(path.substring(0, sep)))
+                {
+                    break;
+                }
+            }
+        }
+
+        final Set<String> all = new HashSet<String>(folders);
+        all.addAll(files.keySet());
+        paths = all.toArray(new String[all.size()]);
+        Arrays.sort(paths);
+
+        final int count = paths.length;
+        parents = new int[count];
+        firstChildren = new int[count];
+        nextSiblings = new int[count];
+        flags = new byte[count];
+        Arrays.fill(firstChildren, -1);
+        Arrays.fill(nextSiblings, -1);
+
+        parents[0] = -1;
+        for (int i = 1; i < count; i++)
+        {
+            final String path = paths[i];
+            final int sep = path.lastIndexOf('/');
+            parents[i] = sep < 0 ? 0 : Arrays.binarySearch(paths, path.substring(0, sep));
+
+            // A file entry stays a file, even if other entries are nested below it
+            final String fileName = files.get(path);
+            if (fileName != null)
+            {
+                flags[i] = ENTRY;
+            }
+            else
+            {
+                flags[i] = files.containsKey(path) ? (byte) (FOLDER | ENTRY) : FOLDER;
+            }
+        }
+        flags[0] = FOLDER;
+
+        // Link the children in sorted order
+        for (int i = count - 1; i > 0; i--)
+        {
+            final int parent = parents[i];
+            nextSiblings[i] = firstChildren[parent];
+            firstChildren[parent] = i;
+        }
+
+        entryNames = aliases.isEmpty() ? null : aliases;
+    }
+
+    /**
+     * Returns the index for a zip file, sharing a previously built index with the same key.
+     * @param key The key of the archive, or null if the index must not be shared.
+     * @param entries The entries of the zip file to index.
+     * @return The index.
+     */
+    static ZipEntryIndex getIndex(final String key, final Enumeration<? extends ZipEntry> entries)
+    {
+        if (key == null)
+        {
+            return new ZipEntryIndex(entries);
+        }
+
+        synchronized (INDEXES)
+        {
+            final SoftReference<ZipEntryIndex> ref = INDEXES.get(key);
+            ZipEntryIndex index = ref == null ? null : ref.get();
+            if (index == null)
+            {
+                index = new ZipEntryIndex(entries);
+                removeCleared();
+                INDEXES.put(key, new SoftReference<ZipEntryIndex>(index));
+            }
+            return index;
+        }
+    }
+
+    private static void removeCleared()
+    {
+        final Iterator<SoftReference<ZipEntryIndex>> iter = INDEXES.values().iterator();
+        while (iter.hasNext())
+        {
+            if (iter.next().get() == null)
+            {
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Normalizes an entry name to a path relative to the root of the archive,
+     * without leading or trailing separators.
+     */
+    static String normalize(final String entryName)
+    {
+        final String name = entryName.replace('\\', '/');
+        if (name.indexOf("//") < 0 && name.indexOf("./") < 0 && !name.startsWith("/") && !name.endsWith("."))
+        {
+            return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+        }
+
+        final StringBuilder buffer = new StringBuilder(name.length());
+        final String[] elements = name.split("/");
+        for (int i = 0; i < elements.length; i++)
+        {
+            final String element = elements[i];
+            if (element.length() == 0 || element.equals("."))
+            {
+                continue;
+            }
+            if (element.equals(".."))
+            {
+                buffer.setLength(Math.max(0, buffer.lastIndexOf("/")));
+                continue;
+            }
+            if (buffer.length() > 0)
+            {
+                buffer.append('/');
+            }
+            buffer.append(element);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Returns the offset of a path, or a negative value if the path is not in the archive.
+     * @param path The path relative to the root of the archive.
+     * @return The offset of the path.
+     */
+    int indexOf(final String path)
+    {
+        return Arrays.binarySearch(paths, path);
+    }
+
+    boolean isFolder(final int index)
+    {
+        return (flags[index] & FOLDER) != 0;
+    }
+
+    /**
+     * Returns the name of the entry of a path, or null if the path is an implied folder.
+     */
+    String getEntryName(final int index)
+    {
+        if ((flags[index] & ENTRY) == 0)
+        {
+            return null;
+        }
+
+        final String path = paths[index];
+        if (entryNames != null && entryNames.containsKey(path))
+        {
+            return entryNames.get(path);
+        }
+        return isFolder(index) ? path + "/" : path;
+    }
+
+    /**
+     * Returns the base names of the children of a path.
+     */
+    String[] getChildren(final int index)
+    {
+        int count = 0;
+        for (int child = firstChildren[index]; child >= 0; child = nextSiblings[child])
+        {
+            count++;
+        }
+
+        final String[] children = new String[count];
+        count = 0;
+        for (int child = firstChildren[index]; child >= 0; child = nextSiblings[child])
+        {
+            final String path = paths[child];
+            children[count++] = path.substring(path.lastIndexOf('/') + 1);
+        }
+        return children;
+    }
+}
@@ -26,6 +26,7 @@ import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileType;
 import org.apache.commons.vfs2.provider.AbstractFileName;
 import org.apache.commons.vfs2.provider.AbstractFileObject;
+import org.apache.commons.vfs2.provider.UriParser;
 
 /**
  * A file in a Zip file system.
@@ -87,6 +88,18 @@ public class ZipFileObject extends AbstractFileObject implements FileObject
         children.add(childName.getBaseName());
     }
 
+    /**
+     * Attaches the children listed by the entry index.
+     * @param childNames The base names of the children.
+     */
+    void attachChildren(final String[] childNames)
+    {
+        for (int i = 0; i < childNames.length; i++)
+        {
+            children.add(UriParser.encode(childNames[i]));
+        }
+    }
+
     /**
      * Determines if this file can be written to.
      *
@@ -166,6 +179,6 @@ public class ZipFileObject extends AbstractFileObject implements FileObject
             throw new FileSystemException("vfs.provider/read-not-file.error", getName());
         }
 
-        return fs.getZipFile().getInputStream(entry);
+        return fs.getInputStream(entry);
     }
 }
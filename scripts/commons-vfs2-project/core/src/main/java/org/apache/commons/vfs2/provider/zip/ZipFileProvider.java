@@ -24,6 +24,7 @@ import org.apache.commons.vfs2.Capability;
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemConfigBuilder;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemOptions;
 import org.apache.commons.vfs2.FileType;
@@ -76,6 +77,12 @@ public class ZipFileProvider extends AbstractLayeredFileProvider implements File
         return new ZipFileSystem(rootName, file, fileSystemOptions);
     }
 
+    @Override
+    public FileSystemConfigBuilder getConfigBuilder()
+    {
+        return ZipFileSystemConfigBuilder.getInstance();
+    }
+
     public Collection<Capability> getCapabilities()
     {
         return capabilities;
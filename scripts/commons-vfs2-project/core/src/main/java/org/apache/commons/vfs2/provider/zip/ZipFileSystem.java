@@ -18,6 +18,7 @@ package org.apache.commons.vfs2.provider.zip;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
@@ -36,6 +37,7 @@ import org.apache.commons.vfs2.Selectors;
 import org.apache.commons.vfs2.VfsLog;
 import org.apache.commons.vfs2.provider.AbstractFileName;
 import org.apache.commons.vfs2.provider.AbstractFileSystem;
+import org.apache.commons.vfs2.provider.RandomAccessLayer;
 import org.apache.commons.vfs2.provider.UriParser;
 
 /**
@@ -48,8 +50,17 @@ public class ZipFileSystem extends AbstractFileSystem implements FileSystem
     private static final Log LOG = LogFactory.getLog(ZipFileSystem.class);
 
     private final File file;
+    /** True once the local copy is released to the replicator. */
+    private boolean replicaReleased;
     private ZipFile zipFile;
 
+    /** The file below, when the zip file is read in place instead of replicated. */
+    private final RandomAccessLayer layer;
+    private RandomAccessZipFile archive;
+
+    /** The entry index, when the entries are indexed lazily. */
+    private ZipEntryIndex index;
+
   public ZipFileSystem(final AbstractFileName rootName,
                          final FileObject parentLayer,
                          final FileSystemOptions fileSystemOptions)
@@ -57,6 +68,15 @@ public class ZipFileSystem extends AbstractFileSystem implements FileSystem
     {
         super(rootName, parentLayer, fileSystemOptions);
 
+        if (canReadInPlace(parentLayer))
+        {
+            // The central directory and the entries are read when needed
+            file = null;
+            layer = new RandomAccessLayer(parentLayer);
+            return;
+        }
+        layer = null;
+
         // Make a local copy of the file
         file = parentLayer.getFileSystem().replicateFile(parentLayer, Selectors.SELECT_SELF);
 
@@ -78,9 +98,19 @@ public class ZipFileSystem extends AbstractFileSystem implements FileSystem
 
         try
         {
+            if (ZipFileSystemConfigBuilder.getInstance().isLazyIndex(getFileSystemOptions()))
+            {
+                // Only build the index, the files are created when they are resolved
+                if (layer != null || getZipFile() != null)
+                {
+                    index = ZipEntryIndex.getIndex(getIndexKey(), getEntries());
+                }
+                return;
+            }
+
             // Build the index
             List<ZipFileObject> strongRef = new ArrayList<ZipFileObject>(100);
-            Enumeration<? extends ZipEntry> entries = getZipFile().entries();
+            Enumeration<? extends ZipEntry> entries = getEntries();
             while (entries.hasMoreElements())
             {
                 ZipEntry entry = entries.nextElement();
@@ -129,9 +159,90 @@ public class ZipFileSystem extends AbstractFileSystem implements FileSystem
         }
     }
 
+    /**
+     * Returns the key used to share the entry index of the archive between file systems.
+     * @return The key, or null if the archive can not be identified reliably.
+     */
+    private String getIndexKey() throws FileSystemException
+    {
+        final FileObject parentLayer = getParentLayer();
+        if (!parentLayer.getFileSystem().hasCapability(Capability.GET_LAST_MODIFIED))
+        {
+            return null;
+        }
+
+        final long length = layer != null ? layer.length() : file.length();
+        return parentLayer.getName().getURI() + '#' + length
+            + '#' + parentLayer.getContent().getLastModifiedTime();
+    }
+
+    /**
+     * Returns true if the zip file is read in place, through the random access content of
+     * the file below, rather than replicated and opened as {@link ZipFile}.
+     * @param parentLayer The file below.
+     * @return true to read the zip file in place.
+     * @throws FileSystemException if an error occurs.
+     */
+    protected boolean canReadInPlace(final FileObject parentLayer) throws FileSystemException
+    {
+        return RandomAccessLayer.isSupported(parentLayer);
+    }
+
+    /**
+     * Returns the zip file read in place, reading its central directory on the first call.
+     */
+    private synchronized RandomAccessZipFile getArchive() throws FileSystemException
+    {
+        if (archive == null)
+        {
+            try
+            {
+                archive = new RandomAccessZipFile(layer);
+            }
+            catch (final IOException ioe)
+            {
+                throw new FileSystemException("vfs.provider.zip/open-zip-file.error", getParentLayer().getName(), ioe);
+            }
+        }
+        return archive;
+    }
+
+    private Enumeration<? extends ZipEntry> getEntries() throws FileSystemException
+    {
+        if (layer != null)
+        {
+            return getArchive().entries();
+        }
+        return getZipFile().entries();
+    }
+
+    private ZipEntry getEntry(final String entryName) throws FileSystemException
+    {
+        if (layer != null)
+        {
+            return getArchive().getEntry(entryName);
+        }
+        return getZipFile().getEntry(entryName);
+    }
+
+    /**
+     * Creates a stream to read the content of an entry.
+     * @param entry The entry.
+     * @return The stream.
+     * @throws IOException if an error occurs.
+     */
+    InputStream getInputStream(final ZipEntry entry) throws IOException
+    {
+        if (layer != null)
+        {
+            return getArchive().getInputStream(entry);
+        }
+        return getZipFile().getInputStream(entry);
+    }
+
     protected ZipFile getZipFile() throws FileSystemException
     {
-        if (zipFile == null && this.file.exists())
+        if (zipFile == null && this.file != null && this.file.exists())
         {
             ZipFile zipFile = createZipFile(this.file);
 
@@ -159,6 +270,23 @@ public class ZipFileSystem extends AbstractFileSystem implements FileSystem
         }
     }
 
+    /**
+     * Closes the file system, and releases the local copy of the zip file.
+     */
+    @Override
+    public void close()
+    {
+        super.close();
+        synchronized (this)
+        {
+            if (file != null && !replicaReleased)
+            {
+                replicaReleased = true;
+                releaseReplica(file);
+            }
+        }
+    }
+
     @Override
     protected void doCloseCommunicationLink()
     {
@@ -170,6 +298,11 @@ public class ZipFileSystem extends AbstractFileSystem implements FileSystem
                 zipFile.close();
                 zipFile = null;
             }
+            if (layer != null)
+            {
+                // The entries stay known, the content is opened again by the next read
+                layer.close();
+            }
         }
         catch (final IOException e)
         {
@@ -193,6 +326,19 @@ public class ZipFileSystem extends AbstractFileSystem implements FileSystem
     @Override
     protected FileObject createFile(final AbstractFileName name) throws FileSystemException
     {
+        if (index != null)
+        {
+            final int offset = index.indexOf(name.getPathDecoded().substring(1));
+            if (offset >= 0)
+            {
+                final String entryName = index.getEntryName(offset);
+                final ZipEntry entry = entryName == null ? null : getEntry(entryName);
+                final ZipFileObject fileObj = createZipFileObject(name, entry);
+                fileObj.attachChildren(index.getChildren(offset));
+                return fileObj;
+            }
+        }
+
         // This is only called for files which do not exist in the Zip file
         return new ZipFileObject(name, null, this, false);
     }
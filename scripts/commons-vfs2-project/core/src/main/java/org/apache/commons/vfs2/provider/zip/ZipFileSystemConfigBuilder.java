@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.zip;
+
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemConfigBuilder;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Config Builder for the Zip and Jar file systems.
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public final class ZipFileSystemConfigBuilder extends FileSystemConfigBuilder
+{
+    /** lazy index key. */
+    private static final String LAZY_INDEX_KEY = "lazyIndex";
+
+    /** config builder SINGLETON. */
+    private static final ZipFileSystemConfigBuilder SINGLETON = new ZipFileSystemConfigBuilder();
+
+    /**
+     * Constructor
+     */
+    private ZipFileSystemConfigBuilder()
+    {
+        super("zip.");
+    }
+
+    /**
+     * @return the config builder SINGLETON
+     */
+    public static ZipFileSystemConfigBuilder getInstance()
+    {
+        return SINGLETON;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<? extends FileSystem> getConfigClass()
+    {
+        return ZipFileSystem.class;
+    }
+
+    /**
+     * Sets whether the file system should index the archive lazily.
+     * <p>
+     * In lazy mode the entries are kept in a compact index which is shared between
+     * file systems mounted on the same archive, and the file objects are only created
+     * when they are resolved. The default is to create a file object for every entry
+     * when the file system is initialized.
+     *
+     * @param opts The FileSystem options.
+     * @param lazyIndex true if the entries should be indexed lazily.
+     */
+    public void setLazyIndex(FileSystemOptions opts, boolean lazyIndex)
+    {
+        setParam(opts, LAZY_INDEX_KEY, lazyIndex ? Boolean.TRUE : Boolean.FALSE);
+    }
+
+    /**
+     * @param opts The FileSystem options.
+     * @return true if the entries are indexed lazily.
+     * @see #setLazyIndex
+     */
+    public boolean isLazyIndex(FileSystemOptions opts)
+    {
+        return getBoolean(opts, LAZY_INDEX_KEY, false);
+    }
+}
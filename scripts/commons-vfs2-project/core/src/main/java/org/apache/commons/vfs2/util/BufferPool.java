@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of the buffers of streams.
+ * <p>
+ * Buffers are kept by size, up to a number of bytes in all. A buffer acquired
+ * from an empty pool is allocated, a buffer released to a full pool is left to
+ * the garbage collector, so the pool never blocks.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public final class BufferPool
+{
+    /** The default size of a buffer, as the one of <code>BufferedInputStream</code>. */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /** The default number of bytes kept, 4MB. */
+    private static final long DEFAULT_MAX_RETAINED = 4L * 1024 * 1024;
+
+    private static final BufferPool INSTANCE = new BufferPool(DEFAULT_MAX_RETAINED);
+
+    private final long maxRetained;
+
+    /** The free buffers, by size. */
+    private final ConcurrentMap<Integer, Queue<byte[]>> buffers = new ConcurrentHashMap<Integer, Queue<byte[]>>();
+
+    /** The number of bytes in the free buffers. */
+    private final AtomicLong retained = new AtomicLong();
+
+    /**
+     * Creates a pool.
+     * @param maxRetained The maximum number of bytes of the free buffers kept.
+     */
+    public BufferPool(final long maxRetained)
+    {
+        this.maxRetained = maxRetained;
+    }
+
+    /**
+     * Returns the pool shared by the content streams.
+     * @return The shared pool.
+     */
+    public static BufferPool getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Takes a buffer from the pool, or allocates one if there is no free buffer
+     * of that size.
+     * @param size The size of the buffer.
+     * @return The buffer, its content is undefined.
+     */
+    public byte[] acquire(final int size)
+    {
+        final Queue<byte[]> queue = buffers.get(Integer.valueOf(size));
+        if (queue != null)
+        {
+            final byte[] buffer = queue.poll();
+            if (buffer != null)
+            {
+                retained.addAndGet(-size);
+                return buffer;
+            }
+        }
+        return new byte[size];
+    }
+
+    /**
+     * Gives a buffer back to the pool.  The buffer must not be used after it
+     * has been released.
+     * @param buffer The buffer.
+     */
+    public void release(final byte[] buffer)
+    {
+        final int size = buffer.length;
+        if (retained.addAndGet(size) > maxRetained)
+        {
+            // full
+            retained.addAndGet(-size);
+            return;
+        }
+
+        final Integer key = Integer.valueOf(size);
+        Queue<byte[]> queue = buffers.get(key);
+        if (queue == null)
+        {
+            final Queue<byte[]> newQueue = new ConcurrentLinkedQueue<byte[]>();
+            queue = buffers.putIfAbsent(key, newQueue);
+            if (queue == null)
+            {
+                queue = newQueue;
+            }
+        }
+        queue.offer(buffer);
+    }
+
+    /**
+     * Returns the number of bytes of the free buffers.
+     * @return The number of bytes kept.
+     */
+    public long getRetained()
+    {
+        return retained.get();
+    }
+
+    /**
+     * Returns the maximum number of bytes of the free buffers.
+     * @return The maximum number of bytes kept.
+     */
+    public long getMaxRetained()
+    {
+        return maxRetained;
+    }
+}
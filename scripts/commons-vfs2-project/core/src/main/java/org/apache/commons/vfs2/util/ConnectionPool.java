@@ -0,0 +1,509 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.util;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.vfs2.FileSystemException;
+
+/**
+ * A bounded pool of connections to a server.
+ * <p>
+ * Idle connections are reused most recently released first. Connections which have been idle for
+ * longer than the idle timeout are evicted, as long as more than the minimum number of idle
+ * connections remain. Eviction runs on a daemon timer shared by all pools, so idle connections are
+ * closed even when the pool is no longer used. When the maximum number of connections is reached,
+ * borrowers wait until a connection is released or the maximum wait time has elapsed.
+ * <p>
+ * The pool keeps counters of its activity, which can be used to monitor it.
+ *
+ * @param <T> The type of the pooled connections.
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public abstract class ConnectionPool<T>
+{
+    private static final Log LOG = LogFactory.getLog(ConnectionPool.class);
+
+    /** The timer evicting idle connections, created when first needed. */
+    private static Timer evictionTimer;
+
+    private final int maxActive;
+    private final int minIdle;
+    private final int maxIdle;
+    private final long idleTimeout;
+    private final long maxWait;
+    private final boolean testOnBorrow;
+
+    /** The idle connections, the most recently released first. */
+    private final LinkedList<IdleConnection<T>> idleConnections = new LinkedList<IdleConnection<T>>();
+
+    /** The number of borrowed connections and connections being created. */
+    private int numActive;
+
+    /** The scheduled eviction of the least recently used idle connection, null if none. */
+    private TimerTask evictionTask;
+
+    private long borrowedCount;
+    private long createdCount;
+    private long destroyedCount;
+    private long validationFailedCount;
+    private long waitCount;
+    private long waitTime;
+
+    /**
+     * Creates a pool.
+     * @param maxActive The maximum number of connections, idle or borrowed.
+     * @param minIdle The number of idle connections which are never evicted.
+     * @param maxIdle The maximum number of idle connections.
+     * @param idleTimeout The time in milliseconds after which an idle connection is evicted,
+     * or 0 if idle connections are never evicted.
+     * @param maxWait The time in milliseconds to wait for a connection when the pool is exhausted,
+     * or a negative value to wait indefinitely.
+     * @param testOnBorrow true if an idle connection should be checked with the server before it is reused.
+     */
+    protected ConnectionPool(final int maxActive, final int minIdle, final int maxIdle,
+                             final long idleTimeout, final long maxWait, final boolean testOnBorrow)
+    {
+        this.maxActive = maxActive;
+        this.minIdle = minIdle;
+        this.maxIdle = maxIdle;
+        this.idleTimeout = idleTimeout;
+        this.maxWait = maxWait;
+        this.testOnBorrow = testOnBorrow;
+    }
+
+    /**
+     * Creates a new connection.
+     * @return The connection.
+     * @throws FileSystemException if the connection could not be created.
+     */
+    protected abstract T createConnection() throws FileSystemException;
+
+    /**
+     * Closes a connection which is no longer pooled.
+     * @param connection The connection.
+     */
+    protected abstract void destroyConnection(T connection);
+
+    /**
+     * Determines if a connection is still open, without a round-trip to the server.
+     * @param connection The connection.
+     * @return true if the connection is open.
+     */
+    protected abstract boolean isOpen(T connection);
+
+    /**
+     * Checks a connection with the server before it is reused, if testing on borrow is enabled.
+     * @param connection The connection.
+     * @return true if the connection is usable.
+     */
+    protected abstract boolean testConnection(T connection);
+
+    /**
+     * Borrows a connection from the pool, creating one if no idle connection is available.
+     * @return The connection.
+     * @throws FileSystemException if the pool is exhausted or the connection could not be created.
+     */
+    public T borrowConnection() throws FileSystemException
+    {
+        List<T> evicted;
+        synchronized (this)
+        {
+            evicted = evict();
+        }
+        destroy(evicted);
+
+        final long deadline = System.currentTimeMillis() + maxWait;
+        while (true)
+        {
+            T connection = null;
+            synchronized (this)
+            {
+                while (connection == null)
+                {
+                    if (!idleConnections.isEmpty())
+                    {
+                        connection = idleConnections.removeFirst().connection;
+                        numActive++;
+                    }
+                    else if (numActive < maxActive)
+                    {
+                        numActive++;
+                        break;
+                    }
+                    else
+                    {
+                        waitForConnection(deadline);
+                    }
+                }
+            }
+
+            if (connection == null)
+            {
+                return create();
+            }
+            if (validate(connection))
+            {
+                synchronized (this)
+                {
+                    borrowedCount++;
+                }
+                return connection;
+            }
+
+            synchronized (this)
+            {
+                validationFailedCount++;
+            }
+            invalidateConnection(connection);
+        }
+    }
+
+    /**
+     * Waits for a connection to be released. Must be called with the pool locked.
+     */
+    private void waitForConnection(final long deadline) throws FileSystemException
+    {
+        final long start = System.currentTimeMillis();
+        waitCount++;
+        try
+        {
+            if (maxWait < 0)
+            {
+                wait();
+                return;
+            }
+
+            final long remaining = deadline - start;
+            if (remaining <= 0)
+            {
+                throw new FileSystemException("vfs.provider/pool-exhausted.error",
+                    new Object[]{new Integer(maxActive), new Long(maxWait)});
+            }
+            wait(remaining);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new FileSystemException("vfs.provider/pool-interrupted.error", e);
+        }
+        finally
+        {
+            waitTime += System.currentTimeMillis() - start;
+        }
+    }
+
+    private T create() throws FileSystemException
+    {
+        boolean created = false;
+        try
+        {
+            final T connection = createConnection();
+            created = true;
+            return connection;
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                if (created)
+                {
+                    createdCount++;
+                    borrowedCount++;
+                }
+                else
+                {
+                    numActive--;
+                    notify();
+                }
+            }
+        }
+    }
+
+    private boolean validate(final T connection)
+    {
+        return isOpen(connection) && (!testOnBorrow || testConnection(connection));
+    }
+
+    /**
+     * Releases a borrowed connection to the pool.
+     * <p>
+     * The connection is closed if it is no longer open or if the pool already holds the
+     * maximum number of idle connections.
+     * @param connection The connection.
+     */
+    public void releaseConnection(final T connection)
+    {
+        final boolean open = isOpen(connection);
+        boolean pooled = false;
+        List<T> evicted;
+        synchronized (this)
+        {
+            numActive--;
+            if (open && idleConnections.size() < maxIdle)
+            {
+                idleConnections.addFirst(new IdleConnection<T>(connection));
+                pooled = true;
+            }
+            evicted = evict();
+            scheduleEviction();
+            notify();
+        }
+
+        if (!pooled)
+        {
+            destroyOne(connection);
+        }
+        destroy(evicted);
+    }
+
+    /**
+     * Discards a borrowed connection which is no longer usable.
+     * @param connection The connection.
+     */
+    public void invalidateConnection(final T connection)
+    {
+        synchronized (this)
+        {
+            numActive--;
+            notify();
+        }
+        destroyOne(connection);
+    }
+
+    /**
+     * Adds a connection which was created outside of the pool as an idle connection.
+     * @param connection The connection.
+     */
+    public void addIdleConnection(final T connection)
+    {
+        synchronized (this)
+        {
+            numActive++;
+            createdCount++;
+        }
+        releaseConnection(connection);
+    }
+
+    /**
+     * Closes all idle connections. Borrowed connections are not affected.
+     */
+    public void clear()
+    {
+        final List<T> connections = new ArrayList<T>();
+        synchronized (this)
+        {
+            for (IdleConnection<T> idle : idleConnections)
+            {
+                connections.add(idle.connection);
+            }
+            idleConnections.clear();
+            if (evictionTask != null)
+            {
+                evictionTask.cancel();
+                evictionTask = null;
+            }
+        }
+        destroy(connections);
+    }
+
+    /**
+     * @return The number of borrowed connections.
+     */
+    public synchronized int getNumActive()
+    {
+        return numActive;
+    }
+
+    /**
+     * @return The number of idle connections.
+     */
+    public synchronized int getNumIdle()
+    {
+        return idleConnections.size();
+    }
+
+    /**
+     * @return The number of times a connection was borrowed.
+     */
+    public synchronized long getBorrowedCount()
+    {
+        return borrowedCount;
+    }
+
+    /**
+     * @return The number of connections created.
+     */
+    public synchronized long getCreatedCount()
+    {
+        return createdCount;
+    }
+
+    /**
+     * @return The number of connections closed by the pool.
+     */
+    public synchronized long getDestroyedCount()
+    {
+        return destroyedCount;
+    }
+
+    /**
+     * @return The number of idle connections which failed validation when borrowed.
+     */
+    public synchronized long getValidationFailedCount()
+    {
+        return validationFailedCount;
+    }
+
+    /**
+     * @return The number of times a borrower had to wait because the pool was exhausted.
+     */
+    public synchronized long getWaitCount()
+    {
+        return waitCount;
+    }
+
+    /**
+     * @return The total time in milliseconds borrowers waited because the pool was exhausted.
+     */
+    public synchronized long getWaitTime()
+    {
+        return waitTime;
+    }
+
+    /**
+     * Removes the idle connections which timed out, keeping at least the minimum number of idle
+     * connections. Must be called with the pool locked.
+     */
+    private List<T> evict()
+    {
+        if (idleTimeout <= 0 || idleConnections.size() <= minIdle)
+        {
+            return null;
+        }
+
+        List<T> evicted = null;
+        final long oldest = System.currentTimeMillis() - idleTimeout;
+        while (idleConnections.size() > minIdle && idleConnections.getLast().lastUsed < oldest)
+        {
+            if (evicted == null)
+            {
+                evicted = new ArrayList<T>();
+            }
+            evicted.add(idleConnections.removeLast().connection);
+        }
+        return evicted;
+    }
+
+    /**
+     * Schedules the eviction of the least recently used idle connection for when it times out,
+     * unless an eviction is already scheduled. Must be called with the pool locked.
+     */
+    private void scheduleEviction()
+    {
+        if (evictionTask != null || idleTimeout <= 0 || idleConnections.size() <= minIdle)
+        {
+            return;
+        }
+
+        evictionTask = new TimerTask()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    evictIdle();
+                }
+                catch (final RuntimeException e)
+                {
+                    // keep the timer running for the other pools
+                    LOG.warn(e.getLocalizedMessage(), e);
+                }
+            }
+        };
+        final long timeout = idleConnections.getLast().lastUsed + idleTimeout - System.currentTimeMillis();
+        getEvictionTimer().schedule(evictionTask, Math.max(0, timeout) + 1);
+    }
+
+    /**
+     * Closes the idle connections which timed out since the pool was last used.
+     */
+    private void evictIdle()
+    {
+        List<T> evicted;
+        synchronized (this)
+        {
+            evictionTask = null;
+            evicted = evict();
+            scheduleEviction();
+        }
+        destroy(evicted);
+    }
+
+    private static synchronized Timer getEvictionTimer()
+    {
+        if (evictionTimer == null)
+        {
+            evictionTimer = new Timer("vfs-pool-evictor", true);
+        }
+        return evictionTimer;
+    }
+
+    private void destroy(final List<T> connections)
+    {
+        if (connections == null)
+        {
+            return;
+        }
+        for (int i = 0; i < connections.size(); i++)
+        {
+            destroyOne(connections.get(i));
+        }
+    }
+
+    private void destroyOne(final T connection)
+    {
+        synchronized (this)
+        {
+            destroyedCount++;
+        }
+        destroyConnection(connection);
+    }
+
+    /**
+     * An idle connection and the time it was released.
+     */
+    private static final class IdleConnection<T>
+    {
+        private final T connection;
+        private final long lastUsed;
+
+        private IdleConnection(final T connection)
+        {
+            this.connection = connection;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+}
@@ -31,12 +31,30 @@ public class MonitorInputStream
     private boolean finished;
     private long count;
 
+    /** The buffer taken from the pool, null if the stream allocated its own. */
+    private byte[] pooledBuffer;
+
     public MonitorInputStream(final InputStream in)
     {
         super(in);
         count = 0;
     }
 
+    /**
+     * Creates a stream whose buffer is taken from the shared {@link BufferPool},
+     * and given back when the stream is closed.
+     * @param in The stream to read from.
+     * @param bufferSize The size of the buffer.
+     * @since 2.1
+     */
+    public MonitorInputStream(final InputStream in, final int bufferSize)
+    {
+        super(in, 1);
+        pooledBuffer = BufferPool.getInstance().acquire(bufferSize);
+        buf = pooledBuffer;
+        count = 0;
+    }
+
 
     /**
      * Returns 0 if the stream is at eof, else the underlaying inputStream will be queried.
@@ -144,12 +162,25 @@ public class MonitorInputStream
         }
 
         finished = true;
+        releaseBuffer();
         if (exc != null)
         {
             throw exc;
         }
     }
 
+    /**
+     * Gives the buffer back to the pool, once no read uses it.
+     */
+    private synchronized void releaseBuffer()
+    {
+        if (pooledBuffer != null)
+        {
+            BufferPool.getInstance().release(pooledBuffer);
+            pooledBuffer = null;
+        }
+    }
+
     /**
      * Called after the stream has been closed.  This implementation does
      * nothing.
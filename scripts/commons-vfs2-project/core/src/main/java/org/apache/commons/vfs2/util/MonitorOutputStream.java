@@ -32,11 +32,31 @@ public class MonitorOutputStream
 {
     private boolean finished;
 
+    /** The number of bytes written. */
+    private long count;
+
+    /** The buffer taken from the pool, null if the stream allocated its own. */
+    private byte[] pooledBuffer;
+
     public MonitorOutputStream(final OutputStream out)
     {
         super(out);
     }
 
+    /**
+     * Creates a stream whose buffer is taken from the shared {@link BufferPool},
+     * and given back when the stream is closed.
+     * @param out The stream to write to.
+     * @param bufferSize The size of the buffer.
+     * @since 2.1
+     */
+    public MonitorOutputStream(final OutputStream out, final int bufferSize)
+    {
+        super(out, 1);
+        pooledBuffer = BufferPool.getInstance().acquire(bufferSize);
+        buf = pooledBuffer;
+    }
+
     /**
      * Closes this output stream.
      * @throws IOException if an error occurs.
@@ -71,6 +91,7 @@ public class MonitorOutputStream
         }
 
         finished = true;
+        releaseBuffer();
 
         if (exc != null)
         {
@@ -78,6 +99,19 @@ public class MonitorOutputStream
         }
     }
 
+    /**
+     * Gives the buffer back to the pool, once no write uses it.  Writes after
+     * the close are refused by {@link #assertOpen()}.
+     */
+    private synchronized void releaseBuffer()
+    {
+        if (pooledBuffer != null)
+        {
+            BufferPool.getInstance().release(pooledBuffer);
+            pooledBuffer = null;
+        }
+    }
+
 
     /**
      * @param b The character to write.
@@ -89,6 +123,7 @@ public class MonitorOutputStream
     {
         assertOpen();
         super.write(b);
+        count++;
     }
 
     /**
@@ -103,6 +138,7 @@ public class MonitorOutputStream
     {
         assertOpen();
         super.write(b, off, len);
+        count += len;
     }
 
     /**
@@ -151,4 +187,14 @@ public class MonitorOutputStream
     protected void onClose() throws IOException
     {
     }
+
+    /**
+     * Get the number of bytes written to this output stream.
+     * @return The number of bytes written to this output stream.
+     * @since 2.1
+     */
+    public long getCount()
+    {
+        return count;
+    }
 }
@@ -18,6 +18,7 @@ package org.apache.commons.vfs2.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.commons.vfs2.RandomAccessContent;
 
@@ -249,4 +250,19 @@ public class MonitorRandomAccessContent implements RandomAccessContent
     {
         return content.getInputStream();
     }
+
+    public int read(ByteBuffer buffer) throws IOException
+    {
+        return content.read(buffer);
+    }
+
+    public void write(ByteBuffer buffer) throws IOException
+    {
+        content.write(buffer);
+    }
+
+    public void force() throws IOException
+    {
+        content.force();
+    }
 }
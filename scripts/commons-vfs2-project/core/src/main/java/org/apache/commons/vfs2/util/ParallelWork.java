@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.vfs2.FileSystemException;
+
+/**
+ * Processes items from the calling thread and from threads of an executor.
+ * <p>
+ * The threads take the items from a shared queue. The calling thread takes part, so
+ * the work goes on even when the executor is busy, and the helpers which have not
+ * started once all items are taken are cancelled. Once an item failed, the items left
+ * are skipped.
+ *
+ * @param <T> The type of the items.
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ * @since 2.1
+ */
+public abstract class ParallelWork<T>
+{
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    /**
+     * @param executor The executor of the threads which help.
+     * @param parallelism The number of items processed at the same time.
+     */
+    protected ParallelWork(final ExecutorService executor, final int parallelism)
+    {
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Processes an item. Is called from several threads at the same time.
+     * @param item The item.
+     * @throws FileSystemException if the item could not be processed.
+     */
+    protected abstract void process(T item) throws FileSystemException;
+
+    /**
+     * Processes items, and returns once all of them are processed or skipped.
+     * @param items The items.
+     * @throws FileSystemException the first failure, if an item could not be processed.
+     */
+    public void run(final Collection<T> items) throws FileSystemException
+    {
+        final Worker worker = new Worker(items);
+
+        final List<Future<Object>> helpers = new ArrayList<Future<Object>>();
+        final int helperCount = Math.min(parallelism, items.size()) - 1;
+        for (int i = 0; i < helperCount; i++)
+        {
+            helpers.add(executor.submit(worker));
+        }
+
+        worker.call();
+        worker.awaitFinished();
+
+        // the helpers which did not start are not needed anymore
+        for (final Future<Object> helper : helpers)
+        {
+            helper.cancel(false);
+        }
+
+        if (worker.failure != null)
+        {
+            throw worker.failure;
+        }
+    }
+
+    /**
+     * Processes items until none are left.
+     */
+    private final class Worker implements Callable<Object>
+    {
+        private final ConcurrentLinkedQueue<T> queue;
+
+        /** The number of items not processed or skipped yet, guarded by the worker. */
+        private int pending;
+        private volatile FileSystemException failure;
+
+        private Worker(final Collection<T> items)
+        {
+            this.queue = new ConcurrentLinkedQueue<T>(items);
+            this.pending = items.size();
+        }
+
+        public Object call()
+        {
+            T item;
+            while ((item = queue.poll()) != null)
+            {
+                try
+                {
+                    if (failure == null)
+                    {
+                        process(item);
+                    }
+                }
+                catch (final FileSystemException e)
+                {
+                    failure = e;
+                }
+                catch (final RuntimeException e)
+                {
+                    failure = new FileSystemException(e);
+                }
+                finally
+                {
+                    itemFinished();
+                }
+            }
+            return null;
+        }
+
+        private synchronized void itemFinished()
+        {
+            pending--;
+            if (pending == 0)
+            {
+                notifyAll();
+            }
+        }
+
+        /**
+         * Waits until the items taken by the helpers are processed.
+         */
+        private synchronized void awaitFinished()
+        {
+            boolean interrupted = false;
+            while (pending > 0)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (final InterruptedException e)
+                {
+                    // the items being processed must be finished when the work returns
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
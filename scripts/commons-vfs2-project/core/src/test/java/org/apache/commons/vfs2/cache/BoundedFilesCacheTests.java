@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.cache;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.impl.DecoratedFileObject;
+import org.apache.commons.vfs2.test.AbstractProviderTestCase;
+
+/**
+ * BoundedFilesCache
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class BoundedFilesCacheTests extends AbstractProviderTestCase
+{
+    private BoundedFilesCache getCache()
+    {
+        return (BoundedFilesCache) getManager().getFilesCache();
+    }
+
+    public void testFilesCache() throws Exception
+    {
+        FileObject scratchFolder = getWriteFolder();
+
+        // avoid cache removal
+        FileObject dir1 = scratchFolder.resolveFile("dir1");
+        dir1.getContent();
+
+        // releaseable
+        FileObject dir2 = scratchFolder.resolveFile("dir2");
+
+        for (int i = 3; i < 20; i++)
+        {
+            scratchFolder.resolveFile("dir" + i);
+        }
+
+        // check if the cache still holds the right instance
+        assertSame(dir1, scratchFolder.resolveFile("dir1"));
+        assertNotSame(dir2, scratchFolder.resolveFile("dir2"));
+        assertTrue(getCache().getEvictionCount() > 0);
+    }
+
+    public void testFrequentFileSurvivesScan() throws Exception
+    {
+        FileObject scratchFolder = getWriteFolder();
+
+        FileObject hot = scratchFolder.resolveFile("hot");
+        for (int i = 0; i < 100; i++)
+        {
+            assertSame(hot, scratchFolder.resolveFile("hot"));
+        }
+
+        // files used once do not replace a file used often
+        for (int i = 0; i < 50; i++)
+        {
+            scratchFolder.resolveFile("cold" + i);
+        }
+        assertSame(hot, scratchFolder.resolveFile("hot"));
+    }
+
+    public void testCounters() throws Exception
+    {
+        FileObject scratchFolder = getWriteFolder();
+        final BoundedFilesCache cache = getCache();
+
+        final long misses = cache.getMissCount();
+        FileObject file = scratchFolder.resolveFile("counted");
+        assertTrue(cache.getMissCount() > misses);
+
+        final long hits = cache.getHitCount();
+        assertSame(file, scratchFolder.resolveFile("counted"));
+        assertEquals(hits + 1, cache.getHitCount());
+
+        cache.removeFile(file.getFileSystem(), file.getName());
+        assertNotSame(file, scratchFolder.resolveFile("counted"));
+    }
+
+    public void testInsertionCostWithFilesInUse() throws Exception
+    {
+        FileObject scratchFolder = getWriteFolder();
+        final BoundedFilesCache cache = new BoundedFilesCache(10);
+        final int[] checks = new int[1];
+
+        // every file is attached, none can be evicted
+        final int[] cost = new int[2];
+        for (int i = 0; i < 2000; i++)
+        {
+            final int before = checks[0];
+            cache.putFile(new DecoratedFileObject(scratchFolder.resolveFile("inuse" + i))
+            {
+                @Override
+                public boolean isAttached()
+                {
+                    checks[0]++;
+                    return true;
+                }
+            });
+            if (i >= 100 && i < 200)
+            {
+                cost[0] += checks[0] - before;
+            }
+            else if (i >= 1900)
+            {
+                cost[1] += checks[0] - before;
+            }
+        }
+
+        assertEquals(2000, cache.getSize());
+        assertEquals(0, cache.getEvictionCount());
+        // the cost of a put does not grow with the number of files in use
+        assertTrue("cost " + cost[0] + " then " + cost[1], cost[1] <= cost[0] * 2);
+    }
+
+    public void testWeightIsBounded() throws Exception
+    {
+        FileObject scratchFolder = getWriteFolder();
+        final BoundedFilesCache cache = new BoundedFilesCache(20, new BoundedFilesCache.Weigher()
+        {
+            public int weigh(final FileObject file)
+            {
+                return file.getName().getBaseName().length();
+            }
+        });
+
+        for (int i = 0; i < 10; i++)
+        {
+            // weight 4 each
+            cache.putFile(scratchFolder.resolveFile("w" + (100 + i)));
+        }
+        assertTrue(cache.getWeight() <= 20);
+        assertTrue(cache.getSize() <= 5);
+        assertEquals(5, cache.getEvictionCount());
+
+        cache.clear(scratchFolder.getFileSystem());
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getWeight());
+    }
+}
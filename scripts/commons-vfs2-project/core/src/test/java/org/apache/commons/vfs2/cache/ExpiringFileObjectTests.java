@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.cache;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.Selectors;
+import org.apache.commons.vfs2.impl.DefaultFileSystemConfigBuilder;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
+import org.apache.commons.vfs2.test.AbstractProviderTestCase;
+
+/**
+ * ExpiringFileObject
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class ExpiringFileObjectTests extends AbstractProviderTestCase
+{
+    private FileObject resolveExpiring(final FileObject file, final long timeToLive, final long negativeTimeToLive)
+        throws Exception
+    {
+        final FileSystemOptions opts = new FileSystemOptions();
+        DefaultFileSystemConfigBuilder.getInstance().setCacheTimeToLive(opts, timeToLive);
+        DefaultFileSystemConfigBuilder.getInstance().setNegativeCacheTimeToLive(opts, negativeTimeToLive);
+
+        final DefaultFileSystemManager manager = createManager();
+        manager.init();
+        final FileObject expiring = manager.resolveFile(file.getName().getURI(), opts);
+        assertTrue(expiring instanceof ExpiringFileObject);
+        return expiring;
+    }
+
+    public void testTimeToLive() throws Exception
+    {
+        FileObject scratchFolder = getWriteFolder();
+        scratchFolder.delete(Selectors.EXCLUDE_SELF);
+
+        FileObject cachedFolder = resolveExpiring(scratchFolder, 500, 500);
+        assertEquals(0, cachedFolder.getChildren().length);
+
+        scratchFolder.resolveFile("file1.txt").createFile();
+        assertEquals(0, cachedFolder.getChildren().length);
+
+        // the folder is not refreshed when resolved again
+        cachedFolder = cachedFolder.getFileSystem().resolveFile(cachedFolder.getName());
+        assertEquals(0, cachedFolder.getChildren().length);
+
+        Thread.sleep(600);
+        assertEquals(1, cachedFolder.getChildren().length);
+    }
+
+    public void testNegativeTimeToLive() throws Exception
+    {
+        FileObject scratchFolder = getWriteFolder();
+        scratchFolder.delete(Selectors.EXCLUDE_SELF);
+
+        FileObject missing = resolveExpiring(scratchFolder, 60000, 500).resolveFile("missing.txt");
+        assertFalse(missing.exists());
+
+        scratchFolder.resolveFile("missing.txt").createFile();
+        assertFalse(missing.exists());
+
+        Thread.sleep(600);
+        assertTrue(missing.exists());
+
+        // now it exists, it is kept for the positive time to live
+        scratchFolder.resolveFile("missing.txt").delete();
+        Thread.sleep(600);
+        assertTrue(missing.exists());
+    }
+
+    public void testChangesThroughFileObjectAreSeen() throws Exception
+    {
+        FileObject scratchFolder = getWriteFolder();
+        scratchFolder.delete(Selectors.EXCLUDE_SELF);
+
+        FileObject file = resolveExpiring(scratchFolder, 60000, 60000).resolveFile("file1.txt");
+        assertFalse(file.exists());
+
+        file.createFile();
+        assertTrue(file.exists());
+
+        file.delete();
+        assertFalse(file.exists());
+
+        // an explicit refresh fetches the data again
+        scratchFolder.resolveFile("file1.txt").createFile();
+        assertFalse(file.exists());
+        file.refresh();
+        assertTrue(file.exists());
+    }
+}
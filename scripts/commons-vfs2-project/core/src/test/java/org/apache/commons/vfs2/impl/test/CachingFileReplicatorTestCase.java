@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.impl.test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.OutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.AbstractVfsTestCase;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileUtil;
+import org.apache.commons.vfs2.Selectors;
+import org.apache.commons.vfs2.impl.CachingFileReplicator;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
+import org.apache.commons.vfs2.provider.AbstractFileSystem;
+import org.apache.commons.vfs2.provider.local.DefaultLocalFileProvider;
+import org.apache.commons.vfs2.provider.ram.RamFileProvider;
+import org.apache.commons.vfs2.provider.zip.ZipFileProvider;
+
+/**
+ * Test to verify CachingFileReplicator
+ */
+public class CachingFileReplicatorTestCase extends AbstractVfsTestCase
+{
+    private DefaultFileSystemManager manager;
+    private CachingFileReplicator replicator;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        createManager(10);
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        manager.close();
+        super.tearDown();
+    }
+
+    private void createManager(final long maxSize) throws Exception
+    {
+        final File tempDir = new File(AbstractVfsTestCase.getTestDirectoryFile(), "cachingReplicator");
+        replicator = new CachingFileReplicator(tempDir, maxSize);
+
+        manager = new DefaultFileSystemManager();
+        manager.addProvider("ram", new RamFileProvider());
+        manager.addProvider("file", new DefaultLocalFileProvider());
+        manager.addProvider("zip", new ZipFileProvider());
+        manager.setReplicator(replicator);
+        manager.setTemporaryFileStore(replicator);
+        manager.init();
+    }
+
+    public void testCopyIsReused() throws Exception
+    {
+        final FileObject file = createFile("ram:///a.txt", "aaaa");
+        final File copy = replicate(file);
+        assertEquals("aaaa", read(copy));
+
+        assertSame(copy, replicate(file));
+        assertEquals(1, replicator.getHitCount());
+        assertEquals(1, replicator.getMissCount());
+    }
+
+    public void testChangedFileIsCopiedAgain() throws Exception
+    {
+        final FileObject file = createFile("ram:///a.txt", "aaaa");
+        final File copy = replicate(file);
+
+        writeFile(file, "bbbbbb");
+        final File newCopy = replicate(file);
+        assertNotSame(copy, newCopy);
+        assertEquals("bbbbbb", read(newCopy));
+    }
+
+    public void testLeastRecentlyUsedCopyIsDeleted() throws Exception
+    {
+        final File copyA = replicate(createFile("ram:///a.txt", "aaaa"));
+        replicator.releaseFile(copyA);
+        final File copyB = replicate(createFile("ram:///b.txt", "bbbb"));
+        replicator.releaseFile(copyB);
+        assertEquals(8, replicator.getSize());
+
+        // a is used again, so b goes first
+        replicator.releaseFile(replicate(manager.resolveFile("ram:///a.txt")));
+        final File copyC = replicate(createFile("ram:///c.txt", "cccc"));
+
+        assertTrue(copyA.exists());
+        assertFalse(copyB.exists());
+        assertTrue(copyC.exists());
+        assertEquals(8, replicator.getSize());
+    }
+
+    public void testCopyInUseIsKept() throws Exception
+    {
+        final File copyA = replicate(createFile("ram:///a.txt", "aaaa"));
+        final File copyB = replicate(createFile("ram:///b.txt", "bbbb"));
+        replicator.releaseFile(copyB);
+
+        // a is not released, so b goes although it was used last
+        final File copyC = replicate(createFile("ram:///c.txt", "cccc"));
+        assertTrue(copyA.exists());
+        assertFalse(copyB.exists());
+        assertTrue(copyC.exists());
+
+        // over the budget while all copies are in use, until one is released
+        final File copyD = replicate(createFile("ram:///d.txt", "dddd"));
+        assertEquals(12, replicator.getSize());
+        replicator.releaseFile(copyA);
+        assertFalse(copyA.exists());
+        assertTrue(copyD.exists());
+        assertEquals(8, replicator.getSize());
+    }
+
+    public void testEvictionUnderOpenZipFileSystem() throws Exception
+    {
+        final byte[] inner1 = createZip("a.txt", "a2.txt", "1");
+        final byte[] inner2 = createZip("a.txt", "a2.txt", "2");
+        manager.close();
+        createManager(inner1.length * 3 / 2);
+
+        final FileObject outer = manager.resolveFile("ram:///outer.zip");
+        final OutputStream out = outer.getContent().getOutputStream();
+        try
+        {
+            final ZipOutputStream zip = new ZipOutputStream(out);
+            writeEntry(zip, "inner1.zip", inner1);
+            writeEntry(zip, "inner2.zip", inner2);
+            zip.finish();
+        }
+        finally
+        {
+            out.close();
+        }
+
+        final FileObject entry1 = manager.resolveFile("zip:zip:ram:///outer.zip!/inner1.zip!/a.txt");
+        assertEquals("a.txt 1", new String(FileUtil.getContent(entry1), "US-ASCII"));
+        final FileSystem fs1 = entry1.getFileSystem();
+        ((AbstractFileSystem) fs1).closeCommunicationLink();
+
+        // the copy of inner2 goes over the budget, the copy of inner1 is still read
+        final FileObject entry2 = manager.resolveFile("zip:zip:ram:///outer.zip!/inner2.zip!/a.txt");
+        assertEquals("a.txt 2", new String(FileUtil.getContent(entry2), "US-ASCII"));
+
+        final FileObject other1 = manager.resolveFile("zip:zip:ram:///outer.zip!/inner1.zip!/a2.txt");
+        assertEquals("a2.txt 1", new String(FileUtil.getContent(other1), "US-ASCII"));
+
+        // once closed, the copy is released
+        manager.closeFileSystem(fs1);
+        assertTrue(replicator.getSize() <= inner1.length * 3 / 2);
+    }
+
+    public void testConcurrentReplicationCopiesOnce() throws Exception
+    {
+        final FileObject file = createFile("ram:///a.txt", "aaaa");
+        final File[] copies = new File[4];
+        final Thread[] threads = new Thread[copies.length];
+        for (int i = 0; i < threads.length; i++)
+        {
+            final int index = i;
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        copies[index] = replicate(file);
+                    }
+                    catch (Exception e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i].join();
+        }
+
+        for (int i = 0; i < copies.length; i++)
+        {
+            assertSame(copies[0], copies[i]);
+        }
+        assertEquals(1, replicator.getMissCount());
+    }
+
+    private File replicate(final FileObject file) throws Exception
+    {
+        return file.getFileSystem().replicateFile(file, Selectors.SELECT_SELF);
+    }
+
+    private byte[] createZip(final String name1, final String name2, final String suffix) throws Exception
+    {
+        final FileObject file = manager.resolveFile("ram:///tmp.zip");
+        final OutputStream out = file.getContent().getOutputStream();
+        try
+        {
+            final ZipOutputStream zip = new ZipOutputStream(out);
+            writeEntry(zip, name1, (name1 + " " + suffix).getBytes("US-ASCII"));
+            writeEntry(zip, name2, (name2 + " " + suffix).getBytes("US-ASCII"));
+            zip.finish();
+        }
+        finally
+        {
+            out.close();
+        }
+        final byte[] content = FileUtil.getContent(file);
+        file.delete();
+        return content;
+    }
+
+    private void writeEntry(final ZipOutputStream zip, final String name, final byte[] content) throws Exception
+    {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private FileObject createFile(final String uri, final String content) throws Exception
+    {
+        final FileObject file = manager.resolveFile(uri);
+        writeFile(file, content);
+        return file;
+    }
+
+    private void writeFile(final FileObject file, final String content) throws Exception
+    {
+        final OutputStream out = file.getContent().getOutputStream();
+        try
+        {
+            out.write(content.getBytes("US-ASCII"));
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private String read(final File file) throws Exception
+    {
+        final FileInputStream in = new FileInputStream(file);
+        try
+        {
+            final byte[] buffer = new byte[(int) file.length()];
+            int offset = 0;
+            while (offset < buffer.length)
+            {
+                offset += in.read(buffer, offset, buffer.length - offset);
+            }
+            return new String(buffer, "US-ASCII");
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
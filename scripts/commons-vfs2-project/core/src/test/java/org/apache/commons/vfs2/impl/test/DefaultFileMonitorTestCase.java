@@ -23,19 +23,22 @@ import org.apache.commons.AbstractVfsTestCase;
 import org.apache.commons.vfs2.FileChangeEvent;
 import org.apache.commons.vfs2.FileListener;
 import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemManager;
 import org.apache.commons.vfs2.VFS;
+import org.apache.commons.vfs2.impl.DecoratedFileObject;
 import org.apache.commons.vfs2.impl.DefaultFileMonitor;
 
 /**
  * Test to verify DefaultFileMonitor
  */
-public class DefaultFileMonitorTests extends AbstractVfsTestCase
+public class DefaultFileMonitorTestCase extends AbstractVfsTestCase
 {
     private FileSystemManager fsManager;
     private File testDir;
     private int changeStatus = 0;
     private File testFile;
+    private volatile boolean listingFails;
 
     @Override
     public void setUp() throws Exception
@@ -138,6 +141,108 @@ public class DefaultFileMonitorTests extends AbstractVfsTestCase
         monitor.stop();
     }
 
+    public void testFolderCheckedByThreads() throws Exception
+    {
+        final File folder = new File(testDir, "monitorThreads");
+        folder.mkdir();
+        final File existing = new File(folder, "existing.properties");
+        writeToFile(existing);
+        try
+        {
+            DefaultFileMonitor monitor = new DefaultFileMonitor(new TestFileListener());
+            monitor.setDelay(100);
+            monitor.setThreads(4);
+            monitor.addFile(fsManager.resolveFile(folder.toURI().toURL().toString()));
+            monitor.start();
+
+            writeToFile(new File(folder, "new.properties"));
+            Thread.sleep(400);
+            assertTrue("Incorrect event " + changeStatus, changeStatus == 3);
+
+            changeStatus = 0;
+            assertTrue(existing.setLastModified(existing.lastModified() - 10000));
+            Thread.sleep(400);
+            assertTrue("Incorrect event " + changeStatus, changeStatus == 1);
+
+            changeStatus = 0;
+            existing.delete();
+            Thread.sleep(400);
+            assertTrue("Incorrect event " + changeStatus, changeStatus == 2);
+            monitor.stop();
+        }
+        finally
+        {
+            new File(folder, "new.properties").delete();
+            existing.delete();
+            folder.delete();
+        }
+    }
+
+    public void testFailedListingKeepsChildren() throws Exception
+    {
+        final File folder = new File(testDir, "monitorFailedListing");
+        folder.mkdir();
+        final File existing = new File(folder, "existing.properties");
+        writeToFile(existing);
+        try
+        {
+            final FileObject folderObj = new DecoratedFileObject(
+                fsManager.resolveFile(folder.toURI().toURL().toString()))
+            {
+                @Override
+                public FileObject[] getChildren() throws FileSystemException
+                {
+                    if (listingFails)
+                    {
+                        throw new FileSystemException("vfs.provider/list-children.error", getName());
+                    }
+                    return super.getChildren();
+                }
+            };
+            DefaultFileMonitor monitor = new DefaultFileMonitor(new TestFileListener());
+            monitor.setDelay(100);
+            monitor.addFile(folderObj);
+            monitor.start();
+            Thread.sleep(300);
+
+            // the folder still exists, so its children are not deleted
+            listingFails = true;
+            Thread.sleep(400);
+            assertTrue("Incorrect event " + changeStatus, changeStatus == 0);
+
+            listingFails = false;
+            existing.delete();
+            Thread.sleep(400);
+            assertTrue("Incorrect event " + changeStatus, changeStatus == 2);
+            monitor.stop();
+        }
+        finally
+        {
+            existing.delete();
+            folder.delete();
+        }
+    }
+
+    public void testUnchangedFileBacksOff() throws Exception
+    {
+        writeToFile(testFile);
+        FileObject fileObj = fsManager.resolveFile(testFile.toURL().toString());
+        DefaultFileMonitor monitor = new DefaultFileMonitor(new TestFileListener());
+        monitor.setDelay(100);
+        monitor.setMaxDelay(1600);
+        monitor.addFile(fileObj);
+        monitor.start();
+
+        // checked at about 0, 200, 600, 1400 and 3000 ms
+        Thread.sleep(1500);
+        testFile.delete();
+        Thread.sleep(700);
+        assertTrue("Event before the next check", changeStatus == 0);
+        Thread.sleep(1200);
+        assertTrue("Incorrect event " + changeStatus, changeStatus == 2);
+        monitor.stop();
+    }
+
     private void writeToFile(File file) throws Exception
     {
         FileWriter out = new FileWriter(file);
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.impl.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.AbstractVfsTestCase;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.impl.ProviderIndex;
+import org.apache.commons.vfs2.impl.StandardFileSystemManager;
+import org.apache.commons.vfs2.provider.ram.RamFileProvider;
+
+/**
+ * Tests that the providers of the standard manager are created when their scheme is
+ * first used, and the configuration index.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class LazyProviderTestCase extends AbstractVfsTestCase
+{
+    private File testDir;
+    private StandardFileSystemManager manager;
+
+    /**
+     * A provider which counts the instances created.
+     */
+    public static class CountingProvider extends RamFileProvider
+    {
+        private static int instances;
+
+        public CountingProvider()
+        {
+            instances++;
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        testDir = new File(AbstractVfsTestCase.getTestDirectoryFile(), "lazyProvider");
+        testDir.mkdirs();
+        CountingProvider.instances = 0;
+        manager = new StandardFileSystemManager();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        manager.close();
+        final File[] files = testDir.listFiles();
+        for (int i = 0; files != null && i < files.length; i++)
+        {
+            files[i].delete();
+        }
+        testDir.delete();
+        super.tearDown();
+    }
+
+    private File writeConfig(final String providers) throws Exception
+    {
+        final File file = new File(testDir, "providers.xml");
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try
+        {
+            writer.write("<providers>\n" + providers + "</providers>\n");
+        }
+        finally
+        {
+            writer.close();
+        }
+        return file;
+    }
+
+    public void testProviderIsCreatedOnFirstUse() throws Exception
+    {
+        manager.setConfiguration(writeConfig(
+            "<provider class-name=\"" + CountingProvider.class.getName() + "\">"
+            + "<scheme name=\"count\"/><scheme name=\"count2\"/></provider>\n"
+            + "<provider class-name=\"org.apache.commons.vfs2.provider.local.DefaultLocalFileProvider\">"
+            + "<scheme name=\"file\"/></provider>\n").toURI().toURL());
+        manager.init();
+
+        assertTrue(manager.hasProvider("count"));
+        assertTrue(Arrays.asList(manager.getSchemes()).contains("count2"));
+        assertEquals(0, CountingProvider.instances);
+
+        final FileObject file = manager.resolveFile("count:/a.txt");
+        file.createFile();
+        assertTrue(file.exists());
+        assertEquals(1, CountingProvider.instances);
+
+        // the instance is shared by the schemes of the provider
+        manager.resolveFile("count2:/b.txt");
+        assertEquals(1, CountingProvider.instances);
+
+        // local names find the lazy local file provider
+        assertTrue(manager.resolveFile(testDir.getAbsolutePath()).exists());
+    }
+
+    public void testMissingClassSkipsProvider() throws Exception
+    {
+        manager.setConfiguration(writeConfig(
+            "<provider class-name=\"" + CountingProvider.class.getName() + "\">"
+            + "<scheme name=\"count\"/><if-available class-name=\"org.example.Missing\"/></provider>\n"
+            + "<provider class-name=\"org.example.MissingProvider\"><scheme name=\"missing\"/></provider>\n"
+            ).toURI().toURL());
+        manager.init();
+
+        assertFalse(manager.hasProvider("count"));
+
+        // a provider which cannot be created fails when it is first used
+        assertTrue(manager.hasProvider("missing"));
+        try
+        {
+            manager.resolveFile("missing:/a.txt");
+            fail();
+        }
+        catch (final FileSystemException e)
+        {
+            assertEquals("vfs.impl/create-provider.error", e.getCode());
+        }
+    }
+
+    public void testIndex() throws Exception
+    {
+        final ProviderIndex index = ProviderIndex.parse(
+            StandardFileSystemManager.class.getResource("providers.xml"));
+        final File indexFile = new File(testDir, "providers.idx");
+        final OutputStream out = new FileOutputStream(indexFile);
+        try
+        {
+            index.write(out);
+        }
+        finally
+        {
+            out.close();
+        }
+
+        manager.setConfigurationIndex(indexFile.toURI().toURL());
+        manager.init();
+
+        final StandardFileSystemManager xmlManager = new StandardFileSystemManager();
+        try
+        {
+            xmlManager.init();
+            final List<String> schemes = Arrays.asList(xmlManager.getSchemes());
+            assertEquals(schemes.size(), manager.getSchemes().length);
+            assertTrue(schemes.containsAll(Arrays.asList(manager.getSchemes())));
+        }
+        finally
+        {
+            xmlManager.close();
+        }
+
+        final FileObject zipFile = manager.resolveFile(getTestDirectoryFile(), "test.zip");
+        assertTrue(zipFile.exists());
+        final FileObject zip = manager.resolveFile("zip:" + zipFile.getName().getURI() + "!/");
+        assertTrue(zip.getChildren().length > 0);
+        assertTrue(manager.canCreateFileSystem(zipFile));
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.impl.test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.AbstractVfsTestCase;
+import org.apache.commons.vfs2.FileChangeEvent;
+import org.apache.commons.vfs2.FileListener;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemManager;
+import org.apache.commons.vfs2.VFS;
+import org.apache.commons.vfs2.impl.LocalFileMonitor;
+
+/**
+ * Test to verify LocalFileMonitor
+ */
+public class LocalFileMonitorTestCase extends AbstractVfsTestCase
+{
+    private FileSystemManager fsManager;
+    private File testDir;
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+    private LocalFileMonitor monitor;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        fsManager = VFS.getManager();
+        testDir = new File(AbstractVfsTestCase.getTestDirectoryFile(), "localFileMonitor");
+        delete(testDir);
+        testDir.mkdirs();
+        monitor = new LocalFileMonitor(new TestFileListener());
+        monitor.setDelay(100);
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        monitor.stop();
+        delete(testDir);
+        super.tearDown();
+    }
+
+    public void testFileCreated() throws Exception
+    {
+        final File testFile = new File(testDir, "created.txt");
+        monitor.addFile(resolve(testFile));
+        monitor.start();
+        writeToFile(testFile);
+        assertEvents("created created.txt");
+    }
+
+    public void testFileDeleted() throws Exception
+    {
+        final File testFile = new File(testDir, "deleted.txt");
+        writeToFile(testFile);
+        monitor.addFile(resolve(testFile));
+        monitor.start();
+        testFile.delete();
+        assertEvents("deleted deleted.txt");
+    }
+
+    public void testFileModified() throws Exception
+    {
+        final File testFile = new File(testDir, "modified.txt");
+        writeToFile(testFile);
+        monitor.addFile(resolve(testFile));
+        monitor.start();
+        assertTrue(testFile.setLastModified(testFile.lastModified() - 10000));
+        assertEvents("changed modified.txt");
+    }
+
+    public void testChildrenOfFolder() throws Exception
+    {
+        final File existing = new File(testDir, "existing.txt");
+        writeToFile(existing);
+        monitor.addFile(resolve(testDir));
+        monitor.start();
+
+        writeToFile(new File(testDir, "new.txt"));
+        assertEvents("created new.txt");
+
+        existing.delete();
+        assertEvents("created new.txt", "deleted existing.txt");
+    }
+
+    public void testRecursive() throws Exception
+    {
+        final File subDir = new File(testDir, "sub");
+        subDir.mkdir();
+        monitor.setRecursive(true);
+        monitor.addFile(resolve(testDir));
+        monitor.start();
+
+        writeToFile(new File(subDir, "a.txt"));
+        assertEvents("created a.txt");
+
+        // a new folder is followed, with the files created in it
+        final File newDir = new File(subDir, "new");
+        newDir.mkdir();
+        writeToFile(new File(newDir, "b.txt"));
+        waitFor(3);
+        writeToFile(new File(newDir, "c.txt"));
+        waitFor(4);
+        assertTrue(events.toString(), events.contains("created new"));
+        assertTrue(events.toString(), events.contains("created b.txt"));
+        assertTrue(events.toString(), events.contains("created c.txt"));
+    }
+
+    public void testRemoveFile() throws Exception
+    {
+        final File testFile = new File(testDir, "removed.txt");
+        final FileObject file = resolve(testFile);
+        monitor.addFile(file);
+        monitor.removeFile(file);
+        monitor.start();
+        writeToFile(testFile);
+        Thread.sleep(300);
+        assertEquals(0, events.size());
+    }
+
+    public void testFileNotLocal() throws Exception
+    {
+        final FileObject file = fsManager.resolveFile("ram:///localFileMonitor/test.txt");
+        monitor.addFile(file);
+        monitor.start();
+        file.createFile();
+        waitFor(1);
+        assertEquals("created test.txt", events.get(0));
+        file.delete();
+    }
+
+    private FileObject resolve(final File file) throws Exception
+    {
+        return fsManager.resolveFile(file.toURI().toURL().toString());
+    }
+
+    private void waitFor(final int count) throws InterruptedException
+    {
+        for (int i = 0; i < 50 && events.size() < count; i++)
+        {
+            Thread.sleep(100);
+        }
+    }
+
+    private void assertEvents(final String... expected) throws InterruptedException
+    {
+        waitFor(expected.length);
+        Thread.sleep(200);
+        assertEquals(Arrays.asList(expected), events);
+    }
+
+    private void writeToFile(final File file) throws Exception
+    {
+        final FileWriter out = new FileWriter(file);
+        out.write("string=value1");
+        out.close();
+    }
+
+    private void delete(final File file)
+    {
+        final File[] children = file.listFiles();
+        if (children != null)
+        {
+            for (int i = 0; i < children.length; i++)
+            {
+                delete(children[i]);
+            }
+        }
+        file.delete();
+    }
+
+    public class TestFileListener implements FileListener
+    {
+        public void fileChanged(final FileChangeEvent event) throws Exception
+        {
+            events.add("changed " + event.getFile().getName().getBaseName());
+        }
+
+        public void fileDeleted(final FileChangeEvent event) throws Exception
+        {
+            events.add("deleted " + event.getFile().getName().getBaseName());
+        }
+
+        public void fileCreated(final FileChangeEvent event) throws Exception
+        {
+            events.add("created " + event.getFile().getName().getBaseName());
+        }
+    }
+}
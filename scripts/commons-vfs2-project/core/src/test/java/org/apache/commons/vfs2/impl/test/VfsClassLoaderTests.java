@@ -87,6 +87,29 @@ public class VfsClassLoaderTests
         assertSameURLContent(FILE1_CONTENT, urlCon);
     }
 
+    /**
+     * Tests loading resources from a search path of several files.
+     */
+    public void testLoadResourceFromSearchPath() throws Exception
+    {
+        final FileObject readFolder = getBaseFolder().resolveFile("read-tests");
+        final VFSClassLoader loader = new VFSClassLoader(
+            new FileObject[]{readFolder, getBaseFolder()}, getManager());
+
+        assertEquals(readFolder.resolveFile("file1.txt").getURL().toString(),
+            loader.getResource("file1.txt").toString());
+        assertEquals(readFolder.resolveFile("dir1/file1.txt").getURL().toString(),
+            loader.getResource("dir1/file1.txt").toString());
+        assertEquals(readFolder.resolveFile("file1.txt").getURL().toString(),
+            loader.getResource("read-tests/file1.txt").toString());
+        assertEquals(readFolder.resolveFile("file1.txt").getURL().toString(),
+            loader.getResource("read-tests/./file1.txt").toString());
+
+        assertNull(loader.getResource("unknown.txt"));
+        assertNull(loader.getResource("dir1/unknown.txt"));
+        assertNull(loader.getResource("unknown/file1.txt"));
+    }
+
     /**
      * Tests package sealing.
      */
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.metrics;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
+import org.apache.commons.vfs2.provider.ram.RamFileProvider;
+
+/**
+ * Tests the recording of the operations of file systems.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class FileSystemMetricsTest extends TestCase
+{
+    private DefaultFileSystemManager manager;
+    private MBeanServer mbeanServer;
+    private DefaultFileSystemMetrics metrics;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        manager = new DefaultFileSystemManager();
+        manager.addProvider("ram", new RamFileProvider());
+        manager.init();
+
+        mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        metrics = new DefaultFileSystemMetrics(mbeanServer);
+        manager.setFileSystemMetrics(metrics);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+        manager.close();
+        metrics.close();
+    }
+
+    private static void write(final FileObject file, final int length) throws Exception
+    {
+        final OutputStream out = file.getContent().getOutputStream();
+        try
+        {
+            out.write(new byte[length]);
+            out.write(1);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private static long read(final FileObject file) throws Exception
+    {
+        final InputStream in = file.getContent().getInputStream();
+        try
+        {
+            long count = 0;
+            while (in.read() != -1)
+            {
+                count++;
+            }
+            return count;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    public void testOperations() throws Exception
+    {
+        final FileObject folder = manager.resolveFile("ram:/metrics");
+        folder.createFolder();
+        final FileObject file = folder.resolveFile("file.txt");
+        write(file, 99);
+        assertEquals(100, read(file));
+        assertEquals(100, file.getContent().getSize());
+        assertEquals(1, folder.getChildren().length);
+        file.delete();
+
+        final FileSystem fs = folder.getFileSystem();
+        final FileSystemStatistics statistics = metrics.getFileSystemStatistics(fs);
+        assertNotNull(statistics);
+        assertEquals(1, statistics.getCount(FileSystemOperation.CREATE_FOLDER));
+        assertEquals(1, statistics.getCount(FileSystemOperation.GET_OUTPUT_STREAM));
+        assertEquals(1, statistics.getCount(FileSystemOperation.GET_INPUT_STREAM));
+        assertEquals(1, statistics.getCount(FileSystemOperation.GET_CONTENT_SIZE));
+        assertEquals(1, statistics.getCount(FileSystemOperation.LIST_CHILDREN));
+        assertEquals(1, statistics.getCount(FileSystemOperation.DELETE));
+        assertTrue(statistics.getCount(FileSystemOperation.GET_TYPE) > 0);
+        assertEquals(0, statistics.getFailureCount(FileSystemOperation.GET_INPUT_STREAM));
+        assertEquals(100, statistics.getBytesWritten());
+        assertEquals(100, statistics.getBytesRead());
+        assertTrue(statistics.getLockAcquisitions() > 0);
+
+        long histogramCount = 0;
+        final long[] histogram = statistics.getLatencyHistogram(FileSystemOperation.GET_TYPE);
+        for (int i = 0; i < histogram.length; i++)
+        {
+            histogramCount += histogram[i];
+        }
+        assertEquals(statistics.getCount(FileSystemOperation.GET_TYPE), histogramCount);
+
+        final FileSystemStatistics schemeStatistics = metrics.getSchemeStatistics("ram");
+        assertEquals(100, schemeStatistics.getBytesRead());
+        assertEquals(1, schemeStatistics.getCount(FileSystemOperation.DELETE));
+    }
+
+    public void testFailure() throws Exception
+    {
+        final FileObject file = manager.resolveFile("ram:/missing.txt");
+        try
+        {
+            file.getContent().getInputStream();
+            fail();
+        }
+        catch (final FileSystemException e)
+        {
+            // expected
+        }
+
+        final FileSystemStatistics statistics = metrics.getFileSystemStatistics(file.getFileSystem());
+        assertEquals(1, statistics.getCount(FileSystemOperation.GET_INPUT_STREAM));
+        assertEquals(1, statistics.getFailureCount(FileSystemOperation.GET_INPUT_STREAM));
+    }
+
+    public void testCache() throws Exception
+    {
+        final FileObject file = manager.resolveFile("ram:/cached.txt");
+        assertSame(file, manager.resolveFile("ram:/cached.txt"));
+
+        final FileSystemStatistics statistics = metrics.getFileSystemStatistics(file.getFileSystem());
+        assertTrue(statistics.getCacheMisses() > 0);
+        assertTrue(statistics.getCacheHits() > 0);
+        assertTrue(statistics.getCacheHitRatio() > 0);
+    }
+
+    public void testJmx() throws Exception
+    {
+        final FileObject file = manager.resolveFile("ram:/jmx.txt");
+        write(file, 9);
+
+        final ObjectName name = new ObjectName(DefaultFileSystemMetrics.DOMAIN
+            + ":type=FileSystemStatistics,scheme=" + ObjectName.quote("ram"));
+        assertTrue(mbeanServer.isRegistered(name));
+        assertEquals(Long.valueOf(10), mbeanServer.getAttribute(name, "BytesWritten"));
+        assertEquals(Long.valueOf(1), mbeanServer.invoke(name, "getCount",
+            new Object[]{FileSystemOperation.GET_OUTPUT_STREAM.name()}, new String[]{String.class.getName()}));
+        assertEquals(1, mbeanServer.queryNames(new ObjectName(DefaultFileSystemMetrics.DOMAIN
+            + ":type=FileSystemStatistics,scheme=" + ObjectName.quote("ram") + ",*"), null).size() - 1);
+
+        metrics.close();
+        assertFalse(mbeanServer.isRegistered(name));
+    }
+
+    public void testDisabled() throws Exception
+    {
+        manager.setFileSystemMetrics(null);
+        final FileObject file = manager.resolveFile("ram:/disabled.txt");
+        write(file, 9);
+        assertEquals(10, read(file));
+        assertNull(metrics.getSchemeStatistics("ram"));
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.operations.checksum;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.AbstractVfsTestCase;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
+import org.apache.commons.vfs2.provider.local.DefaultLocalFileProvider;
+import org.apache.commons.vfs2.provider.ram.RamFileProvider;
+
+/**
+ * Tests the checksum operation and its cache.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class FileChecksumTest extends TestCase
+{
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private DefaultFileSystemManager manager;
+    private ThreadPoolExecutor executor;
+    private ChecksumOperationProvider provider;
+    private File testDir;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        manager = new DefaultFileSystemManager();
+        manager.addProvider("file", new DefaultLocalFileProvider());
+        manager.addProvider("ram", new RamFileProvider());
+        manager.init();
+        executor = new ThreadPoolExecutor(3, 3, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        manager.setAsyncExecutor(executor);
+
+        provider = createProvider(new ChecksumCache());
+        manager.addOperationProvider(new String[] {"file", "ram"}, provider);
+
+        testDir = new File(AbstractVfsTestCase.getTestDirectoryFile(), "checksum");
+        testDir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        manager.close();
+        executor.shutdown();
+        final File[] files = testDir.listFiles();
+        for (int i = 0; files != null && i < files.length; i++)
+        {
+            files[i].delete();
+        }
+        testDir.delete();
+        super.tearDown();
+    }
+
+    private static ChecksumOperationProvider createProvider(final ChecksumCache cache) throws FileSystemException
+    {
+        final ChecksumOperationProvider provider = new ChecksumOperationProvider(cache);
+        provider.setChunkSize(CHUNK_SIZE);
+        provider.setParallelism(4);
+        return provider;
+    }
+
+    private static byte[] createData(final int length)
+    {
+        final byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private File createFile(final String name, final byte[] data) throws Exception
+    {
+        final File file = new File(testDir, name);
+        final OutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(data);
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+
+    private FileChecksum getChecksum(final FileObject file, final String algorithm) throws Exception
+    {
+        final FileChecksum checksum = (FileChecksum) file.getFileOperations().getOperation(FileChecksum.class);
+        checksum.setAlgorithm(algorithm);
+        checksum.process();
+        return checksum;
+    }
+
+    private static byte[] crc32(final byte[] data)
+    {
+        final CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        final long crc = crc32.getValue();
+        return new byte[] {(byte) (crc >>> 24), (byte) (crc >>> 16), (byte) (crc >>> 8), (byte) crc};
+    }
+
+    private static void assertBytesEquals(final byte[] expected, final byte[] actual)
+    {
+        assertEquals(ChecksumCache.toHex(expected), ChecksumCache.toHex(actual));
+    }
+
+    public void testDefaultAlgorithm() throws Exception
+    {
+        final byte[] data = createData(1000);
+        final FileObject file = manager.resolveFile(createFile("default.bin", data).toURI().toString());
+        final FileChecksum checksum = (FileChecksum) file.getFileOperations().getOperation(FileChecksum.class);
+        assertEquals(FileChecksum.SHA_256, checksum.getAlgorithm());
+        checksum.process();
+
+        final byte[] expected = MessageDigest.getInstance("SHA-256").digest(data);
+        assertBytesEquals(expected, checksum.getChecksum());
+        assertEquals(ChecksumCache.toHex(expected), checksum.getHexChecksum());
+    }
+
+    public void testDigests() throws Exception
+    {
+        final byte[] data = createData(100000);
+        final FileObject file = manager.resolveFile(createFile("digests.bin", data).toURI().toString());
+        assertBytesEquals(MessageDigest.getInstance("MD5").digest(data),
+            getChecksum(file, FileChecksum.MD5).getChecksum());
+        assertBytesEquals(MessageDigest.getInstance("SHA-1").digest(data),
+            getChecksum(file, FileChecksum.SHA_1).getChecksum());
+        assertBytesEquals(crc32(data), getChecksum(file, FileChecksum.CRC32).getChecksum());
+    }
+
+    public void testParallelCrc32() throws Exception
+    {
+        // several chunks, the last one shorter
+        final byte[] data = createData(10 * CHUNK_SIZE + 1234);
+        final FileObject file = manager.resolveFile(createFile("parallel.bin", data).toURI().toString());
+        assertBytesEquals(crc32(data), getChecksum(file, FileChecksum.CRC32).getChecksum());
+    }
+
+    public void testSequentialCrc32() throws Exception
+    {
+        provider.setParallelism(1);
+        final byte[] data = createData(4 * CHUNK_SIZE);
+        final FileObject file = manager.resolveFile(createFile("sequential.bin", data).toURI().toString());
+        assertBytesEquals(crc32(data), getChecksum(file, FileChecksum.CRC32).getChecksum());
+    }
+
+    public void testRamCrc32() throws Exception
+    {
+        final byte[] data = createData(4 * CHUNK_SIZE + 1);
+        final FileObject file = manager.resolveFile("ram:/ram.bin");
+        final OutputStream out = file.getContent().getOutputStream();
+        out.write(data);
+        out.close();
+        assertBytesEquals(crc32(data), getChecksum(file, FileChecksum.CRC32).getChecksum());
+    }
+
+    public void testCombine()
+    {
+        final byte[] data = createData(5000);
+        final CRC32 first = new CRC32();
+        first.update(data, 0, 1234);
+        final CRC32 second = new CRC32();
+        second.update(data, 1234, data.length - 1234);
+        final CRC32 all = new CRC32();
+        all.update(data);
+        assertEquals(all.getValue(), Crc32Combine.combine(first.getValue(), second.getValue(), data.length - 1234));
+        assertEquals(first.getValue(), Crc32Combine.combine(first.getValue(), new CRC32().getValue(), 0));
+    }
+
+    public void testUnknownAlgorithm() throws Exception
+    {
+        final FileObject file = manager.resolveFile(createFile("unknown.bin", createData(10)).toURI().toString());
+        try
+        {
+            getChecksum(file, "NO-SUCH-DIGEST");
+            fail();
+        }
+        catch (final FileSystemException e)
+        {
+            assertEquals("vfs.operation.checksum/unknown-algorithm.error", e.getCode());
+        }
+    }
+
+    public void testFolder() throws Exception
+    {
+        final FileObject folder = manager.resolveFile(testDir.toURI().toString());
+        assertFalse(folder.getFileOperations().hasOperation(FileChecksum.class));
+    }
+
+    public void testCacheHitAndInvalidation() throws Exception
+    {
+        final byte[] data = createData(1000);
+        final File localFile = createFile("cached.bin", data);
+        final FileObject file = manager.resolveFile(localFile.toURI().toString());
+        getChecksum(file, FileChecksum.SHA_256);
+
+        // a cached checksum for the same size and time is used as is
+        final String uri = file.getName().getFriendlyURI();
+        final long lastModified = file.getContent().getLastModifiedTime();
+        final byte[] planted = new byte[] {1, 2, 3};
+        provider.getCache().put(FileChecksum.SHA_256, uri, data.length, lastModified, planted);
+        assertBytesEquals(planted, getChecksum(file, FileChecksum.SHA_256).getChecksum());
+
+        // once the file changes, it is computed again
+        final byte[] changed = createData(2000);
+        createFile("cached.bin", changed);
+        localFile.setLastModified(lastModified + 10000);
+        file.refresh();
+        assertBytesEquals(MessageDigest.getInstance("SHA-256").digest(changed),
+            getChecksum(file, FileChecksum.SHA_256).getChecksum());
+    }
+
+    public void testPersistentCache() throws Exception
+    {
+        final File cacheFile = new File(testDir, "checksums.properties");
+        final byte[] data = createData(1000);
+        final FileObject file = manager.resolveFile(createFile("persistent.bin", data).toURI().toString());
+        final String uri = file.getName().getFriendlyURI();
+        final long lastModified = file.getContent().getLastModifiedTime();
+
+        final ChecksumCache cache = new ChecksumCache(cacheFile);
+        final byte[] expected = MessageDigest.getInstance("SHA-256").digest(data);
+        cache.put(FileChecksum.SHA_256, uri, data.length, lastModified, expected);
+        cache.save();
+        assertTrue(cacheFile.exists());
+
+        final ChecksumCache reloaded = new ChecksumCache(cacheFile);
+        assertBytesEquals(expected, reloaded.get(FileChecksum.SHA_256, uri, data.length, lastModified));
+        assertNull(reloaded.get(FileChecksum.SHA_256, uri, data.length + 1, lastModified));
+        assertNull(reloaded.get(FileChecksum.MD5, uri, data.length, lastModified));
+    }
+}
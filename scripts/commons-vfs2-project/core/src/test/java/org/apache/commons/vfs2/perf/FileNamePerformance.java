@@ -16,87 +16,86 @@
  */
 package org.apache.commons.vfs2.perf;
 
+import java.io.File;
+
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemManager;
 import org.apache.commons.vfs2.VFS;
 
+/**
+ * Measures the resolution of names and files against the local provider.
+ * <p>
+ * Each measurement runs a number of warmup rounds before the measured rounds, and
+ * reports the average time of one resolution of each measured round.
+ */
 public class FileNamePerformance
 {
-    private final static int NUOF_RESOLVES = 100000;
+    private static final int NUOF_RESOLVES = 100000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private static final String PATH = "many/path/elements/with%25esc/any%25where/to/file.txt";
 
     public static void main(String[] args) throws FileSystemException
     {
-        FileSystemManager mgr = VFS.getManager();
+        final FileSystemManager mgr = VFS.getManager();
 
-        FileObject root = mgr
-                .resolveFile("smb://HOME\\vfsusr:vfs%2f%25\\te:st@10.0.1.54/vfsusr");
-        FileName rootName = root.getName();
+        final File baseDir = new File(System.getProperty("java.io.tmpdir"));
+        final FileObject root = mgr.toFileObject(baseDir);
+        final FileName rootName = root.getName();
+        final String uri = rootName.getURI() + "/" + PATH;
 
-        testNames(mgr, rootName);
-
-        testChildren(root);
-
-        testFiles(mgr);
-    }
-
-    private static void testFiles(FileSystemManager mgr) throws FileSystemException
-    {
-        for (int i = 0; i < 10; i++)
+        measure("names", new Resolver()
         {
-            // warmup jvm
-            mgr.resolveFile("smb://HOME\\vfsusr:vfs%2f%25\\te:st@10.0.1.54/vfsusr/many/path/elements/with%25esc/any%25where/to/file.txt");
-        }
+            public Object resolve() throws FileSystemException
+            {
+                return mgr.resolveName(rootName, PATH);
+            }
+        });
 
-        long start = System.currentTimeMillis();
-        for (int i = 0; i < NUOF_RESOLVES; i++)
+        measure("children", new Resolver()
         {
-            mgr.resolveFile("smb://HOME\\vfsusr:vfs%2f%25\\te:st@10.0.1.54/vfsusr/many/path/elements/with%25esc/any%25where/to/file.txt");
-        }
-        long end = System.currentTimeMillis();
+            public Object resolve() throws FileSystemException
+            {
+                return root.resolveFile(PATH);
+            }
+        });
 
-        System.err.println("time to resolve " + NUOF_RESOLVES + " files: "
-                + (end - start) + "ms");
+        measure("files", new Resolver()
+        {
+            public Object resolve() throws FileSystemException
+            {
+                return mgr.resolveFile(uri);
+            }
+        });
     }
 
-    private static void testChildren(FileObject root) throws FileSystemException
+    private static void measure(final String what, final Resolver resolver) throws FileSystemException
     {
-        for (int i = 0; i < 10; i++)
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++)
         {
-            // warmup jvm
-            root.resolveFile("/many/path/elements/with%25esc/any%25where/to/file.txt");
+            long start = System.nanoTime();
+            for (int i = 0; i < NUOF_RESOLVES; i++)
+            {
+                resolver.resolve();
+            }
+            long end = System.nanoTime();
+
+            if (round >= WARMUP_ROUNDS)
+            {
+                System.err.println("time to resolve " + what + ": "
+                        + (end - start) / NUOF_RESOLVES + "ns/op");
+            }
         }
-
-        long start = System.currentTimeMillis();
-        for (int i = 0; i < NUOF_RESOLVES; i++)
-        {
-            root.resolveFile("/many/path/elements/with%25esc/any%25where/to/file.txt");
-        }
-        long end = System.currentTimeMillis();
-
-        System.err.println("time to resolve " + NUOF_RESOLVES + " childs: "
-                + (end - start) + "ms");
     }
 
-    private static void testNames(FileSystemManager mgr, FileName rootName) throws FileSystemException
+    /**
+     * One resolution to measure.
+     */
+    private interface Resolver
     {
-        for (int i = 0; i < 10; i++)
-        {
-            // warmup jvm
-            mgr.resolveName(rootName,
-                    "/many/path/elements/with%25esc/any%25where/to/file.txt");
-        }
-
-        long start = System.currentTimeMillis();
-        for (int i = 0; i < NUOF_RESOLVES; i++)
-        {
-            mgr.resolveName(rootName,
-                    "/many/path/elements/with%25esc/any%25where/to/file.txt");
-        }
-        long end = System.currentTimeMillis();
-
-        System.err.println("time to resolve " + NUOF_RESOLVES + " names: "
-                + (end - start) + "ms");
+        Object resolve() throws FileSystemException;
     }
 }
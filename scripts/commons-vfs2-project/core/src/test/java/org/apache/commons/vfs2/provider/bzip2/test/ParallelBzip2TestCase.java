@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.bzip2.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.vfs2.provider.bzip2.Bzip2FileObject;
+
+/**
+ * Tests the parallel bzip2 streams against the single threaded ones.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class ParallelBzip2TestCase extends TestCase
+{
+    private static final int THREADS = 4;
+
+    /** The executor all streams share. */
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        executor.shutdownNow();
+        super.tearDown();
+    }
+
+    /**
+     * Text with runs, spanning several 100k blocks.
+     */
+    private static byte[] createText()
+    {
+        final Random random = new Random(42);
+        final String[] words = {"commons", "vfs", "bzip2", "block", "stream", "parallel", "\n", "  "};
+        final StringBuilder text = new StringBuilder();
+        while (text.length() < 450000)
+        {
+            text.append(words[random.nextInt(words.length)]).append(' ');
+            if (random.nextInt(50) == 0)
+            {
+                for (int i = random.nextInt(600); i > 0; i--)
+                {
+                    text.append('x');
+                }
+            }
+        }
+        return text.toString().getBytes();
+    }
+
+    private static byte[] createRandom()
+    {
+        final byte[] data = new byte[250000];
+        new Random(7).nextBytes(data);
+        return data;
+    }
+
+    private byte[] compress(final byte[] data, final int threads) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final OutputStream out = Bzip2FileObject.wrapOutputStream(bytes, 1, executor, threads);
+
+        // write in odd sized chunks
+        for (int i = 0; i < data.length; i += 777)
+        {
+            out.write(data, i, Math.min(777, data.length - i));
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private byte[] decompress(final byte[] compressed, final int threads) throws IOException
+    {
+        final InputStream in = Bzip2FileObject.wrapInputStream("test", new ByteArrayInputStream(compressed),
+            executor, threads);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1000];
+        int n;
+        while ((n = in.read(buffer)) > 0)
+        {
+            bytes.write(buffer, 0, n);
+        }
+        in.close();
+        return bytes.toByteArray();
+    }
+
+    public void testCompressedDataIsIdentical() throws Exception
+    {
+        final byte[] text = createText();
+        assertTrue(Arrays.equals(compress(text, 1), compress(text, THREADS)));
+
+        final byte[] random = createRandom();
+        assertTrue(Arrays.equals(compress(random, 1), compress(random, THREADS)));
+
+        final byte[] runs = new byte[300000];
+        assertTrue(Arrays.equals(compress(runs, 1), compress(runs, THREADS)));
+
+        final byte[] small = "a".getBytes();
+        assertTrue(Arrays.equals(compress(small, 1), compress(small, THREADS)));
+    }
+
+    public void testParallelDecompression() throws Exception
+    {
+        final byte[] text = createText();
+        assertTrue(Arrays.equals(text, decompress(compress(text, 1), THREADS)));
+
+        final byte[] random = createRandom();
+        assertTrue(Arrays.equals(random, decompress(compress(random, THREADS), THREADS)));
+    }
+
+    public void testSerialDecompressionOfParallelCompression() throws Exception
+    {
+        final byte[] text = createText();
+        assertTrue(Arrays.equals(text, decompress(compress(text, THREADS), 1)));
+    }
+
+    public void testSingleByteReads() throws Exception
+    {
+        final byte[] text = createText();
+        final InputStream in = Bzip2FileObject.wrapInputStream("test",
+            new ByteArrayInputStream(compress(text, THREADS)), executor, THREADS);
+        for (int i = 0; i < text.length; i++)
+        {
+            assertEquals(text[i] & 0xff, in.read());
+        }
+        assertEquals(-1, in.read());
+        in.close();
+    }
+
+    public void testStreamsShareTheExecutor() throws Exception
+    {
+        final byte[] text = createText();
+        final byte[] compressed = compress(text, 1);
+        final InputStream in1 = Bzip2FileObject.wrapInputStream("test", new ByteArrayInputStream(compressed),
+            executor, 2);
+        final InputStream in2 = Bzip2FileObject.wrapInputStream("test", new ByteArrayInputStream(compressed),
+            executor, 2);
+        for (int i = 0; i < text.length; i++)
+        {
+            assertEquals(text[i] & 0xff, in1.read());
+            assertEquals(text[i] & 0xff, in2.read());
+        }
+        assertEquals(-1, in1.read());
+        assertEquals(-1, in2.read());
+        in1.close();
+        in2.close();
+    }
+
+    public void testRejectedBlocksAreDoneByTheCaller() throws Exception
+    {
+        // a shut down executor rejects every block
+        executor.shutdown();
+        final byte[] text = createText();
+        final byte[] compressed = compress(text, THREADS);
+        assertTrue(Arrays.equals(compress(text, 1), compressed));
+        assertTrue(Arrays.equals(text, decompress(compressed, THREADS)));
+    }
+
+    public void testCorruptedData() throws Exception
+    {
+        final byte[] compressed = compress(createText(), THREADS);
+        compressed[compressed.length / 2] ^= 0x10;
+        try
+        {
+            decompress(compressed, THREADS);
+            fail();
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.ftp.test;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.provider.ftp.FtpClient;
+import org.apache.commons.vfs2.provider.ftp.FtpClientPool;
+
+/**
+ * Tests for the FTP client pool, using stand-in clients instead of server connections.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class FtpClientPoolTestCase extends TestCase
+{
+    public void testReuse() throws Exception
+    {
+        final TestPool pool = new TestPool(10, 0, 8, 0, 0, false);
+        final FtpClient client = pool.borrowConnection();
+        pool.releaseConnection(client);
+
+        assertSame(client, pool.borrowConnection());
+        assertEquals(1, pool.created);
+        assertEquals(1, pool.getNumActive());
+        assertEquals(2, pool.getBorrowedCount());
+        assertEquals(0, pool.getNumIdle());
+    }
+
+    public void testMaxIdle() throws Exception
+    {
+        final TestPool pool = new TestPool(10, 0, 2, 0, 0, false);
+        final FtpClient client1 = pool.borrowConnection();
+        final FtpClient client2 = pool.borrowConnection();
+        final FtpClient client3 = pool.borrowConnection();
+        assertEquals(3, pool.created);
+
+        pool.releaseConnection(client1);
+        pool.releaseConnection(client2);
+        pool.releaseConnection(client3);
+        assertEquals(2, pool.getNumIdle());
+        assertEquals(1, pool.destroyed);
+        assertFalse(client3.isConnected());
+    }
+
+    public void testDisconnectedClientIsNotPooled() throws Exception
+    {
+        final TestPool pool = new TestPool(10, 0, 8, 0, 0, false);
+        final FtpClient client = pool.borrowConnection();
+        client.disconnect();
+        pool.releaseConnection(client);
+
+        assertEquals(0, pool.getNumIdle());
+        assertNotSame(client, pool.borrowConnection());
+    }
+
+    public void testExhaustedPoolTimesOut() throws Exception
+    {
+        final TestPool pool = new TestPool(1, 0, 8, 0, 50, false);
+        pool.borrowConnection();
+
+        final long start = System.currentTimeMillis();
+        try
+        {
+            pool.borrowConnection();
+            fail("The pool should be exhausted.");
+        }
+        catch (FileSystemException e)
+        {
+            assertEquals("vfs.provider/pool-exhausted.error", e.getCode());
+        }
+        assertTrue(System.currentTimeMillis() - start >= 50);
+        assertEquals(1, pool.created);
+        assertTrue(pool.getWaitCount() > 0);
+    }
+
+    public void testExhaustedPoolWaitsForReturn() throws Exception
+    {
+        final TestPool pool = new TestPool(1, 0, 8, 0, 10000, false);
+        final FtpClient client = pool.borrowConnection();
+
+        final Thread returner = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException e)
+                {
+                    // ignore
+                }
+                pool.releaseConnection(client);
+            }
+        };
+        returner.start();
+
+        assertSame(client, pool.borrowConnection());
+        returner.join();
+        assertEquals(1, pool.created);
+    }
+
+    public void testValidationOnBorrow() throws Exception
+    {
+        final TestPool pool = new TestPool(10, 0, 8, 0, 0, true);
+        final StandInFtpClient client = (StandInFtpClient) pool.borrowConnection();
+        pool.releaseConnection(client);
+
+        assertSame(client, pool.borrowConnection());
+        assertEquals(1, client.noops);
+        pool.releaseConnection(client);
+
+        // The server dropped the connection without the client noticing
+        client.alive = false;
+        final FtpClient other = pool.borrowConnection();
+        assertNotSame(client, other);
+        assertEquals(2, pool.created);
+        assertEquals(1, pool.destroyed);
+        assertEquals(1, pool.getValidationFailedCount());
+    }
+
+    public void testIdleEviction() throws Exception
+    {
+        final TestPool pool = new TestPool(10, 1, 8, 20, 0, false);
+        final FtpClient client1 = pool.borrowConnection();
+        final FtpClient client2 = pool.borrowConnection();
+        final FtpClient client3 = pool.borrowConnection();
+        pool.releaseConnection(client1);
+        pool.releaseConnection(client2);
+        pool.releaseConnection(client3);
+        assertEquals(3, pool.getNumIdle());
+
+        Thread.sleep(100);
+
+        // The most recently used client is kept as the minimum idle client
+        assertSame(client3, pool.borrowConnection());
+        assertEquals(2, pool.destroyed);
+        assertEquals(0, pool.getNumIdle());
+    }
+
+    public void testIdleEvictionWithoutUse() throws Exception
+    {
+        final TestPool pool = new TestPool(10, 0, 8, 20, 0, false);
+        final FtpClient client1 = pool.borrowConnection();
+        final FtpClient client2 = pool.borrowConnection();
+        pool.releaseConnection(client1);
+        Thread.sleep(10);
+        pool.releaseConnection(client2);
+
+        // nothing borrows or releases, the timer closes both
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (pool.getDestroyedCount() < 2 && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(0, pool.getNumIdle());
+        assertEquals(2, pool.getDestroyedCount());
+        assertFalse(client1.isConnected());
+        assertFalse(client2.isConnected());
+    }
+
+    public void testClear() throws Exception
+    {
+        final TestPool pool = new TestPool(10, 0, 8, 0, 0, false);
+        final FtpClient client1 = pool.borrowConnection();
+        final FtpClient client2 = pool.borrowConnection();
+        pool.releaseConnection(client1);
+        pool.clear();
+
+        assertEquals(0, pool.getNumIdle());
+        assertFalse(client1.isConnected());
+        assertTrue(client2.isConnected());
+    }
+
+    /**
+     * A pool which creates stand-in clients.
+     */
+    private static class TestPool extends FtpClientPool
+    {
+        private int created;
+        private int destroyed;
+
+        TestPool(final int maxActive, final int minIdle, final int maxIdle,
+                 final long idleTimeout, final long maxWait, final boolean testOnBorrow)
+        {
+            super(maxActive, minIdle, maxIdle, idleTimeout, maxWait, testOnBorrow);
+        }
+
+        @Override
+        protected synchronized FtpClient createConnection()
+        {
+            created++;
+            return new StandInFtpClient();
+        }
+
+        @Override
+        protected synchronized void destroyConnection(final FtpClient client)
+        {
+            destroyed++;
+            try
+            {
+                client.disconnect();
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.ftp.test;
+
+import java.util.Calendar;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.vfs2.CacheStrategy;
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
+import org.apache.commons.vfs2.provider.GenericFileName;
+import org.apache.commons.vfs2.provider.ftp.FtpClient;
+import org.apache.commons.vfs2.provider.ftp.FtpFileProvider;
+import org.apache.commons.vfs2.provider.ftp.FtpFileSystem;
+
+/**
+ * Tests that the files of an FTP folder take their info from the listing of the folder,
+ * using a stand-in client instead of a server connection.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class FtpListingTestCase extends TestCase
+{
+    private static final long MODIFIED = 1234567890000L;
+
+    private DefaultFileSystemManager manager;
+    private StandInFtpClient client;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        client = new StandInFtpClient();
+        client.listings.put(null, new FTPFile[] {createFile("dir", FTPFile.DIRECTORY_TYPE, 0)});
+
+        // files are only refreshed when asked, so that only the listings hand them their info
+        manager = new DefaultFileSystemManager();
+        manager.setCacheStrategy(CacheStrategy.MANUAL);
+        manager.addProvider("ftp", new FtpFileProvider()
+        {
+            @Override
+            protected FileSystem doCreateFileSystem(final FileName name, final FileSystemOptions opts)
+            {
+                return new FtpFileSystem((GenericFileName) name, client, opts)
+                {
+                    @Override
+                    protected FtpClient createWrapper()
+                    {
+                        return client;
+                    }
+                };
+            }
+        });
+        manager.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        manager.close();
+        super.tearDown();
+    }
+
+    private static FTPFile createFile(final String name, final int type, final long size)
+    {
+        final FTPFile file = new FTPFile();
+        file.setName(name);
+        file.setType(type);
+        file.setSize(size);
+        final Calendar timestamp = Calendar.getInstance();
+        timestamp.setTimeInMillis(MODIFIED);
+        file.setTimestamp(timestamp);
+        return file;
+    }
+
+    public void testChildrenInfoFromOneListing() throws Exception
+    {
+        client.listings.put("dir", new FTPFile[]
+            {
+                createFile("a.txt", FTPFile.FILE_TYPE, 10),
+                createFile("sub", FTPFile.DIRECTORY_TYPE, 0)
+            });
+
+        final FileObject[] children = manager.resolveFile("ftp://host/dir").getChildren();
+        assertEquals(1, Collections.frequency(client.listed, "dir"));
+        final int listings = client.listed.size();
+
+        assertEquals(2, children.length);
+        final FileObject file = children[0];
+        assertEquals("a.txt", file.getName().getBaseName());
+        assertEquals(FileType.FILE, file.getType());
+        assertEquals(10, file.getContent().getSize());
+        assertEquals(MODIFIED, file.getContent().getLastModifiedTime());
+        assertEquals(FileType.FOLDER, children[1].getType());
+
+        // no round-trip after the listing
+        assertEquals(listings, client.listed.size());
+    }
+
+    public void testListingReplacesKnownType() throws Exception
+    {
+        client.listings.put("dir", new FTPFile[] {createFile("a.txt", FTPFile.FILE_TYPE, 10)});
+        final FileObject dir = manager.resolveFile("ftp://host/dir");
+        final FileObject file = manager.resolveFile("ftp://host/dir/b.txt");
+        assertEquals(1, dir.getChildren().length);
+        assertEquals(FileType.IMAGINARY, file.getType());
+        assertEquals(1, Collections.frequency(client.listed, "dir"));
+
+        // the file is created on the server, and found by the next listing
+        client.listings.put("dir", new FTPFile[]
+            {
+                createFile("a.txt", FTPFile.FILE_TYPE, 10),
+                createFile("b.txt", FTPFile.FILE_TYPE, 20)
+            });
+        dir.refresh();
+        assertEquals(2, dir.getChildren().length);
+        assertEquals(2, Collections.frequency(client.listed, "dir"));
+        final int listings = client.listed.size();
+
+        assertEquals(FileType.FILE, file.getType());
+        assertEquals(20, file.getContent().getSize());
+        assertEquals(listings, client.listed.size());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.ftp.test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.vfs2.provider.ftp.FtpClient;
+
+/**
+ * Stands in for a connection to an FTP server.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+class StandInFtpClient implements FtpClient
+{
+    boolean connected = true;
+    boolean alive = true;
+    int noops;
+
+    /** The listings of the folders, by path. */
+    final Map<String, FTPFile[]> listings = new HashMap<String, FTPFile[]>();
+
+    /** The paths listed, in turn. */
+    final List<String> listed = new ArrayList<String>();
+
+    public boolean isConnected()
+    {
+        return connected;
+    }
+
+    public void disconnect()
+    {
+        connected = false;
+    }
+
+    public boolean sendNoOp()
+    {
+        noops++;
+        return alive;
+    }
+
+    public synchronized FTPFile[] listFiles(String relPath)
+    {
+        listed.add(relPath);
+        final FTPFile[] files = listings.get(relPath);
+        return files == null ? new FTPFile[0] : files;
+    }
+
+    public boolean removeDirectory(String relPath)
+    {
+        return true;
+    }
+
+    public boolean deleteFile(String relPath)
+    {
+        return true;
+    }
+
+    public boolean rename(String oldName, String newName)
+    {
+        return true;
+    }
+
+    public boolean makeDirectory(String relPath)
+    {
+        return true;
+    }
+
+    public boolean completePendingCommand()
+    {
+        return true;
+    }
+
+    public InputStream retrieveFileStream(String relPath)
+    {
+        return null;
+    }
+
+    public InputStream retrieveFileStream(String relPath, long restartOffset)
+    {
+        return null;
+    }
+
+    public OutputStream appendFileStream(String relPath)
+    {
+        return null;
+    }
+
+    public OutputStream storeFileStream(String relPath)
+    {
+        return null;
+    }
+
+    public boolean abort()
+    {
+        return true;
+    }
+
+    public String getReplyString()
+    {
+        return "200 OK";
+    }
+}
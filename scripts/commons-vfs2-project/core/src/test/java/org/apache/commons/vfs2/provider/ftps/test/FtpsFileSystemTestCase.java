@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.ftps.test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.provider.GenericFileName;
+import org.apache.commons.vfs2.provider.ftp.FtpClient;
+import org.apache.commons.vfs2.provider.ftp.FtpFileNameParser;
+import org.apache.commons.vfs2.provider.ftp.FtpFileSystem;
+import org.apache.commons.vfs2.provider.ftps.FtpsFileSystem;
+
+/**
+ * Tests that the connection pool of an FTPS file system only opens encrypted connections,
+ * against a stand-in server which only speaks plain FTP.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class FtpsFileSystemTestCase extends TestCase
+{
+    private ServerSocket serverSocket;
+    private final List<String> commands = Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        serverSocket = new ServerSocket(0);
+        final Thread acceptor = new Thread("FtpsFileSystemTestCase server")
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    while (true)
+                    {
+                        serve(serverSocket.accept());
+                    }
+                }
+                catch (final IOException e)
+                {
+                    // the server socket is closed
+                }
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        serverSocket.close();
+        super.tearDown();
+    }
+
+    /**
+     * Answers the commands of one connection, like a server without TLS support.
+     */
+    private void serve(final Socket socket) throws IOException
+    {
+        try
+        {
+            final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+            final OutputStream out = socket.getOutputStream();
+            out.write("220 ready\r\n".getBytes("US-ASCII"));
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                commands.add(line);
+                final String reply;
+                if (line.startsWith("AUTH"))
+                {
+                    reply = "502 not implemented";
+                }
+                else if (line.startsWith("USER"))
+                {
+                    reply = "331 password required";
+                }
+                else if (line.startsWith("PASS"))
+                {
+                    reply = "230 logged in";
+                }
+                else if (line.startsWith("QUIT"))
+                {
+                    out.write("221 bye\r\n".getBytes("US-ASCII"));
+                    break;
+                }
+                else
+                {
+                    reply = "200 ok";
+                }
+                out.write((reply + "\r\n").getBytes("US-ASCII"));
+            }
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    private GenericFileName parseName(final String scheme) throws FileSystemException
+    {
+        return (GenericFileName) FtpFileNameParser.getInstance().parseUri(null, null,
+            scheme + "://user:secret@localhost:" + serverSocket.getLocalPort() + "/");
+    }
+
+    private boolean sentCredentials()
+    {
+        synchronized (commands)
+        {
+            for (final String command : commands)
+            {
+                if (command.startsWith("USER") || command.startsWith("PASS"))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The stand-in server accepts a plain login, so the FTPS test below would notice one.
+     */
+    public void testFtpPoolLogsInWithoutTls() throws Exception
+    {
+        final FtpFileSystem fs = new FtpFileSystem(parseName("ftp"), null, new FileSystemOptions());
+        final FtpClient client = fs.getClient();
+        assertTrue(client.isConnected());
+        client.disconnect();
+        assertTrue(sentCredentials());
+    }
+
+    public void testFtpsPoolNeverOpensPlainConnections() throws Exception
+    {
+        final FtpsFileSystem fs = new FtpsFileSystem(parseName("ftps"), null, new FileSystemOptions());
+        for (int i = 0; i < 3; i++)
+        {
+            try
+            {
+                final FtpClient client = fs.getClient();
+                fail("Connected without TLS: " + commands);
+            }
+            catch (final FileSystemException e)
+            {
+                // expected, the server refuses AUTH TLS
+            }
+        }
+
+        assertEquals(3, Collections.frequency(commands, "AUTH TLS"));
+        assertFalse(sentCredentials());
+    }
+}
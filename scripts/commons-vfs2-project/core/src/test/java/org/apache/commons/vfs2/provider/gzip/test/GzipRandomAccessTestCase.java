@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.gzip.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.AbstractVfsTestCase;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemManager;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.RandomAccessContent;
+import org.apache.commons.vfs2.VFS;
+import org.apache.commons.vfs2.provider.gzip.GzipFileSystem;
+import org.apache.commons.vfs2.provider.gzip.GzipFileSystemConfigBuilder;
+import org.apache.commons.vfs2.provider.gzip.GzipIndex;
+import org.apache.commons.vfs2.util.RandomAccessMode;
+
+/**
+ * Tests random access to the content of gzip files through the checkpoint index.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class GzipRandomAccessTestCase extends TestCase
+{
+    private static final int SPAN = 64 * 1024;
+
+    private FileSystemManager manager;
+    private File testDir;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        manager = VFS.getManager();
+        testDir = new File(AbstractVfsTestCase.getTestDirectoryFile(), "gzipRandomAccess");
+        testDir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        final File[] files = testDir.listFiles();
+        for (int i = 0; files != null && i < files.length; i++)
+        {
+            files[i].delete();
+        }
+        testDir.delete();
+    }
+
+    /**
+     * Text with long runs, followed by random bytes, which deflate stores.
+     */
+    private static byte[] createData(final int textLength, final int randomLength)
+    {
+        final Random random = new Random(42);
+        final String[] words = {"commons", "vfs", "gzip", "block", "window", "checkpoint", "\n"};
+        final StringBuilder text = new StringBuilder();
+        while (text.length() < textLength)
+        {
+            text.append(words[random.nextInt(words.length)]).append(' ').append(random.nextInt(1000));
+            if (random.nextInt(100) == 0)
+            {
+                for (int i = random.nextInt(2000); i > 0; i--)
+                {
+                    text.append('x');
+                }
+            }
+        }
+
+        final byte[] data = new byte[textLength + randomLength];
+        System.arraycopy(text.toString().getBytes(), 0, data, 0, textLength);
+        final byte[] noise = new byte[randomLength];
+        random.nextBytes(noise);
+        System.arraycopy(noise, 0, data, textLength, randomLength);
+        return data;
+    }
+
+    /**
+     * Writes the data as gzip file, in as many members as given.
+     */
+    private File createGzipFile(final String name, final byte[] data, final int members) throws IOException
+    {
+        final File file = new File(testDir, name);
+        final OutputStream out = new FileOutputStream(file);
+        try
+        {
+            final int memberLength = data.length / members;
+            for (int i = 0; i < members; i++)
+            {
+                final int start = i * memberLength;
+                final int end = i == members - 1 ? data.length : start + memberLength;
+                final GZIPOutputStream gzip = new GZIPOutputStream(out)
+                {
+                    @Override
+                    public void close() throws IOException
+                    {
+                        // keep the file open for the next member
+                        finish();
+                    }
+                };
+                gzip.write(data, start, end - start);
+                gzip.close();
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+
+    private FileObject resolve(final File file) throws Exception
+    {
+        final FileSystemOptions opts = new FileSystemOptions();
+        GzipFileSystemConfigBuilder.getInstance().setCheckpointSpan(opts, SPAN);
+        final String name = file.getName().substring(0, file.getName().length() - 3);
+        return manager.resolveFile("gz:" + file.toURI() + "!/" + name, opts);
+    }
+
+    private void assertRandomReads(final byte[] data, final FileObject file) throws Exception
+    {
+        final RandomAccessContent content = file.getContent().getRandomAccessContent(RandomAccessMode.READ);
+        try
+        {
+            assertEquals(data.length, content.length());
+
+            final Random random = new Random(7);
+            final byte[] buffer = new byte[5000];
+            for (int i = 0; i < 50; i++)
+            {
+                final int pos = random.nextInt(data.length - buffer.length);
+                content.seek(pos);
+                content.readFully(buffer);
+                assertEquals(pos + buffer.length, content.getFilePointer());
+                for (int j = 0; j < buffer.length; j++)
+                {
+                    if (buffer[j] != data[pos + j])
+                    {
+                        fail("byte " + (pos + j) + " differs");
+                    }
+                }
+            }
+
+            // the last bytes
+            content.seek(data.length - 1);
+            assertEquals(data[data.length - 1], content.readByte());
+            assertEquals(-1, content.getInputStream().read());
+        }
+        finally
+        {
+            content.close();
+        }
+    }
+
+    public void testRandomAccess() throws Exception
+    {
+        final byte[] data = createData(2000000, 300000);
+        final File gzipFile = createGzipFile("single.txt.gz", data, 1);
+        final FileObject file = resolve(gzipFile);
+        assertRandomReads(data, file);
+
+        final FileObject container = manager.resolveFile(gzipFile.toURI().toString());
+        final GzipIndex index = ((GzipFileSystem) file.getFileSystem()).getIndex(container);
+        assertTrue(index.getCheckpointCount() > 5);
+        assertEquals(data.length, index.getLength());
+    }
+
+    public void testMultipleMembers() throws Exception
+    {
+        final byte[] data = createData(1000000, 100000);
+        final FileObject file = resolve(createGzipFile("members.txt.gz", data, 3));
+        assertRandomReads(data, file);
+    }
+
+    public void testSequentialRead() throws Exception
+    {
+        final byte[] data = createData(500000, 50000);
+        final FileObject file = resolve(createGzipFile("sequential.txt.gz", data, 1));
+        final RandomAccessContent content = file.getContent().getRandomAccessContent(RandomAccessMode.READ);
+        try
+        {
+            final byte[] read = new byte[data.length];
+            content.readFully(read);
+            for (int i = 0; i < data.length; i++)
+            {
+                if (read[i] != data[i])
+                {
+                    fail("byte " + i + " differs");
+                }
+            }
+        }
+        finally
+        {
+            content.close();
+        }
+    }
+
+    public void testIndexIsRebuiltOnChange() throws Exception
+    {
+        final byte[] data = createData(200000, 0);
+        final File gzipFile = createGzipFile("changed.txt.gz", data, 1);
+        final FileObject file = resolve(gzipFile);
+        final GzipFileSystem fs = (GzipFileSystem) file.getFileSystem();
+        final FileObject container = manager.resolveFile(gzipFile.toURI().toString());
+        final GzipIndex index = fs.getIndex(container);
+        assertSame(index, fs.getIndex(container));
+
+        final byte[] changed = createData(300000, 0);
+        createGzipFile("changed.txt.gz", changed, 1);
+        gzipFile.setLastModified(gzipFile.lastModified() + 10000);
+        container.refresh();
+        assertNotSame(index, fs.getIndex(container));
+        assertRandomReads(changed, file);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.local.test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.AbstractVfsTestCase;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.Selectors;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
+import org.apache.commons.vfs2.provider.local.DefaultLocalFileProvider;
+
+/**
+ * Base class for the tests of operations on trees of local files: a manager with the
+ * local provider and an executor of four threads, and a folder to create trees in.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public abstract class AbstractLocalTreeTestCase extends TestCase
+{
+    protected DefaultFileSystemManager manager;
+    protected ThreadPoolExecutor executor;
+    protected File testDir;
+
+    /**
+     * @return The name of the folder the trees are created in, below the test directory.
+     */
+    protected abstract String getTestDirName();
+
+    /**
+     * Adds the providers used beside the local one. This implementation adds none.
+     * @param manager The manager.
+     * @throws Exception if a provider can not be added.
+     */
+    protected void addProviders(final DefaultFileSystemManager manager) throws Exception
+    {
+    }
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        manager = new DefaultFileSystemManager();
+        manager.addProvider("file", new DefaultLocalFileProvider());
+        addProviders(manager);
+        manager.init();
+        executor = new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        manager.setAsyncExecutor(executor);
+
+        testDir = new File(AbstractVfsTestCase.getTestDirectoryFile(), getTestDirName());
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        manager.resolveFile(testDir.toURI().toString()).delete(Selectors.SELECT_ALL);
+        manager.close();
+        executor.shutdown();
+        super.tearDown();
+    }
+
+    /**
+     * Creates a tree of folders of folders of files below a folder, each file holding
+     * its {@link #contentOf content}.
+     * @param root The folder.
+     * @param folders The number of folders below the folder, and below each of them.
+     * @param files The number of files in each folder of the second level.
+     * @throws Exception if a file can not be written.
+     */
+    protected static void createFiles(final FileObject root, final int folders, final int files) throws Exception
+    {
+        for (int i = 0; i < folders; i++)
+        {
+            for (int j = 0; j < folders; j++)
+            {
+                for (int k = 0; k < files; k++)
+                {
+                    final FileObject file = root.resolveFile("dir" + i + "/dir" + j + "/file" + k + ".txt");
+                    final OutputStream out = file.getContent().getOutputStream();
+                    try
+                    {
+                        out.write(contentOf(file).getBytes("UTF-8"));
+                    }
+                    finally
+                    {
+                        out.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param file A file of a tree.
+     * @return The content the file is created with: its name, repeated.
+     */
+    protected static String contentOf(final FileObject file)
+    {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+        {
+            content.append(file.getName().getBaseName()).append(' ');
+        }
+        return content.toString();
+    }
+}
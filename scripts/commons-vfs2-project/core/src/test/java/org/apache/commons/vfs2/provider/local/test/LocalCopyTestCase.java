@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.local.test;
+
+import java.io.File;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.FileUtil;
+import org.apache.commons.vfs2.Selectors;
+import org.apache.commons.vfs2.impl.DefaultFileSystemConfigBuilder;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
+import org.apache.commons.vfs2.provider.ram.RamFileProvider;
+
+/**
+ * Tests the copy of local files from several threads.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class LocalCopyTestCase extends AbstractLocalTreeTestCase
+{
+    private static final int FOLDERS = 4;
+    private static final int FILES = 10;
+
+    @Override
+    protected String getTestDirName()
+    {
+        return "localCopy";
+    }
+
+    @Override
+    protected void addProviders(final DefaultFileSystemManager manager) throws Exception
+    {
+        manager.addProvider("ram", new RamFileProvider());
+    }
+
+    private FileObject createTree(final String name) throws Exception
+    {
+        final FileObject root = manager.resolveFile(testDir.toURI().toString()).resolveFile(name);
+        createFiles(root, FOLDERS, FILES);
+        root.resolveFile("empty").createFolder();
+        return root;
+    }
+
+    private void assertCopied(final FileObject dest) throws Exception
+    {
+        for (int i = 0; i < FOLDERS; i++)
+        {
+            for (int j = 0; j < FOLDERS; j++)
+            {
+                for (int k = 0; k < FILES; k++)
+                {
+                    final FileObject file = dest.resolveFile("dir" + i + "/dir" + j + "/file" + k + ".txt");
+                    assertEquals(contentOf(file), new String(FileUtil.getContent(file), "UTF-8"));
+                }
+            }
+        }
+        assertTrue(dest.resolveFile("empty").getType().hasChildren());
+    }
+
+    public void testParallelCopy() throws Exception
+    {
+        final FileObject src = createTree("src");
+        final FileSystemOptions opts = new FileSystemOptions();
+        DefaultFileSystemConfigBuilder.getInstance().setCopyParallelism(opts, 4);
+        final FileObject dest = manager.resolveFile(new File(testDir, "dest").toURI().toString(), opts);
+
+        dest.copyFrom(src, Selectors.SELECT_ALL);
+        assertCopied(dest);
+        assertTrue(executor.getTaskCount() > 0);
+    }
+
+    public void testCopyToUnsupportedFileSystem() throws Exception
+    {
+        // the ram file system does not allow concurrent transfers, the files are copied in turn
+        final FileObject src = createTree("src");
+        final FileSystemOptions opts = new FileSystemOptions();
+        DefaultFileSystemConfigBuilder.getInstance().setCopyParallelism(opts, 4);
+        final FileObject dest = manager.resolveFile("ram:///localCopy", opts);
+
+        dest.copyFrom(src, Selectors.SELECT_ALL);
+        assertCopied(dest);
+        assertEquals(0, executor.getTaskCount());
+    }
+}
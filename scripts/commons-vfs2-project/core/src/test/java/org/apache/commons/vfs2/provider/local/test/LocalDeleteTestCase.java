@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.local.test;
+
+import org.apache.commons.vfs2.FileChangeEvent;
+import org.apache.commons.vfs2.FileListener;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.FileTypeSelector;
+import org.apache.commons.vfs2.Selectors;
+import org.apache.commons.vfs2.impl.DefaultFileSystemConfigBuilder;
+
+/**
+ * Tests the recursive delete of local files, in one operation and from several threads.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class LocalDeleteTestCase extends AbstractLocalTreeTestCase
+{
+    private static final int FOLDERS = 5;
+    private static final int FILES = 20;
+
+    @Override
+    protected String getTestDirName()
+    {
+        return "localDelete";
+    }
+
+    private FileObject createTree(final FileSystemOptions opts) throws Exception
+    {
+        final FileObject root = manager.resolveFile(testDir.toURI().toString(), opts);
+        root.delete(Selectors.SELECT_ALL);
+        createFiles(root, FOLDERS, FILES);
+        return root;
+    }
+
+    public void testDeleteTree() throws Exception
+    {
+        final FileObject root = createTree(null);
+        final FileObject file = root.resolveFile("dir1/dir2/file3.txt");
+        assertTrue(file.exists());
+
+        final int[] events = new int[1];
+        file.getFileSystem().addListener(file, new FileListener()
+        {
+            public void fileCreated(final FileChangeEvent event)
+            {
+            }
+
+            public void fileDeleted(final FileChangeEvent event)
+            {
+                events[0]++;
+            }
+
+            public void fileChanged(final FileChangeEvent event)
+            {
+            }
+        });
+
+        final int count = 1 + FOLDERS + FOLDERS * FOLDERS + FOLDERS * FOLDERS * FILES;
+        assertEquals(count, root.delete(Selectors.SELECT_ALL));
+        assertFalse(testDir.exists());
+        assertFalse(root.exists());
+        assertFalse(file.exists());
+        assertEquals(1, events[0]);
+        assertEquals(0, root.delete(Selectors.SELECT_ALL));
+    }
+
+    public void testDeleteTreeNotifiesListenersOfUncachedFiles() throws Exception
+    {
+        final FileObject root = createTree(null);
+        final FileObject file = root.resolveFile("dir3/dir0/file7.txt");
+        final int[] events = new int[1];
+        file.getFileSystem().addListener(file, new FileListener()
+        {
+            public void fileCreated(final FileChangeEvent event)
+            {
+            }
+
+            public void fileDeleted(final FileChangeEvent event)
+            {
+                events[0]++;
+            }
+
+            public void fileChanged(final FileChangeEvent event)
+            {
+            }
+        });
+
+        // the file leaves the cache, as after an eviction
+        manager.getFilesCache().removeFile(file.getFileSystem(), file.getName());
+
+        root.delete(Selectors.SELECT_ALL);
+        assertFalse(testDir.exists());
+        assertEquals(1, events[0]);
+    }
+
+    public void testParallelDelete() throws Exception
+    {
+        final FileSystemOptions opts = new FileSystemOptions();
+        DefaultFileSystemConfigBuilder.getInstance().setDeleteParallelism(opts, 4);
+        final FileObject root = createTree(opts);
+        final FileObject file = root.resolveFile("dir4/dir4/file4.txt");
+        assertTrue(file.exists());
+
+        assertEquals(FOLDERS * FOLDERS * FILES, root.delete(new FileTypeSelector(FileType.FILE)));
+        assertFalse(file.exists());
+        assertEquals(0, root.resolveFile("dir0/dir0").getChildren().length);
+        assertTrue(executor.getTaskCount() > 0);
+
+        assertEquals(FOLDERS + FOLDERS * FOLDERS, root.delete(Selectors.EXCLUDE_SELF));
+        assertTrue(root.exists());
+        assertEquals(0, root.getChildren().length);
+        assertEquals(0, testDir.list().length);
+        assertTrue(root.delete());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.local.test;
+
+import java.io.File;
+
+import junit.framework.Test;
+
+import org.apache.commons.AbstractVfsTestCase;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemManager;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.provider.local.LocalFileSystemConfigBuilder;
+import org.apache.commons.vfs2.test.AbstractProviderTestConfig;
+import org.apache.commons.vfs2.test.ProviderTestConfig;
+import org.apache.commons.vfs2.test.ProviderTestSuite;
+
+/**
+ * Test cases for the local file system with memory mapped random access content.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class MappedLocalProviderTestCase
+    extends AbstractProviderTestConfig
+    implements ProviderTestConfig
+{
+    /** A small segment size, so that the test files span several segments. */
+    static final int SEGMENT_SIZE = 7;
+
+    /**
+     * Creates the test suite for the local file system.
+     */
+    public static Test suite() throws Exception
+    {
+        final ProviderTestSuite testSuite = new ProviderTestSuite(new MappedLocalProviderTestCase());
+        testSuite.addTests(MappedRandomAccessTests.class);
+        return testSuite;
+    }
+
+    /**
+     * Returns the base folder for tests.
+     */
+    @Override
+    public FileObject getBaseTestFolder(final FileSystemManager manager) throws Exception
+    {
+        final FileSystemOptions opts = new FileSystemOptions();
+        LocalFileSystemConfigBuilder.getInstance().setMemoryMapped(opts, true);
+        LocalFileSystemConfigBuilder.getInstance().setMappedSegmentSize(opts, SEGMENT_SIZE);
+
+        final File testDir = AbstractVfsTestCase.getTestDirectoryFile();
+        return manager.resolveFile(testDir.toURI().toString(), opts);
+    }
+}
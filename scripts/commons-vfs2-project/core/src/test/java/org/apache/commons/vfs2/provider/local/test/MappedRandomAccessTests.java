@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.local.test;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.RandomAccessContent;
+import org.apache.commons.vfs2.Selectors;
+import org.apache.commons.vfs2.test.AbstractProviderTestCase;
+import org.apache.commons.vfs2.util.RandomAccessMode;
+
+/**
+ * Tests values which span the segments of memory mapped random access content.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class MappedRandomAccessTests
+    extends AbstractProviderTestCase
+{
+    private FileObject createFile(final String name) throws Exception
+    {
+        final FileObject folder = getWriteFolder();
+        folder.delete(Selectors.EXCLUDE_SELF);
+        folder.createFolder();
+        final FileObject file = folder.resolveFile(name);
+        file.createFile();
+        return file;
+    }
+
+    public void testValuesAcrossSegments() throws Exception
+    {
+        final FileObject file = createFile("mapped_values.bin");
+        final RandomAccessContent ra = file.getContent().getRandomAccessContent(RandomAccessMode.READWRITE);
+        try
+        {
+            // each value crosses a segment once the file is long enough
+            for (int i = 0; i < 20; i++)
+            {
+                ra.writeByte(i);
+                ra.writeShort(1000 + i);
+                ra.writeInt(100000 + i);
+                ra.writeLong(10000000000L + i);
+                ra.writeDouble(i / 3.0);
+                ra.writeUTF("value " + i);
+            }
+            final long length = ra.getFilePointer();
+            assertEquals(length, ra.length());
+
+            // overwrite in place, through the mapped segments
+            ra.seek(1);
+            ra.writeShort(42);
+            ra.force();
+
+            ra.seek(0);
+            for (int i = 0; i < 20; i++)
+            {
+                assertEquals(i, ra.readByte());
+                assertEquals(i == 0 ? 42 : 1000 + i, ra.readShort());
+                assertEquals(100000 + i, ra.readInt());
+                assertEquals(10000000000L + i, ra.readLong());
+                assertEquals(i / 3.0, ra.readDouble(), 0);
+                assertEquals("value " + i, ra.readUTF());
+            }
+            assertEquals(length, ra.getFilePointer());
+
+            try
+            {
+                ra.readInt();
+                fail();
+            }
+            catch (final EOFException e)
+            {
+                // expected
+            }
+        }
+        finally
+        {
+            ra.close();
+        }
+
+        // the content as seen through the file
+        final DataInputStream in = new DataInputStream(file.getContent().getInputStream());
+        try
+        {
+            assertEquals(0, in.readByte());
+            assertEquals(42, in.readShort());
+            assertEquals(100000, in.readInt());
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    public void testBulkRead() throws Exception
+    {
+        final FileObject file = createFile("mapped_bulk.bin");
+        final byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++)
+        {
+            data[i] = (byte) (i * 7);
+        }
+        final RandomAccessContent ra = file.getContent().getRandomAccessContent(RandomAccessMode.READWRITE);
+        try
+        {
+            ra.seek(100);
+            ra.write(data, 100, 900);
+            ra.seek(0);
+            ra.write(ByteBuffer.wrap(data, 0, 100));
+
+            ra.seek(3);
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(500);
+            assertEquals(500, ra.read(buffer));
+            buffer.flip();
+            for (int i = 0; i < 500; i++)
+            {
+                assertEquals(data[3 + i], buffer.get());
+            }
+
+            final byte[] bytes = new byte[400];
+            ra.seek(600);
+            final InputStream in = ra.getInputStream();
+            assertEquals(400, in.read(bytes));
+            assertEquals(-1, in.read());
+            assertEquals(-1, ra.read(ByteBuffer.allocate(1)));
+            for (int i = 0; i < 400; i++)
+            {
+                assertEquals(data[600 + i], bytes[i]);
+            }
+        }
+        finally
+        {
+            ra.close();
+        }
+    }
+
+    public void testReadOnly() throws Exception
+    {
+        final FileObject file = createFile("mapped_read_only.bin");
+        final RandomAccessContent ra = file.getContent().getRandomAccessContent(RandomAccessMode.READ);
+        try
+        {
+            ra.writeInt(1);
+            fail();
+        }
+        catch (final FileSystemException e)
+        {
+            assertEquals("vfs.provider.local/random-access-read-only.error", e.getCode());
+        }
+        finally
+        {
+            ra.close();
+        }
+    }
+}
@@ -16,16 +16,21 @@
  */
 package org.apache.commons.vfs2.provider.ram.test;
 
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 
 import junit.framework.TestCase;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.FileUtil;
+import org.apache.commons.vfs2.RandomAccessContent;
 import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
 import org.apache.commons.vfs2.provider.ram.RamFileProvider;
 import org.apache.commons.vfs2.provider.ram.RamFileSystemConfigBuilder;
+import org.apache.commons.vfs2.util.RandomAccessMode;
 
 /**
  * Custom tests
@@ -43,6 +48,10 @@ public class CustomRamProviderTest extends TestCase
 
     FileSystemOptions defaultRamFs = new FileSystemOptions();
 
+    FileSystemOptions smallChunks = new FileSystemOptions();
+
+    FileSystemOptions directChunks = new FileSystemOptions();
+
     @Override
     protected void setUp() throws Exception
     {
@@ -55,6 +64,9 @@ public class CustomRamProviderTest extends TestCase
         // File Systems Options
         RamFileSystemConfigBuilder.getInstance().setMaxSize(zeroSized, 0);
         RamFileSystemConfigBuilder.getInstance().setMaxSize(smallSized, 10);
+        RamFileSystemConfigBuilder.getInstance().setChunkSize(smallChunks, 16);
+        RamFileSystemConfigBuilder.getInstance().setChunkSize(directChunks, 16);
+        RamFileSystemConfigBuilder.getInstance().setDirectBuffers(directChunks, true);
     }
 
     @Override
@@ -107,6 +119,88 @@ public class CustomRamProviderTest extends TestCase
 
     }
 
+    public void testSpaceIsGivenBackOnDelete() throws Exception
+    {
+        FileObject fo = manager.resolveFile("ram:/fo", smallSized);
+        write(fo, new byte[10], false);
+        fo.delete();
+
+        FileObject other = manager.resolveFile("ram:/other", smallSized);
+        write(other, new byte[10], false);
+        other.moveTo(fo);
+        write(manager.resolveFile("ram:/fo", smallSized), new byte[10], false);
+    }
+
+    public void testChunkedContent() throws Exception
+    {
+        verifyContent(manager.resolveFile("ram:/chunked", smallChunks));
+    }
+
+    public void testDirectContent() throws Exception
+    {
+        verifyContent(manager.resolveFile("ram:/direct", directChunks));
+    }
+
+    private void verifyContent(FileObject fo) throws Exception
+    {
+        byte[] expected = new byte[1000];
+        for (int i = 0; i < expected.length; i++)
+        {
+            expected[i] = (byte) i;
+        }
+
+        // writes across chunks, in pieces of odd sizes
+        OutputStream os = fo.getContent().getOutputStream();
+        for (int pos = 0; pos < 600; pos += 7)
+        {
+            os.write(expected, pos, Math.min(7, 600 - pos));
+        }
+        os.close();
+        write(fo, copyOfRange(expected, 600, 1000), true);
+        assertEquals(1000, fo.getContent().getSize());
+        assertTrue(Arrays.equals(expected, FileUtil.getContent(fo)));
+
+        InputStream is = fo.getContent().getInputStream();
+        assertEquals(100, is.skip(100));
+        assertEquals(100, is.read());
+        is.close();
+
+        // writing past the end leaves zeros in between
+        RandomAccessContent rac = fo.getContent().getRandomAccessContent(RandomAccessMode.READWRITE);
+        rac.seek(1100);
+        rac.write(new byte[]{1, 2});
+        rac.seek(999);
+        assertEquals(expected[999], rac.readByte());
+        assertEquals(0, rac.readByte());
+        rac.seek(1100);
+        assertEquals(1, rac.readByte());
+        assertEquals(1102, rac.length());
+        rac.close();
+
+        // truncated content does not come back
+        write(fo, new byte[]{5}, false);
+        write(fo, new byte[20], true);
+        byte[] content = FileUtil.getContent(fo);
+        assertEquals(21, content.length);
+        assertEquals(5, content[0]);
+        assertEquals(0, content[1]);
+        assertEquals(0, content[20]);
+    }
+
+    private byte[] copyOfRange(byte[] b, int from, int to)
+    {
+        byte[] range = new byte[to - from];
+        System.arraycopy(b, from, range, 0, range.length);
+        return range;
+    }
+
+    private void write(FileObject fo, byte[] b, boolean append) throws Exception
+    {
+        OutputStream os = fo.getContent().getOutputStream(append);
+        os.write(b);
+        os.close();
+    }
+
     /**
      *
      * Checks root folder exists
@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.sftp.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.provider.GenericFileName;
+import org.apache.commons.vfs2.provider.sftp.SftpFileNameParser;
+import org.apache.commons.vfs2.provider.sftp.SftpFileSystem;
+import org.apache.commons.vfs2.provider.sftp.SftpFileSystemConfigBuilder;
+import org.apache.commons.vfs2.util.ConnectionPool;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+/**
+ * Tests the sessions and the channel pool of the SFTP file system, using stand-in
+ * sessions and channels instead of server connections.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class SftpSessionTestCase extends TestCase
+{
+    private final JSch jsch = new JSch();
+
+    public void testChannelsSpreadOverSessions() throws Exception
+    {
+        final TestFileSystem fs = createFileSystem(3, false);
+        final ConnectionPool<ChannelSftp> pool = fs.getChannelPool();
+        final List<Session> sessions = new ArrayList<Session>();
+        for (int i = 0; i < 6; i++)
+        {
+            sessions.add(((StandInChannelSftp) pool.borrowConnection()).session);
+        }
+
+        // the first session is the one the file system was created with
+        assertEquals(2, fs.created.size());
+        assertEquals(fs.first, sessions.get(0));
+        assertEquals(fs.created.get(0), sessions.get(1));
+        assertEquals(fs.created.get(1), sessions.get(2));
+        assertEquals(sessions.subList(0, 3), sessions.subList(3, 6));
+    }
+
+    public void testClosedSessionIsReconnected() throws Exception
+    {
+        final TestFileSystem fs = createFileSystem(1, false);
+        final ConnectionPool<ChannelSftp> pool = fs.getChannelPool();
+        assertEquals(fs.first, ((StandInChannelSftp) pool.borrowConnection()).session);
+
+        // e.g. the server dropped the connection
+        fs.connected.remove(fs.first);
+        final Session session = ((StandInChannelSftp) pool.borrowConnection()).session;
+        assertEquals(1, fs.created.size());
+        assertSame(fs.created.get(0), session);
+        assertSame(session, ((StandInChannelSftp) pool.borrowConnection()).session);
+        assertEquals(1, fs.created.size());
+    }
+
+    public void testSlowConnectOnlyHoldsItsSession() throws Exception
+    {
+        final TestFileSystem fs = createFileSystem(2, false);
+        final ConnectionPool<ChannelSftp> pool = fs.getChannelPool();
+        fs.gate = new CountDownLatch(1);
+        pool.borrowConnection();
+
+        // the second session connects until the gate opens
+        final ChannelSftp[] slow = new ChannelSftp[1];
+        final Thread slowBorrower = borrowInBackground(pool, slow);
+        fs.connecting.await();
+
+        // the first session still opens channels meanwhile
+        final ChannelSftp[] fast = new ChannelSftp[1];
+        borrowInBackground(pool, fast).join(5000);
+        final boolean held = fast[0] == null;
+        fs.gate.countDown();
+        slowBorrower.join();
+        assertFalse("The first session waited for the second one to connect.", held);
+        assertEquals(fs.first, ((StandInChannelSftp) fast[0]).session);
+        assertEquals(fs.created.get(0), ((StandInChannelSftp) slow[0]).session);
+    }
+
+    public void testChannelsArePooled() throws Exception
+    {
+        final TestFileSystem fs = createFileSystem(1, false);
+        final ConnectionPool<ChannelSftp> pool = fs.getChannelPool();
+        final StandInChannelSftp channel = (StandInChannelSftp) pool.borrowConnection();
+        assertTrue(channel.isConnected());
+        assertEquals("/home/user", channel.directory);
+        pool.releaseConnection(channel);
+        assertSame(channel, pool.borrowConnection());
+
+        // the channel was closed while borrowed
+        channel.disconnect();
+        pool.releaseConnection(channel);
+        assertEquals(0, pool.getNumIdle());
+        assertNotSame(channel, pool.borrowConnection());
+        assertEquals(2, pool.getCreatedCount());
+    }
+
+    public void testDeadChannelIsReplacedOnBorrow() throws Exception
+    {
+        final TestFileSystem fs = createFileSystem(1, true);
+        final ConnectionPool<ChannelSftp> pool = fs.getChannelPool();
+        final StandInChannelSftp channel = (StandInChannelSftp) pool.borrowConnection();
+        pool.releaseConnection(channel);
+        assertSame(channel, pool.borrowConnection());
+        assertEquals(1, channel.stats);
+        pool.releaseConnection(channel);
+
+        channel.alive = false;
+        final ChannelSftp other = pool.borrowConnection();
+        assertNotSame(channel, other);
+        assertFalse(channel.isConnected());
+        assertEquals(1, pool.getValidationFailedCount());
+    }
+
+    public void testChannelIsClosedWhenWorkingDirectoryIsMissing() throws Exception
+    {
+        final TestFileSystem fs = createFileSystem(1, false);
+        fs.cdFails = true;
+        try
+        {
+            fs.getChannelPool().borrowConnection();
+            fail("The working directory should be missing.");
+        }
+        catch (final FileSystemException e)
+        {
+            assertEquals("vfs.provider.sftp/change-work-directory.error", e.getCode());
+        }
+        assertEquals(1, fs.channels.size());
+        assertFalse(fs.channels.get(0).isConnected());
+        assertEquals(0, fs.getChannelPool().getNumActive());
+    }
+
+    public void testCloseDisconnectsIdleChannels() throws Exception
+    {
+        final TestFileSystem fs = createFileSystem(2, false);
+        final ConnectionPool<ChannelSftp> pool = fs.getChannelPool();
+        final ChannelSftp channel1 = pool.borrowConnection();
+        final ChannelSftp channel2 = pool.borrowConnection();
+        pool.releaseConnection(channel1);
+        pool.releaseConnection(channel2);
+
+        fs.closeCommunicationLink();
+        assertEquals(0, pool.getNumIdle());
+        assertFalse(channel1.isConnected());
+        assertFalse(channel2.isConnected());
+
+        // the sessions are connected again when needed
+        pool.borrowConnection();
+        assertEquals(2, fs.created.size());
+    }
+
+    /**
+     * Borrows a channel from another thread.
+     */
+    private static Thread borrowInBackground(final ConnectionPool<ChannelSftp> pool, final ChannelSftp[] channel)
+    {
+        final Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    channel[0] = pool.borrowConnection();
+                }
+                catch (final FileSystemException e)
+                {
+                    // no channel, checked by the test
+                }
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    private TestFileSystem createFileSystem(final int sessionCount, final boolean testOnBorrow)
+        throws Exception
+    {
+        final FileSystemOptions opts = new FileSystemOptions();
+        final SftpFileSystemConfigBuilder builder = SftpFileSystemConfigBuilder.getInstance();
+        builder.setSessionCount(opts, sessionCount);
+        builder.setPoolTestOnBorrow(opts, testOnBorrow);
+        // the channels change to the path of the root
+        builder.setUserDirIsRoot(opts, false);
+        final GenericFileName rootName = (GenericFileName) SftpFileNameParser.getInstance().parseUri(null, null,
+            "sftp://user@host/home/user");
+        final Session first = jsch.getSession("user", "host");
+        return new TestFileSystem(rootName, first, opts);
+    }
+
+    /**
+     * A file system which opens stand-in channels on sessions which are not connected
+     * to a server, and tells which of them are to be taken as connected.
+     */
+    private class TestFileSystem extends SftpFileSystem
+    {
+        private final Session first;
+        private final Set<Session> connected = Collections.synchronizedSet(new HashSet<Session>());
+        private final List<Session> created = Collections.synchronizedList(new ArrayList<Session>());
+        private final List<StandInChannelSftp> channels =
+            Collections.synchronizedList(new ArrayList<StandInChannelSftp>());
+        private final CountDownLatch connecting = new CountDownLatch(1);
+        private volatile CountDownLatch gate;
+        private volatile boolean cdFails;
+
+        TestFileSystem(final GenericFileName rootName, final Session first, final FileSystemOptions opts)
+        {
+            super(rootName, first, opts);
+            this.first = first;
+            connected.add(first);
+        }
+
+        @Override
+        protected Session createSession() throws FileSystemException
+        {
+            connecting.countDown();
+            try
+            {
+                if (gate != null)
+                {
+                    gate.await();
+                }
+                final Session session = jsch.getSession("user", "host");
+                created.add(session);
+                connected.add(session);
+                return session;
+            }
+            catch (final InterruptedException e)
+            {
+                throw new FileSystemException(e);
+            }
+            catch (final JSchException e)
+            {
+                throw new FileSystemException(e);
+            }
+        }
+
+        @Override
+        protected boolean isConnected(final Session session)
+        {
+            return connected.contains(session);
+        }
+
+        @Override
+        protected ChannelSftp openChannel(final Session session)
+        {
+            final StandInChannelSftp channel = new StandInChannelSftp(session);
+            channel.cdFails = cdFails;
+            channels.add(channel);
+            return channel;
+        }
+    }
+}
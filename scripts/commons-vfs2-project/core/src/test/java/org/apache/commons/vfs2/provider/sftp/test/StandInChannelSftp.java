@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.sftp.test;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+
+/**
+ * Stands in for an SFTP channel to a server.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+class StandInChannelSftp extends ChannelSftp
+{
+    /** The session the channel was opened on. */
+    final Session session;
+
+    boolean connected;
+    boolean alive = true;
+    boolean cdFails;
+    int stats;
+
+    /** The working directory, null until changed. */
+    String directory;
+
+    StandInChannelSftp(final Session session)
+    {
+        this.session = session;
+    }
+
+    @Override
+    public void connect()
+    {
+        connected = true;
+    }
+
+    @Override
+    public boolean isConnected()
+    {
+        return connected;
+    }
+
+    @Override
+    public boolean isClosed()
+    {
+        return !connected;
+    }
+
+    @Override
+    public void disconnect()
+    {
+        connected = false;
+    }
+
+    @Override
+    public SftpATTRS stat(final String path) throws SftpException
+    {
+        stats++;
+        if (!alive)
+        {
+            throw new SftpException(SSH_FX_CONNECTION_LOST, "The server went away.");
+        }
+        return null;
+    }
+
+    @Override
+    public void cd(final String path) throws SftpException
+    {
+        if (cdFails)
+        {
+            throw new SftpException(SSH_FX_NO_SUCH_FILE, path);
+        }
+        directory = path;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.vfs2.provider.AbstractBlockRandomAccessContent;
+import org.apache.commons.vfs2.util.RandomAccessMode;
+
+/**
+ * Tests the block cache of {@link AbstractBlockRandomAccessContent}, with a stand-in
+ * for a server answering range requests.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class BlockRandomAccessContentTestCase extends TestCase
+{
+    private static final int BLOCK_SIZE = 16;
+
+    private final byte[] data = new byte[1000];
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        for (int i = 0; i < data.length; i++)
+        {
+            data[i] = (byte) (i * 7);
+        }
+    }
+
+    public void testRandomReads() throws Exception
+    {
+        final RangeContent content = new RangeContent(4, 0);
+        final int[] positions = {990, 0, 500, 17, 999, 250, 16, 15};
+        for (int i = 0; i < positions.length; i++)
+        {
+            content.seek(positions[i]);
+            assertEquals(data[positions[i]], content.readByte());
+            assertEquals(positions[i] + 1, content.getFilePointer());
+        }
+
+        final byte[] buffer = new byte[100];
+        content.seek(123);
+        content.readFully(buffer);
+        for (int i = 0; i < buffer.length; i++)
+        {
+            assertEquals(data[123 + i], buffer[i]);
+        }
+        assertEquals(223, content.getFilePointer());
+    }
+
+    public void testSeekDoesNotFetch() throws Exception
+    {
+        final RangeContent content = new RangeContent(4, 0);
+        content.seek(100);
+        content.seek(900);
+        assertEquals(0, content.ranges.size());
+
+        content.readByte();
+        assertEquals(1, content.ranges.size());
+        assertEquals("896-911", content.ranges.get(0));
+    }
+
+    public void testCachedBlockIsReused() throws Exception
+    {
+        final RangeContent content = new RangeContent(4, 0);
+        content.seek(900);
+        content.readInt();
+        content.seek(904);
+        content.readInt();
+        content.seek(898);
+        content.readShort();
+        assertEquals(1, content.ranges.size());
+        assertEquals(1, content.getRangeReadCount());
+        assertEquals(1, content.getBlockMissCount());
+    }
+
+    public void testLeastRecentlyUsedBlockIsEvicted() throws Exception
+    {
+        final RangeContent content = new RangeContent(2, 0);
+        content.seek(0);
+        content.readByte();
+        content.seek(100);
+        content.readByte();
+        content.seek(0);
+        content.readByte();
+        content.seek(200);
+        content.readByte();
+        assertEquals(3, content.ranges.size());
+
+        // block 0 was used more recently than block 6
+        content.seek(1);
+        content.readByte();
+        assertEquals(3, content.ranges.size());
+        content.seek(101);
+        content.readByte();
+        assertEquals(4, content.ranges.size());
+    }
+
+    public void testAdjacentMissesAreCoalesced() throws Exception
+    {
+        final RangeContent content = new RangeContent(8, 0);
+        content.seek(40);
+        content.readByte();
+
+        // blocks 0, 1 and 3, 4 are missing, block 2 is cached
+        final byte[] buffer = new byte[5 * BLOCK_SIZE];
+        content.seek(0);
+        content.readFully(buffer);
+        assertEquals(3, content.ranges.size());
+        assertEquals("0-31", content.ranges.get(1));
+        assertEquals("48-79", content.ranges.get(2));
+        for (int i = 0; i < buffer.length; i++)
+        {
+            assertEquals(data[i], buffer[i]);
+        }
+    }
+
+    public void testSequentialReadsPrefetch() throws Exception
+    {
+        final RangeContent content = new RangeContent(8, 3);
+        final byte[] buffer = new byte[BLOCK_SIZE];
+        for (int i = 0; i < 8; i++)
+        {
+            content.readFully(buffer);
+        }
+        assertEquals(2, content.ranges.size());
+        assertEquals("0-63", content.ranges.get(0));
+        assertEquals("64-127", content.ranges.get(1));
+    }
+
+    public void testEndOfFile() throws Exception
+    {
+        final RangeContent content = new RangeContent(4, 2);
+        content.seek(990);
+        final byte[] buffer = new byte[10];
+        content.readFully(buffer);
+        assertEquals(data[999], buffer[9]);
+        assertEquals(-1, content.getInputStream().read());
+
+        content.seek(5000);
+        assertEquals(-1, content.getInputStream().read());
+        try
+        {
+            content.readByte();
+            fail();
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    public void testWholeFileThroughStream() throws Exception
+    {
+        final RangeContent content = new RangeContent(3, 1);
+        final byte[] buffer = new byte[37];
+        int pos = 0;
+        int n;
+        while ((n = content.getInputStream().read(buffer)) > 0)
+        {
+            for (int i = 0; i < n; i++)
+            {
+                assertEquals(data[pos + i], buffer[i]);
+            }
+            pos += n;
+        }
+        assertEquals(data.length, pos);
+    }
+
+    /**
+     * Serves ranges of the test data and records them.
+     */
+    private class RangeContent extends AbstractBlockRandomAccessContent
+    {
+        private final List<String> ranges = new ArrayList<String>();
+
+        RangeContent(final int maxBlocks, final int prefetchBlocks)
+        {
+            super(RandomAccessMode.READ, BLOCK_SIZE, maxBlocks, prefetchBlocks);
+        }
+
+        @Override
+        protected int readRange(final long start, final byte[] buffer, final int off, final int len)
+        {
+            ranges.add(start + "-" + (start + len - 1));
+            final int count = (int) Math.max(0, Math.min(len, data.length - start));
+            System.arraycopy(data, (int) Math.min(start, data.length), buffer, off, count);
+            return count;
+        }
+
+        public long length()
+        {
+            return data.length;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.webdav.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Stands in for a WebDAV server on the loopback interface. It answers PROPFIND and DELETE
+ * requests for a tree of files held in memory, one request per connection.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+class StandInDavServer implements Runnable
+{
+    /** The last modified time of all files, as sent by the server. */
+    static final String MODIFIED = "Fri, 13 Feb 2009 23:31:30 GMT";
+
+    /** The sizes of the files, by path. The paths of folders end with a slash. */
+    final SortedMap<String, Long> files = Collections.synchronizedSortedMap(new TreeMap<String, Long>());
+
+    /** The requests received, as method, path and depth. */
+    final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+    /** The status of the answer to listings of infinite depth, 0 to list the tree. */
+    volatile int infiniteDepthStatus;
+
+    /** Whether the hrefs of the listings hold the scheme and the host, or only the path. */
+    volatile boolean absoluteHrefs;
+
+    private final ServerSocket serverSocket;
+    private final Thread thread;
+
+    StandInDavServer() throws IOException
+    {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        thread = new Thread(this, "stand-in-dav");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return The URI of the server, without a path.
+     */
+    String getUri()
+    {
+        return "127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    void close() throws IOException, InterruptedException
+    {
+        serverSocket.close();
+        thread.join();
+    }
+
+    /**
+     * @param method The method of the requests to count.
+     * @param depth The depth of the requests to count.
+     * @return The number of requests received with the method and the depth.
+     */
+    int count(final String method, final String depth)
+    {
+        int count = 0;
+        synchronized (requests)
+        {
+            for (final String request : requests)
+            {
+                if (request.startsWith(method + " ") && request.endsWith(" " + depth))
+                {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public void run()
+    {
+        try
+        {
+            while (true)
+            {
+                final Socket socket = serverSocket.accept();
+                try
+                {
+                    serve(socket.getInputStream(), socket.getOutputStream());
+                }
+                catch (final IOException e)
+                {
+                    // the client went away, wait for the next one
+                }
+                finally
+                {
+                    socket.close();
+                }
+            }
+        }
+        catch (final IOException e)
+        {
+            // closed
+        }
+    }
+
+    private void serve(final InputStream in, final OutputStream out) throws IOException
+    {
+        final String[] requestLine = readLine(in).split(" ");
+        final String method = requestLine[0];
+        String path = requestLine[1];
+        String depth = "-";
+        int length = 0;
+        String header;
+        while ((header = readLine(in)).length() > 0)
+        {
+            final int colon = header.indexOf(':');
+            final String value = header.substring(colon + 1).trim();
+            if (header.regionMatches(true, 0, "Depth", 0, colon))
+            {
+                depth = value;
+            }
+            else if (header.regionMatches(true, 0, "Content-Length", 0, colon))
+            {
+                length = Integer.parseInt(value);
+            }
+        }
+        for (int i = 0; i < length; i++)
+        {
+            in.read();
+        }
+        requests.add(method + " " + path + " " + depth);
+
+        if (!files.containsKey(path) && files.containsKey(path + "/"))
+        {
+            path += "/";
+        }
+        if (method.equals("HEAD"))
+        {
+            respond(out, "200 OK", null);
+        }
+        else if (!files.containsKey(path))
+        {
+            respond(out, "404 Not Found", null);
+        }
+        else if (method.equals("DELETE"))
+        {
+            synchronized (files)
+            {
+                files.subMap(path, path + Character.MAX_VALUE).clear();
+            }
+            respond(out, "204 No Content", null);
+        }
+        else if (!method.equals("PROPFIND"))
+        {
+            respond(out, "501 Not Implemented", null);
+        }
+        else if (depth.equals("infinity") && infiniteDepthStatus != 0)
+        {
+            respond(out, infiniteDepthStatus + " Refused", null);
+        }
+        else
+        {
+            respond(out, "207 Multi-Status", multiStatus(path, depth));
+        }
+    }
+
+    /**
+     * Lists a file, and the members of a folder down to a depth.
+     */
+    private String multiStatus(final String path, final String depth)
+    {
+        final StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<D:multistatus xmlns:D=\"DAV:\">\n");
+        synchronized (files)
+        {
+            final Iterator<Map.Entry<String, Long>> iter =
+                files.subMap(path, path + Character.MAX_VALUE).entrySet().iterator();
+            while (iter.hasNext())
+            {
+                final Map.Entry<String, Long> file = iter.next();
+                final String relative = file.getKey().substring(path.length());
+                final int levels = relative.length() - relative.replace("/", "").length()
+                    + (relative.length() == 0 || relative.endsWith("/") ? 0 : 1);
+                if (depth.equals("0") && levels > 0 || depth.equals("1") && levels > 1)
+                {
+                    continue;
+                }
+                appendResponse(xml, file.getKey(), file.getValue().longValue());
+            }
+        }
+        xml.append("</D:multistatus>\n");
+        return xml.toString();
+    }
+
+    private void appendResponse(final StringBuilder xml, final String path, final long size)
+    {
+        final boolean folder = path.endsWith("/");
+        final String name = path.substring(path.lastIndexOf('/', path.length() - 2) + 1);
+        xml.append("<D:response><D:href>");
+        if (absoluteHrefs)
+        {
+            xml.append("http://").append(getUri());
+        }
+        xml.append(path).append("</D:href><D:propstat><D:prop>");
+        xml.append("<D:displayname>").append(folder ? name.substring(0, name.length() - 1) : name);
+        xml.append("</D:displayname>");
+        xml.append(folder ? "<D:resourcetype><D:collection/></D:resourcetype>" : "<D:resourcetype/>");
+        if (!folder)
+        {
+            xml.append("<D:getcontentlength>").append(size).append("</D:getcontentlength>");
+        }
+        xml.append("<D:getlastmodified>").append(MODIFIED).append("</D:getlastmodified>");
+        xml.append("</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>\n");
+    }
+
+    private static void respond(final OutputStream out, final String status, final String body)
+        throws IOException
+    {
+        final byte[] content = body == null ? new byte[0] : body.getBytes("UTF-8");
+        final StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(status).append("\r\n");
+        if (body != null)
+        {
+            head.append("Content-Type: text/xml; charset=\"utf-8\"\r\n");
+        }
+        head.append("Content-Length: ").append(content.length).append("\r\n");
+        head.append("Connection: close\r\n\r\n");
+        out.write(head.toString().getBytes("ISO-8859-1"));
+        out.write(content);
+        out.flush();
+    }
+
+    private static String readLine(final InputStream in) throws IOException
+    {
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n')
+        {
+            if (b < 0)
+            {
+                throw new IOException("Connection closed.");
+            }
+            if (b != '\r')
+            {
+                line.write(b);
+            }
+        }
+        return line.toString("ISO-8859-1");
+    }
+}
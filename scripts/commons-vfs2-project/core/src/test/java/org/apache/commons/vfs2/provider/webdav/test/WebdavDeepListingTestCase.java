@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.webdav.test;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.httpclient.util.DateUtil;
+import org.apache.commons.vfs2.FileChangeEvent;
+import org.apache.commons.vfs2.FileListener;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.Selectors;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
+import org.apache.commons.vfs2.provider.webdav.WebdavFileProvider;
+import org.apache.commons.vfs2.provider.webdav.WebdavFileSystemConfigBuilder;
+
+/**
+ * Tests the listing and the delete of WebDAV folders with all their descendants, against
+ * a stand-in server on the loopback interface.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class WebdavDeepListingTestCase extends TestCase
+{
+    private StandInDavServer server;
+    private DefaultFileSystemManager manager;
+    private FileObject root;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        server = new StandInDavServer();
+        server.files.put("/dav/", Long.valueOf(0));
+        server.files.put("/dav/a/", Long.valueOf(0));
+        server.files.put("/dav/a/b/", Long.valueOf(0));
+        server.files.put("/dav/a/b/c.txt", Long.valueOf(30));
+        server.files.put("/dav/a/d.txt", Long.valueOf(40));
+        server.files.put("/dav/e.txt", Long.valueOf(50));
+
+        manager = new DefaultFileSystemManager();
+        manager.addProvider("webdav", new WebdavFileProvider());
+        manager.init();
+
+        final FileSystemOptions opts = new FileSystemOptions();
+        ((WebdavFileSystemConfigBuilder) WebdavFileSystemConfigBuilder.getInstance()).setDeepListing(opts, true);
+        root = manager.resolveFile("webdav://" + server.getUri() + "/dav", opts);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        manager.close();
+        server.close();
+        super.tearDown();
+    }
+
+    public void testDeepListingWithPathHrefs() throws Exception
+    {
+        assertTreePrimed();
+    }
+
+    public void testDeepListingWithAbsoluteHrefs() throws Exception
+    {
+        server.absoluteHrefs = true;
+        assertTreePrimed();
+    }
+
+    public void testFallbackWhenForbidden() throws Exception
+    {
+        assertFallback(403);
+    }
+
+    public void testFallbackOnBadRequest() throws Exception
+    {
+        assertFallback(400);
+    }
+
+    public void testFallbackWhenNotImplemented() throws Exception
+    {
+        assertFallback(501);
+    }
+
+    public void testDeleteTreeWithOneListing() throws Exception
+    {
+        final int[] deletes = assertTreeDeleted();
+        assertEquals(1, server.count("PROPFIND", "infinity"));
+        assertEquals(0, server.count("PROPFIND", "1"));
+        assertEquals(1, deletes[0]);
+    }
+
+    public void testDeleteTreeWhenDeepListingRefused() throws Exception
+    {
+        server.infiniteDepthStatus = 403;
+        final int[] deletes = assertTreeDeleted();
+        assertEquals(1, server.count("PROPFIND", "infinity"));
+        // one for each folder
+        assertEquals(3, server.count("PROPFIND", "1"));
+        assertEquals(1, deletes[0]);
+    }
+
+    /**
+     * Deletes the root folder, then checks that the tree is gone with one request, and
+     * that the listeners of its files were told without the files being resolved.
+     * @return The number of events received by the listener of a file.
+     */
+    private int[] assertTreeDeleted() throws Exception
+    {
+        final FileObject file = root.resolveFile("a/b/c.txt");
+        final int[] deletes = new int[1];
+        root.getFileSystem().addListener(file, new FileListener()
+        {
+            public void fileCreated(final FileChangeEvent event)
+            {
+            }
+
+            public void fileDeleted(final FileChangeEvent event)
+            {
+                deletes[0]++;
+            }
+
+            public void fileChanged(final FileChangeEvent event)
+            {
+            }
+        });
+        manager.getFilesCache().removeFile(root.getFileSystem(), file.getName());
+
+        assertEquals(6, root.delete(Selectors.SELECT_ALL));
+        assertEquals(1, server.count("DELETE", "-"));
+        assertTrue(server.files.isEmpty());
+        assertNull(manager.getFilesCache().getFile(root.getFileSystem(), file.getName().getParent()));
+        assertFalse(root.exists());
+        return deletes;
+    }
+
+    /**
+     * Lists the root folder, then checks that the whole tree is known without asking
+     * the server again.
+     */
+    private void assertTreePrimed() throws Exception
+    {
+        final FileObject[] children = root.getChildren();
+        assertEquals(1, server.count("PROPFIND", "infinity"));
+        assertEquals(0, server.count("PROPFIND", "1"));
+        assertEquals(names("a", "e.txt"), names(children));
+
+        server.requests.clear();
+        final FileObject a = root.resolveFile("a");
+        assertEquals(FileType.FOLDER, a.getType());
+        assertEquals(names("b", "d.txt"), names(a.getChildren()));
+        final FileObject b = a.getChild("b");
+        assertEquals(FileType.FOLDER, b.getType());
+        assertEquals(names("c.txt"), names(b.getChildren()));
+
+        final FileObject c = b.getChild("c.txt");
+        assertEquals(FileType.FILE, c.getType());
+        assertEquals(30, c.getContent().getSize());
+        assertEquals(DateUtil.parseDate(StandInDavServer.MODIFIED).getTime(),
+            c.getContent().getLastModifiedTime());
+        final FileObject e = root.getChild("e.txt");
+        assertEquals(FileType.FILE, e.getType());
+        assertEquals(50, e.getContent().getSize());
+
+        assertEquals("[]", server.requests.toString());
+    }
+
+    /**
+     * Checks that a folder is listed one level at a time once the server refused a
+     * listing of infinite depth with a status, and that it is not asked again.
+     */
+    private void assertFallback(final int status) throws Exception
+    {
+        server.infiniteDepthStatus = status;
+
+        assertEquals(names("a", "e.txt"), names(root.getChildren()));
+        assertEquals(1, server.count("PROPFIND", "infinity"));
+        assertEquals(1, server.count("PROPFIND", "1"));
+
+        final FileObject a = root.resolveFile("a");
+        assertEquals(names("b", "d.txt"), names(a.getChildren()));
+        assertEquals(1, server.count("PROPFIND", "infinity"));
+        assertEquals(2, server.count("PROPFIND", "1"));
+    }
+
+    private static Set<String> names(final String... names)
+    {
+        return new TreeSet<String>(Arrays.asList(names));
+    }
+
+    private static Set<String> names(final FileObject[] files)
+    {
+        final Set<String> names = new TreeSet<String>();
+        for (int i = 0; i < files.length; i++)
+        {
+            names.add(files[i].getName().getBaseName());
+        }
+        return names;
+    }
+}
@@ -16,7 +16,10 @@
  */
 package org.apache.commons.vfs2.test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Iterator;
 
 import org.apache.commons.vfs2.FileContent;
@@ -322,4 +325,29 @@ public class ContentTests
         assertTrue(instr1.read() == -1);
         assertTrue(instr2.read() == -1);
     }
+
+    /**
+     * Tests reading the content through a channel.
+     */
+    public void testReadableChannel() throws Exception
+    {
+        final FileObject file = getReadFolder().resolveFile("file1.txt");
+        final ReadableByteChannel channel = file.getContent().getReadableChannel();
+        final ByteArrayOutputStream outstr = new ByteArrayOutputStream();
+        try
+        {
+            final ByteBuffer buffer = ByteBuffer.allocate(7);
+            while (channel.read(buffer) >= 0)
+            {
+                outstr.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+        }
+        finally
+        {
+            channel.close();
+        }
+        assertEquals(FILE1_CONTENT, outstr.toString("utf-8"));
+        assertFalse(file.getContent().isOpen());
+    }
 }
@@ -58,6 +58,27 @@ public class NamingTests
         getManager().setBaseFile((FileObject) null);
     }
 
+    /**
+     * Tests that resolving a name against a base name gives the same name as
+     * parsing the full URI.
+     */
+    public void testResolvedNameMatchesParsedUri() throws Exception
+    {
+        final FileName baseName = getReadFolder().getName();
+        final String[] paths = {"some-child", "some-folder/some-file", "a%25b", "dir%2fchild",
+            "%73%6f%6d%65%20%66%69%6c%65", "x/../y/", "/"};
+        for (int i = 0; i < paths.length; i++)
+        {
+            final FileName name = getManager().resolveName(baseName, paths[i]);
+            final FileName parsed = getManager().resolveURI(name.getURI());
+            assertEquals(paths[i], parsed.getURI(), name.getURI());
+            assertEquals(paths[i], parsed.getType(), name.getType());
+
+            // a name resolved again is taken from the cache
+            assertSame(paths[i], name, getManager().resolveName(baseName, paths[i]));
+        }
+    }
+
     /**
      * Tests encoding of relative URI.
      */
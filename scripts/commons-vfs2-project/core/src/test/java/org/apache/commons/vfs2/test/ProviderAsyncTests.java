@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.vfs2.Capability;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.Selectors;
+
+/**
+ * Tests the asynchronous operations of files.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class ProviderAsyncTests
+    extends AbstractProviderTestCase
+{
+    private ExecutorService executor;
+
+    /**
+     * Runs the operations on an executor of the test, whose threads end with it.
+     */
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        executor = Executors.newFixedThreadPool(4);
+        getManager().setAsyncExecutor(executor);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        getManager().setAsyncExecutor(null);
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        super.tearDown();
+    }
+
+    /**
+     * Returns the capabilities required by the tests of this test case.
+     */
+    @Override
+    protected Capability[] getRequiredCaps()
+    {
+        return new Capability[]
+        {
+            Capability.GET_TYPE,
+            Capability.LIST_CHILDREN,
+            Capability.READ_CONTENT
+        };
+    }
+
+    public void testExistsAndChildren() throws Exception
+    {
+        final FileObject folder = getReadFolder();
+        assertSame(folder, folder.async().getFile());
+        assertTrue(folder.async().exists().get().booleanValue());
+        assertFalse(folder.resolveFile("unknown-file").async().exists().get().booleanValue());
+        assertEquals(folder.getChildren().length, folder.async().getChildren().get().length);
+    }
+
+    /**
+     * Reads a file from many operations at once.
+     */
+    public void testReadAllBytes() throws Exception
+    {
+        final FileObject file = getReadFolder().resolveFile("file1.txt");
+        final List<Future<byte[]>> reads = new ArrayList<Future<byte[]>>();
+        for (int i = 0; i < 50; i++)
+        {
+            reads.add(file.async().readAllBytes());
+        }
+        for (int i = 0; i < reads.size(); i++)
+        {
+            assertEquals(FILE1_CONTENT, new String(reads.get(i).get()));
+        }
+    }
+
+    public void testFailure() throws Exception
+    {
+        final Future<FileObject[]> children = getReadFolder().resolveFile("file1.txt").async().getChildren();
+        try
+        {
+            children.get();
+            fail();
+        }
+        catch (final ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof FileSystemException);
+        }
+    }
+
+    public void testCopyAndDelete() throws Exception
+    {
+        final FileObject scratchFolder = getWriteFolder();
+        if (scratchFolder == null)
+        {
+            return;
+        }
+        final FileSystem fs = scratchFolder.getFileSystem();
+        if (!fs.hasCapability(Capability.CREATE) || !fs.hasCapability(Capability.DELETE)
+            || !fs.hasCapability(Capability.WRITE_CONTENT))
+        {
+            return;
+        }
+        scratchFolder.delete(Selectors.EXCLUDE_SELF);
+        scratchFolder.createFolder();
+
+        final FileObject source = getReadFolder().resolveFile("file1.txt");
+        final FileObject dest = scratchFolder.resolveFile("async-copy.txt");
+        assertSame(dest, source.async().copyTo(dest, Selectors.SELECT_SELF).get());
+        assertSameContent(FILE1_CONTENT, dest);
+
+        assertTrue(dest.async().delete().get().booleanValue());
+        assertFalse(dest.exists());
+        assertEquals(0, dest.async().delete(Selectors.SELECT_ALL).get().intValue());
+    }
+}
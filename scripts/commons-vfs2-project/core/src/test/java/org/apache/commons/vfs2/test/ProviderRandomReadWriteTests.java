@@ -16,6 +16,8 @@
  */
 package org.apache.commons.vfs2.test;
 
+import java.nio.ByteBuffer;
+
 import org.apache.commons.vfs2.Capability;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.RandomAccessContent;
@@ -111,4 +113,53 @@ public class ProviderRandomReadWriteTests
             }
         }
     }
+
+    /**
+     * Read and write through byte buffers.
+     */
+    public void testByteBuffers() throws Exception
+    {
+        FileObject file = null;
+        try
+        {
+            file = createScratchFolder().resolveFile("random_buffers.txt");
+            file.createFile();
+            RandomAccessContent ra = file.getContent().getRandomAccessContent(RandomAccessMode.READWRITE);
+
+            ra.write(ByteBuffer.wrap(TEST_DATA.getBytes()));
+            ra.seek(5);
+            final ByteBuffer direct = ByteBuffer.allocateDirect(2);
+            direct.put("IS".getBytes()).flip();
+            ra.write(direct);
+            assertFalse(direct.hasRemaining());
+            ra.force();
+
+            ra.seek(0);
+            final ByteBuffer heap = ByteBuffer.allocate(100);
+            int count = 0;
+            int n;
+            while ((n = ra.read(heap)) > 0)
+            {
+                count += n;
+            }
+            assertEquals(TEST_DATA.length(), count);
+            assertEquals("This IS a test file.", new String(heap.array(), 0, count));
+
+            ra.seek(10);
+            final ByteBuffer part = ByteBuffer.allocateDirect(4);
+            assertEquals(4, ra.read(part));
+            part.flip();
+            final byte[] bytes = new byte[4];
+            part.get(bytes);
+            assertEquals("test", new String(bytes));
+            ra.close();
+        }
+        finally
+        {
+            if (file != null)
+            {
+                file.close();
+            }
+        }
+    }
 }
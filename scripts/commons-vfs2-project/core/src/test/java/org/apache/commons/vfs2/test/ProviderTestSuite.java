@@ -72,6 +72,7 @@ public class ProviderTestSuite
         addTests(ProviderRandomReadWriteTests.class);
         addTests(ProviderRenameTests.class);
         addTests(ProviderDeleteTests.class);
+        addTests(ProviderAsyncTests.class);
         addTests(LastModifiedTests.class);
         addTests(UrlTests.class);
         addTests(UrlStructureTests.class);
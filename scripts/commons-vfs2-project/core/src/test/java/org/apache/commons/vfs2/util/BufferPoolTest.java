@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.TestCase;
+
+public class BufferPoolTest extends TestCase
+{
+    public void testReuse() throws Exception
+    {
+        final BufferPool pool = new BufferPool(100);
+        final byte[] buffer = pool.acquire(40);
+        assertEquals(40, buffer.length);
+        pool.release(buffer);
+        assertEquals(40, pool.getRetained());
+
+        assertNotSame(buffer, pool.acquire(20));
+        assertSame(buffer, pool.acquire(40));
+        assertEquals(0, pool.getRetained());
+    }
+
+    public void testBounded() throws Exception
+    {
+        final BufferPool pool = new BufferPool(100);
+        pool.release(new byte[60]);
+        pool.release(new byte[60]);
+        assertEquals(60, pool.getRetained());
+    }
+
+    public void testStreamsUseSharedPool() throws Exception
+    {
+        final long retained = BufferPool.getInstance().getRetained();
+        final byte[] data = "some content".getBytes("utf-8");
+        final MonitorInputStream instr = new MonitorInputStream(new ByteArrayInputStream(data), 4);
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        final MonitorOutputStream outstr = new MonitorOutputStream(target, 4);
+        int ch;
+        while ((ch = instr.read()) != -1)
+        {
+            outstr.write(ch);
+        }
+        outstr.close();
+        assertEquals("some content", target.toString("utf-8"));
+
+        // both buffers went back to the pool, once
+        assertEquals(retained + 8, BufferPool.getInstance().getRetained());
+        instr.close();
+        outstr.close();
+        assertEquals(retained + 8, BufferPool.getInstance().getRetained());
+    }
+}
@@ -19,6 +19,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
 /**
  * Encapsulates a {@link RandomAccessContent} instance, allowing it to be used
@@ -102,6 +103,21 @@ public class RACRandomAccessFile extends RandomAccessFile implements RandomAcces
         return this.rac.getInputStream();
     }
 
+    public int read(ByteBuffer buffer) throws IOException
+    {
+        return this.rac.read(buffer);
+    }
+
+    public void write(ByteBuffer buffer) throws IOException
+    {
+        this.rac.write(buffer);
+    }
+
+    public void force() throws IOException
+    {
+        this.rac.force();
+    }
+
     @Override
     public void close() throws IOException
     {
@@ -16,7 +16,6 @@
  */
 package org.apache.commons.vfs2.provider.mime;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -27,9 +26,9 @@ import java.util.Map;
 import javax.mail.Header;
 import javax.mail.Message;
 import javax.mail.MessagingException;
-import javax.mail.Multipart;
 import javax.mail.Part;
-import javax.mail.internet.MimeMultipart;
+import javax.mail.internet.MimePart;
+import javax.mail.internet.MimeUtility;
 
 import org.apache.commons.vfs2.FileContentInfoFactory;
 import org.apache.commons.vfs2.FileObject;
@@ -44,6 +43,8 @@ import org.apache.commons.vfs2.util.FileObjectUtils;
 
 /**
  * A part of a MIME message.
+ * <p>
+ * The part only holds the headers, its content is read from the message.
  *
  * @author <a href="mailto:imario@apache.org">imario@apache.org</a>
  */
@@ -51,15 +52,16 @@ public class MimeFileObject
     extends AbstractFileObject
     implements FileObject
 {
+    private MimePartIndex.Entry entry;
     private Part part;
     private Map<String, Object> attributeMap;
 
     protected MimeFileObject(final AbstractFileName name,
-                            final Part part,
+                            final MimePartIndex.Entry entry,
                             final AbstractFileSystem fileSystem) throws FileSystemException
     {
         super(name, fileSystem);
-        setPart(part);
+        setEntry(entry);
     }
     /**
      * Attaches this file object to its file resource.
@@ -67,20 +69,21 @@ public class MimeFileObject
     @Override
     protected void doAttach() throws Exception
     {
-        if (part == null)
+        if (entry == null)
         {
             if (!getName().equals(getFileSystem().getRootName()))
             {
                 MimeFileObject foParent = (MimeFileObject) FileObjectUtils.getAbstractFileObject(getParent());
-                setPart(foParent.findPart(getName().getBaseName()));
+                setEntry(foParent.findEntry(getName().getBaseName()));
                 return;
             }
 
-            setPart(((MimeFileSystem) getFileSystem()).createCommunicationLink());
+            MimePartIndex index = ((MimeFileSystem) getFileSystem()).getIndex();
+            setEntry(index == null ? null : index.getRoot());
         }
     }
 
-    private Part findPart(String partName) throws Exception
+    private MimePartIndex.Entry findEntry(String partName) throws Exception
     {
         if (getType() == FileType.IMAGINARY)
         {
@@ -90,25 +93,25 @@ public class MimeFileObject
 
         if (isMultipart())
         {
-            Multipart multipart = (Multipart)  part.getContent();
+            List<MimePartIndex.Entry> children = entry.getChildren();
             if (partName.startsWith(MimeFileSystem.NULL_BP_NAME))
             {
                 int partNumber = Integer.parseInt(partName.substring(MimeFileSystem.NULL_BP_NAME.length()), 10);
-                if (partNumber < 0 || partNumber+1 > multipart.getCount())
+                if (partNumber < 0 || partNumber+1 > children.size())
                 {
                     // non existent
                     return null;
                 }
 
-                return multipart.getBodyPart(partNumber);
+                return children.get(partNumber);
             }
 
-            for (int i = 0; i<multipart.getCount(); i++)
+            for (int i = 0; i<children.size(); i++)
             {
-                Part childPart = multipart.getBodyPart(i);
-                if (partName.equals(childPart.getFileName()))
+                MimePartIndex.Entry child = children.get(i);
+                if (partName.equals(child.createPart().getFileName()))
                 {
-                    return childPart;
+                    return child;
                 }
             }
         }
@@ -119,6 +122,7 @@ public class MimeFileObject
     @Override
     protected void doDetach() throws Exception
     {
+        setEntry(null);
     }
 
     /**
@@ -128,7 +132,7 @@ public class MimeFileObject
     @Override
     protected FileType doGetType() throws Exception
     {
-        if (part == null)
+        if (entry == null)
         {
             return FileType.IMAGINARY;
         }
@@ -155,7 +159,7 @@ public class MimeFileObject
     @Override
     protected FileObject[] doListChildrenResolved() throws Exception
     {
-        if (part == null)
+        if (entry == null)
         {
             return null;
         }
@@ -163,48 +167,44 @@ public class MimeFileObject
         List<MimeFileObject> vfs = new ArrayList<MimeFileObject>();
         if (isMultipart())
         {
-            Object container = part.getContent();
-            if (container instanceof Multipart)
+            List<MimePartIndex.Entry> children = entry.getChildren();
+            for (int i = 0; i<children.size(); i++)
             {
-                Multipart multipart = (Multipart) container;
+                MimePartIndex.Entry child = children.get(i);
 
-                for (int i = 0; i<multipart.getCount(); i++)
+                String filename = UriParser.encode(child.createPart().getFileName());
+                if (filename == null)
                 {
-                    Part part = multipart.getBodyPart(i);
-
-                    String filename = UriParser.encode(part.getFileName());
-                    if (filename == null)
-                    {
-                        filename = MimeFileSystem.NULL_BP_NAME + i;
-                    }
-
-                    MimeFileObject fo = (MimeFileObject) FileObjectUtils.getAbstractFileObject(getFileSystem().resolveFile(
-                        getFileSystem().getFileSystemManager().resolveName(
-                            getName(),
-                            filename,
-                            NameScope.CHILD)));
-                    fo.setPart(part);
-                    vfs.add(fo);
+                    filename = MimeFileSystem.NULL_BP_NAME + i;
                 }
+
+                MimeFileObject fo = (MimeFileObject) FileObjectUtils.getAbstractFileObject(getFileSystem().resolveFile(
+                    getFileSystem().getFileSystemManager().resolveName(
+                        getName(),
+                        filename,
+                        NameScope.CHILD)));
+                fo.setEntry(child);
+                vfs.add(fo);
             }
         }
 
         return vfs.toArray(new MimeFileObject[vfs.size()]);
     }
 
-    private void setPart(Part part)
+    private void setEntry(MimePartIndex.Entry entry)
     {
-        this.part = part;
+        this.entry = entry;
+        this.part = null;
         this.attributeMap = null;
     }
 
     /**
-     * Returns the size of the file content (in bytes).
+     * Returns the size of the file content (in bytes), as it is in the message.
      */
     @Override
     protected long doGetContentSize() throws Exception
     {
-        return part.getSize();
+        return entry.getBodyEnd() - entry.getBodyStart();
     }
 
     /**
@@ -232,9 +232,9 @@ public class MimeFileObject
 
     private Message getMessage() throws FileSystemException
     {
-        if (part instanceof Message)
+        if (getPart() instanceof Message)
         {
-            return (Message) part;
+            return (Message) getPart();
         }
 
         return ((MimeFileObject) FileObjectUtils.getAbstractFileObject(getParent())).getMessage();
@@ -246,24 +246,25 @@ public class MimeFileObject
     @Override
     protected InputStream doGetInputStream() throws Exception
     {
+        MimeFileSystem fs = (MimeFileSystem) getFileSystem();
         if (isMultipart())
         {
             // deliver the preamble as the only content
-
-            String preamble = ((MimeMultipart) part.getContent()).getPreamble();
-            if (preamble == null)
-            {
-                return new ByteArrayInputStream(new byte[]{});
-            }
-            return new ByteArrayInputStream(preamble.getBytes(MimeFileSystem.PREAMBLE_CHARSET));
+            return fs.getContentStream(entry.getBodyStart(), entry.getPreambleEnd());
         }
 
-        return part.getInputStream();
+        InputStream content = fs.getContentStream(entry.getBodyStart(), entry.getBodyEnd());
+        String encoding = ((MimePart) getPart()).getEncoding();
+        if (encoding == null)
+        {
+            return content;
+        }
+        return MimeUtility.decode(content, encoding);
     }
 
     boolean isMultipart() throws MessagingException
     {
-        return part.getContentType() != null && part.getContentType().startsWith("multipart/");
+        return entry.isMultipart();
     }
 
     @Override
@@ -272,8 +273,22 @@ public class MimeFileObject
         return new MimeFileContentInfoFactory();
     }
 
-    protected Part getPart()
+    /**
+     * Returns the part with the headers only, a message for the root.
+     */
+    protected Part getPart() throws FileSystemException
     {
+        if (part == null && entry != null)
+        {
+            try
+            {
+                part = entry.createPart();
+            }
+            catch (MessagingException e)
+            {
+                throw new FileSystemException(e);
+            }
+        }
         return part;
     }
 
@@ -291,9 +306,9 @@ public class MimeFileObject
     {
         if (attributeMap == null)
         {
-            if (part != null)
+            if (entry != null)
             {
-                attributeMap = new MimeAttributesMap(part);
+                attributeMap = new MimeAttributesMap(getPart());
             }
             else
             {
@@ -305,8 +320,8 @@ public class MimeFileObject
     }
 
     @SuppressWarnings("unchecked") // Javadoc says Part returns Header
-    protected Enumeration<Header> getAllHeaders() throws MessagingException
+    protected Enumeration<Header> getAllHeaders() throws MessagingException, FileSystemException
     {
-        return part.getAllHeaders();
+        return getPart().getAllHeaders();
     }
 }
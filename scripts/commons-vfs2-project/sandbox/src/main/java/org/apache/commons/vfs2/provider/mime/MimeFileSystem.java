@@ -21,23 +21,24 @@ import java.io.InputStream;
 import java.util.Collection;
 
 import javax.mail.MessagingException;
-import javax.mail.Part;
-import javax.mail.internet.MimeMessage;
 
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
 import org.apache.commons.vfs2.Capability;
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystem;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.RandomAccessContent;
 import org.apache.commons.vfs2.provider.AbstractFileName;
 import org.apache.commons.vfs2.provider.AbstractFileSystem;
-import org.apache.commons.vfs2.util.SharedRandomContentInputStream;
+import org.apache.commons.vfs2.util.MonitorInputStream;
+import org.apache.commons.vfs2.util.RandomAccessMode;
 
 /**
  * An MIME file system.
+ * <p>
+ * The message is scanned once to index its parts, the content of a part is read
+ * from the message when it is needed.
  *
  * @author <a href="mailto:imario@apache.org">imario@apache.org</a>
  */
@@ -45,13 +46,11 @@ public class MimeFileSystem
     extends AbstractFileSystem
     implements FileSystem
 {
-    private Log log = LogFactory.getLog(MimeFileSystem.class);
-
     public final static String NULL_BP_NAME = "_body_part_";
     public final static String CONTENT_NAME = "_content";
     public final static String PREAMBLE_CHARSET = "UTF-8";
 
-    private InputStream mimeStream = null;
+    private MimePartIndex index;
 
     protected MimeFileSystem(final FileName rootName, final FileObject parentLayer, final FileSystemOptions fileSystemOptions)
     {
@@ -80,55 +79,141 @@ public class MimeFileSystem
     @Override
     protected void doCloseCommunicationLink()
     {
-        try
-        {
-            if (mimeStream == null)
-            {
-                return;
-            }
+        index = null;
+    }
 
-            closeMimeStream();
-            mimeStream = null;
+    /**
+     * Returns the index of the parts of the message, scanning the message when there is
+     * no index of its current content yet.
+     * @return The index, null if the message does not exist.
+     * @throws IOException if an error occurs reading the message.
+     * @throws MessagingException if the headers cannot be parsed.
+     */
+    synchronized MimePartIndex getIndex() throws IOException, MessagingException
+    {
+        final FileObject parentLayer = getParentLayer();
+        if (!parentLayer.exists())
+        {
+            index = null;
+            return null;
         }
-        catch (IOException e)
+        if (index == null || !index.isCurrent(parentLayer))
         {
-            log.warn(e.getLocalizedMessage(), e);
+            index = MimePartIndex.build(parentLayer);
         }
+        return index;
     }
 
-    private void closeMimeStream() throws IOException
+    /**
+     * Opens a stream to read a range of the message.
+     * @param start The position of the first byte.
+     * @param end The position after the last byte.
+     * @return The stream.
+     * @throws IOException if an error occurs opening the message.
+     */
+    InputStream getContentStream(final long start, final long end) throws IOException
     {
-        if (mimeStream instanceof SharedRandomContentInputStream)
+        final FileObject parentLayer = getParentLayer();
+        if (parentLayer.getFileSystem().hasCapability(Capability.RANDOM_ACCESS_READ))
         {
-            ((SharedRandomContentInputStream) mimeStream).closeAll();
+            final RandomAccessContent content = parentLayer.getContent().getRandomAccessContent(RandomAccessMode.READ);
+            try
+            {
+                content.seek(start);
+                return new RangeInputStream(content.getInputStream(), end - start, content);
+            }
+            catch (final IOException e)
+            {
+                content.close();
+                throw e;
+            }
         }
-        else
+
+        final InputStream in = parentLayer.getContent().getInputStream();
+        try
         {
-            mimeStream.close();
+            long skip = start;
+            while (skip > 0)
+            {
+                final long skipped = in.skip(skip);
+                if (skipped <= 0)
+                {
+                    break;
+                }
+                skip -= skipped;
+            }
+            return new RangeInputStream(in, end - start, null);
+        }
+        catch (final IOException e)
+        {
+            in.close();
+            throw e;
         }
     }
 
-    public Part createCommunicationLink() throws IOException, MessagingException
+    /**
+     * Reads a range of the message, then closes the random access content it is read from.
+     */
+    private static final class RangeInputStream extends MonitorInputStream
     {
-        if (mimeStream != null)
+        private final RandomAccessContent content;
+        private long remaining;
+
+        private RangeInputStream(final InputStream in, final long length, final RandomAccessContent content)
         {
-            closeMimeStream();
+            super(in);
+            this.remaining = length;
+            this.content = content;
         }
 
-        FileObject parentLayer = getParentLayer();
-        if (!parentLayer.exists())
+        @Override
+        public int read() throws IOException
         {
-            return null;
+            if (remaining <= 0)
+            {
+                return -1;
+            }
+            final int b = super.read();
+            if (b != -1)
+            {
+                remaining--;
+            }
+            return b;
         }
 
-        if (parentLayer.getFileSystem().hasCapability(Capability.RANDOM_ACCESS_READ))
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException
         {
-            mimeStream = new SharedRandomContentInputStream(parentLayer);
+            if (remaining <= 0)
+            {
+                return -1;
+            }
+            final int n = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n > 0)
+            {
+                remaining -= n;
+            }
+            return n;
         }
-        else
+
+        @Override
+        public long skip(final long n) throws IOException
         {
-            mimeStream = getParentLayer().getContent().getInputStream();
+            final long skipped = super.skip(Math.min(n, remaining));
+            if (skipped > 0)
+            {
+                remaining -= skipped;
+            }
+            return skipped;
+        }
+
+        @Override
+        protected void onClose() throws IOException
+        {
+            if (content != null)
+            {
+                content.close();
+            }
         }
-        return new MimeMessage(null, mimeStream);
     }
 }
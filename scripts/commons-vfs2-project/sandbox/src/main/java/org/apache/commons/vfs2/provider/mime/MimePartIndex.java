@@ -0,0 +1,481 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.mime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.mail.MessagingException;
+import javax.mail.Part;
+import javax.mail.internet.ContentType;
+import javax.mail.internet.InternetHeaders;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeMessage;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+
+/**
+ * The parts of a MIME message: their headers, and where their content is in the message.
+ * <p>
+ * The message is scanned once for the boundaries of the multiparts. Only the headers
+ * are kept, the content of the parts is read from the message when it is needed.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+final class MimePartIndex
+{
+    /** The most bytes of a body line looked at for a boundary. */
+    private static final int BOUNDARY_LINE_LIMIT = 1024;
+
+    /** The most bytes kept of a header line. */
+    private static final int HEADER_LINE_LIMIT = 64 * 1024;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final long containerSize;
+    private final long containerLastModified;
+    private final Entry root;
+
+    private MimePartIndex(final long containerSize, final long containerLastModified, final Entry root)
+    {
+        this.containerSize = containerSize;
+        this.containerLastModified = containerLastModified;
+        this.root = root;
+    }
+
+    /**
+     * Scans a message to build its index.
+     * @param container The file of the message.
+     * @return The index.
+     * @throws IOException if an error occurs reading the message.
+     * @throws MessagingException if the headers cannot be parsed.
+     */
+    static MimePartIndex build(final FileObject container) throws IOException, MessagingException
+    {
+        final long size = container.getContent().getSize();
+        final long lastModified = getLastModified(container);
+        final LineReader reader = new LineReader(container.getContent().getInputStream());
+        try
+        {
+            final Entry root = parsePart(reader, new ArrayList<byte[]>(), true);
+            return new MimePartIndex(size, lastModified, root);
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    private static long getLastModified(final FileObject container)
+    {
+        try
+        {
+            return container.getContent().getLastModifiedTime();
+        }
+        catch (final FileSystemException e)
+        {
+            // the last modified time is not supported
+            return -1;
+        }
+    }
+
+    /**
+     * Returns true if the message did not change since the index was built.
+     * @param container The file of the message.
+     * @return true if the index can be used.
+     * @throws FileSystemException if an error occurs.
+     */
+    boolean isCurrent(final FileObject container) throws FileSystemException
+    {
+        return container.getContent().getSize() == containerSize
+            && getLastModified(container) == containerLastModified;
+    }
+
+    /**
+     * @return The message.
+     */
+    Entry getRoot()
+    {
+        return root;
+    }
+
+    /**
+     * Reads the headers and the body of a part, up to the delimiter of one of the
+     * enclosing multiparts, which is left in the reader.
+     */
+    private static Entry parsePart(final LineReader reader, final List<byte[]> boundaries,
+                                   final boolean message) throws IOException, MessagingException
+    {
+        final byte[] headers = reader.readHeaders();
+        final Entry entry = new Entry(headers, message);
+        entry.bodyStart = reader.getPosition();
+
+        final byte[] boundary = getBoundary(headers);
+        if (boundary == null)
+        {
+            reader.skipTo(boundaries);
+            entry.bodyEnd = reader.getContentEnd();
+            return entry;
+        }
+
+        final List<byte[]> innerBoundaries = new ArrayList<byte[]>(boundaries);
+        innerBoundaries.add(boundary);
+
+        // the preamble
+        boolean found = reader.skipTo(innerBoundaries);
+        entry.preambleEnd = reader.getContentEnd();
+
+        final List<Entry> children = new ArrayList<Entry>();
+        while (found && reader.getDelimiter() == boundary && !reader.isCloseDelimiter())
+        {
+            children.add(parsePart(reader, innerBoundaries, false));
+            found = reader.hasDelimiter();
+        }
+        if (found && reader.getDelimiter() == boundary)
+        {
+            // the epilogue
+            reader.skipTo(boundaries);
+        }
+        entry.children = children;
+        entry.bodyEnd = reader.getContentEnd();
+        return entry;
+    }
+
+    /**
+     * Returns the boundary of a multipart, null if the part is no multipart.
+     */
+    private static byte[] getBoundary(final byte[] headers) throws MessagingException
+    {
+        final String contentType = new InternetHeaders(new ByteArrayInputStream(headers))
+            .getHeader("Content-Type", null);
+        if (contentType == null)
+        {
+            return null;
+        }
+
+        final ContentType type = new ContentType(contentType);
+        final String boundary = type.getParameter("boundary");
+        if (!"multipart".equalsIgnoreCase(type.getPrimaryType()) || boundary == null)
+        {
+            return null;
+        }
+        try
+        {
+            return ("--" + boundary).getBytes("US-ASCII");
+        }
+        catch (final IOException e)
+        {
+            throw new MessagingException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A part of the message.
+     */
+    static final class Entry
+    {
+        private final byte[] headers;
+        private final boolean message;
+        private long bodyStart;
+        private long bodyEnd;
+        private long preambleEnd = -1;
+        private List<Entry> children = Collections.emptyList();
+
+        private Entry(final byte[] headers, final boolean message)
+        {
+            this.headers = headers;
+            this.message = message;
+        }
+
+        /**
+         * Creates a part with the headers and no content, a message for the root.
+         * @return The part.
+         * @throws MessagingException if the headers cannot be parsed.
+         */
+        Part createPart() throws MessagingException
+        {
+            final InputStream in = new ByteArrayInputStream(headers);
+            if (message)
+            {
+                return new MimeMessage(null, in);
+            }
+            return new MimeBodyPart(in);
+        }
+
+        /**
+         * @return true if this is a multipart.
+         */
+        boolean isMultipart()
+        {
+            return preambleEnd != -1;
+        }
+
+        /**
+         * @return The position of the content in the message.
+         */
+        long getBodyStart()
+        {
+            return bodyStart;
+        }
+
+        /**
+         * @return The position after the content in the message.
+         */
+        long getBodyEnd()
+        {
+            return bodyEnd;
+        }
+
+        /**
+         * @return The position after the preamble of a multipart.
+         */
+        long getPreambleEnd()
+        {
+            return preambleEnd;
+        }
+
+        /**
+         * @return The parts of a multipart.
+         */
+        List<Entry> getChildren()
+        {
+            return children;
+        }
+    }
+
+    /**
+     * Reads a message line by line, keeping track of the position. Only the beginning
+     * of the lines of the bodies is kept, to look for boundaries.
+     */
+    private static final class LineReader
+    {
+        private final InputStream in;
+        private final byte[] buffer = new byte[64 * 1024];
+        private int bufferPos;
+        private int bufferLength;
+        private long position;
+
+        private byte[] line = new byte[BOUNDARY_LINE_LIMIT];
+        private int lineLength;
+        private int lineKept;
+        private long lineStart;
+        private int eolLength;
+
+        private long contentEnd;
+        private byte[] delimiter;
+        private boolean closeDelimiter;
+
+        private LineReader(final InputStream in)
+        {
+            this.in = in;
+        }
+
+        long getPosition()
+        {
+            return position;
+        }
+
+        /**
+         * @return The end of the content before the last delimiter, or the end of the message.
+         */
+        long getContentEnd()
+        {
+            return contentEnd;
+        }
+
+        boolean hasDelimiter()
+        {
+            return delimiter != null;
+        }
+
+        byte[] getDelimiter()
+        {
+            return delimiter;
+        }
+
+        boolean isCloseDelimiter()
+        {
+            return closeDelimiter;
+        }
+
+        /**
+         * Reads the header lines up to the empty line, which ends them.
+         * @return The headers, followed by an empty line.
+         */
+        byte[] readHeaders() throws IOException
+        {
+            final ByteArrayOutputStream headers = new ByteArrayOutputStream();
+            while (readLine(HEADER_LINE_LIMIT) && lineLength > 0)
+            {
+                headers.write(line, 0, lineKept);
+                headers.write(CRLF);
+            }
+            headers.write(CRLF);
+            return headers.toByteArray();
+        }
+
+        /**
+         * Skips the lines up to the delimiter of one of the boundaries, which is read.
+         * @return true if a delimiter was found, false at the end of the message.
+         */
+        boolean skipTo(final List<byte[]> boundaries) throws IOException
+        {
+            final long start = position;
+            int previousEol = 0;
+            delimiter = null;
+            while (readLine(BOUNDARY_LINE_LIMIT))
+            {
+                for (int i = boundaries.size() - 1; i >= 0; i--)
+                {
+                    if (isDelimiter(boundaries.get(i)))
+                    {
+                        // the line break before the delimiter belongs to it
+                        contentEnd = Math.max(start, lineStart - previousEol);
+                        delimiter = boundaries.get(i);
+                        return true;
+                    }
+                }
+                previousEol = eolLength;
+            }
+            contentEnd = position;
+            return false;
+        }
+
+        /**
+         * Tests if the line is "--boundary" or "--boundary--", then white space.
+         */
+        private boolean isDelimiter(final byte[] boundary)
+        {
+            final int length = lineKept;
+            if (length < boundary.length)
+            {
+                return false;
+            }
+            for (int i = 0; i < boundary.length; i++)
+            {
+                if (line[i] != boundary[i])
+                {
+                    return false;
+                }
+            }
+
+            int i = boundary.length;
+            final boolean close = i + 1 < length && line[i] == '-' && line[i + 1] == '-';
+            if (close)
+            {
+                i += 2;
+            }
+            for (; i < length; i++)
+            {
+                if (line[i] != ' ' && line[i] != '\t')
+                {
+                    return false;
+                }
+            }
+            if (lineKept < lineLength)
+            {
+                // too long for a delimiter
+                return false;
+            }
+            closeDelimiter = close;
+            return true;
+        }
+
+        /**
+         * Reads a line, keeping at most limit bytes of it.
+         * @return false at the end of the message.
+         */
+        private boolean readLine(final int limit) throws IOException
+        {
+            lineStart = position;
+            lineLength = 0;
+            lineKept = 0;
+            eolLength = 0;
+            while (true)
+            {
+                if (bufferPos == bufferLength && !fill())
+                {
+                    return position > lineStart;
+                }
+
+                final byte b = buffer[bufferPos++];
+                position++;
+                if (b == '\n')
+                {
+                    eolLength++;
+                    return true;
+                }
+                if (b == '\r')
+                {
+                    // a CR is only part of the line break before a LF
+                    if (bufferPos == bufferLength && !fill())
+                    {
+                        append(b, limit);
+                        return true;
+                    }
+                    if (buffer[bufferPos] == '\n')
+                    {
+                        bufferPos++;
+                        position++;
+                        eolLength = 2;
+                        return true;
+                    }
+                }
+                append(b, limit);
+            }
+        }
+
+        private void append(final byte b, final int limit)
+        {
+            if (lineLength < limit)
+            {
+                if (lineLength == line.length)
+                {
+                    final byte[] grown = new byte[Math.min(limit, line.length * 2)];
+                    System.arraycopy(line, 0, grown, 0, lineLength);
+                    line = grown;
+                }
+                line[lineLength] = b;
+                lineKept++;
+            }
+            lineLength++;
+        }
+
+        private boolean fill() throws IOException
+        {
+            bufferLength = in.read(buffer);
+            bufferPos = 0;
+            if (bufferLength <= 0)
+            {
+                bufferLength = 0;
+                return false;
+            }
+            return true;
+        }
+
+        void close() throws IOException
+        {
+            in.close();
+        }
+    }
+}
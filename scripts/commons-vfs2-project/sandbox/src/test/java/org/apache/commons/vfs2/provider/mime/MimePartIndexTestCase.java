@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.vfs2.provider.mime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.mail.internet.MimeUtility;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
+import org.apache.commons.vfs2.provider.ram.RamFileProvider;
+
+/**
+ * Tests the index of the parts of a MIME message.
+ *
+ * @author <a href="http://commons.apache.org/vfs/team-list.html">Commons VFS team</a>
+ */
+public class MimePartIndexTestCase extends TestCase
+{
+    /**
+     * A message with a preamble, a multipart inside the multipart, and body lines which
+     * start like delimiters.
+     */
+    private static final String[] NESTED_MESSAGE = {
+        "From: sender@example.com",
+        "Subject: nested",
+        "MIME-Version: 1.0",
+        "Content-Type: multipart/mixed; boundary=\"outer\"",
+        "",
+        "This is the preamble.",
+        "--outer",
+        "Content-Type: text/plain",
+        "",
+        "first line",
+        "-- not a boundary",
+        "--outer2 is not a boundary",
+        "--outer-- nor is this",
+        "--outer",
+        "Content-Type: multipart/alternative; boundary=\"inner\"",
+        "",
+        "--inner",
+        "Content-Type: text/plain; charset=UTF-8",
+        "Content-Transfer-Encoding: quoted-printable",
+        "",
+        "caf=C3=A9 =",
+        "au lait",
+        "--inner",
+        "Content-Type: text/html",
+        "Content-Transfer-Encoding: base64",
+        "",
+        "PGI+aGk8L2I+",
+        "--inner--",
+        "--outer",
+        "Content-Type: application/octet-stream; name=\"data.bin\"",
+        "Content-Disposition: attachment; filename=\"data.bin\"",
+        "Content-Transfer-Encoding: base64",
+        "",
+        "AAECAw==",
+        "--outer--",
+        "The epilogue."
+    };
+
+    private static final String[] SIMPLE_MESSAGE = {
+        "From: sender@example.com",
+        "MIME-Version: 1.0",
+        "Content-Type: multipart/mixed; boundary=\"simple\"",
+        "",
+        "--simple",
+        "Content-Type: text/plain",
+        "",
+        "one",
+        "--simple--"
+    };
+
+    private DefaultFileSystemManager manager;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        manager = new DefaultFileSystemManager();
+        manager.addProvider("ram", new RamFileProvider());
+        manager.addProvider("mime", new MimeFileProvider());
+        manager.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        manager.close();
+        super.tearDown();
+    }
+
+    public void testNestedMultipartsWithCrlf() throws Exception
+    {
+        assertNestedMessage("\r\n");
+    }
+
+    public void testNestedMultipartsWithLf() throws Exception
+    {
+        assertNestedMessage("\n");
+    }
+
+    public void testIndexIsRebuiltAfterChange() throws Exception
+    {
+        final FileObject file = writeMessage("ram:///changing.eml", SIMPLE_MESSAGE, "\r\n");
+        final MimeFileSystem fs = (MimeFileSystem) manager.resolveFile("mime:" + file.getName().getURI() + "!/")
+            .getFileSystem();
+
+        final MimePartIndex index = fs.getIndex();
+        assertTrue(index.isCurrent(file));
+        assertSame(index, fs.getIndex());
+        assertEquals(1, index.getRoot().getChildren().size());
+
+        writeMessage("ram:///changing.eml", NESTED_MESSAGE, "\r\n");
+        assertFalse(index.isCurrent(file));
+        final MimePartIndex rebuilt = fs.getIndex();
+        assertNotSame(index, rebuilt);
+        assertEquals(3, rebuilt.getRoot().getChildren().size());
+    }
+
+    private void assertNestedMessage(final String eol) throws Exception
+    {
+        final FileObject file = writeMessage("ram:///nested.eml", NESTED_MESSAGE, eol);
+        final byte[] message = toBytes(NESTED_MESSAGE, eol);
+        final MimePartIndex.Entry root = MimePartIndex.build(file).getRoot();
+
+        assertTrue(root.isMultipart());
+        assertEquals("nested", root.createPart().getHeader("Subject")[0]);
+        assertEquals("This is the preamble.", content(message, root.getBodyStart(), root.getPreambleEnd()));
+
+        final List<MimePartIndex.Entry> parts = root.getChildren();
+        assertEquals(3, parts.size());
+
+        // the lines starting with "--" are content
+        final MimePartIndex.Entry text = parts.get(0);
+        assertFalse(text.isMultipart());
+        assertEquals("first line" + eol + "-- not a boundary" + eol + "--outer2 is not a boundary" + eol
+            + "--outer-- nor is this", content(message, text));
+
+        // the multipart inside, without a preamble
+        final MimePartIndex.Entry alternative = parts.get(1);
+        assertTrue(alternative.isMultipart());
+        assertEquals(alternative.getBodyStart(), alternative.getPreambleEnd());
+        final List<MimePartIndex.Entry> alternatives = alternative.getChildren();
+        assertEquals(2, alternatives.size());
+
+        final MimePartIndex.Entry quoted = alternatives.get(0);
+        assertEquals("quoted-printable", quoted.createPart().getHeader("Content-Transfer-Encoding")[0]);
+        assertEquals("caf=C3=A9 =" + eol + "au lait", content(message, quoted));
+        assertEquals("caf\u00e9 au lait", new String(decode(message, quoted, "quoted-printable"), "UTF-8"));
+
+        final MimePartIndex.Entry html = alternatives.get(1);
+        assertEquals("text/html", html.createPart().getContentType());
+        assertEquals("<b>hi</b>", new String(decode(message, html, "base64"), "US-ASCII"));
+
+        final MimePartIndex.Entry attachment = parts.get(2);
+        assertEquals("data.bin", attachment.createPart().getFileName());
+        assertEquals("AAECAw==", content(message, attachment));
+        assertTrue(Arrays.equals(new byte[] {0, 1, 2, 3}, decode(message, attachment, "base64")));
+    }
+
+    private FileObject writeMessage(final String uri, final String[] lines, final String eol) throws Exception
+    {
+        final FileObject file = manager.resolveFile(uri);
+        final OutputStream out = file.getContent().getOutputStream();
+        try
+        {
+            out.write(toBytes(lines, eol));
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+
+    private static byte[] toBytes(final String[] lines, final String eol) throws Exception
+    {
+        final StringBuilder message = new StringBuilder();
+        for (int i = 0; i < lines.length; i++)
+        {
+            message.append(lines[i]).append(eol);
+        }
+        return message.toString().getBytes("US-ASCII");
+    }
+
+    private static String content(final byte[] message, final MimePartIndex.Entry entry) throws Exception
+    {
+        return content(message, entry.getBodyStart(), entry.getBodyEnd());
+    }
+
+    private static String content(final byte[] message, final long start, final long end) throws Exception
+    {
+        return new String(message, (int) start, (int) (end - start), "US-ASCII");
+    }
+
+    private static byte[] decode(final byte[] message, final MimePartIndex.Entry entry, final String encoding)
+        throws Exception
+    {
+        final InputStream in = MimeUtility.decode(new ByteArrayInputStream(message, (int) entry.getBodyStart(),
+            (int) (entry.getBodyEnd() - entry.getBodyStart())), encoding);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1)
+        {
+            out.write(b);
+        }
+        return out.toByteArray();
+    }
+}